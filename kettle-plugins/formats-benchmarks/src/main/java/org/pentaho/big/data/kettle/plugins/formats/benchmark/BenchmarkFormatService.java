@@ -0,0 +1,45 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.formats.benchmark;
+
+import org.pentaho.big.data.impl.shim.format.FormatServiceFactory;
+import org.pentaho.hadoop.shim.api.format.FormatService;
+import org.pentaho.hadoop.shim.common.CommonFormatShim;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/**
+ * Locates the shim {@link FormatService} the benchmarks run against. The steps get it from the named cluster service
+ * locator, which is not available outside of a running PDI. A different implementation can be named with
+ * {@link #FORMAT_SERVICE_PROPERTY} or registered as a {@link ServiceLoader} provider, otherwise the common format shim
+ * is wired up the same way the services bootstrap does it, without a named cluster since the files are local.
+ */
+public final class BenchmarkFormatService {
+  public static final String FORMAT_SERVICE_PROPERTY = "formats.benchmark.formatService";
+
+  private BenchmarkFormatService() {
+  }
+
+  public static FormatService get() throws ReflectiveOperationException {
+    String className = System.getProperty( FORMAT_SERVICE_PROPERTY );
+    if ( className != null && !className.trim().isEmpty() ) {
+      return (FormatService) Class.forName( className.trim() ).getDeclaredConstructor().newInstance();
+    }
+    Iterator<FormatService> services = ServiceLoader.load( FormatService.class ).iterator();
+    if ( services.hasNext() ) {
+      return services.next();
+    }
+    return new FormatServiceFactory( new CommonFormatShim() ).create( null );
+  }
+}
@@ -0,0 +1,177 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.formats.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.hadoop.shim.api.format.FormatService;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * Shared state of the format benchmarks: the generated rows, their Kettle row meta and a scratch directory for the
+ * local files. Every benchmark invocation processes {@link #ROWS} rows, so JMH's ops/s is rows/s.
+ */
+@State( Scope.Benchmark )
+public abstract class FormatBenchmarkBase {
+  public static final int ROWS = 100_000;
+
+  protected static final long SPLIT_SIZE = 128L * 1024L * 1024L;
+
+  private static final int[] MIXED_TYPES = {
+    ValueMetaInterface.TYPE_STRING, ValueMetaInterface.TYPE_INTEGER, ValueMetaInterface.TYPE_NUMBER,
+    ValueMetaInterface.TYPE_BOOLEAN, ValueMetaInterface.TYPE_DATE, ValueMetaInterface.TYPE_BIGNUMBER };
+
+  /**
+   * Number of columns in the schema.
+   */
+  @Param( { "8", "64" } )
+  public int columns;
+
+  /**
+   * Kettle type of every column, or "Mixed" to cycle through the common types.
+   */
+  @Param( { "String", "Integer", "Number", "Mixed" } )
+  public String types;
+
+  /**
+   * Codec, mapped to the closest codec of the format: NONE, SNAPPY or GZIP (ZLIB for ORC).
+   */
+  @Param( { "NONE", "SNAPPY", "GZIP" } )
+  public String codec;
+
+  /**
+   * Parquet row group size or ORC stripe size in MB.
+   */
+  @Param( { "8", "64" } )
+  public int blockSizeMb;
+
+  protected FormatService formatService;
+
+  protected RowMetaInterface rowMeta;
+
+  protected RowMetaAndData[] rows;
+
+  private File workDir;
+
+  protected void setUpTrial() throws Exception {
+    KettleClientEnvironment.init();
+    formatService = BenchmarkFormatService.get();
+    workDir = Files.createTempDirectory( getClass().getSimpleName() ).toFile();
+    rowMeta = new RowMeta();
+    for ( int i = 0; i < columns; i++ ) {
+      rowMeta.addValueMeta( createValueMeta( "f" + i, columnType( i ) ) );
+    }
+    Random random = new Random( 42 );
+    rows = new RowMetaAndData[ ROWS ];
+    for ( int r = 0; r < ROWS; r++ ) {
+      Object[] data = new Object[ columns ];
+      for ( int i = 0; i < columns; i++ ) {
+        data[ i ] = createValue( rowMeta.getValueMeta( i ).getType(), random );
+      }
+      rows[ r ] = new RowMetaAndData( rowMeta, data );
+    }
+  }
+
+  @TearDown( Level.Trial )
+  public void deleteWorkDir() {
+    File[] files = workDir == null ? null : workDir.listFiles();
+    if ( files != null ) {
+      for ( File file : files ) {
+        file.delete();
+      }
+    }
+    if ( workDir != null ) {
+      workDir.delete();
+    }
+  }
+
+  protected File newFile( String name ) throws IOException {
+    File file = new File( workDir, name );
+    Files.deleteIfExists( file.toPath() );
+    return file;
+  }
+
+  protected static String toUri( File file ) {
+    return file.toURI().toString();
+  }
+
+  protected int columnType( int column ) {
+    switch ( types ) {
+      case "String":
+        return ValueMetaInterface.TYPE_STRING;
+      case "Integer":
+        return ValueMetaInterface.TYPE_INTEGER;
+      case "Number":
+        return ValueMetaInterface.TYPE_NUMBER;
+      case "Mixed":
+        return MIXED_TYPES[ column % MIXED_TYPES.length ];
+      default:
+        throw new IllegalArgumentException( "Unknown column types " + types );
+    }
+  }
+
+  private static ValueMetaInterface createValueMeta( String name, int type ) {
+    switch ( type ) {
+      case ValueMetaInterface.TYPE_STRING:
+        return new ValueMetaString( name );
+      case ValueMetaInterface.TYPE_INTEGER:
+        return new ValueMetaInteger( name );
+      case ValueMetaInterface.TYPE_NUMBER:
+        return new ValueMetaNumber( name );
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return new ValueMetaBoolean( name );
+      case ValueMetaInterface.TYPE_DATE:
+        return new ValueMetaDate( name );
+      default:
+        return new ValueMetaBigNumber( name );
+    }
+  }
+
+  private static Object createValue( int type, Random random ) {
+    switch ( type ) {
+      case ValueMetaInterface.TYPE_STRING:
+        // a bounded set of values so dictionary encoding behaves like it does on real data
+        return "value-" + random.nextInt( 10000 );
+      case ValueMetaInterface.TYPE_INTEGER:
+        return random.nextLong();
+      case ValueMetaInterface.TYPE_NUMBER:
+        return random.nextDouble();
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return random.nextBoolean();
+      case ValueMetaInterface.TYPE_DATE:
+        return new Date( 1500000000000L + random.nextInt( Integer.MAX_VALUE ) );
+      default:
+        return BigDecimal.valueOf( random.nextInt( 1000000 ), 2 );
+    }
+  }
+}
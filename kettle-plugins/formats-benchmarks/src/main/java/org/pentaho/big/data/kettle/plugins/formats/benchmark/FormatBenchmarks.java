@@ -0,0 +1,40 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.formats.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Without arguments every format benchmark runs with the GC profiler attached, so
+ * the allocation rate is reported next to rows/s and bytes/s. Any argument is handed to the regular JMH command line,
+ * e.g. {@code java -jar formats-benchmarks.jar ParquetBenchmark.read -p columns=128 -prof gc}.
+ */
+public class FormatBenchmarks {
+  private FormatBenchmarks() {
+  }
+
+  public static void main( String[] args ) throws Exception {
+    if ( args.length > 0 ) {
+      org.openjdk.jmh.Main.main( args );
+      return;
+    }
+    Options options = new OptionsBuilder()
+      .include( FormatBenchmarks.class.getPackage().getName() + "\\..*Benchmark\\..*" )
+      .addProfiler( GCProfiler.class )
+      .build();
+    new Runner( options ).run();
+  }
+}
@@ -0,0 +1,34 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.formats.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary JMH result holding the number of file bytes each benchmark moved, reported as bytes per second next to
+ * the rows per second of the primary result.
+ */
+@State( Scope.Thread )
+@AuxCounters( AuxCounters.Type.OPERATIONS )
+public class IoCounters {
+  public long bytes;
+
+  @Setup( Level.Iteration )
+  public void reset() {
+    bytes = 0;
+  }
+}
@@ -0,0 +1,142 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.formats.benchmark;
+
+import org.apache.orc.CompressionKind;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pentaho.big.data.kettle.plugins.formats.orc.OrcInputField;
+import org.pentaho.big.data.kettle.plugins.formats.orc.OrcTypeConverter;
+import org.pentaho.big.data.kettle.plugins.formats.orc.output.OrcOutputField;
+import org.pentaho.big.data.kettle.plugins.formats.orc.output.OrcOutputMetaBase;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.hadoop.shim.api.format.IOrcInputField;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+import org.pentaho.hadoop.shim.api.format.IPentahoOrcInputFormat;
+import org.pentaho.hadoop.shim.api.format.IPentahoOrcOutputFormat;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ORC read and write throughput through the same shim format calls {@code OrcInput} and {@code OrcOutput} make for
+ * every row.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 2 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class OrcBenchmark extends FormatBenchmarkBase {
+  private List<OrcOutputField> outputFields;
+
+  private List<IOrcInputField> inputFields;
+
+  private File writeTarget;
+
+  private File readSource;
+
+  @Setup( Level.Trial )
+  public void setUp() throws Exception {
+    setUpTrial();
+    outputFields = new ArrayList<>();
+    inputFields = new ArrayList<>();
+    for ( int i = 0; i < rowMeta.size(); i++ ) {
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( i );
+      String orcType = OrcTypeConverter.convertToOrcType( valueMeta.getType() );
+
+      OrcOutputField outputField = new OrcOutputField();
+      outputField.setPentahoFieldName( valueMeta.getName() );
+      outputField.setFormatFieldName( valueMeta.getName() );
+      outputField.setFormatType( orcType );
+      outputField.setAllowNull( true );
+      outputField.setPrecision( null );
+      outputField.setScale( valueMeta.getType() == ValueMetaInterface.TYPE_BIGNUMBER ? "2" : null );
+      outputFields.add( outputField );
+
+      OrcInputField inputField = new OrcInputField();
+      inputField.setPentahoFieldName( valueMeta.getName() );
+      inputField.setFormatFieldName( valueMeta.getName() );
+      inputField.setOrcType( orcType );
+      inputField.setPentahoType( valueMeta.getType() );
+      inputField.setPrecision( outputField.getPrecision() );
+      inputField.setScale( outputField.getScale() );
+      inputFields.add( inputField );
+    }
+    writeTarget = newFile( "write.orc" );
+    readSource = newFile( "read.orc" );
+    writeFile( readSource );
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( ROWS )
+  public void write( IoCounters counters ) throws Exception {
+    writeFile( writeTarget );
+    counters.bytes += writeTarget.length();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( ROWS )
+  public void read( IoCounters counters, Blackhole blackhole ) throws Exception {
+    IPentahoOrcInputFormat input = formatService.createInputFormat( IPentahoOrcInputFormat.class, null );
+    input.setInputFile( toUri( readSource ) );
+    input.setSchema( inputFields );
+    IPentahoRecordReader reader = input.createRecordReader( null );
+    try {
+      for ( RowMetaAndData row : reader ) {
+        blackhole.consume( row.getData() );
+      }
+    } finally {
+      reader.close();
+    }
+    counters.bytes += readSource.length();
+  }
+
+  private void writeFile( File file ) throws Exception {
+    IPentahoOrcOutputFormat output = formatService.createOutputFormat( IPentahoOrcOutputFormat.class, null );
+    output.setOutputFile( toUri( file ), true );
+    output.setFields( outputFields );
+    CompressionKind compression = compressionKind();
+    output.setCompression( compression );
+    if ( compression != CompressionKind.NONE ) {
+      output.setCompressSize( OrcOutputMetaBase.DEFAULT_COMPRESS_SIZE );
+    }
+    output.setRowIndexStride( OrcOutputMetaBase.DEFAULT_ROWS_BETWEEN_ENTRIES );
+    output.setStripeSize( blockSizeMb );
+    IPentahoRecordWriter writer = output.createRecordWriter();
+    try {
+      for ( RowMetaAndData row : rows ) {
+        writer.write( row );
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  private CompressionKind compressionKind() {
+    return "GZIP".equals( codec ) ? CompressionKind.ZLIB : CompressionKind.valueOf( codec );
+  }
+}
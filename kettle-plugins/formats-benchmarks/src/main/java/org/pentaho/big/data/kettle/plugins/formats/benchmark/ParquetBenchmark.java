@@ -0,0 +1,144 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.formats.benchmark;
+
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pentaho.big.data.kettle.plugins.formats.parquet.ParquetTypeConverter;
+import org.pentaho.big.data.kettle.plugins.formats.parquet.input.ParquetInputField;
+import org.pentaho.big.data.kettle.plugins.formats.parquet.output.ParquetOutputField;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.hadoop.shim.api.format.IParquetInputField;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoInputSplit;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+import org.pentaho.hadoop.shim.api.format.IPentahoParquetInputFormat;
+import org.pentaho.hadoop.shim.api.format.IPentahoParquetOutputFormat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parquet read and write throughput through the same shim format calls {@code ParquetInput} and
+ * {@code ParquetOutput} make for every row.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 2 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class ParquetBenchmark extends FormatBenchmarkBase {
+  private List<ParquetOutputField> outputFields;
+
+  private List<IParquetInputField> inputFields;
+
+  private File writeTarget;
+
+  private File readSource;
+
+  @Setup( Level.Trial )
+  public void setUp() throws Exception {
+    setUpTrial();
+    outputFields = new ArrayList<>();
+    inputFields = new ArrayList<>();
+    for ( int i = 0; i < rowMeta.size(); i++ ) {
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( i );
+      String parquetType = ParquetTypeConverter.convertToParquetType( valueMeta.getType() );
+
+      ParquetOutputField outputField = new ParquetOutputField();
+      outputField.setPentahoFieldName( valueMeta.getName() );
+      outputField.setFormatFieldName( valueMeta.getName() );
+      outputField.setFormatType( parquetType );
+      outputField.setAllowNull( true );
+      outputField.setPrecision( null );
+      outputField.setScale( valueMeta.getType() == ValueMetaInterface.TYPE_BIGNUMBER ? "2" : null );
+      outputFields.add( outputField );
+
+      ParquetInputField inputField = new ParquetInputField();
+      inputField.setPentahoFieldName( valueMeta.getName() );
+      inputField.setFormatFieldName( valueMeta.getName() );
+      inputField.setParquetType( parquetType );
+      inputField.setPentahoType( valueMeta.getType() );
+      inputField.setPrecision( outputField.getPrecision() );
+      inputField.setScale( outputField.getScale() );
+      inputFields.add( inputField );
+    }
+    writeTarget = newFile( "write.parquet" );
+    readSource = newFile( "read.parquet" );
+    writeFile( readSource );
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( ROWS )
+  public void write( IoCounters counters ) throws Exception {
+    writeFile( writeTarget );
+    counters.bytes += writeTarget.length();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( ROWS )
+  public void read( IoCounters counters, Blackhole blackhole ) throws Exception {
+    IPentahoParquetInputFormat input =
+      formatService.createInputFormat( IPentahoParquetInputFormat.class, null );
+    input.setSchema( inputFields );
+    input.setInputFile( toUri( readSource ) );
+    input.setSplitSize( SPLIT_SIZE );
+    for ( IPentahoInputSplit split : input.getSplits() ) {
+      IPentahoRecordReader reader = input.createRecordReader( split );
+      try {
+        for ( RowMetaAndData row : reader ) {
+          blackhole.consume( row.getData() );
+        }
+      } finally {
+        reader.close();
+      }
+    }
+    counters.bytes += readSource.length();
+  }
+
+  private void writeFile( File file ) throws Exception {
+    IPentahoParquetOutputFormat output =
+      formatService.createOutputFormat( IPentahoParquetOutputFormat.class, null );
+    output.setOutputFile( toUri( file ), true );
+    output.setFields( outputFields );
+    output.setCompression( compressionCodec() );
+    output.setVersion( IPentahoParquetOutputFormat.VERSION.VERSION_1_0 );
+    output.setRowGroupSize( blockSizeMb * 1024 * 1024 );
+    output.enableDictionary( true );
+    IPentahoRecordWriter writer = output.createRecordWriter();
+    try {
+      for ( RowMetaAndData row : rows ) {
+        writer.write( row );
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  private CompressionCodecName compressionCodec() {
+    return "NONE".equals( codec ) ? CompressionCodecName.UNCOMPRESSED : CompressionCodecName.valueOf( codec );
+  }
+}
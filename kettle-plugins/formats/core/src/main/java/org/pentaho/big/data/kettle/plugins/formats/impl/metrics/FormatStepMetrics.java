@@ -0,0 +1,384 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.metrics;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileType;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.logging.Metrics;
+import org.pentaho.di.core.metrics.MetricsSnapshotType;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.vfs.IKettleVFS;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * I/O and codec counters of a format step copy. Whether to count is decided once when the step starts: the counters
+ * are only kept when the transformation gathers metrics, the log is detailed or {@value #JMX_VARIABLE} is set to Y,
+ * otherwise the per row calls return straight away. Only the step thread updates the counters, JMX readers see a
+ * snapshot taken every {@value #SNAPSHOT_ROWS} rows and on every file or split event.
+ * <p>
+ * Values are published to the PDI step metrics when the transformation gathers metrics, and to JMX under
+ * {@value #JMX_DOMAIN} while the step is running. File bytes are the size of the Parquet/ORC files, value bytes are an
+ * estimate of the row data before encoding, so their ratio is the effective compression ratio. Skipped splits are the
+ * splits that were read without yielding a row.
+ */
+public class FormatStepMetrics implements FormatStepMetricsMBean {
+  public static final String JMX_DOMAIN = "org.pentaho.big.data.formats";
+
+  public static final String JMX_VARIABLE = "KETTLE_FORMAT_STEP_METRICS_JMX";
+
+  static final int SNAPSHOT_ROWS = 1024;
+
+  public static final Metrics METRIC_FILE_BYTES =
+    new Metrics( MetricsSnapshotType.SUM, "FORMAT_FILE_BYTES", "Parquet/ORC file bytes" );
+  public static final Metrics METRIC_VALUE_BYTES =
+    new Metrics( MetricsSnapshotType.SUM, "FORMAT_VALUE_BYTES", "Estimated row value bytes" );
+  public static final Metrics METRIC_SPLITS =
+    new Metrics( MetricsSnapshotType.SUM, "FORMAT_SPLITS", "Splits processed" );
+  public static final Metrics METRIC_SPLITS_SKIPPED =
+    new Metrics( MetricsSnapshotType.SUM, "FORMAT_SPLITS_SKIPPED", "Splits without rows" );
+  public static final Metrics METRIC_OPEN_TIME =
+    new Metrics( MetricsSnapshotType.SUM, "FORMAT_OPEN_TIME", "Time opening readers/writers (ms)" );
+  public static final Metrics METRIC_DECODE_TIME =
+    new Metrics( MetricsSnapshotType.SUM, "FORMAT_DECODE_TIME", "Time reading and decoding rows (ms)" );
+  public static final Metrics METRIC_ENCODE_TIME =
+    new Metrics( MetricsSnapshotType.SUM, "FORMAT_ENCODE_TIME", "Time encoding and writing rows (ms)" );
+  public static final Metrics METRIC_FLUSH_TIME =
+    new Metrics( MetricsSnapshotType.SUM, "FORMAT_FLUSH_TIME", "Time flushing and closing writers (ms)" );
+
+  /**
+   * Counter values as of the last snapshot, for readers on other threads.
+   */
+  private static final class Snapshot {
+    private final long fileBytes;
+    private final long valueBytes;
+    private final long rows;
+    private final long splitsTotal;
+    private final long splitsProcessed;
+    private final long splitsSkipped;
+    private final long openNanos;
+    private final long decodeNanos;
+    private final long encodeNanos;
+    private final long flushNanos;
+
+    private Snapshot( FormatStepMetrics m ) {
+      fileBytes = m.fileBytes;
+      valueBytes = m.valueBytes;
+      rows = m.rows;
+      splitsTotal = m.splitsTotal;
+      splitsProcessed = m.splitsProcessed;
+      splitsSkipped = m.splitsSkipped;
+      openNanos = m.openNanos;
+      decodeNanos = m.decodeNanos;
+      encodeNanos = m.encodeNanos;
+      flushNanos = m.flushNanos;
+    }
+  }
+
+  private boolean enabled;
+
+  private long fileBytes;
+  private long valueBytes;
+  private long rows;
+  private long splitsTotal;
+  private long splitsProcessed;
+  private long splitsSkipped;
+  private long openNanos;
+  private long decodeNanos;
+  private long encodeNanos;
+  private long flushNanos;
+
+  private long rowsAtSplitStart = -1;
+
+  private volatile Snapshot snapshot = new Snapshot( this );
+
+  private ObjectName objectName;
+
+  /**
+   * Decides whether to count for this run of the step copy and, if JMX is requested, registers the counters.
+   */
+  public void start( String transName, String stepName, int copyNr, LogChannelInterface log,
+                     VariableSpace variables ) {
+    String jmx = variables.getVariable( JMX_VARIABLE );
+    boolean jmxEnabled = "Y".equalsIgnoreCase( jmx ) || "true".equalsIgnoreCase( jmx );
+    enabled = jmxEnabled || log.isGatheringMetrics() || log.isDetailed();
+    if ( jmxEnabled ) {
+      registerMBean( transName, stepName, copyNr, log );
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return the time to pass as the start of a timed call, 0 without reading the clock if not counting
+   */
+  public long startTimer() {
+    return enabled ? System.nanoTime() : 0L;
+  }
+
+  public void addFileBytes( long bytes ) {
+    if ( enabled ) {
+      fileBytes += bytes;
+      takeSnapshot();
+    }
+  }
+
+  /**
+   * Adds the size of a data file. Folders and files that can't be inspected are skipped, the size only feeds the
+   * metrics and the reader or writer reports real problems with the file.
+   */
+  public void addFileBytes( FileObject fileObject ) {
+    if ( !enabled ) {
+      return;
+    }
+    try {
+      if ( fileObject != null && fileObject.getType() == FileType.FILE ) {
+        addFileBytes( fileObject.getContent().getSize() );
+      }
+    } catch ( FileSystemException e ) {
+      // no size available
+    }
+  }
+
+  public void addFileBytes( IKettleVFS vfs, String path ) {
+    if ( !enabled || path == null ) {
+      return;
+    }
+    try {
+      addFileBytes( vfs.getFileObject( path ) );
+    } catch ( KettleFileException e ) {
+      // no size available
+    }
+  }
+
+  public void setSplitsTotal( long splits ) {
+    if ( enabled ) {
+      splitsTotal = splits;
+      takeSnapshot();
+    }
+  }
+
+  /**
+   * Counts a split as processed, ending the previous one.
+   */
+  public void addSplitProcessed() {
+    if ( enabled ) {
+      endSplit();
+      splitsProcessed++;
+      rowsAtSplitStart = rows;
+      takeSnapshot();
+    }
+  }
+
+  /**
+   * Ends the current split, counting it as skipped if it yielded no rows.
+   */
+  public void endSplit() {
+    if ( enabled && rowsAtSplitStart >= 0 ) {
+      if ( rows == rowsAtSplitStart ) {
+        splitsSkipped++;
+      }
+      rowsAtSplitStart = -1;
+      takeSnapshot();
+    }
+  }
+
+  public void addOpenTime( long startNanos ) {
+    if ( enabled ) {
+      openNanos += System.nanoTime() - startNanos;
+      takeSnapshot();
+    }
+  }
+
+  public void addFlushTime( long startNanos ) {
+    if ( enabled ) {
+      flushNanos += System.nanoTime() - startNanos;
+      takeSnapshot();
+    }
+  }
+
+  public void addDecodedRow( Object[] row, int length, long startNanos ) {
+    if ( enabled ) {
+      decodeNanos += System.nanoTime() - startNanos;
+      addRow( row, length );
+    }
+  }
+
+  public void addEncodedRow( Object[] row, int length, long startNanos ) {
+    if ( enabled ) {
+      encodeNanos += System.nanoTime() - startNanos;
+      addRow( row, length );
+    }
+  }
+
+  private void addRow( Object[] row, int length ) {
+    valueBytes += estimateSize( row, length );
+    if ( ++rows % SNAPSHOT_ROWS == 0 ) {
+      takeSnapshot();
+    }
+  }
+
+  private void takeSnapshot() {
+    snapshot = new Snapshot( this );
+  }
+
+  @Override
+  public long getFileBytes() {
+    return snapshot.fileBytes;
+  }
+
+  @Override
+  public long getValueBytes() {
+    return snapshot.valueBytes;
+  }
+
+  @Override
+  public double getCompressionRatio() {
+    Snapshot s = snapshot;
+    return s.fileBytes == 0 ? 0 : (double) s.valueBytes / s.fileBytes;
+  }
+
+  @Override
+  public long getRows() {
+    return snapshot.rows;
+  }
+
+  @Override
+  public long getSplitsTotal() {
+    return snapshot.splitsTotal;
+  }
+
+  @Override
+  public long getSplitsProcessed() {
+    return snapshot.splitsProcessed;
+  }
+
+  @Override
+  public long getSplitsSkipped() {
+    return snapshot.splitsSkipped;
+  }
+
+  @Override
+  public long getOpenMillis() {
+    return TimeUnit.NANOSECONDS.toMillis( snapshot.openNanos );
+  }
+
+  @Override
+  public long getDecodeMillis() {
+    return TimeUnit.NANOSECONDS.toMillis( snapshot.decodeNanos );
+  }
+
+  @Override
+  public long getEncodeMillis() {
+    return TimeUnit.NANOSECONDS.toMillis( snapshot.encodeNanos );
+  }
+
+  @Override
+  public long getFlushMillis() {
+    return TimeUnit.NANOSECONDS.toMillis( snapshot.flushNanos );
+  }
+
+  /**
+   * Snaps the totals into the step metrics and logs a summary at detailed level.
+   */
+  public void publish( LogChannelInterface log ) {
+    if ( !enabled ) {
+      return;
+    }
+    endSplit();
+    takeSnapshot();
+    if ( log.isGatheringMetrics() ) {
+      log.snap( METRIC_FILE_BYTES, getFileBytes() );
+      log.snap( METRIC_VALUE_BYTES, getValueBytes() );
+      log.snap( METRIC_SPLITS, getSplitsProcessed() );
+      log.snap( METRIC_SPLITS_SKIPPED, getSplitsSkipped() );
+      log.snap( METRIC_OPEN_TIME, getOpenMillis() );
+      log.snap( METRIC_DECODE_TIME, getDecodeMillis() );
+      log.snap( METRIC_ENCODE_TIME, getEncodeMillis() );
+      log.snap( METRIC_FLUSH_TIME, getFlushMillis() );
+    }
+    if ( log.isDetailed() ) {
+      log.logDetailed( String.format( "rows=%d, fileBytes=%d, valueBytes=%d, compressionRatio=%.2f, splits=%d/%d, "
+          + "skippedSplits=%d, openMs=%d, decodeMs=%d, encodeMs=%d, flushMs=%d", getRows(), getFileBytes(),
+        getValueBytes(), getCompressionRatio(), getSplitsProcessed(), getSplitsTotal(), getSplitsSkipped(),
+        getOpenMillis(), getDecodeMillis(), getEncodeMillis(), getFlushMillis() ) );
+    }
+  }
+
+  /**
+   * Registers the counters under the transformation, step and copy. The log channel id of the step copy is part of the
+   * name, so concurrent runs of the same transformation (e.g. on a Carte server) each get their own MBean.
+   */
+  void registerMBean( String transName, String stepName, int copyNr, LogChannelInterface log ) {
+    try {
+      ObjectName name = new ObjectName( JMX_DOMAIN + ":type=StepMetrics"
+        + ",transformation=" + ObjectName.quote( String.valueOf( transName ) )
+        + ",step=" + ObjectName.quote( String.valueOf( stepName ) )
+        + ",copy=" + copyNr
+        + ",run=" + ObjectName.quote( String.valueOf( log.getLogChannelId() ) ) );
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if ( server.isRegistered( name ) ) {
+        // the same step copy registered twice without getting to dispose
+        server.unregisterMBean( name );
+      }
+      server.registerMBean( this, name );
+      objectName = name;
+    } catch ( JMException | SecurityException e ) {
+      log.logDebug( "Unable to register format step metrics: " + e.getMessage() );
+    }
+  }
+
+  public void unregisterMBean() {
+    if ( objectName != null ) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean( objectName );
+      } catch ( JMException e ) {
+        // already gone
+      }
+      objectName = null;
+    }
+  }
+
+  static long estimateSize( Object[] row, int length ) {
+    long size = 0;
+    for ( int i = 0; i < length && i < row.length; i++ ) {
+      Object value = row[ i ];
+      if ( value == null ) {
+        continue;
+      }
+      if ( value instanceof String ) {
+        size += ( (String) value ).length();
+      } else if ( value instanceof byte[] ) {
+        size += ( (byte[]) value ).length;
+      } else if ( value instanceof Boolean ) {
+        size += 1;
+      } else if ( value instanceof BigDecimal ) {
+        // about 3.322 bits per decimal digit, without materializing the unscaled value
+        size += ( ( (BigDecimal) value ).precision() * 3322L / 1000 + 8 ) / 8 + 4;
+      } else {
+        size += 8;
+      }
+    }
+    return size;
+  }
+}
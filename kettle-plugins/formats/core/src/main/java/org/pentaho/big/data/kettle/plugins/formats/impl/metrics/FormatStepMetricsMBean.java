@@ -0,0 +1,40 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.metrics;
+
+/**
+ * JMX view of the I/O and codec counters of a single copy of a format step.
+ */
+public interface FormatStepMetricsMBean {
+  long getFileBytes();
+
+  long getValueBytes();
+
+  double getCompressionRatio();
+
+  long getRows();
+
+  long getSplitsTotal();
+
+  long getSplitsProcessed();
+
+  long getSplitsSkipped();
+
+  long getOpenMillis();
+
+  long getDecodeMillis();
+
+  long getEncodeMillis();
+
+  long getFlushMillis();
+}
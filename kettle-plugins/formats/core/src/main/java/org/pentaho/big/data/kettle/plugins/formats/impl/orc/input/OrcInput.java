@@ -14,6 +14,7 @@
 package org.pentaho.big.data.kettle.plugins.formats.impl.orc.input;
 
 import org.apache.commons.vfs2.FileObject;
+import org.pentaho.big.data.kettle.plugins.formats.impl.metrics.FormatStepMetrics;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
 import org.pentaho.hadoop.shim.api.cluster.NamedClusterServiceLocator;
 import org.pentaho.hadoop.shim.api.cluster.ClusterInitializationException;
@@ -41,6 +42,8 @@ import java.util.List;
 public class OrcInput extends BaseFileInputStep<OrcInputMeta, OrcInputData> {
   public static final long SPLIT_SIZE = 128L * 1024L * 1024L;
 
+  private final FormatStepMetrics metrics = new FormatStepMetrics();
+
   public OrcInput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
                    Trans trans ) {
     super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
@@ -63,17 +66,25 @@ public class OrcInput extends BaseFileInputStep<OrcInputMeta, OrcInputData> {
 
         data.input.setInputFile( inputFileName );
         data.input.setSchema( createSchemaFromMeta( meta ) );
+        long openStart = metrics.startTimer();
         data.reader = data.input.createRecordReader( null );
         data.rowIterator = data.reader.iterator();
+        metrics.addOpenTime( openStart );
+        metrics.setSplitsTotal( 1 );
+        metrics.addSplitProcessed();
+        metrics.addFileBytes( KettleVFS.getInstance( getTransMeta().getBowl() ), inputFileName );
       }
+      long decodeStart = metrics.startTimer();
       if ( data.rowIterator.hasNext() ) {
         RowMetaAndData row = data.rowIterator.next();
+        metrics.addDecodedRow( row.getData(), row.getRowMeta().size(), decodeStart );
         putRow( row.getRowMeta(), row.getData() );
         return true;
       } else {
         data.reader.close();
         data.reader = null;
         data.input = null;
+        metrics.publish( getLogChannel() );
         setOutputDone();
         return false;
       }
@@ -100,11 +111,22 @@ public class OrcInput extends BaseFileInputStep<OrcInputMeta, OrcInputData> {
   }
 
 
+  FormatStepMetrics getMetrics() {
+    return metrics;
+  }
+
   @Override
   protected boolean init() {
+    metrics.start( getTransMeta().getName(), getStepname(), getCopy(), getLogChannel(), this );
     return true;
   }
 
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    metrics.unregisterMBean();
+    super.dispose( smi, sdi );
+  }
+
   @Override
   protected IBaseFileInputReader createReader( OrcInputMeta meta, OrcInputData data, FileObject file )
     throws Exception {
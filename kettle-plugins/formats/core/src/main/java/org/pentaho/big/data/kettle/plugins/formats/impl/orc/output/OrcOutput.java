@@ -15,6 +15,7 @@ package org.pentaho.big.data.kettle.plugins.formats.impl.orc.output;
 
 
 import org.apache.orc.CompressionKind;
+import org.pentaho.big.data.kettle.plugins.formats.impl.metrics.FormatStepMetrics;
 import org.pentaho.big.data.kettle.plugins.formats.impl.output.PvfsFileAliaser;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
 import org.pentaho.hadoop.shim.api.cluster.ClusterInitializationException;
@@ -24,6 +25,7 @@ import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaFactory;
+import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStep;
@@ -58,6 +60,10 @@ public class OrcOutput extends BaseStep implements StepInterface {
 
   private PvfsFileAliaser pvfsFileAliaser;
 
+  private String writtenFileName;
+
+  private final FormatStepMetrics metrics = new FormatStepMetrics();
+
   public OrcOutput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
                     Trans trans ) {
     super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
@@ -94,14 +100,21 @@ public class OrcOutput extends BaseStep implements StepInterface {
           }
         }
         RowMetaAndData row = new RowMetaAndData( outputRMI, outputData );
+        long encodeStart = metrics.startTimer();
         data.writer.write( row );
+        metrics.addEncodedRow( outputData, outputData.length, encodeStart );
         putRow( row.getRowMeta(), row.getData() );
         return true;
       } else {
         // no more input to be expected...
+        long flushStart = metrics.startTimer();
         closeWriter();
+        metrics.addFlushTime( flushStart );
+        metrics.addFileBytes( KettleVFS.getInstance( getTransMeta().getBowl() ), writtenFileName );
+        metrics.publish( getLogChannel() );
         pvfsFileAliaser.copyFileToFinalDestination();
         pvfsFileAliaser.deleteTempFileAndFolder();
+        pvfsFileAliaser = null;
         setOutputDone();
         return false;
       }
@@ -113,8 +126,10 @@ public class OrcOutput extends BaseStep implements StepInterface {
       setOutputDone();
       return false;
     } catch ( KettleException ex ) {
+      abortOutput();
       throw ex;
     } catch ( Exception ex ) {
+      abortOutput();
       throw new KettleException( ex );
     }
   }
@@ -138,7 +153,8 @@ public class OrcOutput extends BaseStep implements StepInterface {
     pvfsFileAliaser = new PvfsFileAliaser( getTransMeta().getBowl(), outputFileName, getTransMeta(), data.output,
       meta.isOverrideOutput(), getLogChannel() );
 
-    data.output.setOutputFile( pvfsFileAliaser.generateAlias(), meta.isOverrideOutput() );
+    writtenFileName = pvfsFileAliaser.generateAlias();
+    data.output.setOutputFile( writtenFileName, meta.isOverrideOutput() );
     data.output.setFields( meta.getOutputFields() );
 
     CompressionKind compression;
@@ -153,13 +169,21 @@ public class OrcOutput extends BaseStep implements StepInterface {
     }
     data.output.setRowIndexStride( meta.getRowsBetweenEntries() );
     data.output.setStripeSize( meta.getStripeSize() );
+    long openStart = metrics.startTimer();
     data.writer = data.output.createRecordWriter();
+    metrics.addOpenTime( openStart );
   }
 
   private NamedCluster getNamedCluster() {
     return meta.getNamedClusterResolver().resolveNamedCluster( environmentSubstitute( meta.getFilename() ) );
   }
 
+  private void abortOutput() {
+    if ( pvfsFileAliaser != null ) {
+      pvfsFileAliaser.deleteTempFileAndFolder();
+    }
+  }
+
   public void closeWriter() throws KettleException {
     try {
       data.writer.close();
@@ -172,7 +196,33 @@ public class OrcOutput extends BaseStep implements StepInterface {
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     meta = (OrcOutputMeta) smi;
     data = (OrcOutputData) sdi;
-    return super.init( smi, sdi );
+    if ( !super.init( smi, sdi ) ) {
+      return false;
+    }
+    metrics.start( getTransMeta().getName(), getStepname(), getCopy(), getLogChannel(), this );
+    return true;
+  }
+
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    if ( pvfsFileAliaser != null ) {
+      // stopped or failed before the output was complete: stop streaming and drop the partial output
+      if ( data.output != null && data.writer != null ) {
+        try {
+          closeWriter();
+        } catch ( Exception e ) {
+          logError( e.getMessage(), e );
+        }
+      }
+      pvfsFileAliaser.deleteTempFileAndFolder();
+      pvfsFileAliaser = null;
+    }
+    metrics.unregisterMBean();
+    super.dispose( smi, sdi );
+  }
+
+  FormatStepMetrics getMetrics() {
+    return metrics;
   }
 
   static String sanitizeForLog( String value ) {
@@ -24,6 +24,7 @@ import org.pentaho.di.core.vfs.IKettleVFS;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.hadoop.shim.api.format.IPvfsAliasGenerator;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -32,8 +33,13 @@ import java.nio.file.FileAlreadyExistsException;
 /**
  * Logic to use a temporary file for output and then copy that file to some VFS/PVFS scheme that wasn't original
  * supoorted for the output content.
+ * <p>
+ * When {@link #STREAMING_VARIABLE} is set to Y the temporary file is streamed to the final destination while the
+ * writer is still producing it, instead of being copied after all rows are written.
  */
 public class PvfsFileAliaser {
+  public static final String STREAMING_VARIABLE = "KETTLE_PVFS_ALIAS_STREAMING";
+
   private String finalFilePath;
 
   private String temporaryFilePath;
@@ -48,6 +54,8 @@ public class PvfsFileAliaser {
 
   private IKettleVFS ikettleVFS;
 
+  private TempFileStreamer streamer;
+
   public PvfsFileAliaser( Bowl bowl, String finalFilePath, VariableSpace variableSpace,
                           IPvfsAliasGenerator aliasGenerator, boolean isOverwriteOutput, LogChannelInterface log ) {
     this.ikettleVFS = KettleVFS.getInstance( bowl );
@@ -58,7 +66,7 @@ public class PvfsFileAliaser {
     this.log = log;
   }
 
-  public String generateAlias() throws KettleFileException, FileSystemException, FileAlreadyExistsException {
+  public String generateAlias() throws KettleFileException, IOException {
 
     FileObject pvfsFileObject = ikettleVFS.getFileObject( finalFilePath, variableSpace );
     if ( AliasedFileObject.isAliasedFile( pvfsFileObject ) ) {
@@ -76,12 +84,19 @@ public class PvfsFileAliaser {
         }
       }
       temporaryFilePath = aliasedFile;  //set the outputFile to the temporary alias file
+      if ( aliasingIsActive() && isStreamingEnabled() ) {
+        startStreaming();
+      }
     }
     return temporaryFilePath;
   }
 
   public void copyFileToFinalDestination() throws KettleFileException, IOException {
-    if ( aliasingIsActive() ) {
+    if ( streamer != null ) {
+      // keep the streamer until it has finished so that a failure still deletes the partial destination
+      streamer.finish();
+      streamer = null;
+    } else if ( aliasingIsActive() ) {
       FileObject srcFile = ikettleVFS.getFileObject( temporaryFilePath, variableSpace );
       FileObject destFile = ikettleVFS.getFileObject( finalFilePath, variableSpace );
       try ( InputStream in = KettleVFS.getInputStream( srcFile );
@@ -93,6 +108,12 @@ public class PvfsFileAliaser {
 
   public void deleteTempFileAndFolder() {
     try {
+      if ( streamer != null ) {
+        // the output failed before it was complete, so the partially streamed destination is useless
+        streamer.abort();
+        streamer = null;
+        ikettleVFS.getFileObject( finalFilePath, variableSpace ).delete();
+      }
       if ( aliasingIsActive() ) {
         FileObject srcFile = ikettleVFS.getFileObject( temporaryFilePath, variableSpace );
         srcFile.getParent().deleteAll();
@@ -102,6 +123,28 @@ public class PvfsFileAliaser {
     }
   }
 
+  boolean isStreaming() {
+    return streamer != null;
+  }
+
+  private boolean isStreamingEnabled() {
+    String streaming = variableSpace.getVariable( STREAMING_VARIABLE );
+    return "Y".equalsIgnoreCase( streaming ) || "true".equalsIgnoreCase( streaming );
+  }
+
+  private void startStreaming() throws KettleFileException, IOException {
+    FileObject srcFile = ikettleVFS.getFileObject( temporaryFilePath, variableSpace );
+    if ( !"file".equals( srcFile.getName().getScheme() ) ) {
+      // only a local alias can be followed while it grows, anything else is copied once the writer is done
+      log.logDebug( "Alias " + temporaryFilePath + " is not a local file, streaming disabled" );
+      return;
+    }
+    FileObject destFile = ikettleVFS.getFileObject( finalFilePath, variableSpace );
+    streamer = new TempFileStreamer( new File( srcFile.getName().getPathDecoded() ),
+      ikettleVFS.getOutputStream( destFile, false ) );
+    streamer.start();
+  }
+
   private boolean aliasingIsActive() {
     return !finalFilePath.equals( temporaryFilePath ) && temporaryFilePath != null && !s3nSwitchedTos3a();
   }
@@ -0,0 +1,126 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.output;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Follows a local file while the format writer is still appending to it and pushes every byte to the final
+ * destination as soon as it lands on disk. Parquet and ORC writers only ever append, so whatever has been written to
+ * the temporary file is final and can be shipped without waiting for the writer to close.
+ */
+class TempFileStreamer implements Runnable {
+  private static final int BUFFER_SIZE = 1024 * 1024;
+
+  private static final long POLL_INTERVAL_MS = 20;
+
+  private final File source;
+
+  private final OutputStream destination;
+
+  private final Thread thread;
+
+  private volatile boolean sourceComplete;
+
+  private volatile boolean aborted;
+
+  private volatile Exception failure;
+
+  private long bytesStreamed;
+
+  TempFileStreamer( File source, OutputStream destination ) {
+    this.source = source;
+    this.destination = destination;
+    this.thread = new Thread( this, "PvfsFileAliaser-stream-" + source.getName() );
+    this.thread.setDaemon( true );
+  }
+
+  void start() {
+    thread.start();
+  }
+
+  /**
+   * Signals that the writer has closed the source file, waits for the remaining bytes to be pushed and closes the
+   * destination stream.
+   */
+  void finish() throws IOException {
+    sourceComplete = true;
+    join();
+    if ( failure != null ) {
+      throw failure instanceof IOException ? (IOException) failure : new IOException( failure );
+    }
+    if ( bytesStreamed != source.length() ) {
+      throw new IOException( "Streamed " + bytesStreamed + " bytes of " + source.length() + " from " + source );
+    }
+  }
+
+  /**
+   * Stops streaming without waiting for the writer. The destination is closed but its content is incomplete.
+   */
+  void abort() {
+    aborted = true;
+    join();
+  }
+
+  long getBytesStreamed() {
+    return bytesStreamed;
+  }
+
+  @Override
+  public void run() {
+    try ( OutputStream out = destination ) {
+      // The alias may be pre-created empty and replaced by the writer, so only attach once real content shows up
+      while ( !aborted && !sourceComplete && source.length() == 0 ) {
+        Thread.sleep( POLL_INTERVAL_MS );
+      }
+      if ( aborted || !source.exists() ) {
+        return;
+      }
+      try ( FileChannel channel = FileChannel.open( source.toPath(), StandardOpenOption.READ ) ) {
+        ByteBuffer buffer = ByteBuffer.allocate( BUFFER_SIZE );
+        while ( !aborted ) {
+          // read the flag first: if the writer was already closed, an empty read really is the end of the file
+          boolean complete = sourceComplete;
+          int read = channel.read( buffer, bytesStreamed );
+          if ( read > 0 ) {
+            out.write( buffer.array(), 0, read );
+            bytesStreamed += read;
+            buffer.clear();
+          } else if ( complete ) {
+            break;
+          } else {
+            Thread.sleep( POLL_INTERVAL_MS );
+          }
+        }
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      failure = e;
+    } catch ( Exception e ) {
+      failure = e;
+    }
+  }
+
+  private void join() {
+    try {
+      thread.join();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -14,6 +14,7 @@
 package org.pentaho.big.data.kettle.plugins.formats.impl.parquet.input;
 
 import org.apache.commons.vfs2.FileObject;
+import org.pentaho.big.data.kettle.plugins.formats.impl.metrics.FormatStepMetrics;
 import org.pentaho.big.data.kettle.plugins.formats.parquet.input.ParquetInputField;
 import org.pentaho.big.data.kettle.plugins.formats.parquet.input.ParquetInputMetaBase;
 import org.pentaho.di.core.bowl.Bowl;
@@ -46,6 +47,8 @@ import java.util.stream.Collectors;
 public class ParquetInput extends BaseFileInputStep<ParquetInputMeta, ParquetInputData> {
   public static final long SPLIT_SIZE = 128 * 1024 * 1024L;
 
+  private final FormatStepMetrics metrics = new FormatStepMetrics();
+
   public ParquetInput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
                        Trans trans ) {
     super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
@@ -81,6 +84,7 @@ public class ParquetInput extends BaseFileInputStep<ParquetInputMeta, ParquetInp
       }
 
       if ( data.currentSplit >= data.splits.size() ) {
+        metrics.publish( getLogChannel() );
         setOutputDone();
         return false;
       }
@@ -89,13 +93,16 @@ public class ParquetInput extends BaseFileInputStep<ParquetInputMeta, ParquetInp
         openReader( data );
       }
 
+      long decodeStart = metrics.startTimer();
       if ( data.rowIterator.hasNext() ) {
         RowMetaAndData row = data.rowIterator.next();
+        metrics.addDecodedRow( row.getData(), row.getRowMeta().size(), decodeStart );
         putRow( row.getRowMeta(), row.getData() );
         return true;
       } else {
         data.reader.close();
         data.reader = null;
+        metrics.endSplit();
         logDebug( "Close split {0}", data.currentSplit );
         data.currentSplit++;
         return true;
@@ -126,6 +133,7 @@ public class ParquetInput extends BaseFileInputStep<ParquetInputMeta, ParquetInp
       if ( AliasedFileObject.isAliasedFile( inputFileObject ) ) {
         resolvedInputFileNames[ i ] = ( (AliasedFileObject) inputFileObject ).getOriginalURIString();
       }
+      metrics.addFileBytes( inputFileObject );
       i++;
     }
     data.input = formatService.createInputFormat( IPentahoParquetInputFormat.class, getNamedCluster() );
@@ -164,6 +172,7 @@ public class ParquetInput extends BaseFileInputStep<ParquetInputMeta, ParquetInp
       data.input.setSplitSize( SPLIT_SIZE );
 
       data.splits = data.input.getSplits();
+      metrics.setSplitsTotal( data.splits.size() );
       logDebug( "Input split count: {0}", data.splits.size() );
     }
     data.currentSplit = 0;
@@ -176,14 +185,27 @@ public class ParquetInput extends BaseFileInputStep<ParquetInputMeta, ParquetInp
   void openReader( ParquetInputData data ) throws Exception {
     logDebug( "Open split {0}", data.currentSplit );
     IPentahoInputSplit sp = data.splits.get( data.currentSplit );
+    long openStart = metrics.startTimer();
     data.reader = data.input.createRecordReader( sp );
     data.rowIterator = data.reader.iterator();
+    metrics.addOpenTime( openStart );
+    metrics.addSplitProcessed();
+  }
+
+  FormatStepMetrics getMetrics() {
+    return metrics;
   }
 
   @Override protected boolean init() {
+    metrics.start( getTransMeta().getName(), getStepname(), getCopy(), getLogChannel(), this );
     return true;
   }
 
+  @Override public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    metrics.unregisterMBean();
+    super.dispose( smi, sdi );
+  }
+
   @Override protected IBaseFileInputReader createReader( ParquetInputMeta meta, ParquetInputData data, FileObject file )
     throws Exception {
     return null;
@@ -14,6 +14,7 @@
 package org.pentaho.big.data.kettle.plugins.formats.impl.parquet.output;
 
 import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.pentaho.big.data.kettle.plugins.formats.impl.metrics.FormatStepMetrics;
 import org.pentaho.big.data.kettle.plugins.formats.impl.output.PvfsFileAliaser;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
 import org.pentaho.hadoop.shim.api.cluster.ClusterInitializationException;
@@ -21,6 +22,7 @@ import org.pentaho.big.data.kettle.plugins.formats.parquet.output.ParquetOutputM
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStep;
@@ -41,6 +43,10 @@ public class ParquetOutput extends BaseStep implements StepInterface {
 
   private PvfsFileAliaser pvfsFileAliaser;
 
+  private String writtenFileName;
+
+  private final FormatStepMetrics metrics = new FormatStepMetrics();
+
   public ParquetOutput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
                         Trans trans ) {
     super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
@@ -56,15 +62,22 @@ public class ParquetOutput extends BaseStep implements StepInterface {
       Object[] currentRow = getRow();
       if ( currentRow != null ) {
         RowMetaAndData row = new RowMetaAndData( getInputRowMeta(), currentRow );
+        long encodeStart = metrics.startTimer();
         data.writer.write( row );
+        metrics.addEncodedRow( currentRow, getInputRowMeta().size(), encodeStart );
         incrementLinesOutput();
         putRow( row.getRowMeta(), row.getData() ); // in case we want it to go further or DET...
         return true;
       } else {
         // no more input to be expected...
+        long flushStart = metrics.startTimer();
         closeWriter();
+        metrics.addFlushTime( flushStart );
+        metrics.addFileBytes( KettleVFS.getInstance( getTransMeta().getBowl() ), writtenFileName );
+        metrics.publish( getLogChannel() );
         pvfsFileAliaser.copyFileToFinalDestination();
         pvfsFileAliaser.deleteTempFileAndFolder();
+        pvfsFileAliaser = null;
         setOutputDone();
         return false;
       }
@@ -110,7 +123,8 @@ public class ParquetOutput extends BaseStep implements StepInterface {
     String outputFileName = environmentSubstitute( meta.constructOutputFilename() );
     pvfsFileAliaser = new PvfsFileAliaser( getTransMeta().getBowl(), outputFileName, getTransMeta(), data.output,
       meta.overrideOutput, getLogChannel() );
-    data.output.setOutputFile( pvfsFileAliaser.generateAlias(), meta.overrideOutput );
+    writtenFileName = pvfsFileAliaser.generateAlias();
+    data.output.setOutputFile( writtenFileName, meta.overrideOutput );
     data.output.setFields( meta.getOutputFields() );
 
     CompressionCodecName compression;
@@ -136,7 +150,9 @@ public class ParquetOutput extends BaseStep implements StepInterface {
       data.output.setDictionaryPageSize( meta.getDictPageSize( variables ) * 1024 );
     }
 
+    long openStart = metrics.startTimer();
     data.writer = data.output.createRecordWriter();
+    metrics.addOpenTime( openStart );
   }
 
   private NamedCluster getNamedCluster() {
@@ -165,6 +181,29 @@ public class ParquetOutput extends BaseStep implements StepInterface {
       getTransMeta().getNamedClusterEmbedManager()
         .passEmbeddedMetastoreKey( getTransMeta(), getTransMeta().getEmbeddedMetastoreProviderKey() );
     }
+    metrics.start( getTransMeta().getName(), getStepname(), getCopy(), getLogChannel(), this );
     return true;
   }
+
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    if ( pvfsFileAliaser != null ) {
+      // stopped or failed before the output was complete: stop streaming and drop the partial output
+      if ( data.output != null && data.writer != null ) {
+        try {
+          closeWriter();
+        } catch ( Exception e ) {
+          logError( e.getMessage(), e );
+        }
+      }
+      pvfsFileAliaser.deleteTempFileAndFolder();
+      pvfsFileAliaser = null;
+    }
+    metrics.unregisterMBean();
+    super.dispose( smi, sdi );
+  }
+
+  FormatStepMetrics getMetrics() {
+    return metrics;
+  }
 }
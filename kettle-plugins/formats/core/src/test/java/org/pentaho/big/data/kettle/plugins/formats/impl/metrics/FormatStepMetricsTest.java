@@ -0,0 +1,199 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.metrics;
+
+import org.junit.Test;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.variables.Variables;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FormatStepMetricsTest {
+
+  @Test
+  public void testEstimateSize() {
+    Object[] row = new Object[] { "abcd", 1L, 2.0d, Boolean.TRUE, new byte[ 3 ], null, BigDecimal.ONE, "ignored" };
+    assertEquals( 4 + 8 + 8 + 1 + 3 + 5, FormatStepMetrics.estimateSize( row, 7 ) );
+  }
+
+  @Test
+  public void testEstimateSizeOfLargeDecimal() {
+    // 40 digits need about 132 bits, the unscaled value takes 17 bytes plus the scale
+    BigDecimal decimal = new BigDecimal( "1234567890123456789012345678901234567890" ).movePointLeft( 10 );
+    assertEquals( 17 + 4, FormatStepMetrics.estimateSize( new Object[] { decimal }, 1 ) );
+  }
+
+  private static FormatStepMetrics gathering() {
+    LogChannelInterface log = mock( LogChannelInterface.class );
+    when( log.isGatheringMetrics() ).thenReturn( true );
+    FormatStepMetrics metrics = new FormatStepMetrics();
+    metrics.start( "trans", "step", 0, log, new Variables() );
+    return metrics;
+  }
+
+  private static FormatStepMetrics withJmx( String runId ) {
+    LogChannelInterface log = mock( LogChannelInterface.class );
+    when( log.getLogChannelId() ).thenReturn( runId );
+    Variables variables = new Variables();
+    variables.setVariable( FormatStepMetrics.JMX_VARIABLE, "Y" );
+    FormatStepMetrics metrics = new FormatStepMetrics();
+    metrics.start( "trans", "step", 0, log, variables );
+    return metrics;
+  }
+
+  @Test
+  public void testCountersAndCompressionRatio() {
+    FormatStepMetrics metrics = gathering();
+    assertTrue( metrics.isEnabled() );
+    assertEquals( 0, metrics.getCompressionRatio(), 0 );
+    metrics.setSplitsTotal( 2 );
+    metrics.addSplitProcessed();
+    metrics.addEncodedRow( new Object[] { 1L, 2L }, 2, metrics.startTimer() );
+    metrics.addEncodedRow( new Object[] { 3L, 4L }, 2, metrics.startTimer() );
+    metrics.addFileBytes( 16 );
+
+    assertEquals( 2, metrics.getRows() );
+    assertEquals( 32, metrics.getValueBytes() );
+    assertEquals( 2, metrics.getCompressionRatio(), 0 );
+    assertEquals( 2, metrics.getSplitsTotal() );
+    assertEquals( 1, metrics.getSplitsProcessed() );
+  }
+
+  @Test
+  public void testNothingIsCountedWhenDisabled() {
+    FormatStepMetrics metrics = new FormatStepMetrics();
+    metrics.start( "trans", "step", 0, mock( LogChannelInterface.class ), new Variables() );
+    assertFalse( metrics.isEnabled() );
+    assertEquals( 0L, metrics.startTimer() );
+
+    metrics.addSplitProcessed();
+    metrics.addDecodedRow( new Object[] { 1L }, 1, 0L );
+    metrics.addFileBytes( 10 );
+    metrics.publish( mock( LogChannelInterface.class ) );
+
+    assertEquals( 0, metrics.getRows() );
+    assertEquals( 0, metrics.getValueBytes() );
+    assertEquals( 0, metrics.getSplitsProcessed() );
+    assertEquals( 0, metrics.getFileBytes() );
+  }
+
+  @Test
+  public void testSplitsWithoutRowsAreSkipped() {
+    FormatStepMetrics metrics = gathering();
+    metrics.setSplitsTotal( 3 );
+    metrics.addSplitProcessed();
+    metrics.addDecodedRow( new Object[] { 1L }, 1, metrics.startTimer() );
+    metrics.endSplit();
+    metrics.addSplitProcessed();
+    metrics.endSplit();
+    metrics.addSplitProcessed();
+
+    LogChannelInterface log = mock( LogChannelInterface.class );
+    when( log.isGatheringMetrics() ).thenReturn( true );
+    metrics.publish( log );
+    assertEquals( 3, metrics.getSplitsProcessed() );
+    assertEquals( 2, metrics.getSplitsSkipped() );
+    verify( log ).snap( FormatStepMetrics.METRIC_SPLITS_SKIPPED, 2L );
+  }
+
+  @Test
+  public void testRowsReachJmxReadersInSnapshots() {
+    FormatStepMetrics metrics = gathering();
+    for ( int i = 0; i < FormatStepMetrics.SNAPSHOT_ROWS - 1; i++ ) {
+      metrics.addDecodedRow( new Object[] { 1L }, 1, metrics.startTimer() );
+    }
+    assertEquals( 0, metrics.getRows() );
+    metrics.addDecodedRow( new Object[] { 1L }, 1, metrics.startTimer() );
+    assertEquals( FormatStepMetrics.SNAPSHOT_ROWS, metrics.getRows() );
+  }
+
+  @Test
+  public void testPublishOnlySnapsWhenGatheringMetrics() {
+    LogChannelInterface log = mock( LogChannelInterface.class );
+    FormatStepMetrics jmxOnly = withJmx( "run-3" );
+    jmxOnly.publish( log );
+    jmxOnly.unregisterMBean();
+    verify( log, never() ).snap( FormatStepMetrics.METRIC_FILE_BYTES, 0L );
+
+    when( log.isGatheringMetrics() ).thenReturn( true );
+    gathering().publish( log );
+    verify( log ).snap( FormatStepMetrics.METRIC_FILE_BYTES, 0L );
+  }
+
+  @Test
+  public void testMBeanOnlyRegisteredWhenRequested() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName( FormatStepMetrics.JMX_DOMAIN
+      + ":type=StepMetrics,transformation=\"trans\",step=\"step\",copy=0,run=\"run-0\"" );
+
+    LogChannelInterface log = mock( LogChannelInterface.class );
+    when( log.getLogChannelId() ).thenReturn( "run-0" );
+    new FormatStepMetrics().start( "trans", "step", 0, log, new Variables() );
+    assertFalse( server.isRegistered( name ) );
+
+    FormatStepMetrics metrics = withJmx( "run-0" );
+    assertTrue( metrics.isEnabled() );
+    assertTrue( server.isRegistered( name ) );
+    metrics.unregisterMBean();
+    assertFalse( server.isRegistered( name ) );
+  }
+
+  @Test
+  public void testRegisterAndUnregisterMBean() throws Exception {
+    LogChannelInterface log = mock( LogChannelInterface.class );
+    when( log.getLogChannelId() ).thenReturn( "run-1" );
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName( FormatStepMetrics.JMX_DOMAIN
+      + ":type=StepMetrics,transformation=\"trans\",step=\"step\",copy=1,run=\"run-1\"" );
+
+    FormatStepMetrics metrics = new FormatStepMetrics();
+    metrics.registerMBean( "trans", "step", 1, log );
+    assertTrue( server.isRegistered( name ) );
+    assertEquals( 0L, server.getAttribute( name, "Rows" ) );
+    verify( log, never() ).logDebug( anyString() );
+
+    metrics.unregisterMBean();
+    assertFalse( server.isRegistered( name ) );
+  }
+
+  @Test
+  public void testConcurrentRunsRegisterSeparateMBeans() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name1 = new ObjectName( FormatStepMetrics.JMX_DOMAIN
+      + ":type=StepMetrics,transformation=\"trans\",step=\"step\",copy=0,run=\"run-1\"" );
+
+    FormatStepMetrics metrics1 = withJmx( "run-1" );
+    FormatStepMetrics metrics2 = withJmx( "run-2" );
+    metrics1.addEncodedRow( new Object[] { 1L }, 1, metrics1.startTimer() );
+    metrics1.publish( mock( LogChannelInterface.class ) );
+
+    metrics2.unregisterMBean();
+    assertTrue( server.isRegistered( name1 ) );
+    assertEquals( 1L, server.getAttribute( name1, "Rows" ) );
+
+    metrics1.unregisterMBean();
+    assertFalse( server.isRegistered( name1 ) );
+  }
+}
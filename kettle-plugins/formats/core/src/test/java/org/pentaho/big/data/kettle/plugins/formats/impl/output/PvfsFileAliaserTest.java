@@ -24,11 +24,16 @@ import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.hadoop.shim.api.format.IPvfsAliasGenerator;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.file.Files;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 
@@ -75,6 +80,64 @@ public class PvfsFileAliaserTest {
     assertFalse( new File( new File( temporaryPath ).getParent() ).exists() );
   }
 
+  @Test
+  public void testStreamingWhileWriterIsOpen() throws Exception {
+    when( variableSpace.getVariable( PvfsFileAliaser.STREAMING_VARIABLE ) ).thenReturn( "Y" );
+    String aliasPath = pvfsFileAliaser.generateAlias();
+    assertTrue( pvfsFileAliaser.isStreaming() );
+    byte[] content = new byte[ 3 * 1024 * 1024 + 17 ];
+    for ( int i = 0; i < content.length; i++ ) {
+      content[ i ] = (byte) i;
+    }
+    try ( FileOutputStream out = new FileOutputStream( aliasPath ) ) {
+      out.write( content, 0, 1024 );
+      out.flush();
+      out.write( content, 1024, content.length - 1024 );
+    }
+    pvfsFileAliaser.copyFileToFinalDestination();
+    assertFalse( pvfsFileAliaser.isStreaming() );
+    assertArrayEquals( content, Files.readAllBytes( finalFile.toPath() ) );
+    pvfsFileAliaser.deleteTempFileAndFolder();
+    assertTrue( finalFile.exists() );
+    assertFalse( new File( new File( temporaryPath ).getParent() ).exists() );
+  }
+
+  @Test
+  public void testStreamingAbortRemovesPartialDestination() throws Exception {
+    when( variableSpace.getVariable( PvfsFileAliaser.STREAMING_VARIABLE ) ).thenReturn( "Y" );
+    String aliasPath = pvfsFileAliaser.generateAlias();
+    try ( FileOutputStream out = new FileOutputStream( aliasPath ) ) {
+      out.write( new byte[ 128 ] );
+    }
+    pvfsFileAliaser.deleteTempFileAndFolder();
+    assertFalse( pvfsFileAliaser.isStreaming() );
+    assertFalse( finalFile.exists() );
+    assertFalse( new File( new File( temporaryPath ).getParent() ).exists() );
+  }
+
+  @Test
+  public void testFailedStreamingFinishStillRemovesPartialDestination() throws Exception {
+    when( variableSpace.getVariable( PvfsFileAliaser.STREAMING_VARIABLE ) ).thenReturn( "Y" );
+    String aliasPath = pvfsFileAliaser.generateAlias();
+    try ( FileOutputStream out = new FileOutputStream( aliasPath ) ) {
+      out.write( new byte[ 128 ] );
+    }
+    // let the streamer ship the bytes, then shrink the source so that the streamed size no longer matches
+    Thread.sleep( 500 );
+    try ( RandomAccessFile file = new RandomAccessFile( aliasPath, "rw" ) ) {
+      file.setLength( 10 );
+    }
+    try {
+      pvfsFileAliaser.copyFileToFinalDestination();
+      fail( "the size mismatch should fail the copy" );
+    } catch ( IOException e ) {
+      // expected
+    }
+    assertTrue( pvfsFileAliaser.isStreaming() );
+    pvfsFileAliaser.deleteTempFileAndFolder();
+    assertFalse( finalFile.exists() );
+  }
+
   @Test
   public void testGenerateWithInactiveAlias() throws Exception {
     when( aliasGenerator.generateAlias( anyString() ) ).thenReturn( null );
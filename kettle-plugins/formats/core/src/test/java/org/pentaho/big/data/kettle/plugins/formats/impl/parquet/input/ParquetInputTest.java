@@ -20,6 +20,7 @@ import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.pentaho.big.data.kettle.plugins.formats.impl.NamedClusterResolver;
+import org.pentaho.big.data.kettle.plugins.formats.impl.metrics.FormatStepMetrics;
 import org.pentaho.di.core.bowl.DefaultBowl;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleException;
@@ -167,6 +168,8 @@ public class ParquetInputTest {
     int rowsProcessed = 0;
     ArgumentCaptor<RowMeta> rowMetaCaptor = ArgumentCaptor.forClass( RowMeta.class );
     ArgumentCaptor<Object[]> dataCaptor = ArgumentCaptor.forClass( Object[].class );
+    parquetInput.setVariable( FormatStepMetrics.JMX_VARIABLE, "Y" );
+    parquetInput.init();
 
     do {
       result = parquetInput.processRow( parquetInputMeta, parquetInputData );
@@ -184,6 +187,11 @@ public class ParquetInputTest {
       assertEquals( 0, rowMeta.get( rowNum ).indexOfValue( "str" ) );
       assertEquals( "string" + ( rowNum % 2 + 1 ), dataCaptured.get( rowNum )[0] );
     }
+    assertEquals( 2, parquetInput.getMetrics().getRows() );
+    assertEquals( 1, parquetInput.getMetrics().getSplitsTotal() );
+    assertEquals( 1, parquetInput.getMetrics().getSplitsProcessed() );
+    assertEquals( 0, parquetInput.getMetrics().getSplitsSkipped() );
+    parquetInput.getMetrics().unregisterMBean();
   }
 
   @Test
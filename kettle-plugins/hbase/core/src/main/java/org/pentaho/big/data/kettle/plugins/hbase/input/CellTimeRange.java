@@ -0,0 +1,112 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.input;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.NavigableMap;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.i18n.BaseMessages;
+
+/**
+ * Accepts the HBase rows that have at least one cell with a time stamp in [start, end). The shim's scanner can't
+ * restrict a scan to a time range, so rows are checked as they arrive, using the cell time stamps from the underlying
+ * result's family map.
+ */
+public class CellTimeRange {
+
+  private final long m_start;
+  private final long m_end;
+
+  private Class<?> m_resultClass;
+  private Method m_getMap;
+
+  public CellTimeRange( long start, long end ) {
+    m_start = start;
+    m_end = end;
+  }
+
+  /**
+   * Create a time range from the (variable substituted) limits configured for the step
+   *
+   * @param start start time stamp (inclusive), empty for no lower limit
+   * @param end   end time stamp (exclusive), empty for no upper limit
+   * @return the time range or null if neither limit is set
+   * @throws KettleException if a limit is not a number
+   */
+  public static CellTimeRange create( String start, String end ) throws KettleException {
+    if ( Const.isEmpty( start ) && Const.isEmpty( end ) ) {
+      return null;
+    }
+    return new CellTimeRange( parse( start, 0L ), parse( end, Long.MAX_VALUE ) );
+  }
+
+  private static long parse( String timestamp, long defaultValue ) throws KettleException {
+    if ( Const.isEmpty( timestamp ) ) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong( timestamp.trim() );
+    } catch ( NumberFormatException e ) {
+      throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.Error.InvalidTimestamp",
+        timestamp ), e );
+    }
+  }
+
+  public long getStart() {
+    return m_start;
+  }
+
+  public long getEnd() {
+    return m_end;
+  }
+
+  /**
+   * Check a row
+   *
+   * @param result the row
+   * @return true if a cell of the row was written within the time range
+   * @throws KettleException if the cells of the row can't be read
+   */
+  @SuppressWarnings( "unchecked" )
+  public boolean accept( Object result ) throws KettleException {
+    NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> rowData;
+    try {
+      if ( m_resultClass != result.getClass() ) {
+        m_getMap = result.getClass().getMethod( "getMap" );
+        m_resultClass = result.getClass();
+      }
+      rowData = (NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>>) m_getMap.invoke( result );
+    } catch ( Exception ex ) {
+      throw new KettleException( ex );
+    }
+    if ( rowData == null ) {
+      return false;
+    }
+
+    for ( NavigableMap<byte[], NavigableMap<Long, byte[]>> columns : rowData.values() ) {
+      for ( NavigableMap<Long, byte[]> versions : columns.values() ) {
+        for ( Map.Entry<Long, byte[]> version : versions.entrySet() ) {
+          long timestamp = version.getKey();
+          if ( timestamp >= m_start && timestamp < m_end ) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+}
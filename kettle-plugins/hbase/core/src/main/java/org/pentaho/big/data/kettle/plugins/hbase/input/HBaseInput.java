@@ -15,10 +15,13 @@ package org.pentaho.big.data.kettle.plugins.hbase.input;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.lang.StringUtils;
 import org.pentaho.hadoop.shim.api.cluster.NamedClusterServiceLocator;
+import org.pentaho.big.data.kettle.plugins.hbase.input.RegionKeyRanges.KeyRange;
 import org.pentaho.big.data.kettle.plugins.hbase.mapping.HBaseRowToKettleTuple;
 import org.pentaho.big.data.kettle.plugins.hbase.mapping.MappingAdmin;
 import org.pentaho.hadoop.shim.api.hbase.ByteConversionUtil;
@@ -60,6 +63,7 @@ public class HBaseInput extends BaseStep implements StepInterface {
   private HBaseService hBaseService;
   private HBaseTable m_hbAdminTable;
   private ResultScanner resultScanner;
+  private RegionScanner m_regionScanner;
   private HBaseValueMetaInterfaceFactory hBaseValueMetaInterfaceFactory;
 
   public HBaseInput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
@@ -91,6 +95,13 @@ public class HBaseInput extends BaseStep implements StepInterface {
    */
   protected HBaseRowToKettleTuple m_tupleHandler;
 
+  private final HBaseRowToKettleTuple.TupleHandler m_tupleEmitter = new HBaseRowToKettleTuple.TupleHandler() {
+    @Override
+    public void handleTuple( Object[] tuple ) throws KettleException {
+      putRow( m_data.getOutputRowMeta(), tuple );
+    }
+  };
+
   @Override
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
 
@@ -213,25 +224,73 @@ public class HBaseInput extends BaseStep implements StepInterface {
             "HBaseInput.Error.UnableToSetSourceTableForScan" ), ex );
       }
 
-      ResultScannerBuilder scannerBuilder = m_hbAdminTable
-        .createScannerBuilder( m_tableMapping, dateOrNumberConversionMaskForKey, m_meta.getKeyStartValue(),
-          m_meta.getKeyStopValue(), m_meta.getScannerCacheSize(), log, this );
-
-      // LIMIT THE SCAN TO JUST THE COLUMNS IN THE MAPPING
-      // User-selected output columns?
-      if ( m_userOutputColumns != null && m_userOutputColumns.size() > 0 && !m_tableMapping.isTupleMapping() ) {
-        HBaseInputData.setScanColumns( scannerBuilder, m_userOutputColumns, m_tableMapping );
+      // a key prefix is pushed down to the region servers as a row range
+      KeyRange keyRange = null;
+      String keyPrefix = environmentSubstitute( m_meta.getKeyPrefix() );
+      if ( !Const.isEmpty( keyPrefix ) ) {
+        if ( !Const.isEmpty( m_meta.getKeyStartValue() ) || !Const.isEmpty( m_meta.getKeyStopValue() ) ) {
+          throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
+            "HBaseInput.Error.KeyPrefixWithKeyRange" ) );
+        }
+        keyRange = RegionKeyRanges.prefixRange( m_bytesUtil.toBytes( keyPrefix ) );
       }
 
-      // set any filters
-      if ( m_meta.getColumnFilters() != null && m_meta.getColumnFilters().size() > 0 ) {
-        HBaseInputData.setScanFilters( scannerBuilder, m_meta.getColumnFilters(), m_meta.getMatchAnyFilter(),
-          m_columnsMappedByAlias, this );
+      List<KeyRange> regionRanges = null;
+      if ( m_meta.getSplitByRegion() ) {
+        regionRanges = getRegionRanges( sourceName, keyRange );
+      } else if ( keyRange != null ) {
+        regionRanges = Collections.singletonList( keyRange );
       }
 
+      m_data.setTimeRange( CellTimeRange.create( environmentSubstitute( m_meta.getTimeRangeStart() ),
+        environmentSubstitute( m_meta.getTimeRangeEnd() ) ) );
+      logScanPlan( keyPrefix );
+
       if ( !isStopped() ) {
         try {
-          resultScanner = scannerBuilder.build();
+          if ( regionRanges != null ) {
+            final int threads = Const.toInt( environmentSubstitute( m_meta.getScanThreads() ), 1 );
+            final int caching = Const.toInt( environmentSubstitute( m_meta.getScannerCacheSize() ), -1 );
+            m_regionScanner = new RegionScanner( regionRanges, new RegionScanner.ScannerFactory() {
+              @Override
+              public ResultScanner createScanner( KeyRange range ) throws Exception {
+                // the shim makes no promise that a table can be scanned from several threads, so every reader
+                // thread scans through a table of its own
+                HBaseTable table = threads > 1 ? m_hbAdmin.getTable( sourceName ) : m_hbAdminTable;
+                try {
+                  ResultScannerBuilder scannerBuilder = table.createScannerBuilder( range.getStart(),
+                    range.getStop() );
+                  if ( caching > 0 ) {
+                    scannerBuilder.setCaching( caching );
+                  }
+                  configureScan( scannerBuilder );
+                  ResultScanner scanner = scannerBuilder.build();
+                  return table == m_hbAdminTable ? scanner : new TableScanner( scanner, table );
+                } catch ( Exception e ) {
+                  if ( table != m_hbAdminTable ) {
+                    table.close();
+                  }
+                  throw e;
+                }
+              }
+            }, threads, m_meta.getPrefetch(), queueRowsPerThread( caching ) );
+          } else if ( m_meta.getPrefetch() ) {
+            // a single range, bounded by the start/stop key values of the step, read in the background
+            final String keyConversionMask = dateOrNumberConversionMaskForKey;
+            KeyRange wholeScan = new KeyRange( new byte[ 0 ], new byte[ 0 ] );
+            int caching = Const.toInt( environmentSubstitute( m_meta.getScannerCacheSize() ), -1 );
+            m_regionScanner = new RegionScanner( Collections.singletonList( wholeScan ),
+              new RegionScanner.ScannerFactory() {
+                @Override
+                public ResultScanner createScanner( KeyRange range ) throws Exception {
+                  return buildScanner( keyConversionMask );
+                }
+              }, 1, true, queueRowsPerThread( caching ) );
+          } else {
+            resultScanner = buildScanner( dateOrNumberConversionMaskForKey );
+          }
+        } catch ( KettleException e ) {
+          throw e;
         } catch ( Exception e ) {
           throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
               "HBaseInput.Error.UnableToExecuteSourceTableScan" ), e );
@@ -241,19 +300,20 @@ public class HBaseInput extends BaseStep implements StepInterface {
         m_data.setOutputRowMeta( new RowMeta() );
         m_meta.getFields( getTransMeta().getBowl(), m_data.getOutputRowMeta(), getStepname(), null, null, this,
           repository, metaStore );
-      }
-    }
 
-    Result next = null;
-    if ( !isStopped() ) {
-      try {
-        next = resultScanner.next();
-      } catch ( Exception e ) {
-        throw new KettleException( e.getMessage(), e );
+        if ( !m_tableMapping.isTupleMapping() ) {
+          m_data.setOutputRowPlan( OutputRowPlan.compile( m_userOutputColumns, m_columnsMappedByAlias, m_tableMapping,
+            m_data.getOutputRowMeta() ) );
+        }
       }
     }
 
+    Result next = nextResult();
+
     if ( next == null ) {
+      if ( m_regionScanner != null ) {
+        m_regionScanner.close();
+      }
       try {
         m_hbAdminTable.close();
         m_hbAdmin.close();
@@ -266,23 +326,175 @@ public class HBaseInput extends BaseStep implements StepInterface {
     }
 
     if ( m_tableMapping.isTupleMapping() ) {
-      List<Object[]> tupleRows =
-          HBaseInputData.getTupleOutputRows( hBaseService, next, m_userOutputColumns, m_columnsMappedByAlias, m_tableMapping,
-              m_tupleHandler, m_data.getOutputRowMeta() );
-
-      for ( Object[] tuple : tupleRows ) {
-        putRow( m_data.getOutputRowMeta(), tuple );
-      }
+      // pass the tuples of (possibly very wide) rows on one at a time
+      HBaseInputData.emitTupleOutputRows( hBaseService, next, m_userOutputColumns, m_columnsMappedByAlias,
+          m_tableMapping, m_tupleHandler, m_data.getOutputRowMeta(), m_tupleEmitter );
       return true;
     } else {
-      Object[] outRowData =
-          HBaseInputData.getOutputRow( next, m_userOutputColumns, m_columnsMappedByAlias, m_tableMapping, m_data
-              .getOutputRowMeta() );
+      Object[] outRowData = m_data.getOutputRowPlan().assemble( next );
       putRow( m_data.getOutputRowMeta(), outRowData );
       return true;
     }
   }
 
+  /**
+   * Get the next row of the scan that passes the client side filters
+   *
+   * @return the next row or null when the scan is complete
+   * @throws KettleException if the scan fails
+   */
+  private Result nextResult() throws KettleException {
+    CellTimeRange timeRange = m_data.getTimeRange();
+    while ( !isStopped() ) {
+      Result next;
+      if ( m_regionScanner != null ) {
+        next = m_regionScanner.next();
+      } else {
+        try {
+          next = resultScanner.next();
+        } catch ( Exception e ) {
+          throw new KettleException( e.getMessage(), e );
+        }
+      }
+      if ( next == null || timeRange == null || timeRange.accept( next ) ) {
+        return next;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Open a scanner over the start/stop key values of the step
+   *
+   * @param keyConversionMask conversion mask for date or number key values
+   * @return the scanner
+   * @throws Exception if the scan can't be set up
+   */
+  private ResultScanner buildScanner( String keyConversionMask ) throws Exception {
+    ResultScannerBuilder scannerBuilder = m_hbAdminTable
+      .createScannerBuilder( m_tableMapping, keyConversionMask, m_meta.getKeyStartValue(),
+        m_meta.getKeyStopValue(), m_meta.getScannerCacheSize(), log, this );
+    configureScan( scannerBuilder );
+    return scannerBuilder.build();
+  }
+
+  /**
+   * How many rows a background reader may fetch ahead of the step - two batches of the scanner cache, so that one is
+   * queued while the next is on its way, without holding more wide rows on the heap than that.
+   *
+   * @param caching the scanner cache size, or a value less than 1 if not set
+   * @return the number of rows to queue per reading thread
+   */
+  static int queueRowsPerThread( int caching ) {
+    return caching > 0 ? caching * 2 : RegionScanner.DEFAULT_QUEUE_ROWS_PER_THREAD;
+  }
+
+  /**
+   * Limit the scan to the selected columns (or all mapped columns) and apply the column filters.
+   *
+   * @param scannerBuilder the scan to configure
+   * @throws KettleException if a column or filter can't be added to the scan
+   */
+  private void configureScan( ResultScannerBuilder scannerBuilder ) throws KettleException {
+    // LIMIT THE SCAN TO JUST THE COLUMNS IN THE MAPPING
+    if ( !m_tableMapping.isTupleMapping() ) {
+      HBaseInputData.setScanColumns( scannerBuilder, getScanColumns(), m_tableMapping );
+    }
+
+    // set any filters
+    if ( m_meta.getColumnFilters() != null && m_meta.getColumnFilters().size() > 0 ) {
+      HBaseInputData.setScanFilters( scannerBuilder, m_meta.getColumnFilters(), m_meta.getMatchAnyFilter(),
+        m_columnsMappedByAlias, this );
+    }
+  }
+
+  /**
+   * The columns to fetch - the user-selected output columns or, if there are none, every column in the mapping
+   *
+   * @return the columns to fetch (may include the key, which is not a column)
+   */
+  private List<HBaseValueMetaInterface> getScanColumns() {
+    if ( m_userOutputColumns != null && m_userOutputColumns.size() > 0 ) {
+      return m_userOutputColumns;
+    }
+    return new ArrayList<HBaseValueMetaInterface>( m_columnsMappedByAlias.values() );
+  }
+
+  /**
+   * Log which parts of the query the region servers evaluate and which are checked in the step
+   *
+   * @param keyPrefix the key prefix, if any
+   */
+  private void logScanPlan( String keyPrefix ) {
+    List<String> serverSide = new ArrayList<String>();
+    if ( !Const.isEmpty( keyPrefix ) ) {
+      serverSide.add( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.ScanPlan.KeyPrefix", keyPrefix ) );
+    } else if ( !Const.isEmpty( m_meta.getKeyStartValue() ) || !Const.isEmpty( m_meta.getKeyStopValue() ) ) {
+      serverSide.add( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.ScanPlan.KeyRange" ) );
+    }
+    if ( !m_tableMapping.isTupleMapping() ) {
+      int columns = 0;
+      for ( HBaseValueMetaInterface column : getScanColumns() ) {
+        if ( !column.isKey() ) {
+          columns++;
+        }
+      }
+      serverSide.add( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.ScanPlan.Columns", columns ) );
+    }
+    if ( m_meta.getColumnFilters() != null && m_meta.getColumnFilters().size() > 0 ) {
+      serverSide.add( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.ScanPlan.ColumnFilters",
+        m_meta.getColumnFilters().size() ) );
+    }
+
+    List<String> clientSide = new ArrayList<String>();
+    CellTimeRange timeRange = m_data.getTimeRange();
+    if ( timeRange != null ) {
+      clientSide.add( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.ScanPlan.TimeRange",
+        timeRange.getStart(), timeRange.getEnd() ) );
+    }
+
+    String none = BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.ScanPlan.None" );
+    logBasic( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.Message.ServerSideFilters",
+      serverSide.isEmpty() ? none : StringUtils.join( serverSide, ", " ) ) );
+    logBasic( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.Message.ClientSideFilters",
+      clientSide.isEmpty() ? none : StringUtils.join( clientSide, ", " ) ) );
+  }
+
+  /**
+   * Work out the region aligned key ranges this copy of the step should read. Only full table and key prefix scans are
+   * split; if a start/stop key range has been configured or the regions of the table can't be determined then the
+   * first copy scans everything and the others read nothing.
+   *
+   * @param sourceName the name of the table
+   * @param keyRange   the key range of a key prefix or null to split the whole table
+   * @return the key ranges to read or null to do a single scan of the configured range
+   */
+  List<KeyRange> getRegionRanges( String sourceName, KeyRange keyRange ) {
+    int copyNr = getUniqueStepNrAcrossSlaves();
+    int nrCopies = getUniqueStepCountAcrossSlaves();
+    if ( !Const.isEmpty( m_meta.getKeyStartValue() ) || !Const.isEmpty( m_meta.getKeyStopValue() ) ) {
+      logBasic( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.Message.KeyRangeNotSplit" ) );
+    } else {
+      try {
+        List<byte[]> startKeys = RegionKeyRanges.readRegionStartKeys( m_hbAdmin, sourceName );
+        List<KeyRange> ranges = keyRange == null
+          ? RegionKeyRanges.regionRanges( startKeys, new byte[ 0 ], new byte[ 0 ] )
+          : RegionKeyRanges.regionRanges( startKeys, keyRange.getStart(), keyRange.getStop() );
+        List<KeyRange> assigned = RegionKeyRanges.assign( ranges, copyNr, nrCopies );
+        logBasic( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.Message.RegionsAssigned", assigned.size(),
+          ranges.size(), sourceName ) );
+        return assigned;
+      } catch ( Exception ex ) {
+        logError( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.Error.UnableToReadRegions", sourceName ),
+          ex );
+      }
+    }
+    if ( copyNr > 0 ) {
+      return new ArrayList<KeyRange>();
+    }
+    return keyRange == null ? null : Collections.singletonList( keyRange );
+  }
+
   @Override
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     if ( super.init( smi, sdi ) ) {
@@ -325,6 +537,33 @@ public class HBaseInput extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Scanner that closes the table it was opened on when it is closed
+   */
+  static class TableScanner implements ResultScanner {
+    private final ResultScanner m_scanner;
+    private final HBaseTable m_table;
+
+    TableScanner( ResultScanner scanner, HBaseTable table ) {
+      m_scanner = scanner;
+      m_table = table;
+    }
+
+    @Override
+    public Result next() throws IOException {
+      return m_scanner.next();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        m_scanner.close();
+      } finally {
+        m_table.close();
+      }
+    }
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -337,6 +576,9 @@ public class HBaseInput extends BaseStep implements StepInterface {
     }
     super.setStopped( stopped );
 
+    if ( stopped && m_regionScanner != null ) {
+      m_regionScanner.close();
+    }
     if ( stopped && m_hbAdmin != null ) {
       logBasic( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.ClosingConnection" ) );
       try {
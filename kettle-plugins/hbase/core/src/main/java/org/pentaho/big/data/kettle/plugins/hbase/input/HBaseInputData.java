@@ -22,7 +22,6 @@ import org.pentaho.hadoop.shim.api.hbase.Result;
 import org.pentaho.hadoop.shim.api.hbase.table.ResultScannerBuilder;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
-import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.i18n.BaseMessages;
@@ -34,7 +33,6 @@ import java.net.URL;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Class providing an input step for reading data from an HBase table according to meta data mapping info stored in a
@@ -50,6 +48,12 @@ public class HBaseInputData extends BaseStepData implements StepDataInterface {
   /** The output data format */
   protected RowMetaInterface m_outputRowMeta;
 
+  /** How to assemble output rows from the scanned HBase rows */
+  protected OutputRowPlan m_outputRowPlan;
+
+  /** Time range rows are checked against as they arrive (null if there is none) */
+  protected CellTimeRange m_timeRange;
+
   /**
    * Get the output row format
    * 
@@ -69,6 +73,44 @@ public class HBaseInputData extends BaseStepData implements StepDataInterface {
     m_outputRowMeta = rmi;
   }
 
+  /**
+   * Get the plan for assembling output rows
+   * 
+   * @return the plan for assembling output rows
+   */
+  public OutputRowPlan getOutputRowPlan() {
+    return m_outputRowPlan;
+  }
+
+  /**
+   * Set the plan for assembling output rows
+   * 
+   * @param plan
+   *          the plan for assembling output rows
+   */
+  public void setOutputRowPlan( OutputRowPlan plan ) {
+    m_outputRowPlan = plan;
+  }
+
+  /**
+   * Get the time range rows are checked against
+   * 
+   * @return the time range or null if there is none
+   */
+  public CellTimeRange getTimeRange() {
+    return m_timeRange;
+  }
+
+  /**
+   * Set the time range rows are checked against
+   * 
+   * @param timeRange
+   *          the time range or null for none
+   */
+  public void setTimeRange( CellTimeRange timeRange ) {
+    m_timeRange = timeRange;
+  }
+
   /**
    * Utility method to covert a string to a URL object.
    * 
@@ -113,8 +155,8 @@ public class HBaseInputData extends BaseStepData implements StepDataInterface {
         String qualifier = currentCol.getColumnName();
 
         boolean binaryColName = false;
-        if ( qualifier.startsWith( "@@@binary@@@" ) ) {
-          qualifier = qualifier.replace( "@@@binary@@@", "" );
+        if ( qualifier.startsWith( OutputRowPlan.BINARY_COLUMN_PREFIX ) ) {
+          qualifier = qualifier.replace( OutputRowPlan.BINARY_COLUMN_PREFIX, "" );
           binaryColName = true;
         }
 
@@ -208,8 +250,10 @@ public class HBaseInputData extends BaseStepData implements StepDataInterface {
   }
 
   /**
-   * Convert/decode the current hbase row into a kettle row
+   * Convert/decode the current hbase row into "tuple" kettle rows, handing each over as soon as it has been decoded
    * 
+   * @param hBaseService
+   *          the hBaseService
    * @param result
    *          the result to use
    * @param userOutputColumns
@@ -218,113 +262,51 @@ public class HBaseInputData extends BaseStepData implements StepDataInterface {
    *          columns in the mapping keyed by alias
    * @param tableMapping
    *          the mapping to use
+   * @param tupleHandler
+   *          the HBaseRowToKettleTuple to delegate to
    * @param outputRowMeta
    *          the outgoing row meta
-   * @return a kettle row
+   * @param handler
+   *          receives the kettle rows
    * @throws KettleException
    *           if a problem occurs
    */
-  public static Object[] getOutputRow( Result result, List<HBaseValueMetaInterface> userOutputColumns,
-      Map<String, HBaseValueMetaInterface> columnsMappedByAlias, Mapping tableMapping, RowMetaInterface outputRowMeta ) throws KettleException {
-
-    int size = ( userOutputColumns != null && userOutputColumns.size() > 0 ) ? userOutputColumns.size()
-      : tableMapping.numMappedColumns() + 1; // + 1 for the key
-
-    Object[] outputRowData = RowDataUtil.allocateRowData( size );
+  public static void emitTupleOutputRows( HBaseService hBaseService, Result result,
+                                          List<HBaseValueMetaInterface> userOutputColumns,
+                                          Map<String, HBaseValueMetaInterface> columnsMappedByAlias,
+                                          Mapping tableMapping, HBaseRowToKettleTuple tupleHandler,
+                                          RowMetaInterface outputRowMeta, HBaseRowToKettleTuple.TupleHandler handler )
+    throws KettleException {
 
-    // User-selected output columns?
     if ( userOutputColumns != null && userOutputColumns.size() > 0 ) {
-      for ( HBaseValueMetaInterface currentCol : userOutputColumns ) {
-        if ( currentCol.isKey() ) {
-          byte[] rawKey = null;
-          try {
-            rawKey = result.getRow();
-          } catch ( Exception e ) {
-            throw new KettleException( e );
-          }
-          Object decodedKey = tableMapping.decodeKeyValue( rawKey );
-          int keyIndex = outputRowMeta.indexOfValue( currentCol.getAlias() );
-          outputRowData[keyIndex] = decodedKey;
-        } else {
-          String colFamilyName = currentCol.getColumnFamily();
-          String qualifier = currentCol.getColumnName();
-
-          boolean binaryColName = false;
-          if ( qualifier.startsWith( "@@@binary@@@" ) ) {
-            qualifier = qualifier.replace( "@@@binary@@@", "" );
-            // assume hex encoded
-            binaryColName = true;
-          }
-
-          byte[] kv = null;
-          try {
-            kv = result.getValue( colFamilyName, qualifier, binaryColName );
-          } catch ( Exception e ) {
-            throw new KettleException( e );
-          }
-
-          int outputIndex = outputRowMeta.indexOfValue( currentCol.getAlias() );
-          if ( outputIndex < 0 ) {
-            throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
-                "HBaseInput.Error.ColumnNotDefinedInOutput", currentCol.getAlias() ) );
-          }
-
-          Object decodedVal = currentCol.decodeColumnValue( ( kv == null ) ? null : kv );
-
-          outputRowData[outputIndex] = decodedVal;
-        }
-      }
+      tupleHandler.hbaseRowToKettleTupleMode( result, tableMapping, userOutputColumns, outputRowMeta, handler );
     } else {
-      // do the key first
-      byte[] rawKey = null;
-      try {
-        rawKey = result.getRow();
-      } catch ( Exception e ) {
-        throw new KettleException( e );
-      }
-
-      Object decodedKey = tableMapping.decodeKeyValue( rawKey );
-      int keyIndex = outputRowMeta.indexOfValue( tableMapping.getKeyName() );
-      outputRowData[keyIndex] = decodedKey;
-
-      Set<String> aliasSet = columnsMappedByAlias.keySet();
-
-      for ( String name : aliasSet ) {
-        HBaseValueMetaInterface currentCol = columnsMappedByAlias.get( name );
-        String colFamilyName = currentCol.getColumnFamily();
-        String qualifier = currentCol.getColumnName();
-        if ( currentCol.isKey() ) {
-          // skip key as it has already been processed 
-          // and is not in the scan's columns 
-          continue;
-        }
-
-        boolean binaryColName = false;
-        if ( qualifier.startsWith( "@@@binary@@@" ) ) {
-          qualifier = qualifier.replace( "@@@binary@@@", "" );
-          // assume hex encoded
-          binaryColName = true;
-        }
-
-        byte[] kv = null;
-        try {
-          kv = result.getValue( colFamilyName, qualifier, binaryColName );
-        } catch ( Exception e ) {
-          throw new KettleException( e );
-        }
-
-        int outputIndex = outputRowMeta.indexOfValue( name );
-        if ( outputIndex < 0 ) {
-          throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
-              "HBaseInput.Error.ColumnNotDefinedInOutput", name ) );
-        }
-
-        Object decodedVal = currentCol.decodeColumnValue( ( kv == null ) ? null : kv );
-
-        outputRowData[outputIndex] = decodedVal;
-      }
+      tupleHandler.hbaseRowToKettleTupleMode( hBaseService.getHBaseValueMetaInterfaceFactory(), result, tableMapping,
+        columnsMappedByAlias, outputRowMeta, handler );
     }
+  }
 
-    return outputRowData;
+  /**
+   * Convert/decode the current hbase row into a kettle row. Works out the row layout on every call - use an
+   * {@link OutputRowPlan} when converting many rows.
+   * 
+   * @param result
+   *          the result to use
+   * @param userOutputColumns
+   *          user-specified subset of columns (if any) from the mapping
+   * @param columnsMappedByAlias
+   *          columns in the mapping keyed by alias
+   * @param tableMapping
+   *          the mapping to use
+   * @param outputRowMeta
+   *          the outgoing row meta
+   * @return a kettle row
+   * @throws KettleException
+   *           if a problem occurs
+   */
+  public static Object[] getOutputRow( Result result, List<HBaseValueMetaInterface> userOutputColumns,
+      Map<String, HBaseValueMetaInterface> columnsMappedByAlias, Mapping tableMapping, RowMetaInterface outputRowMeta ) throws KettleException {
+    return OutputRowPlan.compile( userOutputColumns, columnsMappedByAlias, tableMapping, outputRowMeta )
+      .assemble( result );
   }
 }
@@ -138,9 +138,23 @@ public class HBaseInputDialog extends BaseStepDialog implements StepDialogInterf
   // Key stop line
   private TextVar m_keyStopText;
 
+  // Key prefix line
+  private TextVar m_keyPrefixText;
+
+  // Time range lines
+  private TextVar m_timeRangeStartText;
+  private TextVar m_timeRangeEndText;
+
   // Rows to be cached by Scanner
   private TextVar m_scanCacheText;
 
+  // Share the regions out between the step copies
+  private Button m_splitByRegionBut;
+
+  // Region reader threads per step copy
+  private TextVar m_scanThreadsText;
+  private Button m_prefetchBut;
+
   // Key as a column
   // private Button m_includeKey;
 
@@ -543,6 +557,68 @@ public class HBaseInputDialog extends BaseStepDialog implements StepDialogInterf
     fd.top = new FormAttachment( m_keyStartText, margin );
     m_keyStopText.setLayoutData( fd );
 
+    // key prefix
+    Label keyPrefixLab = new Label( wConfigComp, SWT.RIGHT );
+    keyPrefixLab.setText( Messages.getString( "HBaseInputDialog.KeyPrefix.Label" ) );
+    keyPrefixLab.setToolTipText( Messages.getString( "HBaseInputDialog.KeyPrefix.TipText" ) );
+    props.setLook( keyPrefixLab );
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( m_keyStopText, margin );
+    fd.right = new FormAttachment( middle, -margin );
+    keyPrefixLab.setLayoutData( fd );
+
+    m_keyPrefixText = new TextVar( transMeta, wConfigComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    m_keyPrefixText.setToolTipText( Messages.getString( "HBaseInputDialog.KeyPrefix.TipText" ) );
+    m_keyPrefixText.addModifyListener( lsMod );
+    props.setLook( m_keyPrefixText );
+    fd = new FormData();
+    fd.right = new FormAttachment( 100, 0 );
+    fd.left = new FormAttachment( middle, 0 );
+    fd.top = new FormAttachment( m_keyStopText, margin );
+    m_keyPrefixText.setLayoutData( fd );
+
+    // time range
+    Label timeRangeStartLab = new Label( wConfigComp, SWT.RIGHT );
+    timeRangeStartLab.setText( Messages.getString( "HBaseInputDialog.TimeRangeStart.Label" ) );
+    timeRangeStartLab.setToolTipText( Messages.getString( "HBaseInputDialog.TimeRangeStart.TipText" ) );
+    props.setLook( timeRangeStartLab );
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( m_keyPrefixText, margin );
+    fd.right = new FormAttachment( middle, -margin );
+    timeRangeStartLab.setLayoutData( fd );
+
+    m_timeRangeStartText = new TextVar( transMeta, wConfigComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    m_timeRangeStartText.setToolTipText( Messages.getString( "HBaseInputDialog.TimeRangeStart.TipText" ) );
+    m_timeRangeStartText.addModifyListener( lsMod );
+    props.setLook( m_timeRangeStartText );
+    fd = new FormData();
+    fd.right = new FormAttachment( 100, 0 );
+    fd.left = new FormAttachment( middle, 0 );
+    fd.top = new FormAttachment( m_keyPrefixText, margin );
+    m_timeRangeStartText.setLayoutData( fd );
+
+    Label timeRangeEndLab = new Label( wConfigComp, SWT.RIGHT );
+    timeRangeEndLab.setText( Messages.getString( "HBaseInputDialog.TimeRangeEnd.Label" ) );
+    timeRangeEndLab.setToolTipText( Messages.getString( "HBaseInputDialog.TimeRangeEnd.TipText" ) );
+    props.setLook( timeRangeEndLab );
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( m_timeRangeStartText, margin );
+    fd.right = new FormAttachment( middle, -margin );
+    timeRangeEndLab.setLayoutData( fd );
+
+    m_timeRangeEndText = new TextVar( transMeta, wConfigComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    m_timeRangeEndText.setToolTipText( Messages.getString( "HBaseInputDialog.TimeRangeEnd.TipText" ) );
+    m_timeRangeEndText.addModifyListener( lsMod );
+    props.setLook( m_timeRangeEndText );
+    fd = new FormData();
+    fd.right = new FormAttachment( 100, 0 );
+    fd.left = new FormAttachment( middle, 0 );
+    fd.top = new FormAttachment( m_timeRangeStartText, margin );
+    m_timeRangeEndText.setLayoutData( fd );
+
     // Scanner caching
     Label scannerCacheLab = new Label( wConfigComp, SWT.RIGHT );
     scannerCacheLab.setText( Messages.getString( "HBaseInputDialog.ScannerCache.Label" ) );
@@ -550,7 +626,7 @@ public class HBaseInputDialog extends BaseStepDialog implements StepDialogInterf
     props.setLook( scannerCacheLab );
     fd = new FormData();
     fd.left = new FormAttachment( 0, 0 );
-    fd.top = new FormAttachment( m_keyStopText, margin );
+    fd.top = new FormAttachment( m_timeRangeEndText, margin );
     fd.right = new FormAttachment( middle, -margin );
     scannerCacheLab.setLayoutData( fd );
 
@@ -560,9 +636,83 @@ public class HBaseInputDialog extends BaseStepDialog implements StepDialogInterf
     fd = new FormData();
     fd.right = new FormAttachment( 100, 0 );
     fd.left = new FormAttachment( middle, 0 );
-    fd.top = new FormAttachment( m_keyStopText, margin );
+    fd.top = new FormAttachment( m_timeRangeEndText, margin );
     m_scanCacheText.setLayoutData( fd );
 
+    // Split by region
+    Label splitByRegionLab = new Label( wConfigComp, SWT.RIGHT );
+    splitByRegionLab.setText( Messages.getString( "HBaseInputDialog.SplitByRegion.Label" ) );
+    splitByRegionLab.setToolTipText( Messages.getString( "HBaseInputDialog.SplitByRegion.TipText" ) );
+    props.setLook( splitByRegionLab );
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( m_scanCacheText, margin );
+    fd.right = new FormAttachment( middle, -margin );
+    splitByRegionLab.setLayoutData( fd );
+
+    m_splitByRegionBut = new Button( wConfigComp, SWT.CHECK );
+    m_splitByRegionBut.setToolTipText( Messages.getString( "HBaseInputDialog.SplitByRegion.TipText" ) );
+    props.setLook( m_splitByRegionBut );
+    fd = new FormData();
+    fd.right = new FormAttachment( 100, 0 );
+    fd.left = new FormAttachment( middle, 0 );
+    fd.top = new FormAttachment( m_scanCacheText, margin );
+    m_splitByRegionBut.setLayoutData( fd );
+    m_splitByRegionBut.addSelectionListener( new SelectionAdapter() {
+      @Override
+      public void widgetSelected( SelectionEvent e ) {
+        m_currentMeta.setChanged();
+        m_scanThreadsText.setEnabled( m_splitByRegionBut.getSelection() );
+      }
+    } );
+
+    // Region reader threads
+    Label scanThreadsLab = new Label( wConfigComp, SWT.RIGHT );
+    scanThreadsLab.setText( Messages.getString( "HBaseInputDialog.ScanThreads.Label" ) );
+    scanThreadsLab.setToolTipText( Messages.getString( "HBaseInputDialog.ScanThreads.TipText" ) );
+    props.setLook( scanThreadsLab );
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( m_splitByRegionBut, margin );
+    fd.right = new FormAttachment( middle, -margin );
+    scanThreadsLab.setLayoutData( fd );
+
+    m_scanThreadsText = new TextVar( transMeta, wConfigComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    m_scanThreadsText.setToolTipText( Messages.getString( "HBaseInputDialog.ScanThreads.TipText" ) );
+    m_scanThreadsText.addModifyListener( lsMod );
+    props.setLook( m_scanThreadsText );
+    fd = new FormData();
+    fd.right = new FormAttachment( 100, 0 );
+    fd.left = new FormAttachment( middle, 0 );
+    fd.top = new FormAttachment( m_splitByRegionBut, margin );
+    m_scanThreadsText.setLayoutData( fd );
+
+    // Prefetch
+    Label prefetchLab = new Label( wConfigComp, SWT.RIGHT );
+    prefetchLab.setText( Messages.getString( "HBaseInputDialog.Prefetch.Label" ) );
+    prefetchLab.setToolTipText( Messages.getString( "HBaseInputDialog.Prefetch.TipText" ) );
+    props.setLook( prefetchLab );
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( m_scanThreadsText, margin );
+    fd.right = new FormAttachment( middle, -margin );
+    prefetchLab.setLayoutData( fd );
+
+    m_prefetchBut = new Button( wConfigComp, SWT.CHECK );
+    m_prefetchBut.setToolTipText( Messages.getString( "HBaseInputDialog.Prefetch.TipText" ) );
+    props.setLook( m_prefetchBut );
+    fd = new FormData();
+    fd.right = new FormAttachment( 100, 0 );
+    fd.left = new FormAttachment( middle, 0 );
+    fd.top = new FormAttachment( m_scanThreadsText, margin );
+    m_prefetchBut.setLayoutData( fd );
+    m_prefetchBut.addSelectionListener( new SelectionAdapter() {
+      @Override
+      public void widgetSelected( SelectionEvent e ) {
+        m_currentMeta.setChanged();
+      }
+    } );
+
     m_getKeyInfoBut = new Button( wConfigComp, SWT.PUSH );
     m_getKeyInfoBut.setText( "Get Key/Fields Info" );
     props.setLook( m_getKeyInfoBut );
@@ -646,7 +796,7 @@ public class HBaseInputDialog extends BaseStepDialog implements StepDialogInterf
     m_fieldsView = new TableView( transMeta, wConfigComp, SWT.FULL_SELECTION | SWT.MULTI, colinf, 1, lsMod, props );
 
     fd = new FormData();
-    fd.top = new FormAttachment( m_scanCacheText, margin * 2 );
+    fd.top = new FormAttachment( m_prefetchBut, margin * 2 );
     fd.bottom = new FormAttachment( m_getKeyInfoBut, -margin * 2 );
     fd.left = new FormAttachment( 0, 0 );
     fd.right = new FormAttachment( 100, 0 );
@@ -1011,7 +1161,13 @@ public class HBaseInputDialog extends BaseStepDialog implements StepDialogInterf
 
     m_currentMeta.setKeyStartValue( m_keyStartText.getText() );
     m_currentMeta.setKeyStopValue( m_keyStopText.getText() );
+    m_currentMeta.setKeyPrefix( m_keyPrefixText.getText() );
+    m_currentMeta.setTimeRangeStart( m_timeRangeStartText.getText() );
+    m_currentMeta.setTimeRangeEnd( m_timeRangeEndText.getText() );
     m_currentMeta.setScannerCacheSize( m_scanCacheText.getText() );
+    m_currentMeta.setSplitByRegion( m_splitByRegionBut.getSelection() );
+    m_currentMeta.setScanThreads( m_scanThreadsText.getText() );
+    m_currentMeta.setPrefetch( m_prefetchBut.getSelection() );
     m_currentMeta.setMatchAnyFilter( m_matchAnyBut.getSelection() );
 
     int numNonEmpty = m_fieldsView.nrNonEmpty();
@@ -1181,10 +1337,29 @@ public class HBaseInputDialog extends BaseStepDialog implements StepDialogInterf
       m_keyStopText.setText( m_currentMeta.getKeyStopValue() );
     }
 
+    if ( !Const.isEmpty( m_currentMeta.getKeyPrefix() ) ) {
+      m_keyPrefixText.setText( m_currentMeta.getKeyPrefix() );
+    }
+
+    if ( !Const.isEmpty( m_currentMeta.getTimeRangeStart() ) ) {
+      m_timeRangeStartText.setText( m_currentMeta.getTimeRangeStart() );
+    }
+
+    if ( !Const.isEmpty( m_currentMeta.getTimeRangeEnd() ) ) {
+      m_timeRangeEndText.setText( m_currentMeta.getTimeRangeEnd() );
+    }
+
     if ( !Const.isEmpty( m_currentMeta.getScannerCacheSize() ) ) {
       m_scanCacheText.setText( m_currentMeta.getScannerCacheSize() );
     }
 
+    m_splitByRegionBut.setSelection( m_currentMeta.getSplitByRegion() );
+    if ( !Const.isEmpty( m_currentMeta.getScanThreads() ) ) {
+      m_scanThreadsText.setText( m_currentMeta.getScanThreads() );
+    }
+    m_scanThreadsText.setEnabled( m_currentMeta.getSplitByRegion() );
+    m_prefetchBut.setSelection( m_currentMeta.getPrefetch() );
+
     m_matchAnyBut.setSelection( m_currentMeta.getMatchAnyFilter() );
     m_matchAllBut.setSelection( !m_currentMeta.getMatchAnyFilter() );
 
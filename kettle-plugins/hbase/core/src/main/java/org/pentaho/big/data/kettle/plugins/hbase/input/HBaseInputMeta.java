@@ -141,12 +141,48 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
   @Injection( name = "STOP_KEY_VALUE" )
   protected String m_keyStop;
 
+  /**
+   * Only read keys that start with this prefix
+   */
+  @Injection( name = "KEY_PREFIX" )
+  protected String m_keyPrefix;
+
+  /**
+   * Only read rows with a cell written at or after this time stamp (milliseconds since the epoch)
+   */
+  @Injection( name = "TIME_RANGE_START" )
+  protected String m_timeRangeStart;
+
+  /**
+   * Only read rows with a cell written before this time stamp (milliseconds since the epoch)
+   */
+  @Injection( name = "TIME_RANGE_END" )
+  protected String m_timeRangeEnd;
+
   /**
    * Scanner caching
    */
   @Injection( name = "SCANNER_ROW_CACHE_SIZE" )
   protected String m_scannerCacheSize;
 
+  /**
+   * Split the scan into region aligned key ranges that are shared out between the copies of the step
+   */
+  @Injection( name = "SPLIT_BY_REGION" )
+  protected boolean m_splitByRegion;
+
+  /**
+   * Number of threads each copy of the step uses to read its regions
+   */
+  @Injection( name = "SCAN_THREADS" )
+  protected String m_scanThreads;
+
+  /**
+   * Fetch the next rows of the scan in the background while the current ones are decoded
+   */
+  @Injection( name = "PREFETCH" )
+  protected boolean m_prefetch;
+
   protected transient Mapping m_cachedMapping;
 
   /**
@@ -367,6 +403,61 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     return m_keyStop;
   }
 
+  /**
+   * Set the prefix of the keys to read. The prefix is matched against the raw key bytes, so it is meant for tables with
+   * string keys. Can't be combined with a start/stop key range.
+   *
+   * @param prefix the key prefix or null to read all keys
+   */
+  public void setKeyPrefix( String prefix ) {
+    m_keyPrefix = prefix;
+  }
+
+  /**
+   * Get the prefix of the keys to read
+   *
+   * @return the key prefix or null if all keys are read
+   */
+  public String getKeyPrefix() {
+    return m_keyPrefix;
+  }
+
+  /**
+   * Set the time stamp (inclusive) from which a row has to have been written to be read
+   *
+   * @param start milliseconds since the epoch or null for no lower limit
+   */
+  public void setTimeRangeStart( String start ) {
+    m_timeRangeStart = start;
+  }
+
+  /**
+   * Get the time stamp (inclusive) from which a row has to have been written to be read
+   *
+   * @return milliseconds since the epoch or null for no lower limit
+   */
+  public String getTimeRangeStart() {
+    return m_timeRangeStart;
+  }
+
+  /**
+   * Set the time stamp (exclusive) before which a row has to have been written to be read
+   *
+   * @param end milliseconds since the epoch or null for no upper limit
+   */
+  public void setTimeRangeEnd( String end ) {
+    m_timeRangeEnd = end;
+  }
+
+  /**
+   * Get the time stamp (exclusive) before which a row has to have been written to be read
+   *
+   * @return milliseconds since the epoch or null for no upper limit
+   */
+  public String getTimeRangeEnd() {
+    return m_timeRangeEnd;
+  }
+
   /**
    * Set the number of rows to cache for scans. Higher values result in improved performance since there will be fewer
    * requests to HBase but at the expense of increased memory consumption.
@@ -386,6 +477,61 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     return m_scannerCacheSize;
   }
 
+  /**
+   * Set whether to split the scan into region aligned key ranges that are shared out between the copies of the step.
+   * Only applies to full table scans.
+   *
+   * @param split true if the regions of the table should be shared out between the copies of the step
+   */
+  public void setSplitByRegion( boolean split ) {
+    m_splitByRegion = split;
+  }
+
+  /**
+   * Get whether to split the scan into region aligned key ranges that are shared out between the copies of the step.
+   *
+   * @return true if the regions of the table are shared out between the copies of the step
+   */
+  public boolean getSplitByRegion() {
+    return m_splitByRegion;
+  }
+
+  /**
+   * Set the number of threads each copy of the step uses to read the regions assigned to it when splitting by region.
+   *
+   * @param threads the number of threads per copy
+   */
+  public void setScanThreads( String threads ) {
+    m_scanThreads = threads;
+  }
+
+  /**
+   * Get the number of threads each copy of the step uses to read the regions assigned to it.
+   *
+   * @return the number of threads per copy
+   */
+  public String getScanThreads() {
+    return m_scanThreads;
+  }
+
+  /**
+   * Set whether to fetch the next rows of the scan in the background while the current ones are decoded.
+   *
+   * @param prefetch true to read the scan on a background thread
+   */
+  public void setPrefetch( boolean prefetch ) {
+    m_prefetch = prefetch;
+  }
+
+  /**
+   * Get whether to fetch the next rows of the scan in the background while the current ones are decoded.
+   *
+   * @return true if the scan is read on a background thread
+   */
+  public boolean getPrefetch() {
+    return m_prefetch;
+  }
+
   /**
    * Set a list of fields to emit from this steo. If not specified, then all fields defined in the mapping for the
    * source table will be emitted.
@@ -432,6 +578,12 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     m_sourceMappingName = null;
     m_keyStart = null;
     m_keyStop = null;
+    m_keyPrefix = null;
+    m_timeRangeStart = null;
+    m_timeRangeEnd = null;
+    m_splitByRegion = false;
+    m_scanThreads = null;
+    m_prefetch = false;
     namedCluster = namedClusterService.getClusterTemplate();
   }
 
@@ -606,9 +758,23 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     if ( !Const.isEmpty( m_keyStop ) ) {
       retval.append( "\n    " ).append( XMLHandler.addTagValue( "key_stop", m_keyStop ) );
     }
+    if ( !Const.isEmpty( m_keyPrefix ) ) {
+      retval.append( "\n    " ).append( XMLHandler.addTagValue( "key_prefix", m_keyPrefix ) );
+    }
+    if ( !Const.isEmpty( m_timeRangeStart ) ) {
+      retval.append( "\n    " ).append( XMLHandler.addTagValue( "time_range_start", m_timeRangeStart ) );
+    }
+    if ( !Const.isEmpty( m_timeRangeEnd ) ) {
+      retval.append( "\n    " ).append( XMLHandler.addTagValue( "time_range_end", m_timeRangeEnd ) );
+    }
     if ( !Const.isEmpty( m_scannerCacheSize ) ) {
       retval.append( "\n    " ).append( XMLHandler.addTagValue( "scanner_cache_size", m_scannerCacheSize ) );
     }
+    retval.append( "\n    " ).append( XMLHandler.addTagValue( "split_by_region", m_splitByRegion ) );
+    if ( !Const.isEmpty( m_scanThreads ) ) {
+      retval.append( "\n    " ).append( XMLHandler.addTagValue( "scan_threads", m_scanThreads ) );
+    }
+    retval.append( "\n    " ).append( XMLHandler.addTagValue( "prefetch", m_prefetch ) );
 
     if ( m_outputFields != null && m_outputFields.size() > 0 ) {
       retval.append( "\n    " ).append( XMLHandler.openTag( "output_fields" ) );
@@ -663,7 +829,13 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     m_sourceMappingName = XMLHandler.getTagValue( stepnode, "source_mapping_name" );
     m_keyStart = XMLHandler.getTagValue( stepnode, "key_start" );
     m_keyStop = XMLHandler.getTagValue( stepnode, "key_stop" );
+    m_keyPrefix = XMLHandler.getTagValue( stepnode, "key_prefix" );
+    m_timeRangeStart = XMLHandler.getTagValue( stepnode, "time_range_start" );
+    m_timeRangeEnd = XMLHandler.getTagValue( stepnode, "time_range_end" );
     m_scannerCacheSize = XMLHandler.getTagValue( stepnode, "scanner_cache_size" );
+    m_splitByRegion = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "split_by_region" ) );
+    m_scanThreads = XMLHandler.getTagValue( stepnode, "scan_threads" );
+    m_prefetch = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "prefetch" ) );
     String m = XMLHandler.getTagValue( stepnode, "match_any_filter" );
     if ( !Const.isEmpty( m ) ) {
       m_matchAnyFilter = m.equalsIgnoreCase( "Y" );
@@ -765,9 +937,23 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     if ( !Const.isEmpty( m_keyStop ) ) {
       rep.saveStepAttribute( id_transformation, id_step, 0, "key_stop", m_keyStop );
     }
+    if ( !Const.isEmpty( m_keyPrefix ) ) {
+      rep.saveStepAttribute( id_transformation, id_step, 0, "key_prefix", m_keyPrefix );
+    }
+    if ( !Const.isEmpty( m_timeRangeStart ) ) {
+      rep.saveStepAttribute( id_transformation, id_step, 0, "time_range_start", m_timeRangeStart );
+    }
+    if ( !Const.isEmpty( m_timeRangeEnd ) ) {
+      rep.saveStepAttribute( id_transformation, id_step, 0, "time_range_end", m_timeRangeEnd );
+    }
     if ( !Const.isEmpty( m_scannerCacheSize ) ) {
       rep.saveStepAttribute( id_transformation, id_step, 0, "scanner_cache_size", m_scannerCacheSize );
     }
+    rep.saveStepAttribute( id_transformation, id_step, 0, "split_by_region", m_splitByRegion );
+    if ( !Const.isEmpty( m_scanThreads ) ) {
+      rep.saveStepAttribute( id_transformation, id_step, 0, "scan_threads", m_scanThreads );
+    }
+    rep.saveStepAttribute( id_transformation, id_step, 0, "prefetch", m_prefetch );
 
     if ( m_outputFields != null && m_outputFields.size() > 0 ) {
 
@@ -813,8 +999,14 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     m_sourceMappingName = rep.getStepAttributeString( id_step, 0, "source_mapping_name" );
     m_keyStart = rep.getStepAttributeString( id_step, 0, "key_start" );
     m_keyStop = rep.getStepAttributeString( id_step, 0, "key_stop" );
+    m_keyPrefix = rep.getStepAttributeString( id_step, 0, "key_prefix" );
+    m_timeRangeStart = rep.getStepAttributeString( id_step, 0, "time_range_start" );
+    m_timeRangeEnd = rep.getStepAttributeString( id_step, 0, "time_range_end" );
     m_matchAnyFilter = rep.getStepAttributeBoolean( id_step, 0, "match_any_filter" );
     m_scannerCacheSize = rep.getStepAttributeString( id_step, 0, "scanner_cache_size" );
+    m_splitByRegion = rep.getStepAttributeBoolean( id_step, 0, "split_by_region" );
+    m_scanThreads = rep.getStepAttributeString( id_step, 0, "scan_threads" );
+    m_prefetch = rep.getStepAttributeBoolean( id_step, 0, "prefetch" );
 
     if ( hBaseService != null ) {
       HBaseValueMetaInterfaceFactory valueMetaInterfaceFactory = hBaseService.getHBaseValueMetaInterfaceFactory();
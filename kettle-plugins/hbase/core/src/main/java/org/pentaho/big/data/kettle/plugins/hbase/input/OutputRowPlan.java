@@ -0,0 +1,156 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.input;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.hadoop.shim.api.hbase.Result;
+import org.pentaho.hadoop.shim.api.hbase.mapping.Mapping;
+import org.pentaho.hadoop.shim.api.hbase.meta.HBaseValueMetaInterface;
+
+/**
+ * The columns to read from an HBase row and where to put them in the outgoing kettle row, worked out once per scan.
+ * Assembling a row then only walks a few arrays and decodes the values - no field name lookups or column name
+ * parsing happen per row.
+ */
+public class OutputRowPlan {
+
+  /** Prefix marking a column name in the mapping as a hex encoded binary qualifier */
+  public static final String BINARY_COLUMN_PREFIX = "@@@binary@@@";
+
+  private final Mapping m_tableMapping;
+  private final int m_rowSize;
+  private final int m_keyIndex;
+
+  private final String[] m_families;
+  private final String[] m_qualifiers;
+  private final boolean[] m_binaryQualifiers;
+  private final HBaseValueMetaInterface[] m_decoders;
+  private final int[] m_outputIndexes;
+
+  private OutputRowPlan( Mapping tableMapping, int rowSize, int keyIndex, List<HBaseValueMetaInterface> columns,
+                         List<Integer> outputIndexes ) {
+    m_tableMapping = tableMapping;
+    m_rowSize = rowSize;
+    m_keyIndex = keyIndex;
+
+    int size = columns.size();
+    m_families = new String[ size ];
+    m_qualifiers = new String[ size ];
+    m_binaryQualifiers = new boolean[ size ];
+    m_decoders = new HBaseValueMetaInterface[ size ];
+    m_outputIndexes = new int[ size ];
+    for ( int i = 0; i < size; i++ ) {
+      HBaseValueMetaInterface column = columns.get( i );
+      String qualifier = column.getColumnName();
+      if ( qualifier.startsWith( BINARY_COLUMN_PREFIX ) ) {
+        // assume hex encoded
+        qualifier = qualifier.replace( BINARY_COLUMN_PREFIX, "" );
+        m_binaryQualifiers[ i ] = true;
+      }
+      m_families[ i ] = column.getColumnFamily();
+      m_qualifiers[ i ] = qualifier;
+      m_decoders[ i ] = column;
+      m_outputIndexes[ i ] = outputIndexes.get( i );
+    }
+  }
+
+  /**
+   * Work out the plan for assembling output rows
+   *
+   * @param userOutputColumns    user-specified subset of columns (if any) from the mapping
+   * @param columnsMappedByAlias columns in the mapping keyed by alias
+   * @param tableMapping         the mapping to use
+   * @param outputRowMeta        the outgoing row meta
+   * @return the plan
+   * @throws KettleException if a column is missing from the outgoing row meta
+   */
+  public static OutputRowPlan compile( List<HBaseValueMetaInterface> userOutputColumns,
+                                       Map<String, HBaseValueMetaInterface> columnsMappedByAlias,
+                                       Mapping tableMapping, RowMetaInterface outputRowMeta ) throws KettleException {
+    List<HBaseValueMetaInterface> columns = new ArrayList<HBaseValueMetaInterface>();
+    List<Integer> outputIndexes = new ArrayList<Integer>();
+    int keyIndex;
+    int rowSize;
+
+    if ( userOutputColumns != null && userOutputColumns.size() > 0 ) {
+      rowSize = userOutputColumns.size();
+      keyIndex = -1;
+      for ( HBaseValueMetaInterface currentCol : userOutputColumns ) {
+        int outputIndex = indexOf( outputRowMeta, currentCol.getAlias() );
+        if ( currentCol.isKey() ) {
+          keyIndex = outputIndex;
+        } else {
+          columns.add( currentCol );
+          outputIndexes.add( outputIndex );
+        }
+      }
+    } else {
+      rowSize = tableMapping.numMappedColumns() + 1; // + 1 for the key
+      keyIndex = indexOf( outputRowMeta, tableMapping.getKeyName() );
+      for ( Map.Entry<String, HBaseValueMetaInterface> entry : columnsMappedByAlias.entrySet() ) {
+        // the key is not in the scan's columns
+        if ( !entry.getValue().isKey() ) {
+          columns.add( entry.getValue() );
+          outputIndexes.add( indexOf( outputRowMeta, entry.getKey() ) );
+        }
+      }
+    }
+
+    return new OutputRowPlan( tableMapping, rowSize, keyIndex, columns, outputIndexes );
+  }
+
+  private static int indexOf( RowMetaInterface outputRowMeta, String name ) throws KettleException {
+    int outputIndex = outputRowMeta.indexOfValue( name );
+    if ( outputIndex < 0 ) {
+      throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
+        "HBaseInput.Error.ColumnNotDefinedInOutput", name ) );
+    }
+    return outputIndex;
+  }
+
+  /**
+   * Convert/decode an hbase row into a kettle row
+   *
+   * @param result the result to use
+   * @return a kettle row
+   * @throws KettleException if a problem occurs
+   */
+  public Object[] assemble( Result result ) throws KettleException {
+    Object[] outputRowData = RowDataUtil.allocateRowData( m_rowSize );
+
+    try {
+      if ( m_keyIndex >= 0 ) {
+        outputRowData[ m_keyIndex ] = m_tableMapping.decodeKeyValue( result.getRow() );
+      }
+
+      for ( int i = 0; i < m_decoders.length; i++ ) {
+        byte[] kv = result.getValue( m_families[ i ], m_qualifiers[ i ], m_binaryQualifiers[ i ] );
+        outputRowData[ m_outputIndexes[ i ] ] = m_decoders[ i ].decodeColumnValue( kv );
+      }
+    } catch ( KettleException e ) {
+      throw e;
+    } catch ( Exception e ) {
+      throw new KettleException( e );
+    }
+
+    return outputRowData;
+  }
+}
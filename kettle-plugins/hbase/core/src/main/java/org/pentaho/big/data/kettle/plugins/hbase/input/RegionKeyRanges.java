@@ -0,0 +1,216 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.input;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.pentaho.big.data.kettle.plugins.hbase.HbaseUtil;
+import org.pentaho.hadoop.shim.api.hbase.HBaseConnection;
+import org.pentaho.hadoop.shim.api.hbase.Result;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseTable;
+import org.pentaho.hadoop.shim.api.hbase.table.ResultScanner;
+import org.pentaho.hadoop.shim.api.hbase.table.ResultScannerBuilder;
+
+/**
+ * Splits the key space of a table into region aligned ranges so that several copies of the input step can scan
+ * disjoint parts of the table. The region start keys are read from the hbase:meta catalog table, whose row keys have
+ * the form &lt;table&gt;,&lt;start key&gt;,&lt;region id&gt;[.&lt;encoded name&gt;.]
+ */
+public class RegionKeyRanges {
+
+  public static final String META_TABLE_NAME = "hbase:meta";
+
+  /** Length of the md5 hex encoded region name that newer region names end with */
+  private static final int ENCODED_NAME_LENGTH = 32;
+
+  private static final byte DELIMITER = ',';
+
+  private static final byte ENCODED_NAME_DELIMITER = '.';
+
+  /** Orders keys the way HBase does - lexicographically on the unsigned byte values */
+  public static final Comparator<byte[]> KEY_COMPARATOR = new Comparator<byte[]>() {
+    @Override
+    public int compare( byte[] left, byte[] right ) {
+      int length = Math.min( left.length, right.length );
+      for ( int i = 0; i < length; i++ ) {
+        int diff = ( left[ i ] & 0xff ) - ( right[ i ] & 0xff );
+        if ( diff != 0 ) {
+          return diff;
+        }
+      }
+      return left.length - right.length;
+    }
+  };
+
+  /**
+   * A key range [start, stop) - an empty start or stop key indicates the start or end of the table
+   */
+  public static class KeyRange {
+    private final byte[] m_start;
+    private final byte[] m_stop;
+
+    public KeyRange( byte[] start, byte[] stop ) {
+      m_start = start;
+      m_stop = stop;
+    }
+
+    public byte[] getStart() {
+      return m_start;
+    }
+
+    public byte[] getStop() {
+      return m_stop;
+    }
+  }
+
+  private RegionKeyRanges() {
+  }
+
+  /**
+   * Read the sorted, distinct start keys of the regions of a table. The first region always starts with the empty key.
+   *
+   * @param connection the connection to HBase
+   * @param tableName  the (optionally namespace qualified) name of the table
+   * @return the start keys of the regions of the table
+   * @throws Exception if the catalog table can't be read
+   */
+  public static List<byte[]> readRegionStartKeys( HBaseConnection connection, String tableName ) throws Exception {
+    byte[] prefix = ( catalogTableName( tableName ) + "," ).getBytes( StandardCharsets.UTF_8 );
+    // every row of the table has the prefix, the stop row is the first key past all of them
+    byte[] stop = Arrays.copyOf( prefix, prefix.length );
+    stop[ stop.length - 1 ]++;
+
+    TreeSet<byte[]> startKeys = new TreeSet<byte[]>( KEY_COMPARATOR );
+    startKeys.add( new byte[ 0 ] );
+    try ( HBaseTable metaTable = connection.getTable( META_TABLE_NAME ) ) {
+      ResultScannerBuilder scannerBuilder = metaTable.createScannerBuilder( prefix, stop );
+      scannerBuilder.setCaching( 100 );
+      try ( ResultScanner resultScanner = scannerBuilder.build() ) {
+        Result next;
+        while ( ( next = resultScanner.next() ) != null ) {
+          byte[] startKey = startKeyFromRegionName( next.getRow(), prefix.length );
+          if ( startKey != null ) {
+            startKeys.add( startKey );
+          }
+        }
+      }
+    }
+    return new ArrayList<byte[]>( startKeys );
+  }
+
+  /**
+   * The name a table is listed under in hbase:meta - tables in the default namespace are not qualified
+   *
+   * @param tableName the (optionally namespace qualified) name of the table
+   * @return the name used for the table in the catalog
+   */
+  static String catalogTableName( String tableName ) {
+    String namespace = HbaseUtil.parseNamespaceFromTableName( tableName );
+    String qualifier = HbaseUtil.parseQualifierFromTableName( tableName );
+    if ( HbaseUtil.HBASE_DEFAULT_NAMESPACE.equals( namespace ) ) {
+      return qualifier;
+    }
+    return namespace + HbaseUtil.HBASE_NAMESPACE_DELIMITER + qualifier;
+  }
+
+  /**
+   * Extract the start key from a region name.
+   *
+   * @param regionName   the region name (row key in hbase:meta)
+   * @param prefixLength length of the "&lt;table&gt;," prefix
+   * @return the start key or null if the name is malformed
+   */
+  static byte[] startKeyFromRegionName( byte[] regionName, int prefixLength ) {
+    int end = regionName.length;
+    if ( end > prefixLength + ENCODED_NAME_LENGTH + 2 && regionName[ end - 1 ] == ENCODED_NAME_DELIMITER
+      && regionName[ end - ENCODED_NAME_LENGTH - 2 ] == ENCODED_NAME_DELIMITER ) {
+      end -= ENCODED_NAME_LENGTH + 2;
+    }
+    // the start key may itself contain delimiters, the region id never does
+    for ( int i = end - 1; i >= prefixLength; i-- ) {
+      if ( regionName[ i ] == DELIMITER ) {
+        return Arrays.copyOfRange( regionName, prefixLength, i );
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The key ranges of the regions that overlap [start, stop), clipped to that range
+   *
+   * @param startKeys sorted start keys of all regions, starting with the empty key
+   * @param start     start of the range to read (inclusive), empty for the start of the table
+   * @param stop      end of the range to read (exclusive), empty for the end of the table
+   * @return one key range per region that holds part of [start, stop)
+   */
+  public static List<KeyRange> regionRanges( List<byte[]> startKeys, byte[] start, byte[] stop ) {
+    List<KeyRange> ranges = new ArrayList<KeyRange>();
+    for ( int i = 0; i < startKeys.size(); i++ ) {
+      byte[] regionStart = startKeys.get( i );
+      byte[] regionStop = i + 1 < startKeys.size() ? startKeys.get( i + 1 ) : new byte[ 0 ];
+      if ( regionStop.length > 0 && KEY_COMPARATOR.compare( regionStop, start ) <= 0 ) {
+        continue;
+      }
+      if ( stop.length > 0 && KEY_COMPARATOR.compare( regionStart, stop ) >= 0 ) {
+        break;
+      }
+      byte[] rangeStart = KEY_COMPARATOR.compare( regionStart, start ) < 0 ? start : regionStart;
+      byte[] rangeStop =
+        regionStop.length == 0 || ( stop.length > 0 && KEY_COMPARATOR.compare( stop, regionStop ) < 0 ) ? stop
+          : regionStop;
+      ranges.add( new KeyRange( rangeStart, rangeStop ) );
+    }
+    return ranges;
+  }
+
+  /**
+   * Assign key ranges to the copies of the step. Ranges are dealt out round-robin so that a run of large or busy
+   * neighbouring regions is spread over the copies.
+   *
+   * @param ranges   the ranges to share out, in key order
+   * @param copyNr   the (zero based) number of this copy
+   * @param nrCopies the total number of copies
+   * @return the key ranges this copy should scan
+   */
+  public static List<KeyRange> assign( List<KeyRange> ranges, int copyNr, int nrCopies ) {
+    List<KeyRange> assigned = new ArrayList<KeyRange>();
+    for ( int i = copyNr; i < ranges.size(); i += nrCopies ) {
+      assigned.add( ranges.get( i ) );
+    }
+    return assigned;
+  }
+
+  /**
+   * The key range holding exactly the keys that start with a prefix
+   *
+   * @param prefix the key prefix
+   * @return the range [prefix, first key after all keys with the prefix)
+   */
+  public static KeyRange prefixRange( byte[] prefix ) {
+    byte[] stop = new byte[ 0 ];
+    for ( int i = prefix.length - 1; i >= 0; i-- ) {
+      if ( prefix[ i ] != (byte) 0xff ) {
+        stop = Arrays.copyOf( prefix, i + 1 );
+        stop[ i ]++;
+        break;
+      }
+    }
+    return new KeyRange( prefix, stop );
+  }
+}
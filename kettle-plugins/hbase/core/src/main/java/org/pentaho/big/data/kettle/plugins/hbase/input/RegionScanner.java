@@ -0,0 +1,227 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.input;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.pentaho.big.data.kettle.plugins.hbase.input.RegionKeyRanges.KeyRange;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.hadoop.shim.api.hbase.Result;
+import org.pentaho.hadoop.shim.api.hbase.table.ResultScanner;
+
+/**
+ * Reads a list of key ranges one scanner per range. With a single thread the ranges are read one after the other in
+ * key order, otherwise a pool of threads reads several ranges at once and hands the results over through a bounded
+ * queue - rows then come out in no particular order. When prefetching, a single range at a time is read by a
+ * background thread that keeps the queue filled while the step decodes the rows already fetched, so rows keep their
+ * key order.
+ */
+public class RegionScanner implements Closeable {
+
+  /**
+   * Default number of rows queued per reading thread before the readers wait for the step to catch up. Rows can be
+   * wide, so this is kept to about two scanner cache batches at the HBase default cache size.
+   */
+  static final int DEFAULT_QUEUE_ROWS_PER_THREAD = 200;
+
+  /** How often a step waiting for rows checks whether the scanner has been closed */
+  static final long CLOSED_CHECK_MS = 100;
+
+  private static final Object END = new Object();
+
+  /**
+   * Opens a scanner over a key range. With more than one thread scanners are opened and read on several threads at
+   * once, so every scanner has to be independent of the others.
+   */
+  public interface ScannerFactory {
+    ResultScanner createScanner( KeyRange range ) throws Exception;
+  }
+
+  private final List<KeyRange> m_ranges;
+  private final ScannerFactory m_factory;
+  private final int m_queueRowsPerThread;
+
+  // sequential reading
+  private int m_nextRange;
+  private ResultScanner m_current;
+
+  // parallel reading
+  private ExecutorService m_pool;
+  private BlockingQueue<Object> m_queue;
+  private volatile boolean m_closed;
+  private boolean m_done;
+
+  public RegionScanner( List<KeyRange> ranges, ScannerFactory factory, int threads ) {
+    this( ranges, factory, threads, false );
+  }
+
+  public RegionScanner( List<KeyRange> ranges, ScannerFactory factory, int threads, boolean prefetch ) {
+    this( ranges, factory, threads, prefetch, DEFAULT_QUEUE_ROWS_PER_THREAD );
+  }
+
+  /**
+   * @param ranges   the key ranges to read
+   * @param factory  opens a scanner over a range
+   * @param threads  the number of ranges to read at once
+   * @param prefetch true to read in the background even with a single thread
+   * @param queueRowsPerThread the number of rows each reading thread may fetch ahead of the step
+   */
+  public RegionScanner( List<KeyRange> ranges, ScannerFactory factory, int threads, boolean prefetch,
+                        int queueRowsPerThread ) {
+    m_ranges = ranges;
+    m_factory = factory;
+    m_queueRowsPerThread = queueRowsPerThread > 0 ? queueRowsPerThread : DEFAULT_QUEUE_ROWS_PER_THREAD;
+    threads = Math.min( Math.max( threads, 1 ), ranges.size() );
+    if ( threads > 1 || ( prefetch && threads == 1 ) ) {
+      // a pool of one thread reads the ranges in the order they were submitted
+      startReaders( threads );
+    }
+  }
+
+  private void startReaders( int threads ) {
+    m_queue = new ArrayBlockingQueue<Object>( threads * m_queueRowsPerThread );
+    m_pool = Executors.newFixedThreadPool( threads, new ThreadFactory() {
+      private final AtomicInteger m_count = new AtomicInteger();
+
+      @Override
+      public Thread newThread( Runnable r ) {
+        Thread thread = new Thread( r, "HBaseInput-region-reader-" + m_count.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+      }
+    } );
+    final AtomicInteger remaining = new AtomicInteger( m_ranges.size() );
+    for ( final KeyRange range : m_ranges ) {
+      m_pool.execute( new Runnable() {
+        @Override
+        public void run() {
+          Object last = null;
+          try {
+            readRange( range );
+            if ( remaining.decrementAndGet() == 0 ) {
+              last = END;
+            }
+          } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return;
+          } catch ( Exception e ) {
+            last = e;
+          }
+          if ( last != null ) {
+            try {
+              m_queue.put( last );
+            } catch ( InterruptedException e ) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        }
+      } );
+    }
+  }
+
+  private void readRange( KeyRange range ) throws Exception {
+    try ( ResultScanner scanner = m_factory.createScanner( range ) ) {
+      Result next;
+      while ( !m_closed && ( next = scanner.next() ) != null ) {
+        m_queue.put( next );
+      }
+    }
+  }
+
+  /**
+   * Get the next row
+   *
+   * @return the next row or null when all ranges have been read
+   * @throws KettleException if reading one of the ranges fails
+   */
+  public Result next() throws KettleException {
+    try {
+      return m_pool == null ? nextSequential() : nextParallel();
+    } catch ( KettleException e ) {
+      throw e;
+    } catch ( Exception e ) {
+      throw new KettleException( e.getMessage(), e );
+    }
+  }
+
+  private Result nextSequential() throws Exception {
+    while ( !m_closed ) {
+      if ( m_current == null ) {
+        if ( m_nextRange >= m_ranges.size() ) {
+          return null;
+        }
+        m_current = m_factory.createScanner( m_ranges.get( m_nextRange++ ) );
+      }
+      Result next = m_current.next();
+      if ( next != null ) {
+        return next;
+      }
+      m_current.close();
+      m_current = null;
+    }
+    return null;
+  }
+
+  private Result nextParallel() throws Exception {
+    if ( m_done || m_closed ) {
+      return null;
+    }
+    // close() puts END in the queue, the timeout covers a reader that filled it again just before
+    Object next;
+    while ( ( next = m_queue.poll( CLOSED_CHECK_MS, TimeUnit.MILLISECONDS ) ) == null ) {
+      if ( m_closed ) {
+        return null;
+      }
+    }
+    if ( next == END || m_closed ) {
+      m_done = true;
+      return null;
+    }
+    if ( next instanceof Exception ) {
+      throw (Exception) next;
+    }
+    return (Result) next;
+  }
+
+  /**
+   * Stop reading. May be called from another thread than the one reading the rows, a {@link #next()} waiting for rows
+   * then returns null.
+   */
+  @Override
+  public void close() {
+    m_closed = true;
+    if ( m_pool != null ) {
+      m_pool.shutdownNow();
+      // release readers blocked on a full queue and wake up the step waiting for rows
+      m_queue.clear();
+      m_queue.offer( END );
+    }
+    if ( m_current != null ) {
+      try {
+        m_current.close();
+      } catch ( Exception e ) {
+        // nothing more to read from it anyway
+      }
+      m_current = null;
+    }
+  }
+}
@@ -36,6 +36,18 @@ import java.util.NavigableMap;
  */
 public class HBaseRowToKettleTuple {
 
+  /**
+   * Receives the tuples of an HBase row one at a time, as soon as each has been decoded
+   */
+  public interface TupleHandler {
+    void handleTuple( Object[] tuple ) throws KettleException;
+  }
+
+  /**
+   * Whether the output row layout has been worked out
+   */
+  protected boolean mInitialized;
+
   /**
    * Holds a set of tuples (Kettle rows) - one for each column from an HBase row
    */
@@ -88,6 +100,7 @@ public class HBaseRowToKettleTuple {
   }
 
   public void reset() {
+    mInitialized = false;
     mDecodedTuples = null;
 
     mKeyIndex = -1;
@@ -114,8 +127,35 @@ public class HBaseRowToKettleTuple {
                                                    Object result, Mapping mapping,
                                                    Map<String, HBaseValueMetaInterface> tupleColsMappedByAlias,
                                                    RowMetaInterface outputRowMeta ) throws KettleException {
+    return hbaseRowToKettleTupleMode( result, mapping,
+      tupleColsFromAliasMap( hBaseValueMetaInterfaceFactory, mapping, tupleColsMappedByAlias ), outputRowMeta );
+  }
 
-    if ( mDecodedTuples == null ) {
+  /**
+   * Convert an HBase row to (potentially) multiple Kettle rows in tuple format, handing each tuple over as soon as it
+   * has been decoded.
+   *
+   * @param mapping                the mapping information to use (must be a "tuple" mapping)
+   * @param tupleColsMappedByAlias the meta data for each of the tuple columns the user has opted to have output
+   * @param outputRowMeta          the outgoing Kettle row format
+   * @param handler                receives the tuples
+   * @throws KettleException if a problem occurs
+   */
+  public void hbaseRowToKettleTupleMode( HBaseValueMetaInterfaceFactory hBaseValueMetaInterfaceFactory,
+                                         Object result, Mapping mapping,
+                                         Map<String, HBaseValueMetaInterface> tupleColsMappedByAlias,
+                                         RowMetaInterface outputRowMeta, TupleHandler handler )
+    throws KettleException {
+    hbaseRowToKettleTupleMode( result, mapping,
+      tupleColsFromAliasMap( hBaseValueMetaInterfaceFactory, mapping, tupleColsMappedByAlias ), outputRowMeta,
+      handler );
+  }
+
+  private List<HBaseValueMetaInterface> tupleColsFromAliasMap(
+    HBaseValueMetaInterfaceFactory hBaseValueMetaInterfaceFactory, Mapping mapping,
+    Map<String, HBaseValueMetaInterface> tupleColsMappedByAlias ) {
+
+    if ( mTupleColsFromAliasMap == null ) {
       mTupleColsFromAliasMap = new ArrayList<>();
       // add the key first - type (or name for that matter)
       // is not important as this is just a dummy placeholder
@@ -130,8 +170,7 @@ public class HBaseRowToKettleTuple {
         mTupleColsFromAliasMap.add( tupleColsMappedByAlias.get( entry.getValue() ) );
       }
     }
-
-    return hbaseRowToKettleTupleMode( result, mapping, mTupleColsFromAliasMap, outputRowMeta );
+    return mTupleColsFromAliasMap;
   }
 
   /**
@@ -146,9 +185,39 @@ public class HBaseRowToKettleTuple {
   public List<Object[]> hbaseRowToKettleTupleMode( Object result, Mapping mapping,
                                                    List<HBaseValueMetaInterface> tupleCols,
                                                    RowMetaInterface outputRowMeta ) throws KettleException {
-
     if ( mDecodedTuples == null ) {
       mDecodedTuples = new ArrayList<>();
+    } else {
+      mDecodedTuples.clear();
+    }
+
+    hbaseRowToKettleTupleMode( result, mapping, tupleCols, outputRowMeta, new TupleHandler() {
+      @Override
+      public void handleTuple( Object[] tuple ) {
+        mDecodedTuples.add( tuple );
+      }
+    } );
+
+    return mDecodedTuples;
+  }
+
+  /**
+   * Convert an HBase row to (potentially) multiple Kettle rows in tuple format. The cells of the row are visited in
+   * place and each tuple is handed over as soon as it has been decoded, so no more than one tuple per row is held at
+   * any time.
+   *
+   * @param mapping       the mapping information to use (must be a "tuple" mapping)
+   * @param tupleCols     the meta data for each of the tuple columns the user has opted to have output
+   * @param outputRowMeta the outgoing Kettle row format
+   * @param handler       receives the tuples
+   * @throws KettleException if a problem occurs
+   */
+  @SuppressWarnings( "unchecked" )
+  public void hbaseRowToKettleTupleMode( Object result, Mapping mapping, List<HBaseValueMetaInterface> tupleCols,
+                                         RowMetaInterface outputRowMeta, TupleHandler handler )
+    throws KettleException {
+
+    if ( !mInitialized ) {
       mKeyIndex = outputRowMeta.indexOfValue( mapping.getKeyName() );
       mFamilyIndex = outputRowMeta.indexOfValue( Mapping.TupleMapping.FAMILY.toString() );
       mColNameIndex = outputRowMeta.indexOfValue( Mapping.TupleMapping.COLUMN.toString() );
@@ -165,8 +234,7 @@ public class HBaseRowToKettleTuple {
           mUserSpecifiedFamilies.add( mBytesUtil.toBytes( family.trim() ) );
         }
       }
-    } else {
-      mDecodedTuples.clear();
+      mInitialized = true;
     }
 
     byte[] rawKey = null;
@@ -185,50 +253,18 @@ public class HBaseRowToKettleTuple {
     } catch ( Exception ex ) {
       throw new KettleException( ex );
     }
+    if ( rowData == null ) {
+      return;
+    }
 
     if ( !Const.isEmpty( mapping.getTupleFamilies() ) ) {
       int i = 0;
       for ( byte[] family : mUserSpecifiedFamilies ) {
         NavigableMap<byte[], NavigableMap<Long, byte[]>> colMap = rowData.get( family );
-        for ( Map.Entry<byte[], NavigableMap<Long, byte[]>> colMapEntry : colMap.entrySet() ) {
-          NavigableMap<Long, byte[]> valuesByTimestamp = colMapEntry.getValue();
-
-          Object[] newTuple = RowDataUtil.allocateRowData( outputRowMeta.size() );
-
-          // row key
-          if ( mKeyIndex != -1 ) {
-            newTuple[ mKeyIndex ] = decodedKey;
-          }
-
-          // get value of most recent column value
-          Map.Entry<Long, byte[]> mostRecentColVal = valuesByTimestamp.lastEntry();
-
-          // store the timestamp
-          if ( mTimestampIndex != -1 ) {
-            newTuple[ mTimestampIndex ] = mostRecentColVal.getKey();
-          }
-
-          // column name
-          if ( mColNameIndex != -1 ) {
-            HBaseValueMetaInterface colNameMeta = tupleCols.get( mColNameIndex );
-            Object decodedColName = colNameMeta.decodeColumnValue( colMapEntry.getKey() );
-            newTuple[ mColNameIndex ] = decodedColName;
-          }
-
-          // column value
-          if ( mValueIndex != -1 ) {
-            HBaseValueMetaInterface colValueMeta = tupleCols.get( mValueIndex );
-            Object decodedValue =
-              colValueMeta.decodeColumnValue( mostRecentColVal.getValue() );
-            newTuple[ mValueIndex ] = decodedValue;
-          }
-
-          // column family
-          if ( mFamilyIndex != -1 ) {
-            newTuple[ mFamilyIndex ] = mUserSpecifiedFamiliesHumanReadable.get( i );
-          }
-
-          mDecodedTuples.add( newTuple );
+        // a batch of a wide row need not hold cells of every family
+        if ( colMap != null ) {
+          emitTuples( decodedKey, mUserSpecifiedFamiliesHumanReadable.get( i ), colMap, tupleCols, outputRowMeta,
+            handler );
         }
         i++;
       }
@@ -243,49 +279,53 @@ public class HBaseRowToKettleTuple {
           decodedFamily = colFamMeta.decodeColumnValue( rowDataEntry.getKey() );
         }
 
-        NavigableMap<byte[], NavigableMap<Long, byte[]>> colMap = rowDataEntry.getValue();
-        for ( Map.Entry<byte[], NavigableMap<Long, byte[]>> colMapEntry : colMap.entrySet() ) {
-          NavigableMap<Long, byte[]> valuesByTimestamp = colMapEntry.getValue();
-
-          Object[] newTuple = RowDataUtil.allocateRowData( outputRowMeta.size() );
-
-          // row key
-          if ( mKeyIndex != -1 ) {
-            newTuple[ mKeyIndex ] = decodedKey;
-          }
-
-          // get value of most recent column value
-          Map.Entry<Long, byte[]> mostRecentColVal = valuesByTimestamp.lastEntry();
-
-          // store the timestamp
-          if ( mTimestampIndex != -1 ) {
-            newTuple[ mTimestampIndex ] = mostRecentColVal.getKey();
-          }
-
-          // column name
-          if ( mColNameIndex != -1 ) {
-            HBaseValueMetaInterface colNameMeta = tupleCols.get( mColNameIndex );
-            Object decodedColName = colNameMeta.decodeColumnValue( colMapEntry.getKey() );
-            newTuple[ mColNameIndex ] = decodedColName;
-          }
-
-          // column value
-          if ( mValueIndex != -1 ) {
-            HBaseValueMetaInterface colValueMeta = tupleCols.get( mValueIndex );
-            Object decodedValue = colValueMeta.decodeColumnValue( mostRecentColVal.getValue() );
-            newTuple[ mValueIndex ] = decodedValue;
-          }
-
-          // column family
-          if ( mFamilyIndex != -1 ) {
-            newTuple[ mFamilyIndex ] = decodedFamily;
-          }
-
-          mDecodedTuples.add( newTuple );
-        }
+        emitTuples( decodedKey, decodedFamily, rowDataEntry.getValue(), tupleCols, outputRowMeta, handler );
       }
     }
+  }
 
-    return mDecodedTuples;
+  private void emitTuples( Object decodedKey, Object decodedFamily,
+                           NavigableMap<byte[], NavigableMap<Long, byte[]>> colMap,
+                           List<HBaseValueMetaInterface> tupleCols, RowMetaInterface outputRowMeta,
+                           TupleHandler handler ) throws KettleException {
+    for ( Map.Entry<byte[], NavigableMap<Long, byte[]>> colMapEntry : colMap.entrySet() ) {
+      NavigableMap<Long, byte[]> valuesByTimestamp = colMapEntry.getValue();
+
+      Object[] newTuple = RowDataUtil.allocateRowData( outputRowMeta.size() );
+
+      // row key
+      if ( mKeyIndex != -1 ) {
+        newTuple[ mKeyIndex ] = decodedKey;
+      }
+
+      // get value of most recent column value
+      Map.Entry<Long, byte[]> mostRecentColVal = valuesByTimestamp.lastEntry();
+
+      // store the timestamp
+      if ( mTimestampIndex != -1 ) {
+        newTuple[ mTimestampIndex ] = mostRecentColVal.getKey();
+      }
+
+      // column name
+      if ( mColNameIndex != -1 ) {
+        HBaseValueMetaInterface colNameMeta = tupleCols.get( mColNameIndex );
+        Object decodedColName = colNameMeta.decodeColumnValue( colMapEntry.getKey() );
+        newTuple[ mColNameIndex ] = decodedColName;
+      }
+
+      // column value
+      if ( mValueIndex != -1 ) {
+        HBaseValueMetaInterface colValueMeta = tupleCols.get( mValueIndex );
+        Object decodedValue = colValueMeta.decodeColumnValue( mostRecentColVal.getValue() );
+        newTuple[ mValueIndex ] = decodedValue;
+      }
+
+      // column family
+      if ( mFamilyIndex != -1 ) {
+        newTuple[ mFamilyIndex ] = decodedFamily;
+      }
+
+      handler.handleTuple( newTuple );
+    }
   }
 }
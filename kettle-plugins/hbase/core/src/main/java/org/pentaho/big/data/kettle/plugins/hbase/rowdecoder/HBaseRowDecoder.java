@@ -14,7 +14,6 @@
 package org.pentaho.big.data.kettle.plugins.hbase.rowdecoder;
 
 import java.lang.reflect.InvocationTargetException;
-import java.util.List;
 
 import org.apache.commons.lang.StringUtils;
 import org.pentaho.hadoop.shim.api.cluster.NamedClusterServiceLocator;
@@ -85,6 +84,13 @@ public class HBaseRowDecoder extends BaseStep implements StepInterface {
    */
   protected HBaseRowToKettleTuple mTupleHandler;
 
+  private final HBaseRowToKettleTuple.TupleHandler mTupleEmitter = new HBaseRowToKettleTuple.TupleHandler() {
+    @Override
+    public void handleTuple( Object[] tuple ) throws KettleException {
+      putRow( hBaseRowDecoderData.getOutputRowMeta(), tuple );
+    }
+  };
+
   /**
    * Bytes util
    */
@@ -181,14 +187,8 @@ public class HBaseRowDecoder extends BaseStep implements StepInterface {
     Object hRow = inputRow[ mResultInIndex ];
     if ( inputRow[ mKeyInIndex ] != null && hRow != null ) {
       if ( mTableMapping.isTupleMapping() ) {
-        List<Object[]> hrowToKettleRow =
-          mTupleHandler.hbaseRowToKettleTupleMode( hBaseService.getHBaseValueMetaInterfaceFactory(), hRow,
-            mTableMapping, mTableMapping
-              .getMappedColumns(), hBaseRowDecoderData.getOutputRowMeta() );
-
-        for ( Object[] tuple : hrowToKettleRow ) {
-          putRow( hBaseRowDecoderData.getOutputRowMeta(), tuple );
-        }
+        mTupleHandler.hbaseRowToKettleTupleMode( hBaseService.getHBaseValueMetaInterfaceFactory(), hRow,
+          mTableMapping, mTableMapping.getMappedColumns(), hBaseRowDecoderData.getOutputRowMeta(), mTupleEmitter );
       } else {
         Object[] outputRowData = RowDataUtil.allocateRowData( mOutputColumns.length + 1 ); // + 1 for key
 
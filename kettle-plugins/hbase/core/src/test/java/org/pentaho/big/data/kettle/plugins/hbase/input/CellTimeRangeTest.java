@@ -0,0 +1,80 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.input;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CellTimeRangeTest {
+
+  /**
+   * Stands in for the shim's result, which exposes the cells through getMap()
+   */
+  public static class Row {
+    private final NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> map =
+      new TreeMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>>( RegionKeyRanges.KEY_COMPARATOR );
+
+    Row cell( String family, String qualifier, long timestamp ) {
+      NavigableMap<byte[], NavigableMap<Long, byte[]>> columns = map.get( family.getBytes() );
+      if ( columns == null ) {
+        columns = new TreeMap<byte[], NavigableMap<Long, byte[]>>( RegionKeyRanges.KEY_COMPARATOR );
+        map.put( family.getBytes(), columns );
+      }
+      NavigableMap<Long, byte[]> versions = new TreeMap<Long, byte[]>();
+      versions.put( timestamp, new byte[ 0 ] );
+      columns.put( qualifier.getBytes(), versions );
+      return this;
+    }
+
+    public NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> getMap() {
+      return map;
+    }
+  }
+
+  @Test
+  public void testAccept() throws Exception {
+    CellTimeRange timeRange = new CellTimeRange( 100L, 200L );
+
+    assertTrue( timeRange.accept( new Row().cell( "f", "a", 50L ).cell( "g", "b", 100L ) ) );
+    assertTrue( timeRange.accept( new Row().cell( "f", "a", 199L ) ) );
+    assertFalse( timeRange.accept( new Row().cell( "f", "a", 200L ).cell( "f", "b", 99L ) ) );
+    assertFalse( timeRange.accept( new Row() ) );
+  }
+
+  @Test
+  public void testCreate() throws Exception {
+    assertNull( CellTimeRange.create( null, "" ) );
+
+    CellTimeRange timeRange = CellTimeRange.create( " 1000 ", null );
+    assertEquals( 1000L, timeRange.getStart() );
+    assertEquals( Long.MAX_VALUE, timeRange.getEnd() );
+
+    timeRange = CellTimeRange.create( null, "2000" );
+    assertEquals( 0L, timeRange.getStart() );
+    assertEquals( 2000L, timeRange.getEnd() );
+  }
+
+  @Test( expected = KettleException.class )
+  public void testCreateRejectsInvalidTimestamp() throws Exception {
+    CellTimeRange.create( "yesterday", null );
+  }
+}
@@ -69,6 +69,21 @@ public class HBaseInputMetaInjectionTest extends BaseMetadataInjectionTest<HBase
         return meta.getKeyStopValue();
       }
     } );
+    check( "KEY_PREFIX", new StringGetter() {
+      public String get() {
+        return meta.getKeyPrefix();
+      }
+    } );
+    check( "TIME_RANGE_START", new StringGetter() {
+      public String get() {
+        return meta.getTimeRangeStart();
+      }
+    } );
+    check( "TIME_RANGE_END", new StringGetter() {
+      public String get() {
+        return meta.getTimeRangeEnd();
+      }
+    } );
     check( "SCANNER_ROW_CACHE_SIZE", new StringGetter() {
       public String get() {
         return meta.getScannerCacheSize();
@@ -79,6 +94,21 @@ public class HBaseInputMetaInjectionTest extends BaseMetadataInjectionTest<HBase
         return meta.getMatchAnyFilter();
       }
     } );
+    check( "SPLIT_BY_REGION", new BooleanGetter() {
+      public boolean get() {
+        return meta.getSplitByRegion();
+      }
+    } );
+    check( "SCAN_THREADS", new StringGetter() {
+      public String get() {
+        return meta.getScanThreads();
+      }
+    } );
+    check( "PREFETCH", new BooleanGetter() {
+      public boolean get() {
+        return meta.getPrefetch();
+      }
+    } );
 
     check( "OUTPUT_FIELD_KEY", new BooleanGetter() {
       public boolean get() {
@@ -0,0 +1,111 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.input;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.hadoop.shim.api.hbase.Result;
+import org.pentaho.hadoop.shim.api.hbase.mapping.Mapping;
+import org.pentaho.hadoop.shim.api.hbase.meta.HBaseValueMetaInterface;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OutputRowPlanTest {
+
+  private Mapping mapping;
+  private RowMetaInterface outputRowMeta;
+  private Result result;
+  private HBaseValueMetaInterface key;
+  private HBaseValueMetaInterface name;
+  private HBaseValueMetaInterface raw;
+
+  private static HBaseValueMetaInterface column( String alias, String family, String qualifier ) {
+    HBaseValueMetaInterface column = mock( HBaseValueMetaInterface.class );
+    when( column.getAlias() ).thenReturn( alias );
+    when( column.getColumnFamily() ).thenReturn( family );
+    when( column.getColumnName() ).thenReturn( qualifier );
+    return column;
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    mapping = mock( Mapping.class );
+    when( mapping.getKeyName() ).thenReturn( "id" );
+    when( mapping.numMappedColumns() ).thenReturn( 3 );
+    outputRowMeta = mock( RowMetaInterface.class );
+    when( outputRowMeta.indexOfValue( "id" ) ).thenReturn( 0 );
+    when( outputRowMeta.indexOfValue( "name" ) ).thenReturn( 2 );
+    when( outputRowMeta.indexOfValue( "raw" ) ).thenReturn( 1 );
+
+    key = column( "id", null, null );
+    when( key.isKey() ).thenReturn( true );
+    name = column( "name", "f", "n" );
+    raw = column( "raw", "f", "@@@binary@@@0aff" );
+
+    result = mock( Result.class );
+    when( result.getRow() ).thenReturn( new byte[] { 1 } );
+    when( mapping.decodeKeyValue( new byte[] { 1 } ) ).thenReturn( "key1" );
+    when( result.getValue( "f", "n", false ) ).thenReturn( new byte[] { 2 } );
+    when( result.getValue( "f", "0aff", true ) ).thenReturn( null );
+    when( name.decodeColumnValue( new byte[] { 2 } ) ).thenReturn( "bob" );
+  }
+
+  @Test
+  public void testUserSelectedColumns() throws Exception {
+    OutputRowPlan plan =
+      OutputRowPlan.compile( Arrays.asList( name, key, raw ), null, mapping, outputRowMeta );
+
+    Object[] row = plan.assemble( result );
+    plan.assemble( result );
+
+    assertEquals( "key1", row[ 0 ] );
+    assertNull( row[ 1 ] );
+    assertEquals( "bob", row[ 2 ] );
+    // names are resolved once, not per row
+    verify( outputRowMeta, times( 1 ) ).indexOfValue( "name" );
+  }
+
+  @Test
+  public void testAllMappedColumns() throws Exception {
+    Map<String, HBaseValueMetaInterface> columns = new LinkedHashMap<String, HBaseValueMetaInterface>();
+    columns.put( "id", key );
+    columns.put( "name", name );
+    columns.put( "raw", raw );
+
+    Object[] row = OutputRowPlan.compile( null, columns, mapping, outputRowMeta ).assemble( result );
+
+    assertEquals( "key1", row[ 0 ] );
+    assertNull( row[ 1 ] );
+    assertEquals( "bob", row[ 2 ] );
+    verify( result, times( 0 ) ).getValue( null, null, false );
+  }
+
+  @Test( expected = KettleException.class )
+  public void testColumnMissingFromOutput() throws Exception {
+    when( outputRowMeta.indexOfValue( "name" ) ).thenReturn( -1 );
+
+    OutputRowPlan.compile( Arrays.asList( key, name ), null, mapping, outputRowMeta );
+  }
+}
@@ -0,0 +1,139 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.input;
+
+import org.junit.Test;
+import org.pentaho.big.data.kettle.plugins.hbase.input.RegionKeyRanges.KeyRange;
+import org.pentaho.hadoop.shim.api.hbase.HBaseConnection;
+import org.pentaho.hadoop.shim.api.hbase.Result;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseTable;
+import org.pentaho.hadoop.shim.api.hbase.table.ResultScanner;
+import org.pentaho.hadoop.shim.api.hbase.table.ResultScannerBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RegionKeyRangesTest {
+
+  private static byte[] bytes( String s ) {
+    return s.getBytes( StandardCharsets.UTF_8 );
+  }
+
+  @Test
+  public void testStartKeyFromRegionName() {
+    int prefix = "t1,".length();
+    assertArrayEquals( bytes( "row5" ), RegionKeyRanges.startKeyFromRegionName( bytes( "t1,row5,1700000000000" ),
+      prefix ) );
+    assertArrayEquals( bytes( "a,b" ), RegionKeyRanges.startKeyFromRegionName(
+      bytes( "t1,a,b,1700000000000.0123456789abcdef0123456789abcdef." ), prefix ) );
+    assertArrayEquals( new byte[ 0 ], RegionKeyRanges.startKeyFromRegionName(
+      bytes( "t1,,1700000000000.0123456789abcdef0123456789abcdef." ), prefix ) );
+    assertNull( RegionKeyRanges.startKeyFromRegionName( bytes( "t1,garbage" ), prefix ) );
+  }
+
+  @Test
+  public void testCatalogTableName() {
+    assertEquals( "t1", RegionKeyRanges.catalogTableName( "default:t1" ) );
+    assertEquals( "t1", RegionKeyRanges.catalogTableName( "t1" ) );
+    assertEquals( "ns:t1", RegionKeyRanges.catalogTableName( "ns:t1" ) );
+  }
+
+  @Test
+  public void testAssignDealsRegionsOutRoundRobin() {
+    List<byte[]> startKeys = Arrays.asList( new byte[ 0 ], bytes( "b" ), bytes( "d" ), bytes( "f" ), bytes( "h" ) );
+    List<KeyRange> ranges = RegionKeyRanges.regionRanges( startKeys, new byte[ 0 ], new byte[ 0 ] );
+
+    List<KeyRange> first = RegionKeyRanges.assign( ranges, 0, 2 );
+    List<KeyRange> second = RegionKeyRanges.assign( ranges, 1, 2 );
+
+    assertEquals( 3, first.size() );
+    assertArrayEquals( new byte[ 0 ], first.get( 0 ).getStart() );
+    assertArrayEquals( bytes( "b" ), first.get( 0 ).getStop() );
+    assertArrayEquals( bytes( "d" ), first.get( 1 ).getStart() );
+    assertArrayEquals( bytes( "h" ), first.get( 2 ).getStart() );
+    assertArrayEquals( new byte[ 0 ], first.get( 2 ).getStop() );
+    assertEquals( 2, second.size() );
+    assertArrayEquals( bytes( "b" ), second.get( 0 ).getStart() );
+    assertArrayEquals( bytes( "f" ), second.get( 1 ).getStart() );
+    assertArrayEquals( bytes( "h" ), second.get( 1 ).getStop() );
+
+    assertEquals( 0, RegionKeyRanges.assign( ranges, 5, 6 ).size() );
+  }
+
+  @Test
+  public void testRegionRangesAreClipped() {
+    List<byte[]> startKeys = Arrays.asList( new byte[ 0 ], bytes( "b" ), bytes( "d" ), bytes( "f" ) );
+
+    List<KeyRange> ranges = RegionKeyRanges.regionRanges( startKeys, bytes( "c" ), bytes( "e" ) );
+
+    assertEquals( 2, ranges.size() );
+    assertArrayEquals( bytes( "c" ), ranges.get( 0 ).getStart() );
+    assertArrayEquals( bytes( "d" ), ranges.get( 0 ).getStop() );
+    assertArrayEquals( bytes( "d" ), ranges.get( 1 ).getStart() );
+    assertArrayEquals( bytes( "e" ), ranges.get( 1 ).getStop() );
+
+    ranges = RegionKeyRanges.regionRanges( startKeys, bytes( "g" ), new byte[ 0 ] );
+    assertEquals( 1, ranges.size() );
+    assertArrayEquals( bytes( "g" ), ranges.get( 0 ).getStart() );
+    assertArrayEquals( new byte[ 0 ], ranges.get( 0 ).getStop() );
+  }
+
+  @Test
+  public void testPrefixRange() {
+    KeyRange range = RegionKeyRanges.prefixRange( bytes( "ab" ) );
+    assertArrayEquals( bytes( "ab" ), range.getStart() );
+    assertArrayEquals( bytes( "ac" ), range.getStop() );
+
+    range = RegionKeyRanges.prefixRange( new byte[] { 1, (byte) 0xff } );
+    assertArrayEquals( new byte[] { 2 }, range.getStop() );
+
+    range = RegionKeyRanges.prefixRange( new byte[] { (byte) 0xff } );
+    assertArrayEquals( new byte[ 0 ], range.getStop() );
+  }
+
+  @Test
+  public void testReadRegionStartKeys() throws Exception {
+    HBaseConnection connection = mock( HBaseConnection.class );
+    HBaseTable metaTable = mock( HBaseTable.class );
+    ResultScannerBuilder scannerBuilder = mock( ResultScannerBuilder.class );
+    ResultScanner scanner = mock( ResultScanner.class );
+    when( connection.getTable( RegionKeyRanges.META_TABLE_NAME ) ).thenReturn( metaTable );
+    when( metaTable.createScannerBuilder( bytes( "t1," ), bytes( "t1-" ) ) ).thenReturn( scannerBuilder );
+    when( scannerBuilder.build() ).thenReturn( scanner );
+    Result first = mock( Result.class );
+    when( first.getRow() ).thenReturn( bytes( "t1,,1" ) );
+    Result second = mock( Result.class );
+    when( second.getRow() ).thenReturn( bytes( "t1,\u00ff,2" ) );
+    Result third = mock( Result.class );
+    when( third.getRow() ).thenReturn( bytes( "t1,m,3" ) );
+    when( scanner.next() ).thenReturn( first, second, third, null );
+
+    List<byte[]> startKeys = RegionKeyRanges.readRegionStartKeys( connection, "default:t1" );
+
+    assertEquals( 3, startKeys.size() );
+    assertArrayEquals( new byte[ 0 ], startKeys.get( 0 ) );
+    assertArrayEquals( bytes( "m" ), startKeys.get( 1 ) );
+    assertArrayEquals( bytes( "\u00ff" ), startKeys.get( 2 ) );
+    verify( scanner ).close();
+    verify( metaTable ).close();
+  }
+}
@@ -0,0 +1,218 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.input;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.pentaho.big.data.kettle.plugins.hbase.input.RegionKeyRanges.KeyRange;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.hadoop.shim.api.hbase.Result;
+import org.pentaho.hadoop.shim.api.hbase.table.ResultScanner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RegionScannerTest {
+
+  private final Map<KeyRange, List<Result>> rowsByRange = new IdentityHashMap<KeyRange, List<Result>>();
+
+  private final RegionScanner.ScannerFactory factory = new RegionScanner.ScannerFactory() {
+    @Override
+    public ResultScanner createScanner( KeyRange range ) throws Exception {
+      List<Result> rows = rowsByRange.get( range );
+      if ( rows == null ) {
+        throw new IOException( "region offline" );
+      }
+      ResultScanner scanner = mock( ResultScanner.class );
+      Result[] rest = rows.subList( 1, rows.size() ).toArray( new Result[ 0 ] );
+      rest = Arrays.copyOf( rest, rest.length + 1 );
+      when( scanner.next() ).thenReturn( rows.get( 0 ), rest );
+      return scanner;
+    }
+  };
+
+  private List<KeyRange> ranges( int count, int rowsPerRange ) {
+    List<KeyRange> ranges = new ArrayList<KeyRange>();
+    for ( int i = 0; i < count; i++ ) {
+      KeyRange range = new KeyRange( new byte[] { (byte) i }, new byte[] { (byte) ( i + 1 ) } );
+      List<Result> rows = new ArrayList<Result>();
+      for ( int j = 0; j < rowsPerRange; j++ ) {
+        rows.add( mock( Result.class ) );
+      }
+      rowsByRange.put( range, rows );
+      ranges.add( range );
+    }
+    return ranges;
+  }
+
+  @Test
+  public void testSequentialReadKeepsRangeOrder() throws Exception {
+    List<KeyRange> ranges = ranges( 3, 2 );
+    RegionScanner scanner = new RegionScanner( ranges, factory, 1 );
+
+    for ( KeyRange range : ranges ) {
+      for ( Result expected : rowsByRange.get( range ) ) {
+        assertEquals( expected, scanner.next() );
+      }
+    }
+    assertNull( scanner.next() );
+    scanner.close();
+  }
+
+  @Test
+  public void testPrefetchKeepsRangeOrder() throws Exception {
+    List<KeyRange> ranges = ranges( 3, 1500 );
+    RegionScanner scanner = new RegionScanner( ranges, factory, 1, true );
+
+    for ( KeyRange range : ranges ) {
+      for ( Result expected : rowsByRange.get( range ) ) {
+        assertEquals( expected, scanner.next() );
+      }
+    }
+    assertNull( scanner.next() );
+    scanner.close();
+  }
+
+  @Test
+  public void testParallelReadReturnsEveryRow() throws Exception {
+    List<KeyRange> ranges = ranges( 8, 300 );
+    RegionScanner scanner = new RegionScanner( ranges, factory, 3 );
+
+    Set<Result> read = new HashSet<Result>();
+    Result next;
+    while ( ( next = scanner.next() ) != null ) {
+      read.add( next );
+    }
+    scanner.close();
+
+    assertEquals( 8 * 300, read.size() );
+    assertNull( scanner.next() );
+  }
+
+  @Test( timeout = 10000 )
+  public void testQueueDepthBoundsRowsFetchedAhead() throws Exception {
+    final AtomicInteger fetched = new AtomicInteger();
+    final Result row = mock( Result.class );
+    RegionScanner.ScannerFactory endless = new RegionScanner.ScannerFactory() {
+      @Override
+      public ResultScanner createScanner( KeyRange range ) throws Exception {
+        ResultScanner scanner = mock( ResultScanner.class );
+        when( scanner.next() ).thenAnswer( new Answer<Result>() {
+          @Override
+          public Result answer( InvocationOnMock invocation ) throws Throwable {
+            fetched.incrementAndGet();
+            return row;
+          }
+        } );
+        return scanner;
+      }
+    };
+    RegionScanner scanner = new RegionScanner( ranges( 1, 1 ), endless, 1, true, 5 );
+    Thread.sleep( 200 );
+
+    // five rows queued, the reader waits to queue the sixth
+    assertEquals( 6, fetched.get() );
+    assertEquals( row, scanner.next() );
+    scanner.close();
+  }
+
+  @Test( timeout = 10000 )
+  public void testCloseWakesUpParallelRead() throws Exception {
+    assertCloseWakesUpBlockedNext( 3, false );
+  }
+
+  @Test( timeout = 10000 )
+  public void testCloseWakesUpPrefetch() throws Exception {
+    assertCloseWakesUpBlockedNext( 1, true );
+  }
+
+  /**
+   * Reads with scanners that never return a row and closes the scanner from another thread while the step waits for
+   * the first one.
+   */
+  private void assertCloseWakesUpBlockedNext( int threads, boolean prefetch ) throws Exception {
+    final CountDownLatch never = new CountDownLatch( 1 );
+    RegionScanner.ScannerFactory blocking = new RegionScanner.ScannerFactory() {
+      @Override
+      public ResultScanner createScanner( KeyRange range ) throws Exception {
+        ResultScanner scanner = mock( ResultScanner.class );
+        when( scanner.next() ).thenAnswer( new Answer<Result>() {
+          @Override
+          public Result answer( InvocationOnMock invocation ) throws Throwable {
+            never.await();
+            return null;
+          }
+        } );
+        return scanner;
+      }
+    };
+    final RegionScanner scanner = new RegionScanner( ranges( 4, 1 ), blocking, threads, prefetch );
+    final AtomicReference<Object> read = new AtomicReference<Object>( "nothing yet" );
+    Thread step = new Thread( new Runnable() {
+      @Override
+      public void run() {
+        try {
+          read.set( scanner.next() );
+        } catch ( KettleException e ) {
+          read.set( e );
+        }
+      }
+    } );
+    step.start();
+    Thread.sleep( 200 );
+    assertEquals( "nothing yet", read.get() );
+
+    scanner.close();
+    step.join( 5000 );
+
+    assertFalse( step.isAlive() );
+    assertNull( read.get() );
+    assertNull( scanner.next() );
+  }
+
+  @Test
+  public void testNoRanges() throws Exception {
+    assertNull( new RegionScanner( new ArrayList<KeyRange>(), factory, 4 ).next() );
+  }
+
+  @Test( expected = KettleException.class )
+  public void testParallelReadFailure() throws Exception {
+    List<KeyRange> ranges = ranges( 2, 10 );
+    ranges.add( new KeyRange( new byte[] { 9 }, new byte[ 0 ] ) );
+    RegionScanner scanner = new RegionScanner( ranges, factory, 2 );
+    try {
+      while ( scanner.next() != null ) {
+        // keep reading until the failed region surfaces
+      }
+    } finally {
+      scanner.close();
+    }
+  }
+}
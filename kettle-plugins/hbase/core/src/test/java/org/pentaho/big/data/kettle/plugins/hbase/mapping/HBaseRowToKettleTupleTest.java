@@ -0,0 +1,139 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.mapping;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.pentaho.big.data.kettle.plugins.hbase.input.RegionKeyRanges;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.hadoop.shim.api.hbase.ByteConversionUtil;
+import org.pentaho.hadoop.shim.api.hbase.mapping.Mapping;
+import org.pentaho.hadoop.shim.api.hbase.meta.HBaseValueMetaInterface;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HBaseRowToKettleTupleTest {
+
+  /**
+   * Stands in for the shim's result, which exposes the key and cells through getRow() and getMap()
+   */
+  public static class Row {
+    private final NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> map =
+      new TreeMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>>( RegionKeyRanges.KEY_COMPARATOR );
+
+    Row cell( String family, String qualifier, long timestamp, String value ) {
+      NavigableMap<byte[], NavigableMap<Long, byte[]>> columns = map.get( family.getBytes() );
+      if ( columns == null ) {
+        columns = new TreeMap<byte[], NavigableMap<Long, byte[]>>( RegionKeyRanges.KEY_COMPARATOR );
+        map.put( family.getBytes(), columns );
+      }
+      NavigableMap<Long, byte[]> versions = columns.get( qualifier.getBytes() );
+      if ( versions == null ) {
+        versions = new TreeMap<Long, byte[]>();
+        columns.put( qualifier.getBytes(), versions );
+      }
+      versions.put( timestamp, value.getBytes() );
+      return this;
+    }
+
+    public byte[] getRow() {
+      return "key".getBytes();
+    }
+
+    public NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> getMap() {
+      return map;
+    }
+  }
+
+  private static final Answer<Object> AS_STRING = new Answer<Object>() {
+    @Override
+    public Object answer( InvocationOnMock invocation ) {
+      return new String( (byte[]) invocation.getArguments()[ 0 ] );
+    }
+  };
+
+  private Mapping mapping;
+  private RowMetaInterface outputRowMeta;
+  private List<HBaseValueMetaInterface> tupleCols;
+  private HBaseRowToKettleTuple tupleHandler;
+
+  @Before
+  public void setup() throws Exception {
+    mapping = mock( Mapping.class );
+    when( mapping.getKeyName() ).thenReturn( Mapping.TupleMapping.KEY.toString() );
+    when( mapping.decodeKeyValue( any( byte[].class ) ) ).thenReturn( "key" );
+
+    outputRowMeta = mock( RowMetaInterface.class );
+    when( outputRowMeta.size() ).thenReturn( 5 );
+    when( outputRowMeta.indexOfValue( Mapping.TupleMapping.KEY.toString() ) ).thenReturn( 0 );
+    when( outputRowMeta.indexOfValue( Mapping.TupleMapping.FAMILY.toString() ) ).thenReturn( 1 );
+    when( outputRowMeta.indexOfValue( Mapping.TupleMapping.COLUMN.toString() ) ).thenReturn( 2 );
+    when( outputRowMeta.indexOfValue( Mapping.TupleMapping.VALUE.toString() ) ).thenReturn( 3 );
+    when( outputRowMeta.indexOfValue( Mapping.TupleMapping.TIMESTAMP.toString() ) ).thenReturn( 4 );
+
+    tupleCols = new ArrayList<HBaseValueMetaInterface>();
+    for ( int i = 0; i < 5; i++ ) {
+      HBaseValueMetaInterface col = mock( HBaseValueMetaInterface.class );
+      when( col.decodeColumnValue( any( byte[].class ) ) ).thenAnswer( AS_STRING );
+      tupleCols.add( col );
+    }
+
+    ByteConversionUtil bytesUtil = mock( ByteConversionUtil.class );
+    when( bytesUtil.toBytes( "f" ) ).thenReturn( "f".getBytes() );
+    when( bytesUtil.toBytes( "g" ) ).thenReturn( "g".getBytes() );
+    tupleHandler = new HBaseRowToKettleTuple( bytesUtil );
+  }
+
+  @Test
+  public void testTuplesAreHandedOverOneAtATime() throws Exception {
+    Row row = new Row().cell( "f", "a", 1L, "old" ).cell( "f", "a", 2L, "new" ).cell( "h", "b", 3L, "other" );
+    final List<Object[]> tuples = new ArrayList<Object[]>();
+
+    tupleHandler.hbaseRowToKettleTupleMode( row, mapping, tupleCols, outputRowMeta,
+      new HBaseRowToKettleTuple.TupleHandler() {
+        @Override
+        public void handleTuple( Object[] tuple ) {
+          tuples.add( tuple );
+        }
+      } );
+
+    assertEquals( 2, tuples.size() );
+    assertArrayEquals( new Object[] { "key", "f", "a", "new", 2L }, Arrays.copyOf( tuples.get( 0 ), 5 ) );
+    assertArrayEquals( new Object[] { "key", "h", "b", "other", 3L }, Arrays.copyOf( tuples.get( 1 ), 5 ) );
+  }
+
+  @Test
+  public void testFamiliesMissingFromAPartialRowAreSkipped() throws Exception {
+    when( mapping.getTupleFamilies() ).thenReturn( "f,g" );
+    when( mapping.getTupleFamiliesSplit() ).thenReturn( new String[] { "f", "g" } );
+
+    List<Object[]> tuples =
+      tupleHandler.hbaseRowToKettleTupleMode( new Row().cell( "g", "c", 5L, "v" ), mapping, tupleCols, outputRowMeta );
+
+    assertEquals( 1, tuples.size() );
+    assertArrayEquals( new Object[] { "key", "g", "c", "v", 5L }, Arrays.copyOf( tuples.get( 0 ), 5 ) );
+  }
+}
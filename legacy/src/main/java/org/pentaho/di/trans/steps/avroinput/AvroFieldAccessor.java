@@ -0,0 +1,384 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avroinput;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericContainer;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.util.Utf8;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.i18n.BaseMessages;
+
+/**
+ * Compiled form of the path of an AvroInputMeta.AvroField. The path is split into record field names and bracketed
+ * array indexes/map keys once, and every record step remembers the position of its field for the last schema it was
+ * applied to, so extracting a value from a decoded object does no string handling unless the schema or the values of
+ * variables used in the path change. Paths that can't be tokenized are handed back to the field's own string walk so
+ * that they fail in exactly the same way as before.
+ */
+class AvroFieldAccessor {
+
+  private static final Schema STRING_SCHEMA = Schema.create( Schema.Type.STRING );
+
+  private final AvroInputMeta.AvroField m_field;
+
+  /** The (unsubstituted) path parts of the field */
+  private final List<String> m_pathParts;
+
+  /** True if any part refers to a variable, i.e. has to be substituted for every object */
+  private final boolean m_hasVariables;
+
+  /** True if a union holding a primitive should be read as a string rather than its single non-null type */
+  private final boolean m_stringLeaf;
+
+  private List<String> m_substitutedParts;
+
+  /** The compiled steps, or null if the path can only be handled by the field's string walk */
+  private PathStep[] m_steps;
+
+  AvroFieldAccessor( AvroInputMeta.AvroField field, List<String> pathParts, int kettleType ) {
+    m_field = field;
+    m_pathParts = new ArrayList<String>( pathParts );
+    m_stringLeaf = kettleType == ValueMetaInterface.TYPE_STRING;
+
+    boolean hasVariables = false;
+    for ( String part : pathParts ) {
+      hasVariables |= part.contains( "${" ) || part.contains( "%%" ) || part.contains( "$[" );
+    }
+    m_hasVariables = hasVariables;
+  }
+
+  /**
+   * Extract the value for the field from a decoded Avro structure.
+   *
+   * @param value
+   *          the top level record, array or map
+   * @param s
+   *          the schema of the top level structure
+   * @param defaultSchema
+   *          the default (reader) schema to take default values from
+   * @param space
+   *          variables used in the path
+   * @param ignoreMissing
+   *          true if null is to be returned for fields that don't appear in the schema
+   * @return the Kettle value
+   * @throws KettleException
+   *           if a problem occurs
+   */
+  Object extract( Object value, Schema s, Schema defaultSchema, VariableSpace space, boolean ignoreMissing )
+    throws KettleException {
+    compile( space );
+    if ( m_steps == null ) {
+      m_field.reset( space );
+      return walkUncompiled( value, s, defaultSchema, ignoreMissing );
+    }
+    if ( value == null ) {
+      return null;
+    }
+    return walk( value, s, 0, defaultSchema, ignoreMissing );
+  }
+
+  private void compile( VariableSpace space ) {
+    if ( m_substitutedParts != null && !m_hasVariables ) {
+      return;
+    }
+    List<String> parts = m_pathParts;
+    if ( m_hasVariables ) {
+      parts = new ArrayList<String>( m_pathParts.size() );
+      for ( String part : m_pathParts ) {
+        parts.add( space.environmentSubstitute( part ) );
+      }
+      if ( parts.equals( m_substitutedParts ) ) {
+        return;
+      }
+    }
+    m_substitutedParts = parts;
+
+    List<PathStep> steps = new ArrayList<PathStep>();
+    try {
+      for ( String part : parts ) {
+        tokenize( part, steps );
+      }
+      m_steps = steps.toArray( new PathStep[steps.size()] );
+    } catch ( IllegalArgumentException e ) {
+      m_steps = null;
+    }
+  }
+
+  /**
+   * Compile a fresh set of steps for this path, whose memoized schema lookups can be kept with a particular schema and
+   * handed back through {@link #useSteps(PathStep[])} whenever that schema is in use again.
+   *
+   * @return the new steps, or null if the path uses variables or can't be compiled
+   */
+  PathStep[] newSteps() {
+    if ( m_hasVariables ) {
+      return null;
+    }
+    List<PathStep> steps = new ArrayList<PathStep>();
+    try {
+      for ( String part : m_pathParts ) {
+        tokenize( part, steps );
+      }
+    } catch ( IllegalArgumentException e ) {
+      return null;
+    }
+    return steps.toArray( new PathStep[steps.size()] );
+  }
+
+  /**
+   * Switch to steps previously obtained from {@link #newSteps()}. A null argument keeps the current steps.
+   */
+  void useSteps( PathStep[] steps ) {
+    if ( steps != null ) {
+      m_substitutedParts = m_pathParts;
+      m_steps = steps;
+    }
+  }
+
+  static void tokenize( String part, List<PathStep> steps ) {
+    if ( part.isEmpty() ) {
+      throw new IllegalArgumentException( "Empty path part" );
+    }
+    if ( part.charAt( 0 ) == '[' ) {
+      int close = part.indexOf( ']' );
+      if ( close < 0 ) {
+        throw new IllegalArgumentException( "Unclosed bracket in " + part );
+      }
+      steps.add( new PathStep( part.substring( 1, close ), true ) );
+      if ( close < part.length() - 1 ) {
+        tokenize( part.substring( close + 1 ), steps );
+      }
+    } else {
+      int open = part.indexOf( '[' );
+      if ( open > 0 ) {
+        steps.add( new PathStep( part.substring( 0, open ), false ) );
+        tokenize( part.substring( open ), steps );
+      } else {
+        steps.add( new PathStep( part, false ) );
+      }
+    }
+  }
+
+  private Object walkUncompiled( Object value, Schema s, Schema defaultSchema, boolean ignoreMissing )
+    throws KettleException {
+    switch ( s.getType() ) {
+      case RECORD:
+        return m_field.convertToKettleValue( (GenericData.Record) value, s, defaultSchema, ignoreMissing );
+      case ARRAY:
+        return m_field.convertToKettleValue( (GenericData.Array) value, s, defaultSchema, ignoreMissing );
+      case MAP:
+        return m_field.convertToKettleValue( (Map<Utf8, Object>) value, s, defaultSchema, ignoreMissing );
+      default:
+        return m_field.getPrimitive( value, s );
+    }
+  }
+
+  private Object walk( Object value, Schema s, int stepIndex, Schema defaultSchema, boolean ignoreMissing )
+    throws KettleException {
+    switch ( s.getType() ) {
+      case RECORD:
+        return record( (GenericData.Record) value, s, stepIndex, defaultSchema, ignoreMissing );
+      case ARRAY:
+        return array( (GenericData.Array) value, s, stepIndex, defaultSchema, ignoreMissing );
+      case MAP:
+        return map( (Map<Utf8, Object>) value, s, stepIndex, defaultSchema, ignoreMissing );
+      default:
+        return m_field.getPrimitive( value, s );
+    }
+  }
+
+  private Object record( GenericData.Record record, Schema s, int stepIndex, Schema defaultSchema,
+      boolean ignoreMissing ) throws KettleException {
+    if ( stepIndex >= m_steps.length ) {
+      throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.MalformedPathRecord" ) );
+    }
+    PathStep step = m_steps[stepIndex];
+    if ( step.m_bracket ) {
+      throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.InvalidPath" ) + "["
+          + step.m_text + "]" );
+    }
+
+    Schema.Field fieldS = step.recordField( s );
+    if ( fieldS == null && !ignoreMissing ) {
+      throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.NonExistentField",
+          step.m_text ) );
+    }
+
+    Object field = null;
+    if ( fieldS != null ) {
+      field = record.getSchema() == s ? record.get( fieldS.pos() ) : record.get( step.m_text );
+    }
+
+    if ( field == null ) {
+      fieldS = defaultSchema == null ? null : step.defaultField( defaultSchema );
+      if ( fieldS == null || fieldS.defaultVal() == null ) {
+        return null;
+      }
+      field = fieldS.defaultVal();
+    }
+
+    return walk( field, step.resolve( fieldS.schema(), field, m_stringLeaf ), stepIndex + 1, defaultSchema,
+        ignoreMissing );
+  }
+
+  private Object array( GenericData.Array array, Schema s, int stepIndex, Schema defaultSchema,
+      boolean ignoreMissing ) throws KettleException {
+    if ( stepIndex >= m_steps.length ) {
+      throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.MalformedPathArray" ) );
+    }
+    PathStep step = m_steps[stepIndex];
+    if ( !step.m_bracket ) {
+      throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.MalformedPathArray2",
+          step.m_text ) );
+    }
+    if ( step.m_index == null ) {
+      throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG,
+          "AvroInput.Error.UnableToParseArrayIndex", step.m_text ) );
+    }
+
+    int index = step.m_index;
+    if ( index >= array.size() || index < 0 ) {
+      return null;
+    }
+    Object element = array.get( index );
+    if ( element == null ) {
+      return null;
+    }
+
+    return walk( element, step.resolve( s.getElementType(), element, m_stringLeaf ), stepIndex + 1, defaultSchema,
+        ignoreMissing );
+  }
+
+  private Object map( Map<Utf8, Object> map, Schema s, int stepIndex, Schema defaultSchema, boolean ignoreMissing )
+    throws KettleException {
+    if ( stepIndex >= m_steps.length ) {
+      throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.MalformedPathMap" ) );
+    }
+    PathStep step = m_steps[stepIndex];
+    if ( !step.m_bracket ) {
+      throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.MalformedPathMap2",
+          step.m_text ) );
+    }
+
+    Object value = map.get( step.m_key );
+    if ( value == null ) {
+      return null;
+    }
+
+    return walk( value, step.resolve( s.getValueType(), value, m_stringLeaf ), stepIndex + 1, defaultSchema,
+        ignoreMissing );
+  }
+
+  /**
+   * One element of a compiled path: either a record field name or the content of a bracket, which is used as an array
+   * index or a map key depending on the structure it is applied to. Schema lookups are memoized against the identity
+   * of the last schema seen, which stays the same for as long as the writer/reader schema does.
+   */
+  static final class PathStep {
+    final String m_text;
+    final boolean m_bracket;
+    final Utf8 m_key;
+    final Integer m_index;
+
+    private Schema m_recordSchema;
+    private Schema.Field m_recordField;
+
+    private Schema m_defaultSchema;
+    private Schema.Field m_defaultField;
+
+    private Schema m_union;
+    private Schema m_unionMap;
+    private Schema m_unionLeaf;
+
+    PathStep( String text, boolean bracket ) {
+      m_text = text;
+      m_bracket = bracket;
+      m_key = bracket ? new Utf8( text ) : null;
+      Integer index = null;
+      if ( bracket ) {
+        try {
+          index = Integer.parseInt( text.trim() );
+        } catch ( NumberFormatException e ) {
+          // only an error if this turns out to be applied to an array
+        }
+      }
+      m_index = index;
+    }
+
+    Schema.Field recordField( Schema s ) {
+      if ( s != m_recordSchema ) {
+        m_recordField = s.getField( m_text );
+        m_recordSchema = s;
+      }
+      return m_recordField;
+    }
+
+    Schema.Field defaultField( Schema defaultSchema ) {
+      if ( defaultSchema != m_defaultSchema ) {
+        m_defaultField = defaultSchema.getField( m_text );
+        m_defaultSchema = defaultSchema;
+      }
+      return m_defaultField;
+    }
+
+    /**
+     * Resolve the schema of a value at this step, picking the branch of a union that matches the value.
+     */
+    Schema resolve( Schema declared, Object value, boolean stringLeaf ) throws KettleException {
+      if ( declared.getType() != Schema.Type.UNION ) {
+        return declared;
+      }
+      if ( value instanceof GenericContainer ) {
+        // covers records, arrays, enums and fixed
+        return ( (GenericContainer) value ).getSchema();
+      }
+      if ( declared != m_union ) {
+        m_unionMap = null;
+        m_unionLeaf = null;
+        m_union = declared;
+      }
+      if ( value instanceof Map ) {
+        if ( m_unionMap == null ) {
+          for ( Schema ts : declared.getTypes() ) {
+            if ( ts.getType() == Schema.Type.MAP ) {
+              m_unionMap = ts;
+              break;
+            }
+          }
+          if ( m_unionMap == null ) {
+            throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG,
+                "AvroInput.Error.UnableToFindSchemaForUnionMap" ) );
+          }
+        }
+        return m_unionMap;
+      }
+      if ( stringLeaf ) {
+        // use the string representation of the value
+        return STRING_SCHEMA;
+      }
+      if ( m_unionLeaf == null ) {
+        // a two element union, where one element is the type "null"
+        m_unionLeaf = AvroInputData.checkUnion( declared );
+      }
+      return m_unionLeaf;
+    }
+  }
+}
@@ -47,6 +47,17 @@ public class AvroInput extends BaseStep implements StepInterface {
   protected AvroInputMeta m_meta;
   protected AvroInputData m_data;
 
+  private final AvroInputData.RowHandler m_rowHandler = new AvroInputData.RowHandler() {
+    @Override
+    public void handleRow( Object[] row ) throws KettleException {
+      putRow( m_data.getOutputRowMeta(), row );
+
+      if ( log.isRowLevel() ) {
+        log.logRowlevel( AvroInput.this.toString(), "Outputted row #" + getProcessed() + " : " + row );
+      }
+    }
+  };
+
   public AvroInput(
       StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta, Trans trans ) {
 
@@ -106,6 +117,9 @@ public class AvroInput extends BaseStep implements StepInterface {
       if ( m_meta.getAvroInField() ) {
         // initialize for reading from a field
         if ( getInputRowMeta() != null ) {
+          if ( m_meta.getSchemaRegistryWireFormat() ) {
+            m_data.setSchemaRegistry( createSchemaRegistry( environmentSubstitute( m_meta.getSchemaRegistry() ) ) );
+          }
           m_data.initializeFromFieldDecoding( getTransMeta().getBowl(), avroFieldName, readerSchema,
               m_meta.getAvroFields(), m_meta.getAvroIsJsonEncoded(), newFieldOffset, m_meta.getSchemaInField(),
               schemaFieldName, m_meta.getSchemaInFieldIsPath(), m_meta.getCacheSchemasInMemory(),
@@ -115,6 +129,11 @@ public class AvroInput extends BaseStep implements StepInterface {
         // initialize for reading from a file
         FileObject fileObject = KettleVFS.getInstance( getTransMeta().getBowl() ).getFileObject(
           environmentSubstitute( m_meta.getFilename() ), getTransMeta() );
+        if ( m_meta.getSplitAcrossCopies() ) {
+          // several copies of the step read disjoint block ranges of the same file, each with its own copy of the
+          // field accessors (see AvroInputData#establishFileType)
+          m_data.setSplit( getUniqueStepNrAcrossSlaves(), getUniqueStepCountAcrossSlaves() );
+        }
         m_data.establishFileType( getTransMeta().getBowl(), fileObject, readerSchema, m_meta.getAvroFields(),
           m_meta.getAvroIsJsonEncoded(), newFieldOffset, m_meta.getDontComplainAboutMissingFields(), log );
       }
@@ -133,10 +152,12 @@ public class AvroInput extends BaseStep implements StepInterface {
       }
     }
 
-    Object[][] outputRow = null;
+    boolean more = false;
     try {
       if ( !m_meta.getAvroInField() || getInputRowMeta() != null ) {
-        outputRow = m_data.avroObjectToKettle( getTransMeta().getBowl(), currentInputRow, this );
+        // there may be more than one row if the paths contain an array/map
+        // expansion - pass each on as soon as it is produced
+        more = m_data.avroObjectToKettle( getTransMeta().getBowl(), currentInputRow, this, m_rowHandler );
       }
     } catch ( Exception ex ) {
       if ( getStepMeta().isDoingErrorHandling() ) {
@@ -165,17 +186,7 @@ public class AvroInput extends BaseStep implements StepInterface {
         throw new KettleException( ex.getMessage(), ex );
       }
     }
-    if ( outputRow != null ) {
-      // there may be more than one row if the paths contain an array/map
-      // expansion
-      for ( int i = 0; i < outputRow.length; i++ ) {
-        putRow( m_data.getOutputRowMeta(), outputRow[i] );
-
-        if ( log.isRowLevel() ) {
-          log.logRowlevel( toString(), "Outputted row #" + getProcessed() + " : " + outputRow );
-        }
-      }
-    } else {
+    if ( !more ) {
       if ( !m_meta.getAvroInField() ) {
         try {
           logBasic( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Message.ClosingFile" ) );
@@ -217,4 +228,35 @@ public class AvroInput extends BaseStep implements StepInterface {
       }
     }
   }
+
+  /**
+   * Create the registry to resolve the schema ids of wire format values with.
+   *
+   * @param location
+   *          the url of a registry service or a directory of schema files named after their ids
+   * @return the registry
+   * @throws KettleException
+   *           if no registry has been configured
+   */
+  protected AvroSchemaRegistry createSchemaRegistry( String location ) throws KettleException {
+    if ( Const.isEmpty( location ) ) {
+      throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.NoSchemaRegistry" ) );
+    }
+    String lower = location.toLowerCase();
+    if ( lower.startsWith( "http://" ) || lower.startsWith( "https://" ) ) {
+      return new HttpAvroSchemaRegistry( location );
+    }
+    return new FileAvroSchemaRegistry( getTransMeta().getBowl(), location );
+  }
+
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    if ( m_meta != null && m_meta.getAvroInField() && m_meta.getSchemaInField() && m_meta.getCacheSchemasInMemory()
+        && log.isDetailed() ) {
+      AvroSchemaCache cache = m_data.getSchemaCache();
+      logDetailed( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Message.SchemaCacheStatistics",
+          cache.getHits(), cache.getMisses(), cache.getEvictions(), cache.size() ) );
+    }
+    super.dispose( smi, sdi );
+  }
 }
@@ -21,13 +21,16 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileReader;
 import org.apache.avro.file.DataFileStream;
 import org.apache.avro.generic.GenericContainer;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericData.Record;
 import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.JsonDecoder;
 import org.apache.avro.util.Utf8;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
@@ -66,8 +69,25 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
   /** For reading from files of just serialized objects */
   protected GenericDatumReader m_datumReader;
   protected Decoder m_decoder;
+
+  /** Decoders reused between rows when decoding from a field */
+  protected BinaryDecoder m_binaryDecoder;
+  protected JsonDecoder m_jsonDecoder;
+
+  /** The schema m_jsonDecoder was created for */
+  protected Schema m_jsonDecoderSchema;
   protected InputStream m_inStream;
 
+  /** Index of the part of a container file this step copy reads and the number of parts the file is split into */
+  protected int m_splitIndex;
+  protected int m_splitCount = 1;
+
+  /** Position of the sync marker past which the blocks belong to the next part, or -1 to read to the end */
+  protected long m_splitEnd = -1;
+
+  /** True if this step copy has nothing to read because the file can't be split */
+  protected boolean m_splitEmpty;
+
   /**
    * The schema used to write the file - will be null if the file is not a container file
    */
@@ -87,10 +107,19 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
   protected Object m_defaultTopLevelObject;
 
   /**
-   * Schema cache. Map of strings (actual schema or path to schema) to two element array. Element 0 = GenericDatumReader
-   * configured with schema; 2 = top level structure object to use.
+   * Schema cache. Bounded LRU from the fingerprint of the actual schema or path to schema to the datum reader, top level
+   * structure and compiled field paths to use with it.
    */
-  protected Map<String, Object[]> m_schemaCache = new HashMap<String, Object[]>();
+  protected AvroSchemaCache m_schemaCache = new AvroSchemaCache();
+
+  /** The cache entry for the schema currently in use, if any */
+  protected AvroSchemaCache.Entry m_schemaCacheEntry;
+
+  /** Registry to resolve schema ids with if the incoming values are in the schema registry wire format */
+  protected AvroSchemaRegistry m_schemaRegistry;
+
+  /** Schemas resolved through the registry, by id */
+  protected Map<Integer, AvroSchemaCache.Entry> m_registryEntries = new HashMap<Integer, AvroSchemaCache.Entry>();
 
   /** True if the data to be decoded is json rather than binary */
   protected boolean m_jsonEncoded;
@@ -105,6 +134,12 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
   protected Map<Utf8, Object> m_topLevelMap;
 
   protected List<AvroInputMeta.AvroField> m_normalFields;
+
+  /**
+   * The user-defined fields (including any expansion) that binary reader schemas are projected down to. Empty if all
+   * leaf fields are output.
+   */
+  protected List<AvroInputMeta.AvroField> m_projectionFields = new ArrayList<AvroInputMeta.AvroField>();
   protected AvroArrayExpansion m_expansionHandler;
 
   /** The index that the decoded fields start at in the output row */
@@ -184,6 +219,29 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
     return path;
   }
 
+  /**
+   * Receives the outgoing rows produced from each Avro object, one at a time.
+   */
+  public interface RowHandler {
+    void handleRow( Object[] row ) throws KettleException;
+  }
+
+  /**
+   * Collects rows for callers that want all rows of an Avro object at once.
+   */
+  protected static class RowCollector implements RowHandler {
+    private final List<Object[]> m_rows = new ArrayList<Object[]>();
+
+    @Override
+    public void handleRow( Object[] row ) {
+      m_rows.add( row );
+    }
+
+    public Object[][] getRows() {
+      return m_rows.toArray( new Object[m_rows.size()][] );
+    }
+  }
+
   /**
    * Inner class that handles a single array/map expansion process. Expands an array or map to multiple Kettle rows.
    * Delegates to AvroInptuMeta.AvroField objects to handle the extraction of leaf primitives.
@@ -270,6 +328,10 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
       }
     }
 
+    private Object[] newRow() {
+      return new Object[m_outputRowMeta.size() + RowDataUtil.OVER_ALLOCATE_SIZE];
+    }
+
     /**
      * Processes a map at this point in the path.
      *
@@ -288,10 +350,37 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
      */
     public Object[][] convertToKettleValues(
         Map<Utf8, Object> map, Schema s, Schema defaultSchema, VariableSpace space,  boolean ignoreMissing ) throws KettleException {
-
       if ( map == null ) {
         return null;
       }
+      RowCollector rows = new RowCollector();
+      expand( map, s, defaultSchema, space, ignoreMissing, rows );
+      return rows.getRows();
+    }
+
+    /**
+     * Processes a map at this point in the path, handing each expanded row to the supplied handler as soon as it has
+     * been produced.
+     *
+     * @param map
+     *          the map to process
+     * @param s
+     *          the current schema at this point in the path
+     * @param space
+     *          environment variables
+     * @param ignoreMissing
+     *          true if null is to be returned for user fields that don't appear in the schema
+     * @param handler
+     *          receives the rows corresponding to the expanded map/array
+     * @throws KettleException
+     *           if a problem occurs
+     */
+    public void expand( Map<Utf8, Object> map, Schema s, Schema defaultSchema, VariableSpace space,
+        boolean ignoreMissing, RowHandler handler ) throws KettleException {
+
+      if ( map == null ) {
+        return;
+      }
 
       if ( m_tempParts.size() == 0 ) {
         throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.MalformedPathMap" ) );
@@ -314,48 +403,22 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
       if ( key.equals( "*" ) ) {
         // start the expansion - we delegate conversion to our subfields
         Schema valueType = s.getValueType();
-        Object[][] result = new Object[map.keySet().size()][m_outputRowMeta.size() + RowDataUtil.OVER_ALLOCATE_SIZE];
-
-        int i = 0;
-        for ( Utf8 mk : map.keySet() ) {
-          Object value = map.get( mk );
 
+        for ( Object value : map.values() ) {
+          Object[] row = newRow();
           for ( int j = 0; j < m_subFields.size(); j++ ) {
             AvroInputMeta.AvroField sf = m_subFields.get( j );
-            sf.reset( space );
-
-            // what have we got
-            if ( valueType.getType() == Schema.Type.RECORD ) {
-              result[i][sf.m_outputIndex] =
-                  sf.convertToKettleValue( (Record) value, valueType, defaultSchema, ignoreMissing );
-            } else if ( valueType.getType() == Schema.Type.ARRAY ) {
-              result[i][sf.m_outputIndex] =
-                  sf.convertToKettleValue( (GenericData.Array) value, valueType, defaultSchema, ignoreMissing );
-            } else if ( valueType.getType() == Schema.Type.MAP ) {
-              result[i][sf.m_outputIndex] =
-                  sf.convertToKettleValue( (Map<Utf8, Object>) value, valueType, defaultSchema, ignoreMissing );
-            } else {
-              // assume a primitive
-              result[i][sf.m_outputIndex] = sf.getPrimitive( value, valueType );
-            }
+            row[sf.m_outputIndex] = sf.extractKettleValue( value, valueType, defaultSchema, space, ignoreMissing );
           }
-          i++; // next row
+          handler.handleRow( row );
         }
-
-        return result;
       } else {
         Object value = map.get( new Utf8( key ) );
 
         if ( value == null ) {
           // key doesn't exist in map
-          Object[][] result = new Object[1][m_outputRowMeta.size() + RowDataUtil.OVER_ALLOCATE_SIZE];
-
-          for ( int i = 0; i < m_subFields.size(); i++ ) {
-            AvroInputMeta.AvroField sf = m_subFields.get( i );
-            result[0][sf.m_outputIndex] = null;
-          }
-
-          return result;
+          handler.handleRow( newRow() );
+          return;
         }
 
         Schema valueType = s.getValueType();
@@ -386,19 +449,19 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
                 throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG,
                     "AvroInput.Error.EncounteredAPrimitivePriorToMapExpansion" ) );
               }
-              Object[][] result = new Object[1][m_outputRowMeta.size() + RowDataUtil.OVER_ALLOCATE_SIZE];
-              return result;
+              handler.handleRow( newRow() );
+              return;
             }
           }
         }
 
         // what have we got?
         if ( valueType.getType() == Schema.Type.RECORD ) {
-          return convertToKettleValues( (Record) value, valueType, defaultSchema, space, ignoreMissing );
+          expand( (Record) value, valueType, defaultSchema, space, ignoreMissing, handler );
         } else if ( valueType.getType() == Schema.Type.ARRAY ) {
-          return convertToKettleValues( (GenericData.Array) value, valueType, defaultSchema, space, ignoreMissing );
+          expand( (GenericData.Array) value, valueType, defaultSchema, space, ignoreMissing, handler );
         } else if ( valueType.getType() == Schema.Type.MAP ) {
-          return convertToKettleValues( (Map<Utf8, Object>) value, valueType, defaultSchema, space, ignoreMissing );
+          expand( (Map<Utf8, Object>) value, valueType, defaultSchema, space, ignoreMissing, handler );
         } else {
           // we shouldn't have a primitive at this point. If we are
           // extracting a particular key from the map then we're not to the
@@ -410,8 +473,8 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
             throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG,
                 "AvroInput.Error.UnexpectedMapValueTypeAtNonExpansionPoint" ) );
           }
-          Object[][] result = new Object[1][m_outputRowMeta.size() + RowDataUtil.OVER_ALLOCATE_SIZE];
-          return result;
+          handler.handleRow( newRow() );
+          return;
         }
       }
     }
@@ -434,10 +497,37 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
      */
     public Object[][] convertToKettleValues( GenericData.Array array, Schema s, Schema defaultSchema, VariableSpace space,
         boolean ignoreMissing ) throws KettleException {
-
       if ( array == null ) {
         return null;
       }
+      RowCollector rows = new RowCollector();
+      expand( array, s, defaultSchema, space, ignoreMissing, rows );
+      return rows.getRows();
+    }
+
+    /**
+     * Processes an array at this point in the path, handing each expanded row to the supplied handler as soon as it
+     * has been produced.
+     *
+     * @param array
+     *          the array to process
+     * @param s
+     *          the current schema at this point in the path
+     * @param space
+     *          environment variables
+     * @param ignoreMissing
+     *          true if null is to be returned for user fields that don't appear in the schema
+     * @param handler
+     *          receives the rows corresponding to the expanded map/array
+     * @throws KettleException
+     *           if a problem occurs
+     */
+    public void expand( GenericData.Array array, Schema s, Schema defaultSchema, VariableSpace space,
+        boolean ignoreMissing, RowHandler handler ) throws KettleException {
+
+      if ( array == null ) {
+        return;
+      }
 
       if ( m_tempParts.size() == 0 ) {
         throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.MalformedPathArray" ) );
@@ -461,32 +551,17 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
         // start the expansion - we delegate conversion to our subfields
 
         Schema elementType = s.getElementType();
-        Object[][] result = new Object[array.size()][m_outputRowMeta.size() + RowDataUtil.OVER_ALLOCATE_SIZE];
 
         for ( int i = 0; i < array.size(); i++ ) {
           Object value = array.get( i );
 
+          Object[] row = newRow();
           for ( int j = 0; j < m_subFields.size(); j++ ) {
             AvroInputMeta.AvroField sf = m_subFields.get( j );
-            sf.reset( space );
-            // what have we got
-            if ( elementType.getType() == Schema.Type.RECORD ) {
-              result[i][sf.m_outputIndex] =
-                  sf.convertToKettleValue( (Record) value, elementType, defaultSchema, ignoreMissing );
-            } else if ( elementType.getType() == Schema.Type.ARRAY ) {
-              result[i][sf.m_outputIndex] =
-                  sf.convertToKettleValue( (GenericData.Array) value, elementType, defaultSchema, ignoreMissing );
-            } else if ( elementType.getType() == Schema.Type.MAP ) {
-              result[i][sf.m_outputIndex] =
-                  sf.convertToKettleValue( (Map<Utf8, Object>) value, elementType, defaultSchema, ignoreMissing );
-            } else {
-              // assume a primitive
-              result[i][sf.m_outputIndex] = sf.getPrimitive( value, elementType );
-            }
+            row[sf.m_outputIndex] = sf.extractKettleValue( value, elementType, defaultSchema, space, ignoreMissing );
           }
-
+          handler.handleRow( row );
         }
-        return result;
       } else {
         int arrayI = 0;
         try {
@@ -499,13 +574,8 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
         if ( arrayI >= array.size() || arrayI < 0 ) {
 
           // index is out of bounds
-          Object[][] result = new Object[1][m_outputRowMeta.size() + RowDataUtil.OVER_ALLOCATE_SIZE];
-          for ( int i = 0; i < m_subFields.size(); i++ ) {
-            AvroInputMeta.AvroField sf = m_subFields.get( i );
-            result[0][sf.m_outputIndex] = null;
-          }
-
-          return result;
+          handler.handleRow( newRow() );
+          return;
         }
 
         Object value = array.get( arrayI );
@@ -538,19 +608,19 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
                 throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG,
                     "AvroInput.Error.EncounteredAPrimitivePriorToMapExpansion" ) );
               }
-              Object[][] result = new Object[1][m_outputRowMeta.size() + RowDataUtil.OVER_ALLOCATE_SIZE];
-              return result;
+              handler.handleRow( newRow() );
+              return;
             }
           }
         }
 
         // what have we got?
         if ( elementType.getType() == Schema.Type.RECORD ) {
-          return convertToKettleValues( (Record) value, elementType, defaultSchema, space, ignoreMissing );
+          expand( (Record) value, elementType, defaultSchema, space, ignoreMissing, handler );
         } else if ( elementType.getType() == Schema.Type.ARRAY ) {
-          return convertToKettleValues( (GenericData.Array) value, elementType, defaultSchema, space, ignoreMissing );
+          expand( (GenericData.Array) value, elementType, defaultSchema, space, ignoreMissing, handler );
         } else if ( elementType.getType() == Schema.Type.MAP ) {
-          return convertToKettleValues( (Map<Utf8, Object>) value, elementType, defaultSchema, space, ignoreMissing );
+          expand( (Map<Utf8, Object>) value, elementType, defaultSchema, space, ignoreMissing, handler );
         } else {
           // we shouldn't have a primitive at this point. If we are
           // extracting a particular index from the array then we're not to the
@@ -562,8 +632,8 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
             throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG,
                 "AvroInput.Error.UnexpectedArrayElementTypeAtNonExpansionPoint" ) );
           } else {
-            Object[][] result = new Object[1][m_outputRowMeta.size() + RowDataUtil.OVER_ALLOCATE_SIZE];
-            return result;
+            handler.handleRow( newRow() );
+            return;
           }
         }
       }
@@ -587,10 +657,37 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
      */
     public Object[][] convertToKettleValues( Record record, Schema s, Schema defaultSchema, VariableSpace space,
         boolean ignoreMissing ) throws KettleException {
-
       if ( record == null ) {
         return null;
       }
+      RowCollector rows = new RowCollector();
+      expand( record, s, defaultSchema, space, ignoreMissing, rows );
+      return rows.getRows();
+    }
+
+    /**
+     * Processes a record at this point in the path, handing each expanded row to the supplied handler as soon as it
+     * has been produced.
+     *
+     * @param record
+     *          the record to process
+     * @param s
+     *          the current schema at this point in the path
+     * @param space
+     *          environment variables
+     * @param ignoreMissing
+     *          true if null is to be returned for user fields that don't appear in the schema
+     * @param handler
+     *          receives the rows corresponding to the expanded map/array
+     * @throws KettleException
+     *           if a problem occurs
+     */
+    public void expand( Record record, Schema s, Schema defaultSchema, VariableSpace space, boolean ignoreMissing,
+        RowHandler handler ) throws KettleException {
+
+      if ( record == null ) {
+        return;
+      }
 
       if ( m_tempParts.size() == 0 ) {
         throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.MalformedPathRecord" ) );
@@ -626,8 +723,8 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
         // field is null and we haven't hit the expansion yet. There will be
         // nothing
         // to return for all the sub-fields grouped in the expansion
-        Object[][] result = new Object[1][m_outputRowMeta.size() + RowDataUtil.OVER_ALLOCATE_SIZE];
-        return result;
+        handler.handleRow( newRow() );
+        return;
       }
 
       Schema.Type fieldT = fieldS.schema().getType();
@@ -661,20 +758,20 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
               throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG,
                   "AvroInput.Error.EncounteredAPrimitivePriorToMapExpansion" ) );
             }
-            Object[][] result = new Object[1][m_outputRowMeta.size() + RowDataUtil.OVER_ALLOCATE_SIZE];
-            return result;
+            handler.handleRow( newRow() );
+            return;
           }
         }
       }
 
       // what have we got?
       if ( fieldT == Schema.Type.RECORD ) {
-        return convertToKettleValues( (Record) field, fieldSchema, defaultSchema, space, ignoreMissing );
+        expand( (Record) field, fieldSchema, defaultSchema, space, ignoreMissing, handler );
       } else if ( fieldT == Schema.Type.ARRAY ) {
-        return convertToKettleValues( (GenericData.Array) field, fieldSchema, defaultSchema, space, ignoreMissing );
+        expand( (GenericData.Array) field, fieldSchema, defaultSchema, space, ignoreMissing, handler );
       } else if ( fieldT == Schema.Type.MAP ) {
 
-        return convertToKettleValues( (Map<Utf8, Object>) field, fieldSchema, defaultSchema, space, ignoreMissing );
+        expand( (Map<Utf8, Object>) field, fieldSchema, defaultSchema, space, ignoreMissing, handler );
       } else {
         // primitives will always be handled by the subField delegates, so we
         // should'nt
@@ -1094,6 +1191,18 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
     m_outputRowMeta = rmi;
   }
 
+  /**
+   * Decode incoming values in the schema registry wire format, resolving their schemas with the supplied registry. Has
+   * to be called before {@link #initializeFromFieldDecoding}.
+   *
+   * @param registry
+   *          the registry or null if the values are plain Avro
+   */
+  public void setSchemaRegistry( AvroSchemaRegistry registry ) {
+    m_schemaRegistry = registry;
+    m_registryEntries.clear();
+  }
+
   /**
    * Performs initialization based on decoding from an incoming field.
    *
@@ -1137,8 +1246,10 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
     m_dontComplainAboutMissingFields = ignoreMissing;
 
     for ( AvroInputMeta.AvroField f : fields ) {
-      m_normalFields.add( f );
+      // the meta fields are shared by all step copies, the paths get compiled and memoized per copy
+      m_normalFields.add( f.copy() );
     }
+    m_projectionFields = new ArrayList<AvroInputMeta.AvroField>( fields );
     m_fieldToDecodeIndex = m_outputRowMeta.indexOfValue( fieldNameToDecode );
 
     if ( schemaInField ) {
@@ -1150,7 +1261,12 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
       m_schemaFieldIsPath = schemaFieldIsPath;
     }
 
-    if ( Const.isEmpty( readerSchemaFile ) ) {
+    if ( m_schemaRegistry != null && jsonEncoded ) {
+      throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG,
+          "AvroInput.Error.WireFormatIsBinary" ) );
+    }
+
+    if ( Const.isEmpty( readerSchemaFile ) && m_schemaRegistry == null ) {
       if ( !schemaInField ) {
         throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.NoSchemaSupplied" ) );
       } else {
@@ -1163,7 +1279,8 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
     if ( !Const.isEmpty( readerSchemaFile ) ) {
       m_schemaToUse = loadSchema( bowl, readerSchemaFile );
       m_defaultSchema = m_schemaToUse;
-      m_datumReader = new GenericDatumReader( m_schemaToUse );
+      m_datumReader = createDatumReader( m_schemaToUse );
+      m_schemaToUse = m_datumReader.getExpected();
       m_defaultDatumReader = m_datumReader;
     }
 
@@ -1214,8 +1331,10 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
     m_newFieldOffset = newFieldOffset;
     m_normalFields = new ArrayList<AvroInputMeta.AvroField>();
     for ( AvroInputMeta.AvroField f : fields ) {
-      m_normalFields.add( f );
+      // the meta fields are shared by all step copies, the paths get compiled and memoized per copy
+      m_normalFields.add( f.copy() );
     }
+    m_projectionFields = new ArrayList<AvroInputMeta.AvroField>( fields );
     m_inStream = null;
     m_jsonEncoded = jsonEncoded;
     m_dontComplainAboutMissingFields = ignoreMissing;
@@ -1240,7 +1359,7 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
 
     if ( !jsonEncoded ) {
       try {
-        m_containerReader = new DataFileStream( m_inStream, m_datumReader );
+        m_containerReader = openContainerReader( avroFile );
         m_writerSchema = m_containerReader.getSchema();
 
         // resolve reader/writer schemas
@@ -1249,6 +1368,14 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
           m_schemaToUse = Schema.applyAliases( m_writerSchema, m_schemaToUse );
         } else {
           m_schemaToUse = m_writerSchema;
+
+          // only read the parts of the data that the paths refer to. Paths are only known to match the
+          // writer schema if there is no separate reader schema
+          Schema projected = AvroSchemaProjection.project( m_writerSchema, m_projectionFields );
+          if ( projected != null ) {
+            m_datumReader.setExpected( projected );
+            m_schemaToUse = projected;
+          }
         }
       } catch ( IOException e ) {
         // doesn't look like a container file....
@@ -1272,6 +1399,11 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
     }
 
     if ( nonContainer || jsonEncoded ) {
+      // only container files have sync markers to split on, so the first copy reads everything
+      m_splitEmpty = m_splitIndex > 0;
+      if ( m_splitCount > 1 && m_log.isBasic() ) {
+        m_log.logBasic( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Message.NotAContainerFile" ) );
+      }
       if ( Const.isEmpty( readerSchemaFile ) ) {
         throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.NoSchema" ) );
       }
@@ -1286,13 +1418,86 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
       } else {
         m_decoder = m_factory.binaryDecoder( m_inStream, null );
       }
-      m_datumReader = new GenericDatumReader( m_schemaToUse );
+      m_datumReader = createDatumReader( m_schemaToUse );
+      m_schemaToUse = m_datumReader.getExpected();
       m_defaultDatumReader = m_datumReader;
     }
 
     init();
   }
 
+  /**
+   * Read only a part of a container file. The file is divided into splitCount byte ranges of equal size and the blocks
+   * whose sync marker falls in range splitIndex are read, so that several step copies can decode disjoint blocks of the
+   * same file in parallel. Has to be called before {@link #establishFileType}. Files that are not container files, JSON
+   * encoded files and files without random access are read by split 0 only, the other splits are empty.
+   *
+   * @param splitIndex
+   *          the part to read (0 based)
+   * @param splitCount
+   *          the number of parts
+   */
+  public void setSplit( int splitIndex, int splitCount ) {
+    m_splitIndex = splitIndex;
+    m_splitCount = Math.max( 1, splitCount );
+  }
+
+  private DataFileStream openContainerReader( FileObject avroFile ) throws IOException {
+    m_splitEnd = -1;
+    m_splitEmpty = false;
+    if ( m_splitCount > 1 ) {
+      VfsSeekableInput in = VfsSeekableInput.open( avroFile );
+      if ( in != null ) {
+        DataFileReader reader;
+        try {
+          reader = new DataFileReader( in, m_datumReader );
+        } catch ( IOException e ) {
+          in.close();
+          throw e;
+        }
+        long length = in.length();
+        long start = length * m_splitIndex / m_splitCount;
+        m_splitEnd = length * ( m_splitIndex + 1 ) / m_splitCount;
+        if ( start > 0 ) {
+          reader.sync( start );
+        }
+        if ( m_log.isDetailed() ) {
+          m_log.logDetailed( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Message.ReadingSplit", start,
+              m_splitEnd, length ) );
+        }
+        m_inStream.close();
+        m_inStream = null;
+        return reader;
+      }
+      // no random access - the first copy reads the whole file
+      if ( m_log.isBasic() ) {
+        m_log.logBasic( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Message.FileNotSplittable" ) );
+      }
+      m_splitEmpty = m_splitIndex > 0;
+    }
+    return new DataFileStream( m_inStream, m_datumReader );
+  }
+
+  private boolean pastSplitEnd() throws IOException {
+    return m_splitEnd >= 0 && ( (DataFileReader) m_containerReader ).pastSync( m_splitEnd );
+  }
+
+  /**
+   * Create a datum reader for data written with the supplied schema. Binary data is read with a reader schema that is
+   * projected down to the user-defined paths (if any), so that unused fields are skipped rather than decoded.
+   *
+   * @param writerSchema
+   *          the schema the data was written with
+   * @return a datum reader
+   */
+  protected GenericDatumReader createDatumReader( Schema writerSchema ) {
+    Schema projected = m_jsonEncoded ? null : AvroSchemaProjection.project( writerSchema, m_projectionFields );
+    if ( projected == null ) {
+      return new GenericDatumReader( writerSchema );
+    }
+    return new GenericDatumReader( writerSchema, projected );
+  }
+
   protected void initTopLevelStructure( Schema schema, boolean setDefault ) throws KettleException {
     // what top-level structure are we using?
     if ( schema.getType() == Schema.Type.RECORD ) {
@@ -1368,7 +1573,7 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
         m_log.logDetailed( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Message.IncommingSchemaIsMissing" ) );
       }
       m_datumReader = m_defaultDatumReader;
-      m_schemaToUse = m_datumReader.getSchema();
+      m_schemaToUse = m_datumReader.getExpected();
       setTopLevelStructure( m_defaultTopLevelObject );
       return;
     } else {
@@ -1376,7 +1581,7 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
       schemaKey = space.environmentSubstitute( schemaKey );
     }
 
-    Object[] cached = null;
+    AvroSchemaCache.Entry cached = null;
     if ( useCache ) {
       cached = m_schemaCache.get( schemaKey );
       if ( m_log.isDetailed() && cached != null ) {
@@ -1403,7 +1608,7 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
                   "AvroInput.Message.FailedToLoadSchmeaUsingDefault", schemaKey ) );
             }
             m_datumReader = m_defaultDatumReader;
-            m_schemaToUse = m_datumReader.getSchema();
+            m_schemaToUse = m_datumReader.getExpected();
             setTopLevelStructure( m_defaultTopLevelObject );
             return;
           } else {
@@ -1420,26 +1625,99 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
         Schema.Parser p = new Schema.Parser();
         toUse = p.parse( schemaKey );
       }
-      m_schemaToUse = toUse;
-      m_datumReader = new GenericDatumReader( toUse );
-      initTopLevelStructure( toUse, false );
+      m_datumReader = createDatumReader( toUse );
+      m_schemaToUse = m_datumReader.getExpected();
+      initTopLevelStructure( m_schemaToUse, false );
       if ( useCache ) {
-        Object[] schemaInfo = new Object[2];
-        schemaInfo[0] = m_datumReader;
-        schemaInfo[1] =
-            ( m_topLevelArray != null ) ? m_topLevelArray : ( ( m_topLevelRecord != null ) ? m_topLevelRecord
-                : m_topLevelMap );
         if ( m_log.isDetailed() ) {
           m_log.logDetailed( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Message.StoringSchemaInCache" ) );
         }
-        m_schemaCache.put( schemaKey, schemaInfo );
+        AvroSchemaCache.Entry entry = newCacheEntry();
+        m_schemaCache.put( schemaKey, entry );
+        useCacheEntry( entry );
       }
     } else if ( useCache ) {
       // got one from the cache
-      m_datumReader = (GenericDatumReader) cached[0];
-      m_schemaToUse = m_datumReader.getSchema();
-      setTopLevelStructure( cached[1] );
+      useCacheEntry( cached );
+    }
+  }
+
+  /**
+   * Switch to the writer schema that the registry has under the id in the header of a wire format value.
+   *
+   * @param value
+   *          the incoming value
+   * @throws KettleException
+   *           if the value isn't in the wire format or the schema can't be resolved
+   */
+  protected void setSchemaFromRegistry( byte[] value ) throws KettleException {
+    if ( value.length < AvroSchemaRegistry.HEADER_LENGTH || value[0] != AvroSchemaRegistry.MAGIC_BYTE ) {
+      throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.NotInWireFormat" ) );
+    }
+    int id = ( ( value[1] & 0xff ) << 24 ) | ( ( value[2] & 0xff ) << 16 ) | ( ( value[3] & 0xff ) << 8 )
+        | ( value[4] & 0xff );
+
+    AvroSchemaCache.Entry entry = m_registryEntries.get( id );
+    if ( entry == m_schemaCacheEntry && entry != null ) {
+      return;
     }
+    if ( entry == null ) {
+      if ( m_log.isDetailed() ) {
+        m_log.logDetailed( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Message.ResolvingSchemaId", id ) );
+      }
+      m_datumReader = createDatumReader( m_schemaRegistry.getSchema( id ) );
+      m_schemaToUse = m_datumReader.getExpected();
+      initTopLevelStructure( m_schemaToUse, false );
+      entry = newCacheEntry();
+      m_registryEntries.put( id, entry );
+    }
+    useCacheEntry( entry );
+  }
+
+  private AvroSchemaCache.Entry newCacheEntry() {
+    Object topLevel =
+        ( m_topLevelArray != null ) ? m_topLevelArray : ( ( m_topLevelRecord != null ) ? m_topLevelRecord
+            : m_topLevelMap );
+    return new AvroSchemaCache.Entry( m_schemaToUse, m_datumReader, topLevel, newFieldSteps() );
+  }
+
+  private void useCacheEntry( AvroSchemaCache.Entry entry ) {
+    m_datumReader = entry.m_datumReader;
+    m_schemaToUse = entry.m_schema;
+    setTopLevelStructure( entry.m_topLevel );
+    useFieldSteps( entry.m_fieldSteps );
+    m_schemaCacheEntry = entry;
+    if ( entry.m_jsonDecoder != null ) {
+      m_jsonDecoder = entry.m_jsonDecoder;
+      m_jsonDecoderSchema = entry.m_schema;
+    }
+  }
+
+  private AvroFieldAccessor.PathStep[][] newFieldSteps() {
+    if ( m_normalFields == null ) {
+      return null;
+    }
+    AvroFieldAccessor.PathStep[][] steps = new AvroFieldAccessor.PathStep[m_normalFields.size()][];
+    for ( int i = 0; i < steps.length; i++ ) {
+      steps[i] = m_normalFields.get( i ).newAccessorSteps();
+    }
+    return steps;
+  }
+
+  private void useFieldSteps( AvroFieldAccessor.PathStep[][] steps ) {
+    if ( steps == null || m_normalFields == null || steps.length != m_normalFields.size() ) {
+      return;
+    }
+    for ( int i = 0; i < steps.length; i++ ) {
+      m_normalFields.get( i ).useAccessorSteps( steps[i] );
+    }
+  }
+
+  /**
+   * @return the cache of schemas read from an incoming field
+   */
+  AvroSchemaCache getSchemaCache() {
+    return m_schemaCache;
   }
 
   protected void init() throws KettleException {
@@ -1556,31 +1834,8 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
     return null;
   }
 
-  private Object[][] setKettleFields( Object[] outputRowData, VariableSpace space ) throws KettleException {
-    Object[][] result = null;
-
-    // expand map/array in path structure to multiple rows (if necessary)
-    if ( m_expansionHandler != null ) {
-      m_expansionHandler.reset( space );
-
-      if ( m_schemaToUse.getType() == Schema.Type.RECORD || m_schemaToUse.getType() == Schema.Type.UNION ) {
-        // call getSchema() on the top level record here in case it has been
-        // read as one of the elements from a top-level union
-        result =
-            m_expansionHandler.convertToKettleValues( m_topLevelRecord, m_topLevelRecord.getSchema(), m_defaultSchema, space,
-                m_dontComplainAboutMissingFields );
-      } else if ( m_schemaToUse.getType() == Schema.Type.ARRAY ) {
-        result =
-            m_expansionHandler.convertToKettleValues( m_topLevelArray, m_schemaToUse, m_defaultSchema, space,
-                m_dontComplainAboutMissingFields );
-      } else {
-        result =
-            m_expansionHandler.convertToKettleValues( m_topLevelMap, m_schemaToUse, m_defaultSchema, space,
-                m_dontComplainAboutMissingFields );
-      }
-    } else {
-      result = new Object[1][];
-    }
+  private void setKettleFields( Object[] outputRowData, VariableSpace space, final RowHandler handler )
+    throws KettleException {
 
     // if there are no incoming rows (i.e. we're decoding from a file rather
     // than a field
@@ -1594,42 +1849,62 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
     // get the normal (non expansion-related fields)
     Object value = null;
     for ( AvroInputMeta.AvroField f : m_normalFields ) {
-      f.reset( space );
-
       if ( m_schemaToUse.getType() == Schema.Type.RECORD || m_schemaToUse.getType() == Schema.Type.UNION ) {
         // call getSchema() on the top level record here in case it has been
         // read as one of the elements from a top-level union
         value =
-            f.convertToKettleValue( m_topLevelRecord, m_topLevelRecord.getSchema(), m_defaultSchema, m_dontComplainAboutMissingFields );
+            f.extractKettleValue( m_topLevelRecord, m_topLevelRecord.getSchema(), m_defaultSchema, space,
+                m_dontComplainAboutMissingFields );
       } else if ( m_schemaToUse.getType() == Schema.Type.ARRAY ) {
-        value = f.convertToKettleValue( m_topLevelArray, m_schemaToUse, m_defaultSchema, m_dontComplainAboutMissingFields );
+        value = f.extractKettleValue( m_topLevelArray, m_schemaToUse, m_defaultSchema, space,
+            m_dontComplainAboutMissingFields );
       } else {
-        value = f.convertToKettleValue( m_topLevelMap, m_schemaToUse, m_defaultSchema, m_dontComplainAboutMissingFields );
+        value = f.extractKettleValue( m_topLevelMap, m_schemaToUse, m_defaultSchema, space,
+            m_dontComplainAboutMissingFields );
       }
 
       outputRowData[f.m_outputIndex] = value;
     }
 
-    // copy normal fields and existing incoming over to each expansion row (if
-    // necessary)
     if ( m_expansionHandler == null ) {
-      result[0] = outputRowData;
-    } else if ( m_normalFields.size() > 0 || m_newFieldOffset > 0 ) {
-      for ( int i = 0; i < result.length; i++ ) {
-        Object[] row = result[i];
-
-        // existing incoming fields
-        for ( int j = 0; j < m_newFieldOffset; j++ ) {
-          row[j] = outputRowData[j];
-        }
+      handler.handleRow( outputRowData );
+      return;
+    }
 
-        for ( AvroInputMeta.AvroField f : m_normalFields ) {
-          row[f.m_outputIndex] = outputRowData[f.m_outputIndex];
+    // copy normal fields and existing incoming over to each expansion row (if
+    // necessary) as it is produced
+    RowHandler expansionHandler = handler;
+    if ( m_normalFields.size() > 0 || m_newFieldOffset > 0 ) {
+      final Object[] normalRowData = outputRowData;
+      expansionHandler = new RowHandler() {
+        @Override
+        public void handleRow( Object[] row ) throws KettleException {
+          // existing incoming fields
+          System.arraycopy( normalRowData, 0, row, 0, m_newFieldOffset );
+
+          for ( AvroInputMeta.AvroField f : m_normalFields ) {
+            row[f.m_outputIndex] = normalRowData[f.m_outputIndex];
+          }
+          handler.handleRow( row );
         }
-      }
+      };
     }
 
-    return result;
+    // expand map/array in path structure to multiple rows
+    m_expansionHandler.reset( space );
+
+    if ( m_schemaToUse.getType() == Schema.Type.RECORD || m_schemaToUse.getType() == Schema.Type.UNION ) {
+      // call getSchema() on the top level record here in case it has been
+      // read as one of the elements from a top-level union
+      m_expansionHandler.expand( m_topLevelRecord, m_topLevelRecord.getSchema(), m_defaultSchema, space,
+          m_dontComplainAboutMissingFields, expansionHandler );
+    } else if ( m_schemaToUse.getType() == Schema.Type.ARRAY ) {
+      m_expansionHandler.expand( m_topLevelArray, m_schemaToUse, m_defaultSchema, space,
+          m_dontComplainAboutMissingFields, expansionHandler );
+    } else {
+      m_expansionHandler.expand( m_topLevelMap, m_schemaToUse, m_defaultSchema, space,
+          m_dontComplainAboutMissingFields, expansionHandler );
+    }
   }
 
   /**
@@ -1646,11 +1921,37 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
    *           if a problem occurs
    */
   public Object[][] avroObjectToKettle( Bowl bowl, Object[] incoming, VariableSpace space ) throws KettleException {
+    RowCollector rows = new RowCollector();
+    return avroObjectToKettle( bowl, incoming, space, rows ) ? rows.getRows() : null;
+  }
+
+  /**
+   * Converts an incoming row to outgoing format. Extracts fields from either an Avro object in the incoming row or from
+   * the next structure in the container or non-container Avro file. Each outgoing row is handed to the supplied handler
+   * as soon as it has been produced, so expanding a large map/array doesn't hold all of its rows in memory.
+   *
+   * @param incoming
+   *          incoming kettle row - may be null if decoding from a file rather than a field
+   * @param space
+   *          the variables to use
+   * @param handler
+   *          receives the rows in the outgoing format
+   * @return false if there is no more input
+   * @throws KettleException
+   *           if a problem occurs
+   */
+  public boolean avroObjectToKettle( Bowl bowl, Object[] incoming, VariableSpace space, RowHandler handler )
+    throws KettleException {
+
+    if ( m_splitEmpty ) {
+      // another step copy reads this file
+      return false;
+    }
 
     if ( m_containerReader != null ) {
       // container file
       try {
-        if ( m_containerReader.hasNext() ) {
+        if ( m_containerReader.hasNext() && !pastSplitEnd() ) {
           if ( m_topLevelRecord != null ) {
             // special case for top-level record. In case we actually
             // have a top level union, reassign the record so that
@@ -1665,9 +1966,11 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
             m_containerReader.next( m_topLevelMap );
           }
 
-          return setKettleFields( incoming, space );
+          setKettleFields( incoming, space, handler );
+
+          return true;
         } else {
-          return null; // no more input
+          return false; // no more input
         }
       } catch ( IOException e ) {
         throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.ObjectReadError" ) );
@@ -1683,22 +1986,21 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
         if ( m_decodingFromField ) {
           if ( incoming == null || incoming.length == 0 ) {
             // must be done - just return null
-            return null;
+            return false;
           }
           ValueMetaInterface fieldMeta = m_outputRowMeta.getValueMeta( m_fieldToDecodeIndex );
 
           // incoming avro field null? - all decoded fields are null
           if ( fieldMeta.isNull( incoming[m_fieldToDecodeIndex] ) ) {
-            Object[][] result = new Object[1][];
             // just resize the existing incoming array (if necessary) and return
             // the incoming values
-            result[0] = RowDataUtil.resizeArray( incoming, m_outputRowMeta.size() );
-            return result;
+            handler.handleRow( RowDataUtil.resizeArray( incoming, m_outputRowMeta.size() ) );
+            return true;
           }
 
           // if necessary, set the current datum reader and top level structure
           // for the incoming schema
-          if ( m_schemaInField ) {
+          if ( m_schemaInField && m_schemaRegistry == null ) {
             ValueMetaInterface schemaMeta = m_outputRowMeta.getValueMeta( m_schemaFieldIndex );
             String schemaToUse = schemaMeta.getString( incoming[m_schemaFieldIndex] );
             setSchemaToUse( bowl, schemaToUse, m_cacheSchemas, space );
@@ -1707,14 +2009,21 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
           if ( m_jsonEncoded ) {
             try {
               String fieldValue = fieldMeta.getString( incoming[m_fieldToDecodeIndex] );
-              m_decoder = m_factory.jsonDecoder( m_schemaToUse, fieldValue );
+              m_decoder = jsonDecoder( fieldValue );
             } catch ( IOException e ) {
               throw new KettleException(
                   BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.JsonDecoderError" ) );
             }
           } else {
             byte[] fieldValue = fieldMeta.getBinary( incoming[m_fieldToDecodeIndex] );
-            m_decoder = m_factory.binaryDecoder( fieldValue, null );
+            int offset = 0;
+            if ( m_schemaRegistry != null ) {
+              setSchemaFromRegistry( fieldValue );
+              offset = AvroSchemaRegistry.HEADER_LENGTH;
+            }
+            m_binaryDecoder =
+                m_factory.binaryDecoder( fieldValue, offset, fieldValue.length - offset, m_binaryDecoder );
+            m_decoder = m_binaryDecoder;
           }
         }
 
@@ -1732,14 +2041,32 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
           m_datumReader.read( m_topLevelMap, m_decoder );
         }
 
-        return setKettleFields( incoming, space );
+        setKettleFields( incoming, space, handler );
+
+        return true;
       } catch ( IOException ex ) {
         // some IO problem or no more input
-        return null;
+        return false;
       }
     }
   }
 
+  /**
+   * Get a JSON decoder for the current schema positioned at the start of the supplied value. A decoder is only created
+   * the first time a schema is used, after that it is reconfigured with the new input.
+   */
+  private Decoder jsonDecoder( String json ) throws IOException {
+    if ( m_jsonDecoder != null && m_jsonDecoderSchema == m_schemaToUse ) {
+      return m_jsonDecoder.configure( json );
+    }
+    m_jsonDecoder = m_factory.jsonDecoder( m_schemaToUse, json );
+    m_jsonDecoderSchema = m_schemaToUse;
+    if ( m_schemaCacheEntry != null && m_schemaCacheEntry.m_schema == m_schemaToUse ) {
+      m_schemaCacheEntry.m_jsonDecoder = m_jsonDecoder;
+    }
+    return m_jsonDecoder;
+  }
+
   public void close() throws IOException {
     if ( m_containerReader != null ) {
       m_containerReader.close();
@@ -103,6 +103,10 @@ public class AvroInputDialog extends BaseStepDialog implements StepDialogInterfa
   private Button m_cacheSchemasBut;
   private Label m_schemaFieldNameL;
   private CCombo m_schemaFieldNameText;
+  private Label m_wireFormatL;
+  private Button m_wireFormatBut;
+  private Label m_schemaRegistryL;
+  private TextVar m_schemaRegistryText;
 
   private TextVar m_avroFilenameText;
   private Button m_avroFileBrowse;
@@ -112,6 +116,7 @@ public class AvroInputDialog extends BaseStepDialog implements StepDialogInterfa
   private CCombo m_avroFieldNameText;
 
   private Button m_jsonEncodedBut;
+  private Button m_splitAcrossCopiesBut;
 
   private Button m_missingFieldsBut;
   private Button m_getFields;
@@ -376,6 +381,31 @@ public class AvroInputDialog extends BaseStepDialog implements StepDialogInterfa
       }
     } );
 
+    // split across copies check box
+    Label splitL = new Label( wSourceComp, SWT.RIGHT );
+    props.setLook( splitL );
+    splitL.setText( BaseMessages.getString( PKG, "AvroInputDialog.SplitAcrossCopies.Label" ) );
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( m_jsonEncodedBut, margin );
+    fd.right = new FormAttachment( middle, -margin );
+    splitL.setLayoutData( fd );
+    splitL.setToolTipText( BaseMessages.getString( PKG, "AvroInputDialog.SplitAcrossCopies.TipText" ) );
+
+    m_splitAcrossCopiesBut = new Button( wSourceComp, SWT.CHECK );
+    props.setLook( m_splitAcrossCopiesBut );
+    fd = new FormData();
+    fd.right = new FormAttachment( 100, 0 );
+    fd.left = new FormAttachment( middle, 0 );
+    fd.top = new FormAttachment( m_jsonEncodedBut, margin );
+    m_splitAcrossCopiesBut.setLayoutData( fd );
+    m_splitAcrossCopiesBut.addSelectionListener( new SelectionAdapter() {
+      @Override
+      public void widgetSelected( SelectionEvent e ) {
+        m_currentMeta.setChanged();
+      }
+    } );
+
     fd = new FormData();
     fd.left = new FormAttachment( 0, 0 );
     fd.top = new FormAttachment( 0, 0 );
@@ -564,6 +594,56 @@ public class AvroInputDialog extends BaseStepDialog implements StepDialogInterfa
     fd.right = new FormAttachment( 100, 0 );
     m_schemaFieldNameText.setLayoutData( fd );
 
+    // schema registry wire format line
+    m_wireFormatL = new Label( wSchemaComp, SWT.RIGHT );
+    props.setLook( m_wireFormatL );
+    m_wireFormatL.setText( BaseMessages.getString( PKG, "AvroInputDialog.SchemaRegistryWireFormat.Label" ) );
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( m_schemaFieldNameText, margin );
+    fd.right = new FormAttachment( middle, -margin );
+    m_wireFormatL.setLayoutData( fd );
+
+    m_wireFormatBut = new Button( wSchemaComp, SWT.CHECK );
+    props.setLook( m_wireFormatBut );
+    fd = new FormData();
+    fd.right = new FormAttachment( 100, 0 );
+    fd.left = new FormAttachment( middle, 0 );
+    fd.top = new FormAttachment( m_schemaFieldNameText, margin );
+    m_wireFormatBut.setLayoutData( fd );
+
+    m_wireFormatBut.addSelectionListener( new SelectionAdapter() {
+      @Override
+      public void widgetSelected( SelectionEvent e ) {
+        m_currentMeta.setChanged();
+        checkWidgets();
+      }
+    } );
+
+    // schema registry line
+    m_schemaRegistryL = new Label( wSchemaComp, SWT.RIGHT );
+    props.setLook( m_schemaRegistryL );
+    m_schemaRegistryL.setText( BaseMessages.getString( PKG, "AvroInputDialog.SchemaRegistry.Label" ) );
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( m_wireFormatBut, margin );
+    fd.right = new FormAttachment( middle, -margin );
+    m_schemaRegistryL.setLayoutData( fd );
+
+    m_schemaRegistryText = new TextVar( transMeta, wSchemaComp, SWT.SIMPLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( m_schemaRegistryText );
+    m_schemaRegistryText.addModifyListener( new ModifyListener() {
+      public void modifyText( ModifyEvent e ) {
+        m_currentMeta.setChanged();
+        m_schemaRegistryText.setToolTipText( transMeta.environmentSubstitute( m_schemaRegistryText.getText() ) );
+      }
+    } );
+    fd = new FormData();
+    fd.left = new FormAttachment( middle, 0 );
+    fd.top = new FormAttachment( m_wireFormatBut, margin );
+    fd.right = new FormAttachment( 100, 0 );
+    m_schemaRegistryText.setLayoutData( fd );
+
     fd = new FormData();
     fd.left = new FormAttachment( 0, 0 );
     fd.top = new FormAttachment( 0, 0 );
@@ -817,6 +897,7 @@ public class AvroInputDialog extends BaseStepDialog implements StepDialogInterfa
     avroMeta.setFilename( m_avroFilenameText.getText() );
     avroMeta.setSchemaFilename( m_schemaFilenameText.getText() );
     avroMeta.setAvroIsJsonEncoded( m_jsonEncodedBut.getSelection() );
+    avroMeta.setSplitAcrossCopies( m_splitAcrossCopiesBut.getSelection() );
     avroMeta.setAvroInField( m_sourceInFieldBut.getSelection() );
     avroMeta.setAvroFieldName( m_avroFieldNameText.getText() );
 
@@ -824,6 +905,8 @@ public class AvroInputDialog extends BaseStepDialog implements StepDialogInterfa
     avroMeta.setSchemaInFieldIsPath( m_schemaInFieldIsPathBut.getSelection() );
     avroMeta.setCacheSchemasInMemory( m_cacheSchemasBut.getSelection() );
     avroMeta.setSchemaFieldName( m_schemaFieldNameText.getText() );
+    avroMeta.setSchemaRegistryWireFormat( m_wireFormatBut.getSelection() );
+    avroMeta.setSchemaRegistry( m_schemaRegistryText.getText() );
     avroMeta.setDontComplainAboutMissingFields( m_missingFieldsBut.getSelection() );
 
     int numNonEmpty = m_fieldsView.nrNonEmpty();
@@ -969,6 +1052,7 @@ public class AvroInputDialog extends BaseStepDialog implements StepDialogInterfa
     }
 
     m_jsonEncodedBut.setSelection( m_currentMeta.getAvroIsJsonEncoded() );
+    m_splitAcrossCopiesBut.setSelection( m_currentMeta.getSplitAcrossCopies() );
     m_sourceInFieldBut.setSelection( m_currentMeta.getAvroInField() );
     if ( !m_currentMeta.getAvroInField() ) {
       m_sourceInFileBut.setSelection( true );
@@ -981,6 +1065,10 @@ public class AvroInputDialog extends BaseStepDialog implements StepDialogInterfa
     if ( !Const.isEmpty( m_currentMeta.getSchemaFieldName() ) ) {
       m_schemaFieldNameText.setText( m_currentMeta.getSchemaFieldName() );
     }
+    m_wireFormatBut.setSelection( m_currentMeta.getSchemaRegistryWireFormat() );
+    if ( !Const.isEmpty( m_currentMeta.getSchemaRegistry() ) ) {
+      m_schemaRegistryText.setText( m_currentMeta.getSchemaRegistry() );
+    }
 
     // fields
     if ( m_currentMeta.getAvroFields() != null && m_currentMeta.getAvroFields().size() > 0 ) {
@@ -1006,6 +1094,7 @@ public class AvroInputDialog extends BaseStepDialog implements StepDialogInterfa
     }
     m_avroFilenameText.setEnabled( !sifield );
     m_avroFileBrowse.setEnabled( !sifield );
+    m_splitAcrossCopiesBut.setEnabled( !sifield );
 
     m_avroFieldNameText.setEnabled( sifield );
     // }
@@ -1014,8 +1103,19 @@ public class AvroInputDialog extends BaseStepDialog implements StepDialogInterfa
 
     if ( sifile ) {
       m_schemaInFieldBut.setSelection( false );
+      m_wireFormatBut.setSelection( false );
+    }
+    m_wireFormatL.setEnabled( !sifile );
+    m_wireFormatBut.setEnabled( !sifile );
+
+    // the schema id in the wire format replaces the schema in a field
+    boolean wireFormat = m_wireFormatBut.getSelection();
+    if ( wireFormat ) {
+      m_schemaInFieldBut.setSelection( false );
     }
-    m_schemaInFieldBut.setEnabled( !sifile );
+    m_schemaInFieldBut.setEnabled( !sifile && !wireFormat );
+    m_schemaRegistryL.setEnabled( wireFormat );
+    m_schemaRegistryText.setEnabled( wireFormat );
 
     boolean sField = m_schemaInFieldBut.getSelection();
     m_schemaInFieldIsPathL.setEnabled( sField );
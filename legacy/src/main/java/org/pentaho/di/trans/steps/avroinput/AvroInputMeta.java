@@ -199,6 +199,22 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
     private ValueMeta m_tempValueMeta;
     private List<String> m_pathParts;
     private List<String> m_tempParts;
+    private AvroFieldAccessor m_accessor;
+
+    /**
+     * Copy the user-supplied name, path, type and indexed values. The copy has none of the state built by init(), so
+     * every step copy can compile and memoize its own accessor without sharing it with the other copies.
+     *
+     * @return a new, uninitialized field with the same definition
+     */
+    public AvroField copy() {
+      AvroField copy = new AvroField();
+      copy.m_fieldName = m_fieldName;
+      copy.m_fieldPath = m_fieldPath;
+      copy.m_kettleType = m_kettleType;
+      copy.m_indexedVals = m_indexedVals != null ? new ArrayList<String>( m_indexedVals ) : null;
+      return copy;
+    }
 
     /**
      * Initialize this field by parsing the path etc.
@@ -238,6 +254,7 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
       m_tempValueMeta = new ValueMeta();
       m_tempValueMeta.setType( ValueMeta.getType( m_kettleType ) );
       m_outputIndex = outputIndex;
+      m_accessor = new AvroFieldAccessor( this, m_pathParts, m_tempValueMeta.getType() );
     }
 
     /**
@@ -257,6 +274,37 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
       }
     }
 
+    /**
+     * Get the value for this path from a decoded Avro structure. Unlike the convertToKettleValue() methods this uses
+     * the compiled form of the path and does not need a prior call to reset().
+     *
+     * @param value
+     *          the Avro record, array or map to start from
+     * @param s
+     *          the schema of the value
+     * @param defaultSchema
+     *          the default schema to take default values from
+     * @param space
+     *          environment variables (values that environment variables resolve to cannot contain "."s)
+     * @param ignoreMissing
+     *          true if null is to be returned for user fields that don't appear in the schema
+     * @return the field value or null for out-of-bounds array indexes, non-existent map keys or unsupported avro types.
+     * @throws KettleException
+     *           if a problem occurs
+     */
+    public Object extractKettleValue( Object value, Schema s, Schema defaultSchema, VariableSpace space,
+        boolean ignoreMissing ) throws KettleException {
+      return m_accessor.extract( value, s, defaultSchema, space, ignoreMissing );
+    }
+
+    AvroFieldAccessor.PathStep[] newAccessorSteps() {
+      return m_accessor.newSteps();
+    }
+
+    void useAccessorSteps( AvroFieldAccessor.PathStep[] steps ) {
+      m_accessor.useSteps( steps );
+    }
+
     /**
      * Perform Kettle type conversions for the Avro leaf field value.
      *
@@ -671,6 +719,13 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
   @Injection( name = "IS_JSON_ENCODED" )
   protected boolean m_isJsonEncoded = false;
 
+  /**
+   * True if several copies of the step should each read their own range of blocks from the same container file
+   * (otherwise every copy reads the whole file)
+   */
+  @Injection( name = "SPLIT_ACROSS_COPIES" )
+  protected boolean m_splitAcrossCopies;
+
   /** True if the avro to be decoded is contained in an incoming field */
   @Injection( name = "AVRO_INFIELD" )
   protected boolean m_avroInField = false;
@@ -706,6 +761,19 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
   @Injection( name = "CACHE_SCHEMAS_IN_MEMORY" )
   protected boolean m_cacheSchemasInMemory;
 
+  /**
+   * True if the incoming values are in the schema registry wire format (magic byte and schema id ahead of the datum)
+   */
+  @Injection( name = "SCHEMA_REGISTRY_WIRE_FORMAT" )
+  protected boolean m_schemaRegistryWireFormat;
+
+  /**
+   * The schema registry to resolve schema ids with - either the url of a registry service or a directory of schema
+   * files named after their ids
+   */
+  @Injection( name = "SCHEMA_REGISTRY" )
+  protected String m_schemaRegistry;
+
   /**
    * True if null should be output if a specified field is not present in the Avro schema (otherwise an exception is
    * raised)
@@ -835,6 +903,44 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
     return m_cacheSchemasInMemory;
   }
 
+  /**
+   * Set whether the incoming values are in the schema registry wire format.
+   *
+   * @param w
+   *          true if the incoming values start with a magic byte and schema id
+   */
+  public void setSchemaRegistryWireFormat( boolean w ) {
+    m_schemaRegistryWireFormat = w;
+  }
+
+  /**
+   * Get whether the incoming values are in the schema registry wire format.
+   *
+   * @return true if the incoming values start with a magic byte and schema id
+   */
+  public boolean getSchemaRegistryWireFormat() {
+    return m_schemaRegistryWireFormat;
+  }
+
+  /**
+   * Set the schema registry to resolve schema ids with.
+   *
+   * @param r
+   *          the url of a registry service or a directory of schema files named after their ids
+   */
+  public void setSchemaRegistry( String r ) {
+    m_schemaRegistry = r;
+  }
+
+  /**
+   * Get the schema registry to resolve schema ids with.
+   *
+   * @return the url of a registry service or a directory of schema files named after their ids
+   */
+  public String getSchemaRegistry() {
+    return m_schemaRegistry;
+  }
+
   /**
    * Set the avro filename
    *
@@ -892,6 +998,25 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
     m_isJsonEncoded = j;
   }
 
+  /**
+   * Set whether copies of the step should split the blocks of a container file between them
+   *
+   * @param s
+   *          true if each copy should read only its own range of blocks
+   */
+  public void setSplitAcrossCopies( boolean s ) {
+    m_splitAcrossCopies = s;
+  }
+
+  /**
+   * Get whether copies of the step should split the blocks of a container file between them
+   *
+   * @return true if each copy should read only its own range of blocks
+   */
+  public boolean getSplitAcrossCopies() {
+    return m_splitAcrossCopies;
+  }
+
   /**
    * Set the Avro fields that will be extracted
    *
@@ -1098,6 +1223,7 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
     }
 
     retval.append( "\n    " ).append( XMLHandler.addTagValue( "json_encoded", m_isJsonEncoded ) );
+    retval.append( "\n    " ).append( XMLHandler.addTagValue( "split_across_copies", m_splitAcrossCopies ) );
 
     retval.append( "\n    " ).append( XMLHandler.addTagValue( "avro_in_field", m_avroInField ) );
 
@@ -1115,6 +1241,13 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
 
     retval.append( "\n    " ).append( XMLHandler.addTagValue( "cache_schemas", m_cacheSchemasInMemory ) );
 
+    retval.append( "\n    " ).append(
+        XMLHandler.addTagValue( "schema_registry_wire_format", m_schemaRegistryWireFormat ) );
+
+    if ( !Const.isEmpty( m_schemaRegistry ) ) {
+      retval.append( "\n    " ).append( XMLHandler.addTagValue( "schema_registry", m_schemaRegistry ) );
+    }
+
     retval.append( "\n    " ).append(
         XMLHandler.addTagValue( "ignore_missing_fields", m_dontComplainAboutMissingFields ) );
 
@@ -1172,6 +1305,11 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
       m_isJsonEncoded = jsonEnc.equalsIgnoreCase( "Y" );
     }
 
+    String splitAcrossCopies = XMLHandler.getTagValue( stepnode, "split_across_copies" );
+    if ( !Const.isEmpty( splitAcrossCopies ) ) {
+      m_splitAcrossCopies = splitAcrossCopies.equalsIgnoreCase( "Y" );
+    }
+
     String avroInField = XMLHandler.getTagValue( stepnode, "avro_in_field" );
     if ( !Const.isEmpty( avroInField ) ) {
       m_avroInField = avroInField.equalsIgnoreCase( "Y" );
@@ -1194,6 +1332,12 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
       m_cacheSchemasInMemory = cacheSchemas.equalsIgnoreCase( "Y" );
     }
 
+    String wireFormat = XMLHandler.getTagValue( stepnode, "schema_registry_wire_format" );
+    if ( !Const.isEmpty( wireFormat ) ) {
+      m_schemaRegistryWireFormat = wireFormat.equalsIgnoreCase( "Y" );
+    }
+    m_schemaRegistry = XMLHandler.getTagValue( stepnode, "schema_registry" );
+
     String ignoreMissing = XMLHandler.getTagValue( stepnode, "ignore_missing_fields" );
     if ( !Const.isEmpty( ignoreMissing ) ) {
       m_dontComplainAboutMissingFields = ignoreMissing.equalsIgnoreCase( "Y" );
@@ -1253,6 +1397,7 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
     m_schemaFilename = rep.getStepAttributeString( id_step, 0, "schema_filename" );
 
     m_isJsonEncoded = rep.getStepAttributeBoolean( id_step, 0, "json_encoded" );
+    m_splitAcrossCopies = rep.getStepAttributeBoolean( id_step, 0, "split_across_copies" );
 
     m_avroInField = rep.getStepAttributeBoolean( id_step, 0, "avro_in_field" );
     m_avroFieldName = rep.getStepAttributeString( id_step, 0, "avro_field_name" );
@@ -1261,6 +1406,8 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
     m_schemaFieldName = rep.getStepAttributeString( id_step, 0, "schema_field_name" );
     m_schemaInFieldIsPath = rep.getStepAttributeBoolean( id_step, 0, "schema_in_field_is_path" );
     m_cacheSchemasInMemory = rep.getStepAttributeBoolean( id_step, 0, "cache_schemas" );
+    m_schemaRegistryWireFormat = rep.getStepAttributeBoolean( id_step, 0, "schema_registry_wire_format" );
+    m_schemaRegistry = rep.getStepAttributeString( id_step, 0, "schema_registry" );
     m_dontComplainAboutMissingFields = rep.getStepAttributeBoolean( id_step, 0, "ignore_missing_fields" );
 
     int nrfields = rep.countNrStepAttributes( id_step, "field_name" );
@@ -1315,6 +1462,7 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
     }
 
     rep.saveStepAttribute( id_transformation, id_step, 0, "json_encoded", m_isJsonEncoded );
+    rep.saveStepAttribute( id_transformation, id_step, 0, "split_across_copies", m_splitAcrossCopies );
 
     rep.saveStepAttribute( id_transformation, id_step, 0, "avro_in_field", m_avroInField );
     if ( !Const.isEmpty( m_avroFieldName ) ) {
@@ -1327,6 +1475,11 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
     }
     rep.saveStepAttribute( id_transformation, id_step, 0, "schema_in_field_is_path", m_schemaInFieldIsPath );
     rep.saveStepAttribute( id_transformation, id_step, 0, "cache_schemas", m_cacheSchemasInMemory );
+    rep.saveStepAttribute( id_transformation, id_step, 0, "schema_registry_wire_format",
+        m_schemaRegistryWireFormat );
+    if ( !Const.isEmpty( m_schemaRegistry ) ) {
+      rep.saveStepAttribute( id_transformation, id_step, 0, "schema_registry", m_schemaRegistry );
+    }
     rep.saveStepAttribute( id_transformation, id_step, 0, "ignore_missing_fields", m_dontComplainAboutMissingFields );
 
     if ( m_fields != null && m_fields.size() > 0 ) {
@@ -0,0 +1,162 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avroinput;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.JsonDecoder;
+
+/**
+ * Bounded, least recently used cache of the schemas seen when decoding Avro from an incoming field. Entries are keyed
+ * by a 64-bit Rabin fingerprint of the schema key (the schema text or the path to the schema file), so the map can't
+ * grow beyond its limit on streams that carry many schema versions. Every entry keeps its key and a hit is only a hit
+ * when the keys are equal, two schemas that share a fingerprint just replace each other. Consecutive rows usually carry
+ * the same schema, so the last entry returned is checked first, without fingerprinting the key again.
+ */
+class AvroSchemaCache {
+
+  static final int DEFAULT_MAX_ENTRIES = 128;
+
+  /** Same polynomial as org.apache.avro.SchemaNormalization#fingerprint64 */
+  private static final long EMPTY = 0xc15d213aa4d7a795L;
+
+  private static final long[] FP_TABLE = new long[256];
+
+  static {
+    for ( int i = 0; i < 256; i++ ) {
+      long fp = i;
+      for ( int j = 0; j < 8; j++ ) {
+        fp = ( fp >>> 1 ) ^ ( EMPTY & -( fp & 1L ) );
+      }
+      FP_TABLE[i] = fp;
+    }
+  }
+
+  /**
+   * Everything needed to decode with a given schema: the parsed schema, a datum reader configured with it, the
+   * reusable top level structure, per field, the compiled path steps bound to this schema and a reusable JSON decoder.
+   */
+  static final class Entry {
+    final Schema m_schema;
+    final GenericDatumReader m_datumReader;
+    final Object m_topLevel;
+    final AvroFieldAccessor.PathStep[][] m_fieldSteps;
+
+    /** JSON decoder for the schema, created when the first JSON encoded value is decoded with it */
+    JsonDecoder m_jsonDecoder;
+
+    /** the schema key the entry was stored under */
+    String m_key;
+
+    Entry( Schema schema, GenericDatumReader datumReader, Object topLevel, AvroFieldAccessor.PathStep[][] fieldSteps ) {
+      m_schema = schema;
+      m_datumReader = datumReader;
+      m_topLevel = topLevel;
+      m_fieldSteps = fieldSteps;
+    }
+  }
+
+  private final Map<Long, Entry> m_entries;
+
+  private Entry m_last;
+
+  private long m_hits;
+  private long m_misses;
+  private long m_evictions;
+
+  AvroSchemaCache() {
+    this( DEFAULT_MAX_ENTRIES );
+  }
+
+  AvroSchemaCache( final int maxEntries ) {
+    m_entries = new LinkedHashMap<Long, Entry>( 16, 0.75f, true ) {
+      @Override
+      protected boolean removeEldestEntry( Map.Entry<Long, Entry> eldest ) {
+        if ( size() > maxEntries ) {
+          m_evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * @param key
+   *          the schema text or path
+   * @return the cached entry or null
+   */
+  Entry get( String key ) {
+    Entry last = m_last;
+    if ( last != null && ( last.m_key == key || last.m_key.equals( key ) ) ) {
+      m_hits++;
+      return last;
+    }
+    return get( key, fingerprint( key ) );
+  }
+
+  Entry get( String key, long fingerprint ) {
+    Entry entry = m_entries.get( fingerprint );
+    if ( entry == null || !entry.m_key.equals( key ) ) {
+      m_misses++;
+      return null;
+    }
+    m_hits++;
+    m_last = entry;
+    return entry;
+  }
+
+  void put( String key, Entry entry ) {
+    put( key, fingerprint( key ), entry );
+  }
+
+  void put( String key, long fingerprint, Entry entry ) {
+    entry.m_key = key;
+    m_entries.put( fingerprint, entry );
+    m_last = entry;
+  }
+
+  int size() {
+    return m_entries.size();
+  }
+
+  long getHits() {
+    return m_hits;
+  }
+
+  long getMisses() {
+    return m_misses;
+  }
+
+  long getEvictions() {
+    return m_evictions;
+  }
+
+  /**
+   * 64-bit Rabin fingerprint of the UTF-16 code units of the key. Computed directly from the characters so that no
+   * byte array has to be encoded for every row.
+   */
+  static long fingerprint( String key ) {
+    long fp = EMPTY;
+    for ( int i = 0; i < key.length(); i++ ) {
+      char c = key.charAt( i );
+      fp = ( fp >>> 8 ) ^ FP_TABLE[(int) ( fp ^ ( c & 0xff ) ) & 0xff];
+      fp = ( fp >>> 8 ) ^ FP_TABLE[(int) ( fp ^ ( c >>> 8 ) ) & 0xff];
+    }
+    return fp;
+  }
+}
@@ -0,0 +1,176 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avroinput;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.avro.Schema;
+import org.pentaho.di.core.Const;
+
+/**
+ * Derives a reader schema that only contains the parts of a schema that the user's field paths refer to. Reading with
+ * such a schema makes Avro's resolving decoder skip every other field in the binary data instead of materializing it.
+ * <p>
+ * Records that are reachable through a kept field but not referenced by any path (e.g. other branches of a union) are
+ * kept with no fields so that schema resolution still matches them by name. Paths that use variables or that don't
+ * follow the structure of the schema disable the projection altogether, so that the data is read exactly as before.
+ */
+class AvroSchemaProjection {
+
+  private AvroSchemaProjection() {
+  }
+
+  /**
+   * Project a schema down to the fields used by the supplied paths.
+   *
+   * @param schema
+   *          the full schema
+   * @param fields
+   *          the user-defined fields
+   * @return the projected schema, or null if the full schema has to be used
+   */
+  static Schema project( Schema schema, List<AvroInputMeta.AvroField> fields ) {
+    if ( schema == null || fields == null || fields.isEmpty() ) {
+      return null;
+    }
+
+    Map<String, Set<String>> needed = new HashMap<String, Set<String>>();
+    for ( AvroInputMeta.AvroField f : fields ) {
+      List<AvroFieldAccessor.PathStep> steps = compile( f.m_fieldPath );
+      if ( steps == null || !mark( schema, steps, 0, needed ) ) {
+        return null;
+      }
+    }
+
+    Schema projected = build( schema, needed, new HashMap<String, Schema>() );
+    return projected.equals( schema ) ? null : projected;
+  }
+
+  private static List<AvroFieldAccessor.PathStep> compile( String fieldPath ) {
+    if ( Const.isEmpty( fieldPath ) ) {
+      return null;
+    }
+    String path = AvroInputData.cleansePath( fieldPath );
+    if ( path.contains( "${" ) || path.contains( "%%" ) ) {
+      return null;
+    }
+
+    List<String> parts = new ArrayList<String>();
+    Collections.addAll( parts, path.split( "\\." ) );
+    if ( parts.get( 0 ).equals( "$" ) ) {
+      parts.remove( 0 ); // root record indicator
+    } else if ( parts.get( 0 ).startsWith( "$[" ) ) {
+      parts.set( 0, parts.get( 0 ).substring( 1 ) );
+    }
+
+    List<AvroFieldAccessor.PathStep> steps = new ArrayList<AvroFieldAccessor.PathStep>();
+    try {
+      for ( String part : parts ) {
+        AvroFieldAccessor.tokenize( part, steps );
+      }
+    } catch ( IllegalArgumentException e ) {
+      return null;
+    }
+    return steps;
+  }
+
+  private static boolean mark( Schema s, List<AvroFieldAccessor.PathStep> steps, int i,
+      Map<String, Set<String>> needed ) {
+    if ( i == steps.size() ) {
+      // the path has to end at a leaf, otherwise let the decoding report the problem
+      return s.getType() != Schema.Type.RECORD && s.getType() != Schema.Type.ARRAY
+          && s.getType() != Schema.Type.MAP;
+    }
+
+    AvroFieldAccessor.PathStep step = steps.get( i );
+    switch ( s.getType() ) {
+      case RECORD:
+        if ( step.m_bracket ) {
+          return false;
+        }
+        Schema.Field field = s.getField( step.m_text );
+        if ( field == null ) {
+          // not in the data either, so there is nothing to keep
+          return true;
+        }
+        Set<String> names = needed.get( s.getFullName() );
+        if ( names == null ) {
+          names = new HashSet<String>();
+          needed.put( s.getFullName(), names );
+        }
+        names.add( field.name() );
+        return mark( field.schema(), steps, i + 1, needed );
+      case ARRAY:
+        return step.m_bracket && mark( s.getElementType(), steps, i + 1, needed );
+      case MAP:
+        return step.m_bracket && mark( s.getValueType(), steps, i + 1, needed );
+      case UNION:
+        boolean ok = true;
+        for ( Schema branch : s.getTypes() ) {
+          boolean container = branch.getType() == Schema.Type.ARRAY || branch.getType() == Schema.Type.MAP;
+          if ( step.m_bracket ? container : branch.getType() == Schema.Type.RECORD ) {
+            ok &= mark( branch, steps, i, needed );
+          }
+        }
+        return ok;
+      default:
+        // remaining path parts are ignored once a primitive is reached
+        return true;
+    }
+  }
+
+  private static Schema build( Schema s, Map<String, Set<String>> needed, Map<String, Schema> projectedRecords ) {
+    switch ( s.getType() ) {
+      case RECORD:
+        Schema projected = projectedRecords.get( s.getFullName() );
+        if ( projected != null ) {
+          return projected;
+        }
+        projected = Schema.createRecord( s.getName(), s.getDoc(), s.getNamespace(), s.isError() );
+        for ( String alias : s.getAliases() ) {
+          projected.addAlias( alias );
+        }
+        // register before descending so that recursive types refer to the same projection
+        projectedRecords.put( s.getFullName(), projected );
+
+        Set<String> keep = needed.get( s.getFullName() );
+        List<Schema.Field> fields = new ArrayList<Schema.Field>();
+        for ( Schema.Field f : s.getFields() ) {
+          if ( keep != null && keep.contains( f.name() ) ) {
+            fields.add( new Schema.Field( f, build( f.schema(), needed, projectedRecords ) ) );
+          }
+        }
+        projected.setFields( fields );
+        return projected;
+      case UNION:
+        List<Schema> branches = new ArrayList<Schema>();
+        for ( Schema branch : s.getTypes() ) {
+          branches.add( build( branch, needed, projectedRecords ) );
+        }
+        return Schema.createUnion( branches );
+      case ARRAY:
+        return Schema.createArray( build( s.getElementType(), needed, projectedRecords ) );
+      case MAP:
+        return Schema.createMap( build( s.getValueType(), needed, projectedRecords ) );
+      default:
+        return s;
+    }
+  }
+}
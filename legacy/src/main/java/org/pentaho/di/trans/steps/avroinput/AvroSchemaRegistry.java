@@ -0,0 +1,42 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avroinput;
+
+import org.apache.avro.Schema;
+import org.pentaho.di.core.exception.KettleException;
+
+/**
+ * Resolves the writer schema of Avro values encoded in the schema registry wire format: a zero magic byte followed by
+ * the four byte big-endian id of the schema and the binary encoded datum. Schemas are looked up once per id and then
+ * cached by AvroInputData, so implementations don't need to cache themselves.
+ */
+public interface AvroSchemaRegistry {
+
+  /** The first byte of every value in the wire format */
+  byte MAGIC_BYTE = 0;
+
+  /** Length of the magic byte and schema id that precede the datum */
+  int HEADER_LENGTH = 5;
+
+  /**
+   * Get the schema registered under an id.
+   *
+   * @param id
+   *          the schema id
+   * @return the schema
+   * @throws KettleException
+   *           if the schema can't be found or loaded
+   */
+  Schema getSchema( int id ) throws KettleException;
+}
@@ -0,0 +1,45 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avroinput;
+
+import org.apache.avro.Schema;
+import org.pentaho.di.core.bowl.Bowl;
+import org.pentaho.di.core.exception.KettleException;
+
+/**
+ * Schema registry stand-in that reads the schema for id n from the file n.avsc in a directory. Useful for tests and
+ * for installations that can't reach a registry service: the schemas can be exported once and shipped with the
+ * transformation.
+ */
+public class FileAvroSchemaRegistry implements AvroSchemaRegistry {
+
+  private final Bowl m_bowl;
+  private final String m_directory;
+
+  /**
+   * @param bowl
+   *          the bowl to resolve the directory with
+   * @param directory
+   *          VFS path of the directory holding the schema files
+   */
+  public FileAvroSchemaRegistry( Bowl bowl, String directory ) {
+    m_bowl = bowl;
+    m_directory = directory.endsWith( "/" ) ? directory.substring( 0, directory.length() - 1 ) : directory;
+  }
+
+  @Override
+  public Schema getSchema( int id ) throws KettleException {
+    return AvroInputData.loadSchema( m_bowl, m_directory + "/" + id + ".avsc" );
+  }
+}
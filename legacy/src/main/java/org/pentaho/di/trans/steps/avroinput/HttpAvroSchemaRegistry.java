@@ -0,0 +1,81 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avroinput;
+
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.util.HttpClientManager;
+import org.pentaho.di.i18n.BaseMessages;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Client for the REST interface of a schema registry service. The schema for an id is fetched from
+ * {url}/schemas/ids/{id}, which answers with a JSON object holding the schema text in its "schema" property.
+ */
+public class HttpAvroSchemaRegistry implements AvroSchemaRegistry {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final String m_url;
+  private HttpClient m_client;
+
+  /**
+   * @param url
+   *          the base url of the registry
+   */
+  public HttpAvroSchemaRegistry( String url ) {
+    m_url = url.endsWith( "/" ) ? url.substring( 0, url.length() - 1 ) : url;
+  }
+
+  @Override
+  public Schema getSchema( int id ) throws KettleException {
+    String url = m_url + "/schemas/ids/" + id;
+    HttpGet get = new HttpGet( url );
+    try {
+      HttpResponse response = getClient().execute( get );
+      String body = response.getEntity() != null ? EntityUtils.toString( response.getEntity(), "UTF-8" ) : "";
+      int status = response.getStatusLine().getStatusCode();
+      if ( status < 200 || status >= 300 ) {
+        throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG,
+            "AvroInput.Error.SchemaRegistryRequestFailed", url, status, body ) );
+      }
+      JsonNode schema = MAPPER.readTree( body ).get( "schema" );
+      if ( schema == null ) {
+        throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG,
+            "AvroInput.Error.SchemaRegistryRequestFailed", url, status, body ) );
+      }
+      return new Schema.Parser().parse( schema.asText() );
+    } catch ( IOException e ) {
+      throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG,
+          "AvroInput.Error.SchemaRegistryUnreachable", url ), e );
+    } finally {
+      get.releaseConnection();
+    }
+  }
+
+  private HttpClient getClient() {
+    if ( m_client == null ) {
+      m_client = HttpClientManager.getInstance().createDefaultClient();
+    }
+    return m_client;
+  }
+}
@@ -0,0 +1,82 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avroinput;
+
+import java.io.IOException;
+
+import org.apache.avro.file.SeekableInput;
+import org.apache.commons.vfs2.Capability;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.RandomAccessContent;
+import org.apache.commons.vfs2.util.RandomAccessMode;
+
+/**
+ * Avro SeekableInput backed by the random access content of a VFS file, so that a DataFileReader can jump to the
+ * sync marker at the start of a split.
+ */
+class VfsSeekableInput implements SeekableInput {
+
+  private final RandomAccessContent m_content;
+  private final long m_length;
+
+  VfsSeekableInput( RandomAccessContent content ) throws IOException {
+    m_content = content;
+    m_length = content.length();
+  }
+
+  /**
+   * @param file
+   *          the file to open
+   * @return a seekable input for the file or null if the file system it lives on doesn't support random access reads
+   * @throws IOException
+   *           if a problem occurs
+   */
+  static VfsSeekableInput open( FileObject file ) throws IOException {
+    if ( !file.getFileSystem().hasCapability( Capability.RANDOM_ACCESS_READ ) ) {
+      return null;
+    }
+    return new VfsSeekableInput( file.getContent().getRandomAccessContent( RandomAccessMode.READ ) );
+  }
+
+  @Override
+  public void seek( long p ) throws IOException {
+    m_content.seek( p );
+  }
+
+  @Override
+  public long tell() throws IOException {
+    return m_content.getFilePointer();
+  }
+
+  @Override
+  public long length() {
+    return m_length;
+  }
+
+  @Override
+  public int read( byte[] b, int off, int len ) throws IOException {
+    long remaining = m_length - m_content.getFilePointer();
+    if ( remaining <= 0 ) {
+      return -1;
+    }
+    int n = (int) Math.min( len, remaining );
+    m_content.readFully( b, off, n );
+    return n;
+  }
+
+  @Override
+  public void close() throws IOException {
+    m_content.close();
+  }
+}
@@ -0,0 +1,170 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avrooutput;
+
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.vfs.IKettleVFS;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+
+/**
+ * Class providing an output step for writing rows to Avro container files. The rows are passed on unchanged.
+ */
+public class AvroOutput extends BaseStep implements StepInterface {
+
+  protected AvroOutputMeta m_meta;
+  protected AvroOutputData m_data;
+
+  protected long m_splitEvery;
+
+  /** The file being written, until it is complete */
+  protected FileObject m_openFile;
+
+  public AvroOutput(
+      StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta, Trans trans ) {
+
+    super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
+  }
+
+  @Override
+  public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
+    m_meta = (AvroOutputMeta) smi;
+    m_data = (AvroOutputData) sdi;
+
+    Object[] currentRow = getRow();
+
+    if ( currentRow == null ) {
+      try {
+        m_data.close();
+        m_openFile = null;
+      } catch ( IOException ex ) {
+        throw new KettleException( ex.getMessage(), ex );
+      }
+      setOutputDone();
+      return false;
+    }
+
+    if ( first ) {
+      first = false;
+
+      if ( Const.isEmpty( m_meta.getFilename() ) ) {
+        throw new KettleException(
+            BaseMessages.getString( AvroOutputMeta.PKG, "AvroOutput.Error.NoFilenameSpecified" ) );
+      }
+
+      Schema schema =
+          AvroOutputData.createSchema( getInputRowMeta(), environmentSubstitute( m_meta.getRecordName() ),
+              environmentSubstitute( m_meta.getNamespace() ) );
+      m_splitEvery = Const.toLong( environmentSubstitute( m_meta.getSplitEvery() ), 0 );
+
+      m_data.init( getInputRowMeta(), schema, AvroOutputData.getCodec( environmentSubstitute( m_meta.getCodec() ) ),
+          Const.toInt( environmentSubstitute( m_meta.getSyncInterval() ),
+              ParallelDataFileWriter.DEFAULT_SYNC_INTERVAL ),
+          Const.toInt( environmentSubstitute( m_meta.getBlockSize() ), 0 ),
+          Const.toInt( environmentSubstitute( m_meta.getCompressionThreads() ),
+              AvroOutputMeta.DEFAULT_COMPRESSION_THREADS ), m_splitEvery );
+    }
+
+    try {
+      if ( m_data.needsNewFile() ) {
+        openNextFile();
+      }
+      m_data.writeRow( currentRow );
+    } catch ( IOException ex ) {
+      throw new KettleException( ex.getMessage(), ex );
+    }
+
+    putRow( getInputRowMeta(), currentRow );
+
+    if ( log.isRowLevel() ) {
+      log.logRowlevel( toString(), "Written row #" + getLinesOutput() + " : "
+          + getInputRowMeta().getString( currentRow ) );
+    }
+    incrementLinesOutput();
+
+    if ( checkFeedback( getLinesOutput() ) ) {
+      logBasic( BaseMessages.getString( AvroOutputMeta.PKG, "AvroOutput.Message.CheckFeedback", getLinesOutput() ) );
+    }
+
+    return true;
+  }
+
+  protected void openNextFile() throws KettleException, IOException {
+    // every copy writes files of its own
+    String filename =
+        AvroOutputData.buildFilename( environmentSubstitute( m_meta.getFilename() ),
+            environmentSubstitute( m_meta.getExtension() ), getUniqueStepNrAcrossSlaves(),
+            getUniqueStepCountAcrossSlaves(), m_data.getFileCount(), m_splitEvery > 0 );
+
+    IKettleVFS vfs = KettleVFS.getInstance( getTransMeta().getBowl() );
+    FileObject file = vfs.getFileObject( filename, getTransMeta() );
+    FileObject parent = file.getParent();
+    if ( parent != null && !parent.exists() ) {
+      parent.createFolder();
+    }
+
+    logBasic( BaseMessages.getString( AvroOutputMeta.PKG, "AvroOutput.Message.OpeningFile", filename ) );
+    m_data.openFile( vfs.getOutputStream( file, false ) );
+    m_openFile = file;
+  }
+
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    AvroOutputData data = (AvroOutputData) sdi;
+    try {
+      if ( getErrors() > 0 || isStopped() ) {
+        // the rows didn't all arrive: drop the blocks still being compressed and the incomplete file
+        try {
+          data.abort();
+        } finally {
+          deleteOpenFile();
+        }
+      } else {
+        data.close();
+      }
+    } catch ( IOException ex ) {
+      logError( ex.getMessage(), ex );
+    }
+    super.dispose( smi, sdi );
+  }
+
+  protected void deleteOpenFile() {
+    if ( m_openFile == null ) {
+      return;
+    }
+    FileObject file = m_openFile;
+    m_openFile = null;
+    try {
+      if ( file.exists() ) {
+        file.delete();
+        logBasic( BaseMessages.getString( AvroOutputMeta.PKG, "AvroOutput.Message.DeletedIncompleteFile",
+            file.getName().getFriendlyURI() ) );
+      }
+    } catch ( IOException ex ) {
+      logError( ex.getMessage(), ex );
+    }
+  }
+}
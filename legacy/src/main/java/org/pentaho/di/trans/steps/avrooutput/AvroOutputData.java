@@ -0,0 +1,387 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avrooutput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.JsonProperties;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.generic.GenericData;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.step.BaseStepData;
+import org.pentaho.di.trans.step.StepDataInterface;
+
+/**
+ * Data class for the AvroOutput step. Generates the record schema from the incoming row structure, converts rows to
+ * records and keeps track of the file currently being written.
+ */
+public class AvroOutputData extends BaseStepData implements StepDataInterface {
+
+  private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+  /** The incoming row structure */
+  protected RowMetaInterface m_inputRowMeta;
+
+  /** The schema generated from the incoming row structure */
+  protected Schema m_schema;
+
+  /** Record reused for every row - it is serialized before the next row is converted */
+  protected GenericData.Record m_record;
+
+  protected CodecFactory m_codec;
+  protected int m_syncInterval;
+  protected int m_blockSize;
+  protected long m_splitEvery;
+
+  protected int m_compressionThreads;
+  protected ExecutorService m_pool;
+
+  /** The writer of the file currently open */
+  protected ParallelDataFileWriter m_writer;
+
+  /** Number of files opened so far */
+  protected int m_fileCount;
+
+  /**
+   * Initialize for writing rows with the supplied structure.
+   *
+   * @param inputRowMeta
+   *          the structure of the incoming rows
+   * @param schema
+   *          the schema to write records with (see {@link #createSchema})
+   * @param codec
+   *          the codec to compress blocks with
+   * @param syncInterval
+   *          approximate number of uncompressed bytes per block
+   * @param blockSize
+   *          maximum number of rows per block (0 for no limit)
+   * @param compressionThreads
+   *          number of threads compressing blocks (0 to compress on the step thread)
+   * @param splitEvery
+   *          number of rows after which a new file is needed (0 for a single file)
+   */
+  public void init( RowMetaInterface inputRowMeta, Schema schema, CodecFactory codec, int syncInterval,
+      int blockSize, int compressionThreads, long splitEvery ) {
+    m_inputRowMeta = inputRowMeta;
+    m_schema = schema;
+    m_record = new GenericData.Record( schema );
+    m_codec = codec;
+    m_syncInterval = syncInterval;
+    m_blockSize = blockSize;
+    m_splitEvery = splitEvery;
+    m_compressionThreads = compressionThreads;
+
+    if ( compressionThreads > 0 ) {
+      final int poolId = POOL_COUNTER.incrementAndGet();
+      final AtomicInteger threadCounter = new AtomicInteger();
+      m_pool = Executors.newFixedThreadPool( compressionThreads, new ThreadFactory() {
+        @Override
+        public Thread newThread( Runnable runnable ) {
+          Thread thread =
+              new Thread( runnable, "AvroOutput-compress-" + poolId + "-" + threadCounter.incrementAndGet() );
+          thread.setDaemon( true );
+          return thread;
+        }
+      } );
+    }
+  }
+
+  /**
+   * @return the schema records are written with
+   */
+  public Schema getSchema() {
+    return m_schema;
+  }
+
+  /**
+   * @return true if there is no file open or the open one has had all the rows it should get
+   */
+  public boolean needsNewFile() {
+    return m_writer == null || ( m_splitEvery > 0 && m_writer.getRecordCount() >= m_splitEvery );
+  }
+
+  /**
+   * @return the number of files opened so far
+   */
+  public int getFileCount() {
+    return m_fileCount;
+  }
+
+  /**
+   * Start a new container file on the supplied stream. Any file currently open is closed first.
+   *
+   * @param out
+   *          the stream to write to
+   * @throws IOException
+   *           if a problem occurs
+   */
+  public void openFile( OutputStream out ) throws IOException {
+    closeFile();
+
+    m_writer = new ParallelDataFileWriter( m_schema, m_codec, m_syncInterval, m_blockSize, m_pool,
+        m_compressionThreads );
+    m_fileCount++;
+    m_writer.create( out );
+  }
+
+  /**
+   * Convert a row to a record and append it to the open file.
+   *
+   * @param row
+   *          the row to write
+   * @throws KettleException
+   *           if a value can't be converted
+   * @throws IOException
+   *           if a problem occurs writing the record
+   */
+  public void writeRow( Object[] row ) throws KettleException, IOException {
+    for ( int i = 0; i < m_inputRowMeta.size(); i++ ) {
+      m_record.put( i, kettleToAvro( m_inputRowMeta.getValueMeta( i ), row[i] ) );
+    }
+    m_writer.append( m_record );
+  }
+
+  /**
+   * Close the file currently open (if any).
+   *
+   * @throws IOException
+   *           if a problem occurs writing the remaining blocks
+   */
+  public void closeFile() throws IOException {
+    if ( m_writer != null ) {
+      ParallelDataFileWriter writer = m_writer;
+      m_writer = null;
+      writer.close();
+    }
+  }
+
+  /**
+   * Close the file currently open (if any) and stop the compression threads.
+   *
+   * @throws IOException
+   *           if a problem occurs writing the remaining blocks
+   */
+  public void close() throws IOException {
+    try {
+      closeFile();
+    } finally {
+      if ( m_pool != null ) {
+        m_pool.shutdownNow();
+        m_pool = null;
+      }
+    }
+  }
+
+  /**
+   * Drop the file currently open (if any) without writing its remaining blocks, and stop the compression threads. The
+   * incomplete file is left for the caller to delete.
+   *
+   * @throws IOException
+   *           if the file can't be closed
+   */
+  public void abort() throws IOException {
+    try {
+      if ( m_writer != null ) {
+        ParallelDataFileWriter writer = m_writer;
+        m_writer = null;
+        writer.abort();
+      }
+    } finally {
+      if ( m_pool != null ) {
+        m_pool.shutdownNow();
+        m_pool = null;
+      }
+    }
+  }
+
+  protected static Object kettleToAvro( ValueMetaInterface vm, Object value ) throws KettleException {
+    if ( vm.isNull( value ) ) {
+      return null;
+    }
+
+    switch ( vm.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        return vm.getInteger( value );
+      case ValueMetaInterface.TYPE_NUMBER:
+        return vm.getNumber( value );
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return vm.getBoolean( value );
+      case ValueMetaInterface.TYPE_DATE:
+      case ValueMetaInterface.TYPE_TIMESTAMP:
+        return vm.getDate( value ).getTime();
+      case ValueMetaInterface.TYPE_BINARY:
+        return ByteBuffer.wrap( vm.getBinary( value ) );
+      default:
+        return vm.getString( value );
+    }
+  }
+
+  /**
+   * Generate a record schema from a row structure. Every field becomes a nullable field of the record; dates and
+   * timestamps are written as timestamp-millis and big numbers as strings so that no precision is lost.
+   *
+   * @param rowMeta
+   *          the row structure
+   * @param recordName
+   *          the name of the record
+   * @param namespace
+   *          the namespace of the record (may be empty)
+   * @return the schema
+   * @throws KettleException
+   *           if the names of two fields are the same once made valid Avro names
+   */
+  public static Schema createSchema( RowMetaInterface rowMeta, String recordName, String namespace )
+    throws KettleException {
+    List<Schema.Field> fields = new ArrayList<Schema.Field>();
+    Set<String> names = new HashSet<String>();
+
+    for ( ValueMetaInterface vm : rowMeta.getValueMetaList() ) {
+      String name = toAvroName( vm.getName() );
+      if ( !names.add( name ) ) {
+        throw new KettleException( BaseMessages.getString( AvroOutputMeta.PKG, "AvroOutput.Error.DuplicateFieldName",
+            vm.getName(), name ) );
+      }
+
+      Schema type;
+      switch ( vm.getType() ) {
+        case ValueMetaInterface.TYPE_INTEGER:
+          type = Schema.create( Schema.Type.LONG );
+          break;
+        case ValueMetaInterface.TYPE_NUMBER:
+          type = Schema.create( Schema.Type.DOUBLE );
+          break;
+        case ValueMetaInterface.TYPE_BOOLEAN:
+          type = Schema.create( Schema.Type.BOOLEAN );
+          break;
+        case ValueMetaInterface.TYPE_DATE:
+        case ValueMetaInterface.TYPE_TIMESTAMP:
+          type = LogicalTypes.timestampMillis().addToSchema( Schema.create( Schema.Type.LONG ) );
+          break;
+        case ValueMetaInterface.TYPE_BINARY:
+          type = Schema.create( Schema.Type.BYTES );
+          break;
+        default:
+          type = Schema.create( Schema.Type.STRING );
+          break;
+      }
+
+      List<Schema> union = new ArrayList<Schema>();
+      union.add( Schema.create( Schema.Type.NULL ) );
+      union.add( type );
+      fields.add( new Schema.Field( name, Schema.createUnion( union ), null, JsonProperties.NULL_VALUE ) );
+    }
+
+    Schema schema =
+        Schema.createRecord( toAvroName( recordName ), null, Const.isEmpty( namespace ) ? null : namespace, false );
+    schema.setFields( fields );
+
+    return schema;
+  }
+
+  /**
+   * Turn a field name into a valid Avro name by replacing anything but letters, digits and underscores.
+   *
+   * @param name
+   *          the name
+   * @return a valid Avro name
+   */
+  public static String toAvroName( String name ) {
+    if ( Const.isEmpty( name ) ) {
+      return "_";
+    }
+
+    StringBuilder result = new StringBuilder( name.length() + 1 );
+    if ( !Character.isLetter( name.charAt( 0 ) ) && name.charAt( 0 ) != '_' ) {
+      result.append( '_' );
+    }
+    for ( int i = 0; i < name.length(); i++ ) {
+      char c = name.charAt( i );
+      result.append( c < 128 && Character.isLetterOrDigit( c ) ? c : '_' );
+    }
+
+    return result.toString();
+  }
+
+  /**
+   * Look up a codec by its Avro name ("null", "deflate", "snappy", "zstandard" etc.).
+   *
+   * @param name
+   *          the name of the codec
+   * @return the codec
+   * @throws KettleException
+   *           if there is no such codec
+   */
+  public static CodecFactory getCodec( String name ) throws KettleException {
+    if ( Const.isEmpty( name ) ) {
+      return CodecFactory.nullCodec();
+    }
+    try {
+      return CodecFactory.fromString( name.trim().toLowerCase() );
+    } catch ( AvroRuntimeException ex ) {
+      throw new KettleException( BaseMessages.getString( AvroOutputMeta.PKG, "AvroOutput.Error.UnknownCodec", name ),
+          ex );
+    }
+  }
+
+  /**
+   * Build the name of a file to write. The copy number is added when the step runs in more than one copy, so that the
+   * copies don't overwrite each other's files, and the file number is added when the output is split.
+   *
+   * @param filename
+   *          the file name without extension
+   * @param extension
+   *          the extension (may be empty)
+   * @param copyNr
+   *          the (unique) copy number of the step
+   * @param copies
+   *          the number of copies of the step
+   * @param fileNr
+   *          the zero-based number of the file
+   * @param split
+   *          true if the output is split over several files
+   * @return the file name
+   */
+  public static String buildFilename( String filename, String extension, int copyNr, int copies, int fileNr,
+      boolean split ) {
+    StringBuilder result = new StringBuilder( filename );
+    if ( copies > 1 ) {
+      result.append( '_' ).append( copyNr );
+    }
+    if ( split ) {
+      result.append( '_' ).append( fileNr );
+    }
+    if ( !Const.isEmpty( extension ) ) {
+      result.append( '.' ).append( extension );
+    }
+
+    return result.toString();
+  }
+}
@@ -0,0 +1,368 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avrooutput;
+
+import org.apache.commons.vfs2.FileObject;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.CCombo;
+import org.eclipse.swt.events.ModifyEvent;
+import org.eclipse.swt.events.ModifyListener;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.events.ShellAdapter;
+import org.eclipse.swt.events.ShellEvent;
+import org.eclipse.swt.layout.FormAttachment;
+import org.eclipse.swt.layout.FormData;
+import org.eclipse.swt.layout.FormLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.hadoop.HadoopSpoonPlugin;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.StepDialogInterface;
+import org.pentaho.di.trans.steps.textfileinput.TextFileInputMeta;
+import org.pentaho.di.ui.core.dialog.ErrorDialog;
+import org.pentaho.di.ui.core.widget.TextVar;
+import org.pentaho.di.ui.spoon.Spoon;
+import org.pentaho.di.ui.trans.step.BaseStepDialog;
+import org.pentaho.vfs.ui.VfsFileChooserDialog;
+
+/**
+ * Dialog for the Avro output step.
+ */
+public class AvroOutputDialog extends BaseStepDialog implements StepDialogInterface {
+
+  private static final Class<?> PKG = AvroOutputMeta.class;
+
+  private final AvroOutputMeta m_currentMeta;
+
+  private TextVar m_filenameText;
+  private Button m_fileBrowse;
+  private TextVar m_extensionText;
+  private CCombo m_codecCombo;
+  private TextVar m_syncIntervalText;
+  private TextVar m_blockSizeText;
+  private TextVar m_compressionThreadsText;
+  private TextVar m_splitEveryText;
+  private TextVar m_recordNameText;
+  private TextVar m_namespaceText;
+
+  private ModifyListener m_lsMod;
+  private int m_middle;
+  private int m_margin;
+
+  public AvroOutputDialog( Shell parent, Object in, TransMeta tr, String name ) {
+    super( parent, (BaseStepMeta) in, tr, name );
+    m_currentMeta = (AvroOutputMeta) in;
+  }
+
+  public String open() {
+    Shell parent = getParent();
+    Display display = parent.getDisplay();
+
+    shell = new Shell( parent, SWT.DIALOG_TRIM | SWT.RESIZE | SWT.MAX | SWT.MIN );
+    props.setLook( shell );
+    setShellImage( shell, m_currentMeta );
+
+    m_lsMod = new ModifyListener() {
+      public void modifyText( ModifyEvent e ) {
+        m_currentMeta.setChanged();
+      }
+    };
+    changed = m_currentMeta.hasChanged();
+
+    FormLayout formLayout = new FormLayout();
+    formLayout.marginWidth = Const.FORM_MARGIN;
+    formLayout.marginHeight = Const.FORM_MARGIN;
+
+    shell.setLayout( formLayout );
+    shell.setText( BaseMessages.getString( PKG, "AvroOutputDialog.Shell.Title" ) );
+
+    m_middle = props.getMiddlePct();
+    m_margin = Const.MARGIN;
+
+    // Stepname line
+    wlStepname = new Label( shell, SWT.RIGHT );
+    wlStepname.setText( BaseMessages.getString( PKG, "AvroOutputDialog.StepName.Label" ) );
+    props.setLook( wlStepname );
+    fdlStepname = new FormData();
+    fdlStepname.left = new FormAttachment( 0, 0 );
+    fdlStepname.right = new FormAttachment( m_middle, -m_margin );
+    fdlStepname.top = new FormAttachment( 0, m_margin );
+    wlStepname.setLayoutData( fdlStepname );
+    wStepname = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wStepname.setText( stepname );
+    props.setLook( wStepname );
+    wStepname.addModifyListener( m_lsMod );
+    fdStepname = new FormData();
+    fdStepname.left = new FormAttachment( m_middle, 0 );
+    fdStepname.top = new FormAttachment( 0, m_margin );
+    fdStepname.right = new FormAttachment( 100, 0 );
+    wStepname.setLayoutData( fdStepname );
+    Control lastControl = wStepname;
+
+    // filename line
+    Label filenameL = new Label( shell, SWT.RIGHT );
+    props.setLook( filenameL );
+    filenameL.setText( BaseMessages.getString( PKG, "AvroOutputDialog.Filename.Label" ) );
+    FormData fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( lastControl, m_margin );
+    fd.right = new FormAttachment( m_middle, -m_margin );
+    filenameL.setLayoutData( fd );
+
+    m_fileBrowse = new Button( shell, SWT.PUSH | SWT.CENTER );
+    props.setLook( m_fileBrowse );
+    m_fileBrowse.setText( BaseMessages.getString( PKG, "AvroOutputDialog.Button.FileBrowse" ) );
+    fd = new FormData();
+    fd.right = new FormAttachment( 100, 0 );
+    fd.top = new FormAttachment( lastControl, 0 );
+    m_fileBrowse.setLayoutData( fd );
+
+    // add listener to pop up VFS browse dialog
+    m_fileBrowse.addSelectionListener( new SelectionAdapter() {
+      @Override
+      public void widgetSelected( SelectionEvent e ) {
+        browse();
+      }
+    } );
+
+    m_filenameText = new TextVar( transMeta, shell, SWT.SIMPLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( m_filenameText );
+    m_filenameText.addModifyListener( new ModifyListener() {
+      public void modifyText( ModifyEvent e ) {
+        m_currentMeta.setChanged();
+        m_filenameText.setToolTipText( transMeta.environmentSubstitute( m_filenameText.getText() ) );
+      }
+    } );
+    fd = new FormData();
+    fd.left = new FormAttachment( m_middle, 0 );
+    fd.top = new FormAttachment( lastControl, m_margin );
+    fd.right = new FormAttachment( m_fileBrowse, -m_margin );
+    m_filenameText.setLayoutData( fd );
+    lastControl = m_filenameText;
+
+    m_extensionText = addTextVar( "AvroOutputDialog.Extension.Label", lastControl );
+    lastControl = m_extensionText;
+
+    // codec line
+    Label codecL = new Label( shell, SWT.RIGHT );
+    props.setLook( codecL );
+    codecL.setText( BaseMessages.getString( PKG, "AvroOutputDialog.Codec.Label" ) );
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( lastControl, m_margin );
+    fd.right = new FormAttachment( m_middle, -m_margin );
+    codecL.setLayoutData( fd );
+
+    m_codecCombo = new CCombo( shell, SWT.BORDER );
+    props.setLook( m_codecCombo );
+    m_codecCombo.setItems( AvroOutputMeta.CODECS );
+    m_codecCombo.addModifyListener( m_lsMod );
+    fd = new FormData();
+    fd.left = new FormAttachment( m_middle, 0 );
+    fd.top = new FormAttachment( lastControl, m_margin );
+    fd.right = new FormAttachment( 100, 0 );
+    m_codecCombo.setLayoutData( fd );
+    lastControl = m_codecCombo;
+
+    m_syncIntervalText = addTextVar( "AvroOutputDialog.SyncInterval.Label", lastControl );
+    m_syncIntervalText.setToolTipText( BaseMessages.getString( PKG, "AvroOutputDialog.SyncInterval.TipText" ) );
+    lastControl = m_syncIntervalText;
+
+    m_blockSizeText = addTextVar( "AvroOutputDialog.BlockSize.Label", lastControl );
+    m_blockSizeText.setToolTipText( BaseMessages.getString( PKG, "AvroOutputDialog.BlockSize.TipText" ) );
+    lastControl = m_blockSizeText;
+
+    m_compressionThreadsText = addTextVar( "AvroOutputDialog.CompressionThreads.Label", lastControl );
+    m_compressionThreadsText.setToolTipText( BaseMessages.getString( PKG,
+        "AvroOutputDialog.CompressionThreads.TipText" ) );
+    lastControl = m_compressionThreadsText;
+
+    m_splitEveryText = addTextVar( "AvroOutputDialog.SplitEvery.Label", lastControl );
+    m_splitEveryText.setToolTipText( BaseMessages.getString( PKG, "AvroOutputDialog.SplitEvery.TipText" ) );
+    lastControl = m_splitEveryText;
+
+    m_recordNameText = addTextVar( "AvroOutputDialog.RecordName.Label", lastControl );
+    lastControl = m_recordNameText;
+
+    m_namespaceText = addTextVar( "AvroOutputDialog.Namespace.Label", lastControl );
+    lastControl = m_namespaceText;
+
+    // Some buttons
+    wOK = new Button( shell, SWT.PUSH );
+    wOK.setText( BaseMessages.getString( PKG, "System.Button.OK" ) );
+    wCancel = new Button( shell, SWT.PUSH );
+    wCancel.setText( BaseMessages.getString( PKG, "System.Button.Cancel" ) );
+
+    setButtonPositions( new Button[] { wOK, wCancel }, m_margin, lastControl );
+
+    // Add listeners
+    lsCancel = new Listener() {
+      public void handleEvent( Event e ) {
+        cancel();
+      }
+    };
+    lsOK = new Listener() {
+      public void handleEvent( Event e ) {
+        ok();
+      }
+    };
+
+    wCancel.addListener( SWT.Selection, lsCancel );
+    wOK.addListener( SWT.Selection, lsOK );
+
+    lsDef = new SelectionAdapter() {
+      @Override
+      public void widgetDefaultSelected( SelectionEvent e ) {
+        ok();
+      }
+    };
+
+    wStepname.addSelectionListener( lsDef );
+    m_filenameText.addSelectionListener( lsDef );
+
+    // Detect X or ALT-F4 or something that kills this window...
+    shell.addShellListener( new ShellAdapter() {
+      @Override
+      public void shellClosed( ShellEvent e ) {
+        cancel();
+      }
+    } );
+
+    getData();
+    m_currentMeta.setChanged( changed );
+
+    // Set the shell size, based upon previous time...
+    setSize();
+
+    shell.open();
+    while ( !shell.isDisposed() ) {
+      if ( !display.readAndDispatch() ) {
+        display.sleep();
+      }
+    }
+    return stepname;
+  }
+
+  private TextVar addTextVar( String labelKey, Control lastControl ) {
+    Label label = new Label( shell, SWT.RIGHT );
+    props.setLook( label );
+    label.setText( BaseMessages.getString( PKG, labelKey ) );
+    FormData fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( lastControl, m_margin );
+    fd.right = new FormAttachment( m_middle, -m_margin );
+    label.setLayoutData( fd );
+
+    TextVar text = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( text );
+    text.addModifyListener( m_lsMod );
+    fd = new FormData();
+    fd.left = new FormAttachment( m_middle, 0 );
+    fd.top = new FormAttachment( lastControl, m_margin );
+    fd.right = new FormAttachment( 100, 0 );
+    text.setLayoutData( fd );
+
+    return text;
+  }
+
+  private void browse() {
+    try {
+      String[] fileFilters = new String[] { "*" };
+      String[] fileFilterNames =
+          new String[] { BaseMessages.getString( TextFileInputMeta.class, "System.FileType.AllFiles" ) };
+
+      // get current file
+      FileObject rootFile = null;
+      FileObject initialFile = null;
+      FileObject defaultInitialFile = null;
+
+      String fname = transMeta.environmentSubstitute( m_filenameText.getText() );
+      if ( !Const.isEmpty( fname ) ) {
+        initialFile = KettleVFS.getInstance( transMeta.getBowl() ).getFileObject( fname );
+        rootFile = initialFile.getFileSystem().getRoot();
+      } else {
+        defaultInitialFile = KettleVFS.getInstance( transMeta.getBowl() )
+          .getFileObject( Spoon.getInstance().getLastFileOpened() );
+        rootFile = defaultInitialFile.getFileSystem().getRoot();
+      }
+
+      VfsFileChooserDialog fileChooserDialog = Spoon.getInstance().getVfsFileChooserDialog( rootFile, initialFile );
+      fileChooserDialog.defaultInitialFile = defaultInitialFile;
+      FileObject selectedFile =
+          fileChooserDialog.open( shell, null, HadoopSpoonPlugin.HDFS_SCHEME, true, null, fileFilters,
+              fileFilterNames, VfsFileChooserDialog.VFS_DIALOG_OPEN_FILE_OR_DIRECTORY );
+
+      if ( selectedFile != null ) {
+        m_filenameText.setText( selectedFile.getURL().toString() );
+      }
+    } catch ( Exception ex ) {
+      logError( BaseMessages.getString( PKG, "AvroOutputDialog.Error.KettleFileException" ), ex );
+      new ErrorDialog( shell, stepname, BaseMessages.getString( PKG, "AvroOutputDialog.Error.KettleFileException" ),
+          ex );
+    }
+  }
+
+  /**
+   * Copy information from the meta-data to the dialog fields.
+   */
+  protected void getData() {
+    m_filenameText.setText( Const.NVL( m_currentMeta.getFilename(), "" ) );
+    m_extensionText.setText( Const.NVL( m_currentMeta.getExtension(), "" ) );
+    m_codecCombo.setText( Const.NVL( m_currentMeta.getCodec(), "" ) );
+    m_syncIntervalText.setText( Const.NVL( m_currentMeta.getSyncInterval(), "" ) );
+    m_blockSizeText.setText( Const.NVL( m_currentMeta.getBlockSize(), "" ) );
+    m_compressionThreadsText.setText( Const.NVL( m_currentMeta.getCompressionThreads(), "" ) );
+    m_splitEveryText.setText( Const.NVL( m_currentMeta.getSplitEvery(), "" ) );
+    m_recordNameText.setText( Const.NVL( m_currentMeta.getRecordName(), "" ) );
+    m_namespaceText.setText( Const.NVL( m_currentMeta.getNamespace(), "" ) );
+
+    wStepname.selectAll();
+  }
+
+  private void cancel() {
+    stepname = null;
+    m_currentMeta.setChanged( changed );
+    dispose();
+  }
+
+  private void ok() {
+    if ( Const.isEmpty( wStepname.getText() ) ) {
+      return;
+    }
+    stepname = wStepname.getText();
+
+    m_currentMeta.setFilename( m_filenameText.getText() );
+    m_currentMeta.setExtension( m_extensionText.getText() );
+    m_currentMeta.setCodec( m_codecCombo.getText() );
+    m_currentMeta.setSyncInterval( m_syncIntervalText.getText() );
+    m_currentMeta.setBlockSize( m_blockSizeText.getText() );
+    m_currentMeta.setCompressionThreads( m_compressionThreadsText.getText() );
+    m_currentMeta.setSplitEvery( m_splitEveryText.getText() );
+    m_currentMeta.setRecordName( m_recordNameText.getText() );
+    m_currentMeta.setNamespace( m_namespaceText.getText() );
+
+    dispose();
+  }
+}
@@ -0,0 +1,356 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avrooutput;
+
+import java.util.List;
+
+import org.pentaho.di.core.CheckResult;
+import org.pentaho.di.core.CheckResultInterface;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.annotations.Step;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.injection.Injection;
+import org.pentaho.di.core.injection.InjectionSupported;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.metastore.api.IMetaStore;
+import org.w3c.dom.Node;
+
+/**
+ * Meta data for the Avro Output step. Writes the incoming rows to an Avro container file, one record per row, using a
+ * schema generated from the incoming fields. Blocks are compressed by a small pool of threads while the step
+ * serializes the next block. Each copy of the step writes files of its own, optionally rolling over to a new file
+ * every so many rows.
+ */
+@Step( id = "AvroFileOutput", image = "Avro.svg", name = "AvroOutput.Name",
+  description = "AvroOutput.Description",
+  documentationUrl = "pdi-transformation-steps-reference-overview/avro-output",
+  categoryDescription = "i18n:org.pentaho.di.trans.step:BaseStep.Category.BigData",
+  i18nPackageName = "org.pentaho.di.trans.steps.avrooutput" )
+@InjectionSupported( localizationPrefix = "AvroOutput.Injection." )
+public class AvroOutputMeta extends BaseStepMeta implements StepMetaInterface {
+
+  protected static Class<?> PKG = AvroOutputMeta.class;
+
+  public static final String DEFAULT_EXTENSION = "avro";
+  public static final String DEFAULT_CODEC = "deflate";
+  public static final String DEFAULT_RECORD_NAME = "Row";
+  public static final int DEFAULT_COMPRESSION_THREADS = 2;
+
+  /** Codecs offered in the dialog, by their Avro names */
+  public static final String[] CODECS = { "null", "deflate", "snappy", "zstandard", "bzip2", "xz" };
+
+  /** The file to write to, without extension */
+  @Injection( name = "FILENAME" )
+  protected String m_filename = "";
+
+  /** The extension of the file(s) written */
+  @Injection( name = "EXTENSION" )
+  protected String m_extension = DEFAULT_EXTENSION;
+
+  /** The codec to compress blocks with */
+  @Injection( name = "CODEC" )
+  protected String m_codec = DEFAULT_CODEC;
+
+  /** Approximate number of uncompressed bytes per block */
+  @Injection( name = "SYNC_INTERVAL" )
+  protected String m_syncInterval = "" + ParallelDataFileWriter.DEFAULT_SYNC_INTERVAL;
+
+  /** Maximum number of rows per block (0 for no limit) */
+  @Injection( name = "BLOCK_SIZE" )
+  protected String m_blockSize = "0";
+
+  /** Number of threads compressing blocks (0 to compress on the step thread) */
+  @Injection( name = "COMPRESSION_THREADS" )
+  protected String m_compressionThreads = "" + DEFAULT_COMPRESSION_THREADS;
+
+  /** Start a new file after this many rows (0 for a single file) */
+  @Injection( name = "SPLIT_EVERY" )
+  protected String m_splitEvery = "0";
+
+  /** Name of the generated record schema */
+  @Injection( name = "RECORD_NAME" )
+  protected String m_recordName = DEFAULT_RECORD_NAME;
+
+  /** Namespace of the generated record schema */
+  @Injection( name = "NAMESPACE" )
+  protected String m_namespace = "";
+
+  public AvroOutputMeta() {
+    super();
+  }
+
+  /**
+   * @return the file to write to, without extension
+   */
+  public String getFilename() {
+    return m_filename;
+  }
+
+  /**
+   * @param filename
+   *          the file to write to, without extension
+   */
+  public void setFilename( String filename ) {
+    m_filename = filename;
+  }
+
+  /**
+   * @return the extension of the file(s) written
+   */
+  public String getExtension() {
+    return m_extension;
+  }
+
+  /**
+   * @param extension
+   *          the extension of the file(s) written
+   */
+  public void setExtension( String extension ) {
+    m_extension = extension;
+  }
+
+  /**
+   * @return the name of the codec to compress blocks with
+   */
+  public String getCodec() {
+    return m_codec;
+  }
+
+  /**
+   * @param codec
+   *          the name of the codec to compress blocks with
+   */
+  public void setCodec( String codec ) {
+    m_codec = codec;
+  }
+
+  /**
+   * @return the approximate number of uncompressed bytes per block
+   */
+  public String getSyncInterval() {
+    return m_syncInterval;
+  }
+
+  /**
+   * @param syncInterval
+   *          the approximate number of uncompressed bytes per block
+   */
+  public void setSyncInterval( String syncInterval ) {
+    m_syncInterval = syncInterval;
+  }
+
+  /**
+   * @return the maximum number of rows per block
+   */
+  public String getBlockSize() {
+    return m_blockSize;
+  }
+
+  /**
+   * @param blockSize
+   *          the maximum number of rows per block (0 for no limit)
+   */
+  public void setBlockSize( String blockSize ) {
+    m_blockSize = blockSize;
+  }
+
+  /**
+   * @return the number of threads compressing blocks
+   */
+  public String getCompressionThreads() {
+    return m_compressionThreads;
+  }
+
+  /**
+   * @param compressionThreads
+   *          the number of threads compressing blocks (0 to compress on the step thread)
+   */
+  public void setCompressionThreads( String compressionThreads ) {
+    m_compressionThreads = compressionThreads;
+  }
+
+  /**
+   * @return the number of rows after which to start a new file
+   */
+  public String getSplitEvery() {
+    return m_splitEvery;
+  }
+
+  /**
+   * @param splitEvery
+   *          the number of rows after which to start a new file (0 for a single file)
+   */
+  public void setSplitEvery( String splitEvery ) {
+    m_splitEvery = splitEvery;
+  }
+
+  /**
+   * @return the name of the generated record schema
+   */
+  public String getRecordName() {
+    return m_recordName;
+  }
+
+  /**
+   * @param recordName
+   *          the name of the generated record schema
+   */
+  public void setRecordName( String recordName ) {
+    m_recordName = recordName;
+  }
+
+  /**
+   * @return the namespace of the generated record schema
+   */
+  public String getNamespace() {
+    return m_namespace;
+  }
+
+  /**
+   * @param namespace
+   *          the namespace of the generated record schema
+   */
+  public void setNamespace( String namespace ) {
+    m_namespace = namespace;
+  }
+
+  @Override
+  public String getXML() {
+    StringBuilder retval = new StringBuilder( 300 );
+
+    retval.append( "    " ).append( XMLHandler.addTagValue( "filename", m_filename ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "extension", m_extension ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "codec", m_codec ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "sync_interval", m_syncInterval ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "block_size", m_blockSize ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "compression_threads", m_compressionThreads ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "split_every", m_splitEvery ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "record_name", m_recordName ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "namespace", m_namespace ) );
+
+    return retval.toString();
+  }
+
+  @Override
+  public void loadXML( Node stepnode, List<DatabaseMeta> databases, IMetaStore metaStore )
+    throws KettleXMLException {
+    try {
+      m_filename = XMLHandler.getTagValue( stepnode, "filename" );
+      m_extension = XMLHandler.getTagValue( stepnode, "extension" );
+      m_codec = XMLHandler.getTagValue( stepnode, "codec" );
+      m_syncInterval = XMLHandler.getTagValue( stepnode, "sync_interval" );
+      m_blockSize = XMLHandler.getTagValue( stepnode, "block_size" );
+      m_compressionThreads = XMLHandler.getTagValue( stepnode, "compression_threads" );
+      m_splitEvery = XMLHandler.getTagValue( stepnode, "split_every" );
+      m_recordName = XMLHandler.getTagValue( stepnode, "record_name" );
+      m_namespace = XMLHandler.getTagValue( stepnode, "namespace" );
+    } catch ( Exception e ) {
+      throw new KettleXMLException( BaseMessages.getString( PKG, "AvroOutputMeta.Exception.UnableToLoadStepInfo" ),
+        e );
+    }
+  }
+
+  @Override
+  public void readRep( Repository rep, IMetaStore metaStore, ObjectId id_step, List<DatabaseMeta> databases )
+    throws KettleException {
+    try {
+      m_filename = rep.getStepAttributeString( id_step, "filename" );
+      m_extension = rep.getStepAttributeString( id_step, "extension" );
+      m_codec = rep.getStepAttributeString( id_step, "codec" );
+      m_syncInterval = rep.getStepAttributeString( id_step, "sync_interval" );
+      m_blockSize = rep.getStepAttributeString( id_step, "block_size" );
+      m_compressionThreads = rep.getStepAttributeString( id_step, "compression_threads" );
+      m_splitEvery = rep.getStepAttributeString( id_step, "split_every" );
+      m_recordName = rep.getStepAttributeString( id_step, "record_name" );
+      m_namespace = rep.getStepAttributeString( id_step, "namespace" );
+    } catch ( Exception e ) {
+      throw new KettleException( BaseMessages.getString( PKG,
+        "AvroOutputMeta.Exception.UnexpectedErrorWhileReadingStepInfo" ), e );
+    }
+  }
+
+  @Override
+  public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_transformation, ObjectId id_step )
+    throws KettleException {
+    try {
+      rep.saveStepAttribute( id_transformation, id_step, "filename", m_filename );
+      rep.saveStepAttribute( id_transformation, id_step, "extension", m_extension );
+      rep.saveStepAttribute( id_transformation, id_step, "codec", m_codec );
+      rep.saveStepAttribute( id_transformation, id_step, "sync_interval", m_syncInterval );
+      rep.saveStepAttribute( id_transformation, id_step, "block_size", m_blockSize );
+      rep.saveStepAttribute( id_transformation, id_step, "compression_threads", m_compressionThreads );
+      rep.saveStepAttribute( id_transformation, id_step, "split_every", m_splitEvery );
+      rep.saveStepAttribute( id_transformation, id_step, "record_name", m_recordName );
+      rep.saveStepAttribute( id_transformation, id_step, "namespace", m_namespace );
+    } catch ( Exception e ) {
+      throw new KettleException(
+        BaseMessages.getString( PKG, "AvroOutputMeta.Exception.UnableToSaveStepInfo" ) + id_step, e );
+    }
+  }
+
+  @Override
+  public void setDefault() {
+    m_filename = "";
+    m_extension = DEFAULT_EXTENSION;
+    m_codec = DEFAULT_CODEC;
+    m_syncInterval = "" + ParallelDataFileWriter.DEFAULT_SYNC_INTERVAL;
+    m_blockSize = "0";
+    m_compressionThreads = "" + DEFAULT_COMPRESSION_THREADS;
+    m_splitEvery = "0";
+    m_recordName = DEFAULT_RECORD_NAME;
+    m_namespace = "";
+  }
+
+  @Override
+  public void check( List<CheckResultInterface> remarks, TransMeta transMeta, StepMeta stepMeta, RowMetaInterface prev,
+      String[] input, String[] output, RowMetaInterface info ) {
+    if ( Const.isEmpty( m_filename ) ) {
+      remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR, BaseMessages.getString( PKG,
+          "AvroOutput.Error.NoFilenameSpecified" ), stepMeta ) );
+    }
+    if ( prev == null || prev.size() == 0 ) {
+      remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_WARNING, BaseMessages.getString( PKG,
+          "AvroOutputMeta.CheckResult.NoFields" ), stepMeta ) );
+    }
+  }
+
+  @Override
+  public StepInterface getStep( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr,
+      TransMeta transMeta, Trans trans ) {
+    return new AvroOutput( stepMeta, stepDataInterface, copyNr, transMeta, trans );
+  }
+
+  @Override
+  public StepDataInterface getStepData() {
+    return new AvroOutputData();
+  }
+
+  @Override
+  public String getDialogClassName() {
+    return AvroOutputDialog.class.getCanonicalName();
+  }
+}
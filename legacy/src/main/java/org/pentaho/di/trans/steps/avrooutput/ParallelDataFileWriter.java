@@ -0,0 +1,371 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avrooutput;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.EncoderFactory;
+
+/**
+ * Writes an Avro container file whose blocks are compressed off the calling thread. Records are serialized into the
+ * current block by the caller; a full block is handed to the pool to be compressed and framed while the caller fills
+ * the next one. Finished blocks are written to the output stream in the order they were filled, so the file is
+ * identical in structure to one written by {@link DataFileWriter}.
+ *
+ * The header is written by a {@link DataFileWriter}, and so are the blocks: a block is handed, record by record, to a
+ * DataFileWriter of its own with the same schema, codec and sync marker, whose header went to a scratch buffer and was
+ * dropped. Flushing that writer produces the framed block exactly as DataFileWriter writes it. Writers (and their
+ * codecs) are not thread safe, so every block borrows one from a small pool. Without a pool blocks are compressed on
+ * the calling thread.
+ */
+public class ParallelDataFileWriter implements Closeable {
+
+  /** Sync interval DataFileWriter uses when none is set */
+  public static final int DEFAULT_SYNC_INTERVAL = 64000;
+
+  /** Largest sync interval DataFileWriter accepts */
+  protected static final int MAX_SYNC_INTERVAL = 1 << 30;
+
+  protected final Schema m_schema;
+  protected final CodecFactory m_codec;
+  protected final DatumWriter<Object> m_datumWriter;
+  protected final byte[] m_sync;
+
+  protected final int m_syncInterval;
+  protected final int m_maxBlockRecords;
+
+  protected final ExecutorService m_pool;
+  protected final int m_maxBlocksInFlight;
+  protected final Deque<Future<BlockBuffer>> m_inFlight = new ArrayDeque<Future<BlockBuffer>>();
+
+  /** Block writers not in use by a block being compressed */
+  protected final Deque<BlockWriter> m_blockWriters = new ArrayDeque<BlockWriter>();
+
+  protected OutputStream m_out;
+  protected BinaryEncoder m_encoder;
+
+  /** Serialized records of the block being filled */
+  protected BlockBuffer m_block = new BlockBuffer();
+
+  protected long m_recordCount;
+
+  /**
+   * Constructor
+   *
+   * @param schema
+   *          the schema of the records to write
+   * @param codec
+   *          the codec to compress blocks with
+   * @param syncInterval
+   *          approximate number of serialized bytes per block
+   * @param maxBlockRecords
+   *          the maximum number of records per block, or 0 for no limit other than the sync interval
+   * @param pool
+   *          the pool to compress blocks in, or null to compress them on the calling thread
+   * @param poolSize
+   *          the number of threads in the pool
+   */
+  public ParallelDataFileWriter( Schema schema, CodecFactory codec, int syncInterval, int maxBlockRecords,
+      ExecutorService pool, int poolSize ) {
+    m_schema = schema;
+    m_codec = codec;
+    m_datumWriter = new GenericDatumWriter<Object>( schema );
+    m_syncInterval = Math.max( 32, Math.min( syncInterval, MAX_SYNC_INTERVAL ) );
+    m_maxBlockRecords = Math.max( 0, maxBlockRecords );
+    m_pool = pool;
+
+    // one block more than there are threads, so that a compressed block is
+    // usually waiting when the previous one has been written
+    m_maxBlocksInFlight = Math.max( 1, poolSize ) + 1;
+
+    UUID uuid = UUID.randomUUID();
+    m_sync =
+        ByteBuffer.allocate( 16 ).putLong( uuid.getMostSignificantBits() ).putLong( uuid.getLeastSignificantBits() )
+            .array();
+  }
+
+  /**
+   * Write the file header to the supplied stream. The stream is closed when this writer is closed.
+   *
+   * @param out
+   *          the stream to write the container file to
+   * @throws IOException
+   *           if a problem occurs
+   */
+  public void create( OutputStream out ) throws IOException {
+    m_out = out;
+    BlockBuffer header = new BlockBuffer();
+    DataFileWriter<Object> writer = new DataFileWriter<Object>( m_datumWriter );
+    writer.setCodec( m_codec );
+    // the writer only produces the header, the smallest interval keeps it from allocating a block sized buffer
+    writer.setSyncInterval( 32 );
+    writer.create( m_schema, header, m_sync );
+    writer.close();
+    header.writeTo( m_out );
+  }
+
+  /**
+   * Append a record to the current block. The record is serialized straight away, so it may be reused by the caller.
+   *
+   * @param datum
+   *          the record to append
+   * @throws IOException
+   *           if a problem occurs serializing the record or writing a finished block
+   */
+  public void append( Object datum ) throws IOException {
+    m_encoder = EncoderFactory.get().directBinaryEncoder( m_block, m_encoder );
+    m_datumWriter.write( datum, m_encoder );
+    m_block.endRecord();
+    m_recordCount++;
+
+    if ( m_block.size() >= m_syncInterval || ( m_maxBlockRecords > 0 && m_block.records() >= m_maxBlockRecords ) ) {
+      submitBlock();
+    }
+  }
+
+  /**
+   * @return the number of records appended so far
+   */
+  public long getRecordCount() {
+    return m_recordCount;
+  }
+
+  /**
+   * Compress and write the current block, wait for all blocks in flight to be written and close the output stream.
+   *
+   * @throws IOException
+   *           if a problem occurs
+   */
+  @Override
+  public void close() throws IOException {
+    if ( m_out == null ) {
+      return;
+    }
+    try {
+      if ( m_block.records() > 0 ) {
+        submitBlock();
+      }
+      while ( !m_inFlight.isEmpty() ) {
+        writeBlock( m_inFlight.poll() );
+      }
+      m_out.flush();
+    } finally {
+      cancelBlocks();
+      OutputStream out = m_out;
+      m_out = null;
+      out.close();
+    }
+  }
+
+  /**
+   * Drop the current block and the blocks in flight without writing them and close the output stream. The file is
+   * left incomplete, to be deleted by the caller.
+   *
+   * @throws IOException
+   *           if the stream can't be closed
+   */
+  public void abort() throws IOException {
+    if ( m_out == null ) {
+      return;
+    }
+    m_block = new BlockBuffer();
+    cancelBlocks();
+    OutputStream out = m_out;
+    m_out = null;
+    out.close();
+  }
+
+  protected void cancelBlocks() {
+    for ( Future<BlockBuffer> pending : m_inFlight ) {
+      pending.cancel( true );
+    }
+    m_inFlight.clear();
+    synchronized ( m_blockWriters ) {
+      m_blockWriters.clear();
+    }
+  }
+
+  protected void submitBlock() throws IOException {
+    final BlockBuffer block = m_block;
+    Callable<BlockBuffer> compress = new Callable<BlockBuffer>() {
+      @Override
+      public BlockBuffer call() throws IOException {
+        return compressBlock( block );
+      }
+    };
+
+    m_block = new BlockBuffer( Math.max( 32, block.size() ) );
+
+    if ( m_pool == null ) {
+      writeBlock( compress.call() );
+      return;
+    }
+
+    // write out what has finished, then wait for the oldest block if too
+    // many are outstanding
+    while ( !m_inFlight.isEmpty() && ( m_inFlight.peek().isDone() || m_inFlight.size() >= m_maxBlocksInFlight ) ) {
+      writeBlock( m_inFlight.poll() );
+    }
+    m_inFlight.add( m_pool.submit( compress ) );
+  }
+
+  /**
+   * Compress a block of serialized records into a complete container file block (record count, size, data and sync
+   * marker).
+   *
+   * @return a buffer holding the framed block
+   */
+  protected BlockBuffer compressBlock( BlockBuffer block ) throws IOException {
+    BlockWriter writer = borrowBlockWriter();
+    BlockBuffer framed = writer.write( block );
+    returnBlockWriter( writer );
+    return framed;
+  }
+
+  protected BlockWriter borrowBlockWriter() throws IOException {
+    synchronized ( m_blockWriters ) {
+      BlockWriter writer = m_blockWriters.poll();
+      if ( writer != null ) {
+        return writer;
+      }
+    }
+    return new BlockWriter();
+  }
+
+  protected void returnBlockWriter( BlockWriter writer ) {
+    synchronized ( m_blockWriters ) {
+      if ( m_blockWriters.size() < m_maxBlocksInFlight ) {
+        m_blockWriters.push( writer );
+      }
+    }
+  }
+
+  protected void writeBlock( Future<BlockBuffer> block ) throws IOException {
+    try {
+      writeBlock( block.get() );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while compressing an Avro block" );
+    } catch ( ExecutionException e ) {
+      Throwable cause = e.getCause();
+      throw cause instanceof IOException ? (IOException) cause : new IOException( cause );
+    }
+  }
+
+  protected void writeBlock( BlockBuffer block ) throws IOException {
+    block.writeTo( m_out );
+  }
+
+  /**
+   * A DataFileWriter for the blocks of this file, writing to a buffer of its own that is reused from block to block.
+   */
+  protected class BlockWriter {
+    protected final BlockBuffer m_framed = new BlockBuffer();
+    protected final DataFileWriter<Object> m_writer;
+
+    protected BlockWriter() throws IOException {
+      m_writer = new DataFileWriter<Object>( new GenericDatumWriter<Object>( m_schema ) );
+      m_writer.setCodec( m_codec );
+      // created with the smallest interval so that no block sized buffer is allocated up front, then raised so that
+      // the writer never ends a block by itself - its buffer grows to the size of the blocks handed to it
+      m_writer.setSyncInterval( 32 );
+      m_writer.create( m_schema, m_framed, m_sync );
+      m_writer.setSyncInterval( MAX_SYNC_INTERVAL );
+      m_framed.reset();
+    }
+
+    /**
+     * @return the block compressed and framed, in a buffer of its own
+     */
+    protected BlockBuffer write( BlockBuffer block ) throws IOException {
+      int start = 0;
+      for ( int i = 0; i < block.records(); i++ ) {
+        int end = block.recordEnd( i );
+        m_writer.appendEncoded( ByteBuffer.wrap( block.buffer(), start, end - start ) );
+        start = end;
+      }
+      m_writer.flush();
+
+      BlockBuffer framed = new BlockBuffer( m_framed.size() );
+      m_framed.writeTo( framed );
+      m_framed.reset();
+      return framed;
+    }
+  }
+
+  /**
+   * Byte array output stream that gives access to its buffer without copying it, and keeps track of where the records
+   * written to it end.
+   */
+  protected static class BlockBuffer extends ByteArrayOutputStream {
+
+    protected int[] m_recordEnds = new int[ 64 ];
+    protected int m_records;
+
+    public BlockBuffer() {
+      super( 1024 );
+    }
+
+    public BlockBuffer( int size ) {
+      super( size );
+    }
+
+    public byte[] buffer() {
+      return buf;
+    }
+
+    /**
+     * Mark the end of a record at the current size.
+     */
+    public void endRecord() {
+      if ( m_records == m_recordEnds.length ) {
+        m_recordEnds = Arrays.copyOf( m_recordEnds, m_records * 2 );
+      }
+      m_recordEnds[m_records++] = count;
+    }
+
+    @Override
+    public synchronized void reset() {
+      super.reset();
+      m_records = 0;
+    }
+
+    public int records() {
+      return m_records;
+    }
+
+    public int recordEnd( int record ) {
+      return m_recordEnds[record];
+    }
+  }
+}
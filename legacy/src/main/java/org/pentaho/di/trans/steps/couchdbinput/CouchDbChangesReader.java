@@ -0,0 +1,194 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.couchdbinput;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Pull parser over the response of a CouchDB changes feed request (feed=normal, include_docs=true), e.g.
+ *
+ * <pre>
+ * {"results":[
+ * {"seq":"3-g1AAAA","id":"a","changes":[{"rev":"2-7051"}],"doc":{"_id":"a","_rev":"2-7051",...}},
+ * {"seq":"4-g1AAAB","id":"b","changes":[{"rev":"3-8a2c"}],"deleted":true,"doc":{"_id":"b","_deleted":true,...}}
+ * ],
+ * "last_seq":"4-g1AAAB","pending":0}
+ * </pre>
+ *
+ * Changes are handed out one at a time; the last sequence of the response is known once all changes have been read.
+ */
+public class CouchDbChangesReader implements Closeable {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private final JsonParser parser;
+  private final CouchDbViewReader.StringBuilderWriter docText = new CouchDbViewReader.StringBuilderWriter( 1000 );
+  private final JsonGenerator generator;
+
+  private boolean inResults;
+
+  private String seq;
+  private String id;
+  private boolean deleted;
+  private boolean hasDoc;
+
+  private String lastSeq;
+  private long pending = -1;
+
+  public CouchDbChangesReader( InputStream inputStream ) throws IOException {
+    parser = JSON_FACTORY.createParser( inputStream );
+    generator = JSON_FACTORY.createGenerator( docText );
+    // every document is one of its own
+    generator.setRootValueSeparator( null );
+  }
+
+  /**
+   * Read up to the start of the results array.
+   *
+   * @return false if the response holds no results array
+   * @throws IOException if the response can't be read or isn't valid JSON
+   */
+  public boolean readHeader() throws IOException {
+    if ( parser.nextToken() != JsonToken.START_OBJECT ) {
+      return false;
+    }
+    JsonToken token;
+    while ( ( token = parser.nextToken() ) == JsonToken.FIELD_NAME ) {
+      String name = parser.getCurrentName();
+      token = parser.nextToken();
+      if ( "results".equals( name ) && token == JsonToken.START_ARRAY ) {
+        inResults = true;
+        return true;
+      }
+      readTrailerField( name, token );
+    }
+    return false;
+  }
+
+  /**
+   * Read the next change.
+   *
+   * @return false once all changes have been read
+   * @throws IOException if the response can't be read or isn't valid JSON
+   */
+  public boolean nextChange() throws IOException {
+    if ( !inResults ) {
+      return false;
+    }
+    JsonToken token = parser.nextToken();
+    if ( token != JsonToken.START_OBJECT ) {
+      inResults = false;
+      if ( token == JsonToken.END_ARRAY ) {
+        // last_seq and pending follow the results
+        while ( ( token = parser.nextToken() ) == JsonToken.FIELD_NAME ) {
+          String name = parser.getCurrentName();
+          readTrailerField( name, parser.nextToken() );
+        }
+      }
+      return false;
+    }
+
+    seq = null;
+    id = null;
+    deleted = false;
+    hasDoc = false;
+    docText.getBuilder().setLength( 0 );
+    while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+      String name = parser.getCurrentName();
+      token = parser.nextToken();
+      if ( "seq".equals( name ) && token.isScalarValue() ) {
+        seq = parser.getText();
+      } else if ( "id".equals( name ) && token == JsonToken.VALUE_STRING ) {
+        id = parser.getText();
+      } else if ( "deleted".equals( name ) && token.isBoolean() ) {
+        deleted = parser.getBooleanValue();
+      } else if ( "doc".equals( name ) && token == JsonToken.START_OBJECT ) {
+        CouchDbViewReader.copyValue( parser, generator );
+        generator.flush();
+        hasDoc = true;
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return true;
+  }
+
+  private void readTrailerField( String name, JsonToken token ) throws IOException {
+    if ( "last_seq".equals( name ) && token.isScalarValue() ) {
+      lastSeq = parser.getText();
+    } else if ( "pending".equals( name ) && token == JsonToken.VALUE_NUMBER_INT ) {
+      pending = parser.getLongValue();
+    } else {
+      parser.skipChildren();
+    }
+  }
+
+  /**
+   * @return the sequence of the last change read
+   */
+  public String getSeq() {
+    return seq;
+  }
+
+  /**
+   * @return the id of the document of the last change read
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * @return true if the last change read deleted its document
+   */
+  public boolean isDeleted() {
+    return deleted;
+  }
+
+  /**
+   * @return the JSON text of the document of the last change read, or null if the change came without it
+   */
+  public CharSequence getDocument() {
+    return hasDoc ? docText.getBuilder() : null;
+  }
+
+  /**
+   * @return the last sequence of the response, or null if not (yet) known
+   */
+  public String getLastSeq() {
+    return lastSeq;
+  }
+
+  /**
+   * @return the number of changes left after those of the response, or -1 if not (yet) known
+   */
+  public long getPending() {
+    return pending;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      generator.close();
+    } finally {
+      parser.close();
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.couchdbinput;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.IdleConnectionEvictor;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP clients shared by all CouchDB steps in the JVM, across step copies and transformation runs.
+ *
+ * All clients draw on one pool of keep-alive connections, bounded per host, so that short repeated reads don't set up
+ * a new connection for every request. There is one client per set of credentials; it keeps the session cookies the
+ * server hands out. Clients are looked up by a SHA-256 digest of the credentials, so no password is kept as a map key,
+ * and only the most recently used {@link #MAX_CLIENTS} clients are kept. Responses are requested gzip compressed and
+ * decompressed as they are read. The proxy is taken from the standard JVM proxy properties.
+ */
+public class CouchDbHttpClientPool {
+
+  /** Maximum number of connections to one CouchDB host */
+  public static final int MAX_CONNECTIONS_PER_HOST = 20;
+
+  /** Maximum number of connections to all CouchDB hosts */
+  public static final int MAX_CONNECTIONS = 200;
+
+  /** Connections idle for longer than this are closed */
+  static final long IDLE_TIMEOUT_SECONDS = 60;
+
+  /** Connections idle for longer than this are checked before they are reused */
+  static final int VALIDATE_AFTER_INACTIVITY_MS = 2000;
+
+  /** Maximum number of clients, i.e. of different credentials, kept */
+  static final int MAX_CLIENTS = 32;
+
+  /** Time to establish a connection */
+  static final int CONNECT_TIMEOUT_MS = 10000;
+
+  /** Time to wait for a connection from the pool */
+  static final int CONNECTION_REQUEST_TIMEOUT_MS = 10000;
+
+  /** Time without data on an open connection; long enough for CouchDB to build a view index before answering */
+  static final int SOCKET_TIMEOUT_MS = 300000;
+
+  private static final CouchDbHttpClientPool INSTANCE = new CouchDbHttpClientPool();
+
+  private final PoolingHttpClientConnectionManager connectionManager;
+  private final Map<String, CloseableHttpClient> clients;
+
+  CouchDbHttpClientPool() {
+    this( MAX_CLIENTS );
+  }
+
+  CouchDbHttpClientPool( final int maxClients ) {
+    clients = new LinkedHashMap<String, CloseableHttpClient>( 16, 0.75f, true ) {
+      @Override
+      protected boolean removeEldestEntry( Map.Entry<String, CloseableHttpClient> eldest ) {
+        if ( size() > maxClients ) {
+          closeQuietly( eldest.getValue() );
+          return true;
+        }
+        return false;
+      }
+    };
+    connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal( MAX_CONNECTIONS );
+    connectionManager.setDefaultMaxPerRoute( MAX_CONNECTIONS_PER_HOST );
+    // the server may have dropped a connection kept alive between runs
+    connectionManager.setValidateAfterInactivity( VALIDATE_AFTER_INACTIVITY_MS );
+
+    IdleConnectionEvictor evictor =
+      new IdleConnectionEvictor( connectionManager, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS );
+    evictor.start();
+  }
+
+  public static CouchDbHttpClientPool getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Get the client for the given credentials, creating it on first use.
+   *
+   * @param user the user to authenticate as, or blank not to authenticate
+   * @param password the password of the user
+   * @return the shared client
+   */
+  public HttpClient getClient( String user, String password ) {
+    String key = key( user, password );
+    synchronized ( clients ) {
+      CloseableHttpClient client = clients.get( key );
+      if ( client == null ) {
+        client = createClient( user, password );
+        clients.put( key, client );
+      }
+      return client;
+    }
+  }
+
+  int size() {
+    synchronized ( clients ) {
+      return clients.size();
+    }
+  }
+
+  static String key( String user, String password ) {
+    if ( StringUtils.isBlank( user ) ) {
+      return "";
+    }
+    try {
+      MessageDigest digest = MessageDigest.getInstance( "SHA-256" );
+      digest.update( user.getBytes( StandardCharsets.UTF_8 ) );
+      digest.update( (byte) 0 );
+      digest.update( StringUtils.defaultString( password ).getBytes( StandardCharsets.UTF_8 ) );
+      StringBuilder key = new StringBuilder( 64 );
+      for ( byte b : digest.digest() ) {
+        key.append( Character.forDigit( ( b >> 4 ) & 0xf, 16 ) ).append( Character.forDigit( b & 0xf, 16 ) );
+      }
+      return key.toString();
+    } catch ( NoSuchAlgorithmException e ) {
+      // every JVM has to provide SHA-256
+      throw new IllegalStateException( e );
+    }
+  }
+
+  private CloseableHttpClient createClient( String user, String password ) {
+    RequestConfig requestConfig = RequestConfig.custom()
+      .setConnectTimeout( CONNECT_TIMEOUT_MS )
+      .setConnectionRequestTimeout( CONNECTION_REQUEST_TIMEOUT_MS )
+      .setSocketTimeout( SOCKET_TIMEOUT_MS )
+      .build();
+    HttpClientBuilder builder = HttpClientBuilder.create()
+      // http.proxyHost, https.proxyHost, http.nonProxyHosts etc.
+      .useSystemProperties()
+      .setConnectionManager( connectionManager )
+      // the clients share the pool, none of them owns it
+      .setConnectionManagerShared( true )
+      .setDefaultRequestConfig( requestConfig )
+      .setDefaultCookieStore( new BasicCookieStore() );
+    // content compression is left enabled: requests carry "Accept-Encoding: gzip,deflate"
+    if ( StringUtils.isNotBlank( user ) ) {
+      CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+      credentialsProvider.setCredentials( AuthScope.ANY, new UsernamePasswordCredentials( user, password ) );
+      builder.setDefaultCredentialsProvider( credentialsProvider );
+    }
+    return builder.build();
+  }
+
+  private static void closeQuietly( CloseableHttpClient client ) {
+    try {
+      // leaves the shared connection pool open, a step still using the client can finish its requests
+      client.close();
+    } catch ( IOException e ) {
+      // nothing to release
+    }
+  }
+}
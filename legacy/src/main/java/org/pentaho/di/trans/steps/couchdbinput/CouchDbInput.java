@@ -15,6 +15,7 @@ package org.pentaho.di.trans.steps.couchdbinput;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.vfs2.FileObject;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.AuthCache;
@@ -30,9 +31,11 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
-import org.pentaho.di.core.util.HttpClientManager;
+import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.job.Job;
 import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransAdapter;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStep;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -42,12 +45,19 @@ import org.pentaho.di.trans.step.StepMetaInterface;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 
 public class CouchDbInput extends BaseStep implements StepInterface {
   private static Class<?> PKG = CouchDbInputMeta.class; // for i18n purposes, needed by Translator2!! $NON-NLS-1$
 
+  private static final long RETRY_WAIT_MS = 1000;
+
   private final HttpClientFactory httpClientFactory = new HttpClientFactory();
-  private final HttpClientManager httpClientManager = createHttpClientManager();
 
   private final GetMethodFactory getMethodFactory;
 
@@ -79,128 +89,224 @@ public class CouchDbInput extends BaseStep implements StepInterface {
     return url;
   }
 
-  public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
+  public static String buildChangesUrl( String hostname, int port, String db ) {
+    String url = "http://" + hostname;
+    if ( port >= 0 ) {
+      url += ":" + port;
+    }
+    url += "/" + db;
+    url += "/_changes";
+    return url;
+  }
+
+  /**
+   * Build the query string of a changes feed request.
+   *
+   * @param since the sequence to read the changes after
+   * @param limit the maximum number of changes to return, or 0 for no limit
+   * @return the query string, starting with "?"
+   */
+  public static String buildChangesQuery( String since, long limit ) {
+    StringBuilder query = new StringBuilder( "?include_docs=true" );
     try {
-      if ( first ) {
-        first = false;
+      query.append( "&since=" ).append( URLEncoder.encode( since, "UTF-8" ) );
+    } catch ( UnsupportedEncodingException e ) {
+      throw new IllegalStateException( e );
+    }
+    if ( limit > 0 ) {
+      query.append( "&limit=" ).append( limit );
+    }
+    return query.toString();
+  }
 
-        data.outputRowMeta = new RowMeta();
-        meta.getFields( getTransMeta().getBowl(), data.outputRowMeta, getStepname(), null, null, this, repository,
-                        metaStore );
+  /**
+   * Build the query string of a view request.
+   *
+   * @param startKey the key (JSON) to start at, or null to start at the beginning of the range
+   * @param startDocId the document id to start at, or null
+   * @param skip the number of rows to skip: with a start key the rows with that key and document id read already,
+   *             otherwise the rows before the range
+   * @param limit the maximum number of rows to return, or 0 for no limit
+   * @return the query string, starting with "?", or an empty string
+   */
+  public static String buildQuery( String startKey, String startDocId, long skip, long limit ) {
+    StringBuilder query = new StringBuilder();
+    try {
+      if ( startKey != null ) {
+        query.append( "&startkey=" ).append( URLEncoder.encode( startKey, "UTF-8" ) );
+        if ( startDocId != null ) {
+          query.append( "&startkey_docid=" ).append( URLEncoder.encode( startDocId, "UTF-8" ) );
+        }
+      }
+      if ( skip > 0 ) {
+        query.append( "&skip=" ).append( skip );
+      }
+    } catch ( UnsupportedEncodingException e ) {
+      throw new IllegalStateException( e );
+    }
+    if ( limit > 0 ) {
+      query.append( "&limit=" ).append( limit );
+    }
+    if ( query.length() > 0 ) {
+      query.setCharAt( 0, '?' );
+    }
+    return query.toString();
+  }
 
-        // Skip over first introduction row containing the number of results...
-        //
-        // Example: {"total_rows":3,"offset":0,"rows":[
-        //
-        data.buffer = new StringBuilder( 1000 );
-        data.open = 0;
-        boolean cont = true;
-        int c = data.bufferedInputStream.read();
-        while ( c >= 0 && cont && !isStopped() ) {
-          data.buffer.append( (char) c );
-
-          switch ( (char) c ) {
-            case '{':
-              data.open++;
-
-              // Second JSON nested block means: another row of data...
-              if ( data.open == 2 ) {
-                logBasic( "Read header: >>" + data.buffer.substring( 0, data.buffer.length() - 1 ) + "<<" );
-                data.buffer.delete( 0, data.buffer.length() - 1 );
-                cont = false; // Stop the while loop.
-              }
-
-              break;
-            case '}':
-              data.open--;
-              break;
-
-            case '"':
-              // skip until the next "
-              //
-              int prev = c;
-              c = data.bufferedInputStream.read();
-              while ( c != '"' && prev != '\\' && c >= 0 ) {
-                data.buffer.append( (char) c );
-                prev = c;
-                c = data.bufferedInputStream.read();
-              }
+  public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
+    if ( first ) {
+      first = false;
+
+      data.outputRowMeta = new RowMeta();
+      meta.getFields( getTransMeta().getBowl(), data.outputRowMeta, getStepname(), null, null, this, repository,
+                      metaStore );
+    }
+
+    if ( data.changesFeed ) {
+      return processChange();
+    }
+
+    while ( !isStopped() ) {
+      try {
+        if ( data.viewReader == null ) {
+          if ( data.bufferedInputStream == null && !openPage() ) {
+            break;
+          }
+
+          // Skip over the introduction containing the number of results...
+          //
+          // Example: {"total_rows":3,"offset":0,"rows":[
+          //
+          data.viewReader = new CouchDbViewReader( data.bufferedInputStream );
+          if ( !data.viewReader.readHeader() ) {
+            break;
+          }
+          if ( log.isDetailed() ) {
+            logDetailed( "Read header, total rows: " + data.viewReader.getTotalRows() );
           }
+        }
+
+        // read one row of the view until no rows are left
+        //
+        CharSequence json = data.viewReader.nextRow();
+        if ( json == null ) {
+          closePage( false );
 
-          if ( cont ) {
-            c = data.bufferedInputStream.read();
+          // a full page means there may be more
+          if ( data.pageSize > 0 && data.pageRows == data.pageLimit && data.remaining != 0 ) {
+            continue;
           }
+          break;
         }
 
-        if ( c < 0 ) {
-          setOutputDone();
-          return false;
+        data.pageRows++;
+        if ( data.remaining > 0 ) {
+          data.remaining--;
         }
+        String key = data.viewReader.getKey();
+        String id = data.viewReader.getId();
+        // a document can emit the same key more than once, resuming has to skip every one of those rows read
+        if ( data.lastKeyRows > 0 && StringUtils.equals( key, data.lastKey )
+          && StringUtils.equals( id, data.lastId ) ) {
+          data.lastKeyRows++;
+        } else {
+          data.lastKey = key;
+          data.lastId = id;
+          data.lastKeyRows = 1;
+        }
+        data.failures = 0;
+
+        sendRow( json.toString() );
+
+        return true;
+      } catch ( IOException e ) {
+        handleReadFailure( e );
       }
+    }
 
-      // read one JSON block from the data until no data is left on the input stream
-      //
-      boolean cont = true;
-      int c = data.bufferedInputStream.read();
-      while ( c >= 0 && cont && !isStopped() ) {
-        data.buffer.append( (char) c );
+    closePage( true );
+    setOutputDone();
+    return false;
+  }
 
-        switch ( (char) c ) {
-          case '{':
-            data.open++;
+  /**
+   * Read one change of the changes feed, passing on the changed document along with its id, sequence and whether it
+   * was deleted.
+   */
+  private boolean processChange() throws KettleException {
+    while ( !isStopped() && data.changesUrl != null ) {
+      try {
+        if ( data.changesReader == null ) {
+          if ( data.bufferedInputStream == null ) {
+            openChangesPage();
+          }
 
-            // Second JSON nested block means: another row of data...
-            if ( data.open == 2 ) {
+          // Example: {"results":[
+          //
+          data.changesReader = new CouchDbChangesReader( data.bufferedInputStream );
+          if ( !data.changesReader.readHeader() ) {
+            throw new KettleException( "The changes feed response holds no results" );
+          }
+        }
 
-              sendBufferRow( false );
+        if ( !data.changesReader.nextChange() ) {
+          String lastSeq = data.changesReader.getLastSeq();
+          long pending = data.changesReader.getPending();
+          closePage( false );
+          if ( lastSeq != null ) {
+            data.since = lastSeq;
+          }
 
-              cont = false; // Stop the while loop.
-            }
+          // a full page means there may be more
+          if ( data.pageSize > 0 && data.pageRows == data.pageLimit && pending != 0 ) {
+            continue;
+          }
 
-            break;
-          case '}':
-            data.open--;
-            break;
+          saveCheckpointWhenFinished( data.since );
+          break;
         }
 
-        if ( cont ) {
-          c = data.bufferedInputStream.read();
+        data.pageRows++;
+        if ( data.changesReader.getSeq() != null ) {
+          data.since = data.changesReader.getSeq();
         }
-      }
+        data.failures = 0;
 
-      if ( c < 0 ) {
-        if ( data.buffer.length() > 0 ) {
-          sendBufferRow( true );
-        }
-        setOutputDone();
-        return false;
+        sendChange( data.changesReader );
+
+        return true;
+      } catch ( IOException e ) {
+        handleReadFailure( e );
       }
+    }
 
-      return true;
-    } catch ( IOException e ) {
+    closePage( true );
+    setOutputDone();
+    return false;
+  }
+
+  private void handleReadFailure( IOException e ) throws KettleException {
+    // start over from the last row read
+    closePage( true );
+    if ( ++data.failures > data.retries ) {
       throw new KettleException( "Unable to read from the CouchDB REST web service", e );
     }
+    logBasic( BaseMessages.getString( PKG, "CouchDbInput.Message.Retrying", data.failures, data.retries,
+      e.getMessage() ) );
+    waitBeforeRetry( data.failures );
   }
 
-  private void sendBufferRow( boolean lastRow ) throws KettleStepException {
-
-    int pos = data.buffer.length() - 2;
-
-    if ( lastRow ) {
-      // Get rid of any ]} at the end of the last row.
-      //
-      pos = removeTrailingSpaces( data.buffer, pos );
-      pos = removeTrailingCharacter( data.buffer, pos, '}' );
-      pos = removeTrailingSpaces( data.buffer, pos );
-      pos = removeTrailingCharacter( data.buffer, pos, ']' );
+  @VisibleForTesting
+  void waitBeforeRetry( int failures ) throws KettleException {
+    try {
+      Thread.sleep( RETRY_WAIT_MS * failures );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( "Interrupted while reading from the CouchDB REST web service", e );
     }
+  }
 
-    pos = removeTrailingSpaces( data.buffer, pos );
-    pos = removeTrailingCharacter( data.buffer, pos, ',' );
-
-    String json = data.buffer.substring( 0, pos + 1 );
-    data.buffer.delete( 0, data.buffer.length() - 1 );
-
+  private void sendRow( String json ) throws KettleStepException {
     if ( log.isDebug() ) {
       logDebug( "Read row: " + json );
     }
@@ -213,18 +319,211 @@ public class CouchDbInput extends BaseStep implements StepInterface {
     putRow( data.outputRowMeta, row );
   }
 
-  private int removeTrailingCharacter( StringBuilder buffer, int pos, char c ) {
-    if ( data.buffer.charAt( pos ) == c ) {
-      pos--;
+  private void sendChange( CouchDbChangesReader change ) throws KettleStepException {
+    CharSequence json = change.getDocument();
+    if ( log.isDebug() ) {
+      logDebug( "Read change " + change.getSeq() + " of document " + change.getId() );
+    }
+    Object[] row = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+    int index = 0;
+    row[ index++ ] = json != null ? json.toString() : null;
+    row[ index++ ] = change.getId();
+    row[ index++ ] = change.getSeq();
+    row[ index++ ] = change.isDeleted();
+
+    putRow( data.outputRowMeta, row );
+  }
+
+  /**
+   * Request the next page of the changes feed: the changes after the last one read.
+   */
+  private void openChangesPage() throws KettleException, IOException {
+    data.pageLimit = data.pageSize;
+    data.pageRows = 0;
+
+    executeRequest( data.changesUrl + buildChangesQuery( data.since, data.pageLimit ) );
+  }
+
+  /**
+   * Read the sequence saved by the last successful run, falling back to the configured start sequence.
+   */
+  private String readCheckpoint() throws KettleException, IOException {
+    if ( StringUtils.isNotEmpty( data.checkpointFile ) ) {
+      FileObject file = KettleVFS.getInstance( getTransMeta().getBowl() ).getFileObject( data.checkpointFile, this );
+      if ( file.exists() ) {
+        StringBuilder seq = new StringBuilder();
+        try ( Reader reader = new InputStreamReader( file.getContent().getInputStream(), StandardCharsets.UTF_8 ) ) {
+          char[] buffer = new char[ 256 ];
+          int read;
+          while ( ( read = reader.read( buffer ) ) >= 0 ) {
+            seq.append( buffer, 0, read );
+          }
+        }
+        if ( seq.toString().trim().length() > 0 ) {
+          return seq.toString().trim();
+        }
+      }
     }
-    return pos;
+    String since = environmentSubstitute( meta.getSince() );
+    return StringUtils.isNotBlank( since ) ? since.trim() : "0";
   }
 
-  private int removeTrailingSpaces( StringBuilder buffer, int pos ) {
-    while ( pos >= 0 && Const.isSpace( data.buffer.charAt( pos ) ) ) {
-      pos--;
+  /**
+   * Save the sequence reached once the transformation has finished, so that the next run only reads what changed
+   * after it. Nothing is saved if the transformation fails or is stopped: the same changes are read again next time.
+   */
+  private void saveCheckpointWhenFinished( final String seq ) {
+    if ( StringUtils.isEmpty( data.checkpointFile ) && StringUtils.isEmpty( data.checkpointVariable ) ) {
+      return;
+    }
+    if ( getTrans().isPreview() ) {
+      // a preview doesn't count as a run
+      return;
     }
-    return pos;
+    getTrans().addTransListener( new TransAdapter() {
+      @Override
+      public void transFinished( Trans trans ) throws KettleException {
+        if ( trans.getErrors() == 0 && !trans.isStopped() ) {
+          saveCheckpoint( seq );
+        }
+      }
+    } );
+  }
+
+  @VisibleForTesting
+  void saveCheckpoint( String seq ) throws KettleException {
+    if ( StringUtils.isNotEmpty( data.checkpointFile ) ) {
+      try {
+        FileObject file = KettleVFS.getInstance( getTransMeta().getBowl() ).getFileObject( data.checkpointFile, this );
+        try ( OutputStream out = file.getContent().getOutputStream() ) {
+          out.write( seq.getBytes( StandardCharsets.UTF_8 ) );
+        }
+      } catch ( IOException e ) {
+        throw new KettleException( "Unable to save the CouchDB changes checkpoint to " + data.checkpointFile, e );
+      }
+    }
+    if ( StringUtils.isNotEmpty( data.checkpointVariable ) ) {
+      // make the sequence available to the rest of the job as well
+      getTrans().setVariable( data.checkpointVariable, seq );
+      for ( Job job = getTrans().getParentJob(); job != null; job = job.getParentJob() ) {
+        job.setVariable( data.checkpointVariable, seq );
+      }
+    }
+    logBasic( BaseMessages.getString( PKG, "CouchDbInput.Message.CheckpointSaved", seq ) );
+  }
+
+  /**
+   * Request the next page of the view: the rows after the last one read, or the start of the range of this copy if
+   * none have been read yet.
+   *
+   * @return false if there is nothing left to read
+   */
+  private boolean openPage() throws KettleException, IOException {
+    if ( data.remaining == 0 ) {
+      return false;
+    }
+    long limit = data.remaining;
+    if ( data.pageSize > 0 && ( limit < 0 || limit > data.pageSize ) ) {
+      limit = data.pageSize;
+    }
+    data.pageLimit = Math.max( limit, 0 );
+    data.pageRows = 0;
+
+    executeRequest( data.viewUrl + buildQuery( data.lastKey, data.lastId,
+      data.lastKey != null ? data.lastKeyRows : data.skip, data.pageLimit ) );
+    return true;
+  }
+
+  private void executeRequest( String url ) throws KettleException, IOException {
+    if ( log.isDetailed() ) {
+      logDetailed( "Requesting " + url );
+    }
+    HttpGet method = getMethodFactory.create( url );
+
+    // Execute request
+    data.request = method;
+    data.inputStream = null;
+    data.bufferedInputStream = null;
+
+    HttpResponse httpResponse =
+      data.context != null ? data.client.execute( method, data.context ) : data.client.execute( method );
+    int result = httpResponse.getStatusLine().getStatusCode();
+
+    // the response
+    data.inputStream = httpResponse.getEntity().getContent();
+    data.bufferedInputStream = new BufferedInputStream( data.inputStream, 1000 );
+
+    if ( result < 200 || result >= 300 ) {
+      StringBuilder err = new StringBuilder();
+      int c;
+      while ( ( c = data.bufferedInputStream.read() ) >= 0 ) {
+        err.append( (char) c );
+      }
+      closePage( false );
+      throw new KettleException( "Web request returned code " + result + " : " + err.toString() );
+    }
+  }
+
+  /**
+   * Close the response currently being read (if any).
+   *
+   * @param abort true to drop the connection rather than read the rest of the response
+   */
+  private void closePage( boolean abort ) {
+    if ( abort && data.request != null ) {
+      data.request.abort();
+    }
+    try {
+      if ( data.viewReader != null ) {
+        data.viewReader.close();
+      } else if ( data.changesReader != null ) {
+        data.changesReader.close();
+      } else if ( data.bufferedInputStream != null ) {
+        data.bufferedInputStream.close();
+      }
+    } catch ( IOException e ) {
+      if ( log.isDebug() ) {
+        logDebug( "Error closing data stream: " + e.getMessage() );
+      }
+    }
+    data.viewReader = null;
+    data.changesReader = null;
+    data.bufferedInputStream = null;
+    data.inputStream = null;
+    data.request = null;
+  }
+
+  /**
+   * Work out the rows of the view this copy reads: the view is divided into equal, consecutive ranges of rows, one
+   * per copy of the step.
+   */
+  private void assignRange() throws KettleException, IOException {
+    int copies = getUniqueStepCountAcrossSlaves();
+    if ( copies <= 1 ) {
+      data.skip = 0;
+      data.remaining = -1;
+      return;
+    }
+
+    long totalRows;
+    executeRequest( data.viewUrl + "?limit=0" );
+    CouchDbViewReader reader = new CouchDbViewReader( data.bufferedInputStream );
+    try {
+      reader.readHeader();
+      totalRows = reader.getTotalRows();
+    } finally {
+      data.viewReader = reader;
+      closePage( false );
+    }
+    if ( totalRows < 0 ) {
+      throw new KettleException( "The view response holds no total number of rows" );
+    }
+
+    int copyNr = getUniqueStepNrAcrossSlaves();
+    data.skip = totalRows * copyNr / copies;
+    data.remaining = totalRows * ( copyNr + 1 ) / copies - data.skip;
+    logBasic( BaseMessages.getString( PKG, "CouchDbInput.Message.ReadingRange", data.skip + 1,
+      data.skip + data.remaining, totalRows ) );
   }
 
   public boolean init( StepMetaInterface stepMetaInterface, StepDataInterface stepDataInterface ) {
@@ -238,12 +537,13 @@ public class CouchDbInput extends BaseStep implements StepInterface {
       String design = environmentSubstitute( meta.getDesignDocument() );
       String view = environmentSubstitute( meta.getViewName() );
 
-      if ( StringUtils.isEmpty( design ) ) {
+      data.changesFeed = meta.getChangesFeed();
+      if ( !data.changesFeed && StringUtils.isEmpty( design ) ) {
         log.logError( "Please provide a design document to use" );
         return false;
       }
 
-      if ( StringUtils.isEmpty( view ) ) {
+      if ( !data.changesFeed && StringUtils.isEmpty( view ) ) {
         log.logError( "Please provide a view name to look at" );
         return false;
       }
@@ -252,41 +552,41 @@ public class CouchDbInput extends BaseStep implements StepInterface {
       String realPass =
         Encr.decryptPasswordOptionallyEncrypted( environmentSubstitute( meta.getAuthenticationPassword() ) );
 
-      String url = buildUrl( hostname, port, db, design, view );
-
-      logBasic( "Querying CouchDB view on URL: " + url );
+      data.viewUrl = buildUrl( hostname, port, db, design, view );
+      data.pageSize = Const.toInt( environmentSubstitute( meta.getPageSize() ), 0 );
+      data.retries = Const.toInt( environmentSubstitute( meta.getRetries() ), CouchDbInputMeta.DEFAULT_RETRIES );
+
+      if ( data.changesFeed ) {
+        data.changesUrl = buildChangesUrl( hostname, port, db );
+        data.checkpointFile = environmentSubstitute( meta.getCheckpointFile() );
+        data.checkpointVariable = environmentSubstitute( meta.getCheckpointVariable() );
+        logBasic( "Reading CouchDB changes feed on URL: " + data.changesUrl );
+      } else {
+        logBasic( "Querying CouchDB view on URL: " + data.viewUrl );
+      }
 
       try {
-        HttpClient client = createHttpClient( realUser, realPass );
-
-        HttpGet method = getMethodFactory.create( url );
-
-        // Execute request
-        data.inputStream = null;
-        data.bufferedInputStream = null;
+        data.client = createHttpClient( realUser, realPass );
 
         //Client Preemptive Basic Authentication
-        HttpClientContext context = null;
+        data.context = null;
         if ( StringUtils.isNotBlank( hostname ) ) {
-          context = getHttpClientContext( hostname, port );
+          data.context = getHttpClientContext( hostname, port );
         }
 
-        HttpResponse httpResponse =
-          context != null ? client.execute( method, context ) : client.execute( method );
-        int result = httpResponse.getStatusLine().getStatusCode();
-
-        // the response
-        data.inputStream = httpResponse.getEntity().getContent();
-        data.bufferedInputStream = new BufferedInputStream( data.inputStream, 1000 );
-
-        if ( result < 200 || result >= 300 ) {
-          StringBuilder err = new StringBuilder();
-          int c;
-          while ( ( c = data.bufferedInputStream.read() ) >= 0 ) {
-            err.append( (char) c );
+        if ( data.changesFeed ) {
+          if ( getUniqueStepNrAcrossSlaves() > 0 ) {
+            // the feed is a single sequence of changes, read by the first copy only
+            logBasic( BaseMessages.getString( PKG, "CouchDbInput.Message.ChangesReadByFirstCopy" ) );
+            data.changesUrl = null;
+          } else {
+            data.since = readCheckpoint();
+            logBasic( BaseMessages.getString( PKG, "CouchDbInput.Message.ReadingChangesSince", data.since ) );
+            openChangesPage();
           }
-          logError( "Web request returned code " + result + " : " + err.toString() );
-          return false;
+        } else {
+          assignRange();
+          openPage();
         }
 
         data.counter = 0;
@@ -304,13 +604,9 @@ public class CouchDbInput extends BaseStep implements StepInterface {
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
 
-    if ( data.bufferedInputStream != null ) {
-      try {
-        data.bufferedInputStream.close();
-      } catch ( Exception e ) {
-        setErrors( 1 );
-        logError( "Error closing data stream", e );
-      }
+    // don't read the rest of a response that is no longer needed
+    if ( data != null ) {
+      closePage( true );
     }
 
     super.dispose( smi, sdi );
@@ -325,14 +621,8 @@ public class CouchDbInput extends BaseStep implements StepInterface {
 
   @VisibleForTesting
   HttpClient createHttpClient( String user, String password ) {
-    HttpClientManager.HttpClientBuilderFacade httpClientBuilder = httpClientManager.createBuilder();
-    // client.setTimeout(10000);
-    // client.setConnectionTimeout(10000);
-
-    if ( StringUtils.isNotBlank( user ) ) {
-      httpClientBuilder.setCredentials( user, password );
-    }
-    return httpClientBuilder.build();
+    // connections are kept alive and shared with the other copies and runs using the same credentials
+    return CouchDbHttpClientPool.getInstance().getClient( user, password );
   }
 
   static class GetMethodFactory {
@@ -341,11 +631,6 @@ public class CouchDbInput extends BaseStep implements StepInterface {
     }
   }
 
-  @VisibleForTesting
-  HttpClientManager createHttpClientManager() {
-    return HttpClientManager.getInstance();
-  }
-
   @VisibleForTesting
   HttpClientContext getHttpClientContext( String hostname, int port ) {
     HttpClientContext context;
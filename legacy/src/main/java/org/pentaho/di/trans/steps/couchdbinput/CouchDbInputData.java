@@ -16,6 +16,9 @@ package org.pentaho.di.trans.steps.couchdbinput;
 import java.io.BufferedInputStream;
 import java.io.InputStream;
 
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -29,10 +32,51 @@ public class CouchDbInputData extends BaseStepData implements StepDataInterface
 
   public int counter;
 
+  public String viewUrl;
+  public HttpClient client;
+  public HttpClientContext context;
+
+  /** The request of the page being read */
+  public HttpGet request;
+
   public InputStream inputStream;
   public BufferedInputStream bufferedInputStream;
 
-  public StringBuilder buffer;
+  public CouchDbViewReader viewReader;
+
+  /** Rows per request, 0 to read the view (range) in one request */
+  public int pageSize;
+
+  /** Limit of the current request (0 for none) and the number of rows read from it so far */
+  public long pageLimit;
+  public long pageRows;
+
+  /** Rows of the view before the range of this copy */
+  public long skip;
+
+  /** Rows of the range of this copy left to read, -1 if the range runs to the end of the view */
+  public long remaining = -1;
+
+  /** Key (JSON) and document id of the last row read, where to resume from */
+  public String lastKey;
+  public String lastId;
+
+  /** Number of rows read in a row with that key and document id, all of them are skipped when resuming */
+  public long lastKeyRows;
+
+  /** Number of times in a row reading has failed, and how many times to try again */
+  public int failures;
+  public int retries;
+
+  /** Changes feed mode: the URL of the feed (null if this copy reads nothing) and the reader of the current response */
+  public boolean changesFeed;
+  public String changesUrl;
+  public CouchDbChangesReader changesReader;
+
+  /** Sequence of the last change read, the changes after it are read next */
+  public String since;
 
-  public int open;
+  /** Where to save the sequence reached once the transformation has finished successfully */
+  public String checkpointFile;
+  public String checkpointVariable;
 }
@@ -55,6 +55,10 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
   public static final String DEFAULT_DB_NAME = "db";
   public static final String DEFAULT_VIEW_NAME = "design-document/view-name";
   public static final String VALUE_META_NAME = "json";
+  public static final String ID_VALUE_META_NAME = "id";
+  public static final String SEQ_VALUE_META_NAME = "seq";
+  public static final String DELETED_VALUE_META_NAME = "deleted";
+  public static final int DEFAULT_RETRIES = 3;
   private static Class<?> PKG = CouchDbInputMeta.class; // for i18n purposes, needed by Translator2!! $NON-NLS-1$
 
   public CouchDbInputMeta() {
@@ -82,6 +86,24 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
   @Injection( name = "AUTHENTICATION_PASSWORD" )
   private String authenticationPassword;
 
+  @Injection( name = "PAGE_SIZE" )
+  private String pageSize;
+
+  @Injection( name = "RETRIES" )
+  private String retries;
+
+  @Injection( name = "CHANGES_FEED" )
+  private boolean changesFeed;
+
+  @Injection( name = "SINCE" )
+  private String since;
+
+  @Injection( name = "CHECKPOINT_FILE" )
+  private String checkpointFile;
+
+  @Injection( name = "CHECKPOINT_VARIABLE" )
+  private String checkpointVariable;
+
   @Override
   public void loadXML( Node stepnode, List<DatabaseMeta> databases, IMetaStore metaStore )
     throws KettleXMLException {
@@ -94,6 +116,12 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
       authenticationUser = XMLHandler.getTagValue( stepnode, "auth_user" ); //$NON-NLS-1$
       authenticationPassword =
         Encr.decryptPasswordOptionallyEncrypted( XMLHandler.getTagValue( stepnode, "auth_password" ) ); //$NON-NLS-1$
+      pageSize = XMLHandler.getTagValue( stepnode, "page_size" );
+      retries = XMLHandler.getTagValue( stepnode, "retries" );
+      changesFeed = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "changes_feed" ) );
+      since = XMLHandler.getTagValue( stepnode, "since" );
+      checkpointFile = XMLHandler.getTagValue( stepnode, "checkpoint_file" );
+      checkpointVariable = XMLHandler.getTagValue( stepnode, "checkpoint_variable" );
     } catch ( Exception e ) {
       throw new KettleXMLException( BaseMessages.getString( PKG, "CouchDbInputMeta.Exception.UnableToLoadStepInfo" ),
         e ); //$NON-NLS-1$
@@ -111,6 +139,10 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
     port = DEFAULT_PORT; //$NON-NLS-1$
     dbName = DEFAULT_DB_NAME; //$NON-NLS-1$
     viewName = DEFAULT_VIEW_NAME; //$NON-NLS-1$
+    pageSize = "0";
+    retries = "" + DEFAULT_RETRIES;
+    changesFeed = false;
+    since = "0";
   }
 
   @Override
@@ -119,6 +151,16 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
     ValueMetaInterface idValueMeta = new ValueMeta( VALUE_META_NAME, ValueMetaInterface.TYPE_STRING );
     idValueMeta.setOrigin( origin );
     rowMeta.addValueMeta( idValueMeta );
+
+    if ( changesFeed ) {
+      String[] names = { ID_VALUE_META_NAME, SEQ_VALUE_META_NAME, DELETED_VALUE_META_NAME };
+      int[] types = { ValueMetaInterface.TYPE_STRING, ValueMetaInterface.TYPE_STRING, ValueMetaInterface.TYPE_BOOLEAN };
+      for ( int i = 0; i < names.length; i++ ) {
+        ValueMetaInterface valueMeta = new ValueMeta( names[ i ], types[ i ] );
+        valueMeta.setOrigin( origin );
+        rowMeta.addValueMeta( valueMeta );
+      }
+    }
   }
 
   @Override
@@ -134,6 +176,12 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
     retval.append( "    " ).append( XMLHandler.addTagValue( "auth_user", authenticationUser ) );
     retval.append( "    " ).append(
       XMLHandler.addTagValue( "auth_password", Encr.encryptPasswordIfNotUsingVariables( authenticationPassword ) ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "page_size", pageSize ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "retries", retries ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "changes_feed", changesFeed ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "since", since ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "checkpoint_file", checkpointFile ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "checkpoint_variable", checkpointVariable ) );
 
     return retval.toString();
   }
@@ -150,6 +198,12 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
       authenticationUser = rep.getStepAttributeString( id_step, "auth_user" );
       authenticationPassword =
         Encr.decryptPasswordOptionallyEncrypted( rep.getStepAttributeString( id_step, "auth_password" ) );
+      pageSize = rep.getStepAttributeString( id_step, "page_size" );
+      retries = rep.getStepAttributeString( id_step, "retries" );
+      changesFeed = rep.getStepAttributeBoolean( id_step, "changes_feed" );
+      since = rep.getStepAttributeString( id_step, "since" );
+      checkpointFile = rep.getStepAttributeString( id_step, "checkpoint_file" );
+      checkpointVariable = rep.getStepAttributeString( id_step, "checkpoint_variable" );
     } catch ( Exception e ) {
       throw new KettleException( BaseMessages.getString( PKG,
         "CouchDbInputMeta.Exception.UnexpectedErrorWhileReadingStepInfo" ), e ); //$NON-NLS-1$
@@ -168,6 +222,12 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
       rep.saveStepAttribute( id_transformation, id_step, "auth_user", authenticationUser );
       rep.saveStepAttribute( id_transformation, id_step, "auth_password", Encr
         .encryptPasswordIfNotUsingVariables( authenticationPassword ) );
+      rep.saveStepAttribute( id_transformation, id_step, "page_size", pageSize );
+      rep.saveStepAttribute( id_transformation, id_step, "retries", retries );
+      rep.saveStepAttribute( id_transformation, id_step, "changes_feed", changesFeed );
+      rep.saveStepAttribute( id_transformation, id_step, "since", since );
+      rep.saveStepAttribute( id_transformation, id_step, "checkpoint_file", checkpointFile );
+      rep.saveStepAttribute( id_transformation, id_step, "checkpoint_variable", checkpointVariable );
     } catch ( Exception e ) {
       throw new KettleException(
         BaseMessages.getString( PKG, "CouchDbInputMeta.Exception.UnableToSaveStepInfo" ) + id_step, e ); //$NON-NLS-1$
@@ -283,4 +343,88 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
     this.designDocument = designDocument;
   }
 
+  /**
+   * @return the number of rows to request at a time (0 to read the view in one request)
+   */
+  public String getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * @param pageSize the number of rows to request at a time (0 to read the view in one request)
+   */
+  public void setPageSize( String pageSize ) {
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * @return the number of times to resume reading after a failed request
+   */
+  public String getRetries() {
+    return retries;
+  }
+
+  /**
+   * @param retries the number of times to resume reading after a failed request
+   */
+  public void setRetries( String retries ) {
+    this.retries = retries;
+  }
+
+  /**
+   * @return true to read the changes feed of the database rather than a view
+   */
+  public boolean getChangesFeed() {
+    return changesFeed;
+  }
+
+  /**
+   * @param changesFeed true to read the changes feed of the database rather than a view
+   */
+  public void setChangesFeed( boolean changesFeed ) {
+    this.changesFeed = changesFeed;
+  }
+
+  /**
+   * @return the sequence to read the changes after when no checkpoint has been saved yet
+   */
+  public String getSince() {
+    return since;
+  }
+
+  /**
+   * @param since the sequence to read the changes after when no checkpoint has been saved yet
+   */
+  public void setSince( String since ) {
+    this.since = since;
+  }
+
+  /**
+   * @return the file to read the sequence to start from and to save the sequence reached to
+   */
+  public String getCheckpointFile() {
+    return checkpointFile;
+  }
+
+  /**
+   * @param checkpointFile the file to read the sequence to start from and to save the sequence reached to
+   */
+  public void setCheckpointFile( String checkpointFile ) {
+    this.checkpointFile = checkpointFile;
+  }
+
+  /**
+   * @return the variable to set to the sequence reached
+   */
+  public String getCheckpointVariable() {
+    return checkpointVariable;
+  }
+
+  /**
+   * @param checkpointVariable the variable to set to the sequence reached
+   */
+  public void setCheckpointVariable( String checkpointVariable ) {
+    this.checkpointVariable = checkpointVariable;
+  }
+
 }
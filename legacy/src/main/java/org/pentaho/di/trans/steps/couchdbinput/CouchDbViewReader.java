@@ -0,0 +1,241 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.couchdbinput;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+
+/**
+ * Pull parser over the response of a CouchDB view query, e.g.
+ *
+ * <pre>
+ * {"total_rows":3,"offset":0,"rows":[
+ * {"id":"a","key":"a","value":1},
+ * ...
+ * ]}
+ * </pre>
+ *
+ * The rows are handed out one at a time as JSON text, without holding more than the current row in memory. The text of
+ * a row is built in a buffer that is reused from one row to the next.
+ */
+public class CouchDbViewReader implements Closeable {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private final JsonParser parser;
+  private final StringBuilderWriter rowText = new StringBuilderWriter( 1000 );
+  private final JsonGenerator generator;
+  private final StringBuilderWriter keyText = new StringBuilderWriter( 100 );
+  private final JsonGenerator keyGenerator;
+
+  private long totalRows = -1;
+  private String key;
+  private String id;
+  private boolean inRows;
+
+  public CouchDbViewReader( InputStream inputStream ) throws IOException {
+    parser = JSON_FACTORY.createParser( inputStream );
+    generator = JSON_FACTORY.createGenerator( rowText );
+    // every row is a document of its own
+    generator.setRootValueSeparator( null );
+    keyGenerator = JSON_FACTORY.createGenerator( keyText );
+    keyGenerator.setRootValueSeparator( null );
+  }
+
+  /**
+   * Read up to the start of the rows array.
+   *
+   * @return false if the response holds no rows array
+   * @throws IOException if the response can't be read or isn't valid JSON
+   */
+  public boolean readHeader() throws IOException {
+    if ( parser.nextToken() != JsonToken.START_OBJECT ) {
+      return false;
+    }
+    JsonToken token;
+    while ( ( token = parser.nextToken() ) == JsonToken.FIELD_NAME ) {
+      String name = parser.getCurrentName();
+      token = parser.nextToken();
+      if ( "rows".equals( name ) && token == JsonToken.START_ARRAY ) {
+        inRows = true;
+        return true;
+      }
+      if ( "total_rows".equals( name ) && token == JsonToken.VALUE_NUMBER_INT ) {
+        totalRows = parser.getLongValue();
+      }
+      parser.skipChildren();
+    }
+    return false;
+  }
+
+  /**
+   * @return the total number of rows in the view, or -1 if not (yet) known
+   */
+  public long getTotalRows() {
+    return totalRows;
+  }
+
+  /**
+   * Read the next row of the view.
+   *
+   * @return the JSON text of the row or null once all rows have been read
+   * @throws IOException if the response can't be read or isn't valid JSON
+   */
+  public CharSequence nextRow() throws IOException {
+    if ( !inRows ) {
+      return null;
+    }
+    JsonToken token = parser.nextToken();
+    if ( token == null || token == JsonToken.END_ARRAY ) {
+      inRows = false;
+      return null;
+    }
+
+    rowText.getBuilder().setLength( 0 );
+    key = null;
+    id = null;
+    if ( token != JsonToken.START_OBJECT ) {
+      copyValue( parser, generator );
+    } else {
+      // copy field by field, picking up the key and document id on the way
+      generator.writeStartObject();
+      while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+        String name = parser.getCurrentName();
+        token = parser.nextToken();
+        generator.writeFieldName( name );
+        if ( "key".equals( name ) ) {
+          keyText.getBuilder().setLength( 0 );
+          copyValue( parser, keyGenerator );
+          keyGenerator.flush();
+          key = keyText.getBuilder().toString();
+          generator.writeRawValue( key );
+        } else {
+          if ( "id".equals( name ) && token == JsonToken.VALUE_STRING ) {
+            id = parser.getText();
+          }
+          copyValue( parser, generator );
+        }
+      }
+      generator.writeEndObject();
+    }
+    generator.flush();
+
+    return rowText.getBuilder();
+  }
+
+  /**
+   * Copy the value at the current token of the parser. Numbers are written with the text they were read with, where
+   * {@link JsonGenerator#copyCurrentStructure(JsonParser)} would pass floats through a double and turn 1.10 into 1.1
+   * or 1e2 into 100.0.
+   *
+   * @param parser    the parser, positioned on the first token of the value
+   * @param generator where to write the value
+   * @throws IOException if the value can't be read or written
+   */
+  static void copyValue( JsonParser parser, JsonGenerator generator ) throws IOException {
+    switch ( parser.getCurrentToken() ) {
+      case START_OBJECT:
+        generator.writeStartObject();
+        while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+          generator.writeFieldName( parser.getCurrentName() );
+          parser.nextToken();
+          copyValue( parser, generator );
+        }
+        generator.writeEndObject();
+        break;
+      case START_ARRAY:
+        generator.writeStartArray();
+        while ( parser.nextToken() != JsonToken.END_ARRAY ) {
+          copyValue( parser, generator );
+        }
+        generator.writeEndArray();
+        break;
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        generator.writeNumber( parser.getText() );
+        break;
+      default:
+        generator.copyCurrentEvent( parser );
+    }
+  }
+
+  /**
+   * @return the key of the last row read as JSON text, or null if it had none
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * @return the document id of the last row read, or null if it had none (e.g. rows of a reduce)
+   */
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      generator.close();
+      keyGenerator.close();
+    } finally {
+      parser.close();
+    }
+  }
+
+  /**
+   * Unsynchronized writer appending to a string builder.
+   */
+  static class StringBuilderWriter extends Writer {
+    private final StringBuilder builder;
+
+    StringBuilderWriter( int capacity ) {
+      builder = new StringBuilder( capacity );
+    }
+
+    StringBuilder getBuilder() {
+      return builder;
+    }
+
+    @Override
+    public void write( char[] cbuf, int off, int len ) {
+      builder.append( cbuf, off, len );
+    }
+
+    @Override
+    public void write( String str, int off, int len ) {
+      builder.append( str, off, off + len );
+    }
+
+    @Override
+    public void write( int c ) {
+      builder.append( (char) c );
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
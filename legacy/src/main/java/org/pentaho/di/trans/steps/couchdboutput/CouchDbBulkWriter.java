@@ -0,0 +1,367 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.couchdboutput;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.AuthCache;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.util.EntityUtils;
+import org.pentaho.di.core.exception.KettleException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes batches of documents to a CouchDB database with one _bulk_docs request per batch. Documents that have an id
+ * but no revision can first have their current revision looked up with one _all_docs request per batch, so that they
+ * replace the stored document rather than conflict with it.
+ *
+ * A writer may be used from several threads at once, one batch per thread: each batch is sent in an execution context
+ * (and auth cache) of its own, as those are not thread safe.
+ */
+public class CouchDbBulkWriter {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  static final String ID = "_id";
+  static final String REV = "_rev";
+
+  /**
+   * A document to write and, once written, the outcome for it.
+   */
+  public static class Document {
+    private final String json;
+    private final String jsonId;
+    private final String jsonRev;
+
+    private String id;
+    private String rev;
+
+    private String error;
+    private String reason;
+
+    Document( String json, String jsonId, String jsonRev, String id ) {
+      this.json = json;
+      this.jsonId = jsonId;
+      this.jsonRev = jsonRev;
+      this.id = id != null ? id : jsonId;
+      this.rev = jsonRev;
+    }
+
+    /**
+     * @return the id of the document, null if CouchDB is to assign one and the document hasn't been written yet
+     */
+    public String getId() {
+      return id;
+    }
+
+    /**
+     * @return the revision to update (before writing) or the revision written
+     */
+    public String getRev() {
+      return rev;
+    }
+
+    /**
+     * @return the error CouchDB reported for the document (e.g. "conflict"), or null if it was written
+     */
+    public String getError() {
+      return error;
+    }
+
+    /**
+     * @return the explanation of the error
+     */
+    public String getReason() {
+      return reason;
+    }
+
+    boolean needsRewrite() {
+      return !equal( id, jsonId ) || !equal( rev, jsonRev );
+    }
+
+    private static boolean equal( String a, String b ) {
+      return a == null ? b == null : a.equals( b );
+    }
+  }
+
+  private final HttpClient client;
+  private final HttpHost authTarget;
+  private final String dbUrl;
+  private final boolean upsert;
+
+  /**
+   * @param client the client to send the requests with
+   * @param authTarget the host to send basic authentication to without waiting for a challenge, or null
+   * @param dbUrl the URL of the database
+   * @param upsert true to look up the current revision of documents with an id but no revision
+   */
+  public CouchDbBulkWriter( HttpClient client, HttpHost authTarget, String dbUrl, boolean upsert ) {
+    this.client = client;
+    this.authTarget = authTarget;
+    this.dbUrl = dbUrl;
+    this.upsert = upsert;
+  }
+
+  /**
+   * Read the id and revision of a document.
+   *
+   * @param json the JSON object of the document
+   * @param id the id to give the document instead of its own _id, or null
+   * @return the document
+   * @throws IOException if the document isn't a JSON object
+   */
+  public static Document parseDocument( String json, String id ) throws IOException {
+    String jsonId = null;
+    String jsonRev = null;
+    try ( JsonParser parser = JSON_FACTORY.createParser( json ) ) {
+      if ( parser.nextToken() != JsonToken.START_OBJECT ) {
+        throw new IOException( "The document is not a JSON object" );
+      }
+      while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+        String name = parser.getCurrentName();
+        JsonToken token = parser.nextToken();
+        if ( ID.equals( name ) && token == JsonToken.VALUE_STRING ) {
+          jsonId = parser.getText();
+        } else if ( REV.equals( name ) && token == JsonToken.VALUE_STRING ) {
+          jsonRev = parser.getText();
+        } else {
+          parser.skipChildren();
+        }
+      }
+      if ( parser.nextToken() != null ) {
+        throw new IOException( "Unexpected content after the document" );
+      }
+    }
+    return new Document( json, jsonId, jsonRev, id );
+  }
+
+  /**
+   * Write a batch of documents, recording the outcome (new revision or error) in each of them.
+   *
+   * @param documents the documents
+   * @throws IOException if a request fails or its response can't be read
+   * @throws KettleException if CouchDB rejects a request as a whole
+   */
+  public void write( List<Document> documents ) throws IOException, KettleException {
+    if ( documents.isEmpty() ) {
+      return;
+    }
+    HttpClientContext context = createContext();
+    if ( upsert ) {
+      lookupRevisions( documents, context );
+    }
+
+    ByteArrayOutputStream body = new ByteArrayOutputStream( documents.size() * 256 );
+    try ( JsonGenerator generator = JSON_FACTORY.createGenerator( body ) ) {
+      generator.writeStartObject();
+      generator.writeArrayFieldStart( "docs" );
+      for ( Document document : documents ) {
+        writeDocument( generator, document );
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+
+    // one result per document, in the order of the request:
+    // [{"ok":true,"id":"a","rev":"1-967a"},{"id":"b","error":"conflict","reason":"Document update conflict."}]
+    HttpPost post = post( "/_bulk_docs", body.toByteArray() );
+    try ( JsonParser parser = JSON_FACTORY.createParser( execute( post, context ) ) ) {
+      if ( parser.nextToken() != JsonToken.START_ARRAY ) {
+        throw new IOException( "Unexpected _bulk_docs response" );
+      }
+      int index = 0;
+      while ( parser.nextToken() == JsonToken.START_OBJECT ) {
+        Document document = index < documents.size() ? documents.get( index ) : null;
+        index++;
+        while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+          String name = parser.getCurrentName();
+          parser.nextToken();
+          if ( document == null ) {
+            parser.skipChildren();
+          } else if ( "id".equals( name ) ) {
+            document.id = parser.getValueAsString();
+          } else if ( "rev".equals( name ) ) {
+            document.rev = parser.getValueAsString();
+          } else if ( "error".equals( name ) ) {
+            document.error = parser.getValueAsString();
+          } else if ( "reason".equals( name ) ) {
+            document.reason = parser.getValueAsString();
+          } else {
+            parser.skipChildren();
+          }
+        }
+      }
+      for ( int i = index; i < documents.size(); i++ ) {
+        documents.get( i ).error = "missing_result";
+        documents.get( i ).reason = "No result was returned for the document";
+      }
+    } finally {
+      post.releaseConnection();
+    }
+  }
+
+  /**
+   * Give the documents that have an id but no revision the current revision of the stored document, if there is one.
+   */
+  void lookupRevisions( List<Document> documents, HttpClientContext context ) throws IOException, KettleException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    boolean any = false;
+    try ( JsonGenerator generator = JSON_FACTORY.createGenerator( body ) ) {
+      generator.writeStartObject();
+      generator.writeArrayFieldStart( "keys" );
+      for ( Document document : documents ) {
+        if ( document.id != null && document.rev == null ) {
+          generator.writeString( document.id );
+          any = true;
+        }
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+    if ( !any ) {
+      return;
+    }
+
+    // {"total_rows":3,"rows":[{"id":"a","key":"a","value":{"rev":"1-967a"}},{"key":"b","error":"not_found"}]}
+    Map<String, String> revisions = new HashMap<>();
+    HttpPost post = post( "/_all_docs", body.toByteArray() );
+    try ( JsonParser parser = JSON_FACTORY.createParser( execute( post, context ) ) ) {
+      if ( parser.nextToken() != JsonToken.START_OBJECT ) {
+        throw new IOException( "Unexpected _all_docs response" );
+      }
+      while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+        String name = parser.getCurrentName();
+        if ( parser.nextToken() == JsonToken.START_ARRAY && "rows".equals( name ) ) {
+          while ( parser.nextToken() == JsonToken.START_OBJECT ) {
+            readRevision( parser, revisions );
+          }
+        } else {
+          parser.skipChildren();
+        }
+      }
+    } finally {
+      post.releaseConnection();
+    }
+
+    for ( Document document : documents ) {
+      if ( document.id != null && document.rev == null ) {
+        document.rev = revisions.get( document.id );
+      }
+    }
+  }
+
+  private static void readRevision( JsonParser parser, Map<String, String> revisions ) throws IOException {
+    String key = null;
+    String rev = null;
+    boolean deleted = false;
+    while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+      String name = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      if ( "key".equals( name ) && token == JsonToken.VALUE_STRING ) {
+        key = parser.getText();
+      } else if ( "value".equals( name ) && token == JsonToken.START_OBJECT ) {
+        while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+          String valueName = parser.getCurrentName();
+          token = parser.nextToken();
+          if ( "rev".equals( valueName ) && token == JsonToken.VALUE_STRING ) {
+            rev = parser.getText();
+          } else if ( "deleted".equals( valueName ) && token.isBoolean() ) {
+            deleted = parser.getBooleanValue();
+          } else {
+            parser.skipChildren();
+          }
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+    // a deleted document is recreated without a revision
+    if ( key != null && rev != null && !deleted ) {
+      revisions.put( key, rev );
+    }
+  }
+
+  private static void writeDocument( JsonGenerator generator, Document document ) throws IOException {
+    if ( !document.needsRewrite() ) {
+      generator.writeRawValue( document.json );
+      return;
+    }
+    generator.writeStartObject();
+    if ( document.id != null ) {
+      generator.writeStringField( ID, document.id );
+    }
+    if ( document.rev != null ) {
+      generator.writeStringField( REV, document.rev );
+    }
+    try ( JsonParser parser = JSON_FACTORY.createParser( document.json ) ) {
+      parser.nextToken();
+      while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+        String name = parser.getCurrentName();
+        parser.nextToken();
+        if ( ID.equals( name ) || REV.equals( name ) ) {
+          parser.skipChildren();
+        } else {
+          generator.writeFieldName( name );
+          generator.copyCurrentStructure( parser );
+        }
+      }
+    }
+    generator.writeEndObject();
+  }
+
+  private HttpPost post( String path, byte[] body ) {
+    HttpPost post = new HttpPost( dbUrl + path );
+    post.setEntity( new ByteArrayEntity( body, ContentType.APPLICATION_JSON ) );
+    return post;
+  }
+
+  /**
+   * Create the context for the requests of one batch, with preemptive basic authentication if there is a target.
+   */
+  HttpClientContext createContext() {
+    HttpClientContext context = HttpClientContext.create();
+    if ( authTarget != null ) {
+      AuthCache authCache = new BasicAuthCache();
+      authCache.put( authTarget, new BasicScheme() );
+      context.setAuthCache( authCache );
+    }
+    return context;
+  }
+
+  private InputStream execute( HttpPost post, HttpClientContext context ) throws IOException, KettleException {
+    HttpResponse response = client.execute( post, context );
+    int result = response.getStatusLine().getStatusCode();
+    if ( result < 200 || result >= 300 ) {
+      String err = response.getEntity() != null ? EntityUtils.toString( response.getEntity() ) : "";
+      throw new KettleException( "Web request returned code " + result + " : " + err );
+    }
+    return response.getEntity().getContent();
+  }
+}
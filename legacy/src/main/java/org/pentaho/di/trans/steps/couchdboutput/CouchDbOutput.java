@@ -0,0 +1,276 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.couchdboutput;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpHost;
+import org.apache.http.client.HttpClient;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.encryption.Encr;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.couchdbinput.CouchDbHttpClientPool;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the JSON documents of the incoming rows to a CouchDB database with _bulk_docs requests. Rows are grouped into
+ * batches, and several batches are written at once by a small pool of threads. The rows are passed on in their
+ * original order, with the id and revision their document was written with; documents CouchDB rejects (e.g. update
+ * conflicts) are sent to the error hop.
+ */
+public class CouchDbOutput extends BaseStep implements StepInterface {
+  private static Class<?> PKG = CouchDbOutputMeta.class; // for i18n purposes, needed by Translator2!! $NON-NLS-1$
+
+  private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+  private CouchDbOutputMeta meta;
+  private CouchDbOutputData data;
+
+  public CouchDbOutput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
+                        Trans trans ) {
+    super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
+  }
+
+  public static String buildUrl( String hostname, int port, String db ) {
+    String url = "http://" + hostname;
+    if ( port >= 0 ) {
+      url += ":" + port;
+    }
+    url += "/" + db;
+    return url;
+  }
+
+  public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
+    Object[] row = getRow();
+
+    if ( row == null ) {
+      // write what is left and wait for all batches to complete
+      submitBatch();
+      while ( !data.inFlight.isEmpty() ) {
+        passOn( waitFor( data.inFlight.poll() ) );
+      }
+      setOutputDone();
+      return false;
+    }
+
+    if ( first ) {
+      first = false;
+
+      data.outputRowMeta = getInputRowMeta().clone();
+      meta.getFields( getTransMeta().getBowl(), data.outputRowMeta, getStepname(), null, null, this, repository,
+        metaStore );
+
+      String jsonField = environmentSubstitute( meta.getJsonField() );
+      data.jsonFieldIndex = getInputRowMeta().indexOfValue( jsonField );
+      if ( data.jsonFieldIndex < 0 ) {
+        throw new KettleException( BaseMessages.getString( PKG, "CouchDbOutput.Error.FieldNotFound", jsonField ) );
+      }
+      String idField = environmentSubstitute( meta.getIdField() );
+      data.idFieldIndex = -1;
+      if ( StringUtils.isNotEmpty( idField ) ) {
+        data.idFieldIndex = getInputRowMeta().indexOfValue( idField );
+        if ( data.idFieldIndex < 0 ) {
+          throw new KettleException( BaseMessages.getString( PKG, "CouchDbOutput.Error.FieldNotFound", idField ) );
+        }
+      }
+    }
+
+    String json = getInputRowMeta().getString( row, data.jsonFieldIndex );
+    String id = data.idFieldIndex >= 0 ? getInputRowMeta().getString( row, data.idFieldIndex ) : null;
+    CouchDbBulkWriter.Document document;
+    try {
+      if ( json == null ) {
+        throw new IOException( "The document is empty" );
+      }
+      document = CouchDbBulkWriter.parseDocument( json, id );
+    } catch ( IOException e ) {
+      String reason = BaseMessages.getString( PKG, "CouchDbOutput.Error.InvalidDocument", e.getMessage() );
+      if ( !getStepMeta().isDoingErrorHandling() ) {
+        throw new KettleException( reason, e );
+      }
+      putError( getInputRowMeta(), row, 1, reason, meta.getJsonField(), "CouchDbOutput001" );
+      return true;
+    }
+
+    data.batch.rows.add( row );
+    data.batch.documents.add( document );
+    if ( data.batch.documents.size() >= data.batchSize ) {
+      submitBatch();
+    }
+
+    // pass on the rows of batches written in the meantime
+    while ( !data.inFlight.isEmpty() && data.inFlight.peek().isDone() ) {
+      passOn( waitFor( data.inFlight.poll() ) );
+    }
+
+    return true;
+  }
+
+  /**
+   * Hand the batch being filled to the pool, first waiting for the oldest batch if as many as allowed are in flight.
+   */
+  private void submitBatch() throws KettleException {
+    if ( data.batch.documents.isEmpty() ) {
+      return;
+    }
+    while ( data.inFlight.size() >= data.concurrentBatches ) {
+      passOn( waitFor( data.inFlight.poll() ) );
+    }
+
+    final CouchDbOutputData.Batch batch = data.batch;
+    data.batch = new CouchDbOutputData.Batch();
+    data.inFlight.add( data.pool.submit( new Callable<CouchDbOutputData.Batch>() {
+      @Override
+      public CouchDbOutputData.Batch call() throws Exception {
+        data.writer.write( batch.documents );
+        return batch;
+      }
+    } ) );
+  }
+
+  private CouchDbOutputData.Batch waitFor( Future<CouchDbOutputData.Batch> future ) throws KettleException {
+    try {
+      return future.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( "Interrupted while writing to CouchDB", e );
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof KettleException ) {
+        throw (KettleException) e.getCause();
+      }
+      throw new KettleException( "Unable to write to the CouchDB REST web service", e.getCause() );
+    }
+  }
+
+  /**
+   * Pass on the rows of a written batch, sending those with a rejected document to the error hop.
+   */
+  private void passOn( CouchDbOutputData.Batch batch ) throws KettleException {
+    int inputSize = getInputRowMeta().size();
+    for ( int i = 0; i < batch.rows.size(); i++ ) {
+      Object[] row = batch.rows.get( i );
+      CouchDbBulkWriter.Document document = batch.documents.get( i );
+
+      if ( document.getError() != null ) {
+        String reason = BaseMessages.getString( PKG, "CouchDbOutput.Error.DocumentRejected", document.getId(),
+          document.getError(), document.getReason() );
+        if ( !getStepMeta().isDoingErrorHandling() ) {
+          throw new KettleException( reason );
+        }
+        putError( getInputRowMeta(), row, 1, reason, meta.getJsonField(), document.getError() );
+        continue;
+      }
+
+      Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
+      int index = inputSize;
+      if ( StringUtils.isNotEmpty( meta.getIdOutputField() ) ) {
+        outputRow[ index++ ] = document.getId();
+      }
+      if ( StringUtils.isNotEmpty( meta.getRevOutputField() ) ) {
+        outputRow[ index++ ] = document.getRev();
+      }
+      putRow( data.outputRowMeta, outputRow );
+      incrementLinesOutput();
+
+      if ( log.isRowLevel() ) {
+        logRowlevel( "Written document " + document.getId() + " revision " + document.getRev() );
+      }
+    }
+
+    if ( checkFeedback( getLinesOutput() ) ) {
+      logBasic( BaseMessages.getString( PKG, "CouchDbOutput.Message.CheckFeedback", getLinesOutput() ) );
+    }
+  }
+
+  public boolean init( StepMetaInterface stepMetaInterface, StepDataInterface stepDataInterface ) {
+    if ( super.init( stepMetaInterface, stepDataInterface ) ) {
+      meta = (CouchDbOutputMeta) stepMetaInterface;
+      data = (CouchDbOutputData) stepDataInterface;
+
+      String hostname = environmentSubstitute( meta.getHostname() );
+      int port = Const.toInt( environmentSubstitute( meta.getPort() ), 5984 );
+      String db = environmentSubstitute( meta.getDbName() );
+
+      if ( StringUtils.isEmpty( db ) ) {
+        log.logError( "Please provide a database to write to" );
+        return false;
+      }
+
+      String realUser = environmentSubstitute( meta.getAuthenticationUser() );
+      String realPass =
+        Encr.decryptPasswordOptionallyEncrypted( environmentSubstitute( meta.getAuthenticationPassword() ) );
+
+      data.batchSize = Math.max( 1, Const.toInt( environmentSubstitute( meta.getBatchSize() ),
+        CouchDbOutputMeta.DEFAULT_BATCH_SIZE ) );
+      data.concurrentBatches = Math.max( 1, Const.toInt( environmentSubstitute( meta.getConcurrentBatches() ),
+        CouchDbOutputMeta.DEFAULT_CONCURRENT_BATCHES ) );
+
+      String url = buildUrl( hostname, port, db );
+      logBasic( "Writing to CouchDB database on URL: " + url );
+
+      HttpClient client = createHttpClient( realUser, realPass );
+      //Client Preemptive Basic Authentication, in a context of its own for each batch
+      HttpHost authTarget = StringUtils.isNotBlank( hostname ) ? new HttpHost( hostname, port, "http" ) : null;
+      data.writer = new CouchDbBulkWriter( client, authTarget, url, meta.getUpsert() );
+
+      final int poolId = POOL_COUNTER.incrementAndGet();
+      final AtomicInteger threadCounter = new AtomicInteger();
+      data.pool = Executors.newFixedThreadPool( data.concurrentBatches, new ThreadFactory() {
+        @Override
+        public Thread newThread( Runnable runnable ) {
+          Thread thread = new Thread( runnable, "CouchDbOutput-" + poolId + "-" + threadCounter.incrementAndGet() );
+          thread.setDaemon( true );
+          return thread;
+        }
+      } );
+
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    CouchDbOutputData outputData = (CouchDbOutputData) sdi;
+    if ( outputData.pool != null ) {
+      outputData.pool.shutdownNow();
+      outputData.pool = null;
+    }
+    outputData.inFlight.clear();
+
+    super.dispose( smi, sdi );
+  }
+
+  @VisibleForTesting
+  HttpClient createHttpClient( String user, String password ) {
+    // connections are kept alive and shared with the other CouchDB steps using the same credentials
+    return CouchDbHttpClientPool.getInstance().getClient( user, password );
+  }
+}
@@ -0,0 +1,55 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.couchdboutput;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.step.BaseStepData;
+import org.pentaho.di.trans.step.StepDataInterface;
+
+public class CouchDbOutputData extends BaseStepData implements StepDataInterface {
+
+  /**
+   * The input rows of one _bulk_docs request and their documents.
+   */
+  public static class Batch {
+    public final List<Object[]> rows = new ArrayList<>();
+    public final List<CouchDbBulkWriter.Document> documents = new ArrayList<>();
+  }
+
+  public RowMetaInterface outputRowMeta;
+
+  public int jsonFieldIndex;
+  public int idFieldIndex = -1;
+
+  public CouchDbBulkWriter writer;
+
+  /** Documents per request and the number of requests to keep in flight */
+  public int batchSize;
+  public int concurrentBatches;
+
+  /** The batch being filled */
+  public Batch batch = new Batch();
+
+  /** The batches being written, oldest first; their rows are passed on in this order */
+  public final Deque<Future<Batch>> inFlight = new ArrayDeque<>();
+
+  public ExecutorService pool;
+}
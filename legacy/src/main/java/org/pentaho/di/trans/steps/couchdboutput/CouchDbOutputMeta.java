@@ -0,0 +1,414 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.couchdboutput;
+
+import org.apache.commons.lang.StringUtils;
+import org.pentaho.di.core.annotations.Step;
+import org.pentaho.di.core.bowl.Bowl;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.encryption.Encr;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.injection.Injection;
+import org.pentaho.di.core.injection.InjectionSupported;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMeta;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.metastore.api.IMetaStore;
+import org.w3c.dom.Node;
+
+import java.util.List;
+
+/**
+ * Meta data for the CouchDB Output step. Writes the JSON documents of the incoming rows to a CouchDB database in
+ * batches, keeping several batch requests in flight at once.
+ */
+@Step( id = "CouchDbOutput", image = "couchdb-input.svg", name = "CouchDbOutput.Name",
+  description = "CouchDbOutput.Description",
+  documentationUrl = "pdi-transformation-steps-reference-overview/couchdb-output",
+  categoryDescription = "i18n:org.pentaho.di.trans.step:BaseStep.Category.BigData",
+  i18nPackageName = "org.pentaho.di.trans.steps.couchdboutput" )
+
+@InjectionSupported( localizationPrefix = "CouchDbOutput.Injection." )
+public class CouchDbOutputMeta extends BaseStepMeta implements StepMetaInterface {
+  public static final String DEFAULT_HOSTNAME = "localhost";
+  public static final String DEFAULT_PORT = "5984";
+  public static final String DEFAULT_DB_NAME = "db";
+  public static final String DEFAULT_JSON_FIELD = "json";
+  public static final String DEFAULT_ID_OUTPUT_FIELD = "id";
+  public static final String DEFAULT_REV_OUTPUT_FIELD = "rev";
+  public static final int DEFAULT_BATCH_SIZE = 500;
+  public static final int DEFAULT_CONCURRENT_BATCHES = 4;
+  static Class<?> PKG = CouchDbOutputMeta.class; // for i18n purposes, needed by Translator2!! $NON-NLS-1$
+
+  public CouchDbOutputMeta() {
+    super(); // allocate BaseStepMeta
+  }
+
+  @Injection( name = "HOSTNAME" )
+  private String hostname;
+
+  @Injection( name = "PORT" )
+  private String port;
+
+  @Injection( name = "DBNAME" )
+  private String dbName;
+
+  @Injection( name = "AUTHENTICATION_USER" )
+  private String authenticationUser;
+
+  @Injection( name = "AUTHENTICATION_PASSWORD" )
+  private String authenticationPassword;
+
+  @Injection( name = "JSON_FIELD" )
+  private String jsonField;
+
+  @Injection( name = "ID_FIELD" )
+  private String idField;
+
+  @Injection( name = "UPSERT" )
+  private boolean upsert;
+
+  @Injection( name = "BATCH_SIZE" )
+  private String batchSize;
+
+  @Injection( name = "CONCURRENT_BATCHES" )
+  private String concurrentBatches;
+
+  @Injection( name = "ID_OUTPUT_FIELD" )
+  private String idOutputField;
+
+  @Injection( name = "REV_OUTPUT_FIELD" )
+  private String revOutputField;
+
+  @Override
+  public void loadXML( Node stepnode, List<DatabaseMeta> databases, IMetaStore metaStore )
+    throws KettleXMLException {
+    try {
+      hostname = XMLHandler.getTagValue( stepnode, "hostname" );
+      port = XMLHandler.getTagValue( stepnode, "port" );
+      dbName = XMLHandler.getTagValue( stepnode, "db_name" );
+      authenticationUser = XMLHandler.getTagValue( stepnode, "auth_user" );
+      authenticationPassword =
+        Encr.decryptPasswordOptionallyEncrypted( XMLHandler.getTagValue( stepnode, "auth_password" ) );
+      jsonField = XMLHandler.getTagValue( stepnode, "json_field" );
+      idField = XMLHandler.getTagValue( stepnode, "id_field" );
+      upsert = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "upsert" ) );
+      batchSize = XMLHandler.getTagValue( stepnode, "batch_size" );
+      concurrentBatches = XMLHandler.getTagValue( stepnode, "concurrent_batches" );
+      idOutputField = XMLHandler.getTagValue( stepnode, "id_output_field" );
+      revOutputField = XMLHandler.getTagValue( stepnode, "rev_output_field" );
+    } catch ( Exception e ) {
+      throw new KettleXMLException( BaseMessages.getString( PKG, "CouchDbOutputMeta.Exception.UnableToLoadStepInfo" ),
+        e );
+    }
+  }
+
+  @Override
+  public Object clone() {
+    return super.clone();
+  }
+
+  @Override
+  public void setDefault() {
+    hostname = DEFAULT_HOSTNAME;
+    port = DEFAULT_PORT;
+    dbName = DEFAULT_DB_NAME;
+    jsonField = DEFAULT_JSON_FIELD;
+    upsert = false;
+    batchSize = "" + DEFAULT_BATCH_SIZE;
+    concurrentBatches = "" + DEFAULT_CONCURRENT_BATCHES;
+    idOutputField = DEFAULT_ID_OUTPUT_FIELD;
+    revOutputField = DEFAULT_REV_OUTPUT_FIELD;
+  }
+
+  @Override
+  public void getFields( Bowl bowl, RowMetaInterface rowMeta, String origin, RowMetaInterface[] info, StepMeta nextStep,
+                         VariableSpace space, Repository repository, IMetaStore metaStore ) throws KettleStepException {
+    // the id and revision each document was written with
+    for ( String name : new String[] { idOutputField, revOutputField } ) {
+      String realName = space != null ? space.environmentSubstitute( name ) : name;
+      if ( StringUtils.isNotEmpty( realName ) ) {
+        ValueMetaInterface valueMeta = new ValueMeta( realName, ValueMetaInterface.TYPE_STRING );
+        valueMeta.setOrigin( origin );
+        rowMeta.addValueMeta( valueMeta );
+      }
+    }
+  }
+
+  @Override
+  public String getXML() {
+    StringBuilder retval = new StringBuilder( 300 );
+
+    retval.append( "    " ).append( XMLHandler.addTagValue( "hostname", hostname ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "port", port ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "db_name", dbName ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "auth_user", authenticationUser ) );
+    retval.append( "    " ).append(
+      XMLHandler.addTagValue( "auth_password", Encr.encryptPasswordIfNotUsingVariables( authenticationPassword ) ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "json_field", jsonField ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "id_field", idField ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "upsert", upsert ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "batch_size", batchSize ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "concurrent_batches", concurrentBatches ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "id_output_field", idOutputField ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "rev_output_field", revOutputField ) );
+
+    return retval.toString();
+  }
+
+  @Override
+  public void readRep( Repository rep, IMetaStore metaStore, ObjectId id_step, List<DatabaseMeta> databases )
+    throws KettleException {
+    try {
+      hostname = rep.getStepAttributeString( id_step, "hostname" );
+      port = rep.getStepAttributeString( id_step, "port" );
+      dbName = rep.getStepAttributeString( id_step, "db_name" );
+      authenticationUser = rep.getStepAttributeString( id_step, "auth_user" );
+      authenticationPassword =
+        Encr.decryptPasswordOptionallyEncrypted( rep.getStepAttributeString( id_step, "auth_password" ) );
+      jsonField = rep.getStepAttributeString( id_step, "json_field" );
+      idField = rep.getStepAttributeString( id_step, "id_field" );
+      upsert = rep.getStepAttributeBoolean( id_step, "upsert" );
+      batchSize = rep.getStepAttributeString( id_step, "batch_size" );
+      concurrentBatches = rep.getStepAttributeString( id_step, "concurrent_batches" );
+      idOutputField = rep.getStepAttributeString( id_step, "id_output_field" );
+      revOutputField = rep.getStepAttributeString( id_step, "rev_output_field" );
+    } catch ( Exception e ) {
+      throw new KettleException( BaseMessages.getString( PKG,
+        "CouchDbOutputMeta.Exception.UnexpectedErrorWhileReadingStepInfo" ), e );
+    }
+  }
+
+  @Override
+  public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_transformation, ObjectId id_step )
+    throws KettleException {
+    try {
+      rep.saveStepAttribute( id_transformation, id_step, "hostname", hostname );
+      rep.saveStepAttribute( id_transformation, id_step, "port", port );
+      rep.saveStepAttribute( id_transformation, id_step, "db_name", dbName );
+      rep.saveStepAttribute( id_transformation, id_step, "auth_user", authenticationUser );
+      rep.saveStepAttribute( id_transformation, id_step, "auth_password", Encr
+        .encryptPasswordIfNotUsingVariables( authenticationPassword ) );
+      rep.saveStepAttribute( id_transformation, id_step, "json_field", jsonField );
+      rep.saveStepAttribute( id_transformation, id_step, "id_field", idField );
+      rep.saveStepAttribute( id_transformation, id_step, "upsert", upsert );
+      rep.saveStepAttribute( id_transformation, id_step, "batch_size", batchSize );
+      rep.saveStepAttribute( id_transformation, id_step, "concurrent_batches", concurrentBatches );
+      rep.saveStepAttribute( id_transformation, id_step, "id_output_field", idOutputField );
+      rep.saveStepAttribute( id_transformation, id_step, "rev_output_field", revOutputField );
+    } catch ( Exception e ) {
+      throw new KettleException(
+        BaseMessages.getString( PKG, "CouchDbOutputMeta.Exception.UnableToSaveStepInfo" ) + id_step, e );
+    }
+  }
+
+  @Override
+  public StepInterface getStep( StepMeta stepMeta, StepDataInterface stepDataInterface, int cnr, TransMeta tr,
+                                Trans trans ) {
+    return new CouchDbOutput( stepMeta, stepDataInterface, cnr, tr, trans );
+  }
+
+  @Override
+  public StepDataInterface getStepData() {
+    return new CouchDbOutputData();
+  }
+
+  @Override
+  public boolean supportsErrorHandling() {
+    return true;
+  }
+
+  /**
+   * @return the hostname
+   */
+  public String getHostname() {
+    return hostname;
+  }
+
+  /**
+   * @param hostname the hostname to set
+   */
+  public void setHostname( String hostname ) {
+    this.hostname = hostname;
+  }
+
+  /**
+   * @return the port
+   */
+  public String getPort() {
+    return port;
+  }
+
+  /**
+   * @param port the port to set
+   */
+  public void setPort( String port ) {
+    this.port = port;
+  }
+
+  /**
+   * @return the dbName
+   */
+  public String getDbName() {
+    return dbName;
+  }
+
+  /**
+   * @param dbName the dbName to set
+   */
+  public void setDbName( String dbName ) {
+    this.dbName = dbName;
+  }
+
+  /**
+   * @return the authenticationUser
+   */
+  public String getAuthenticationUser() {
+    return authenticationUser;
+  }
+
+  /**
+   * @param authenticationUser the authenticationUser to set
+   */
+  public void setAuthenticationUser( String authenticationUser ) {
+    this.authenticationUser = authenticationUser;
+  }
+
+  /**
+   * @return the authenticationPassword
+   */
+  public String getAuthenticationPassword() {
+    return authenticationPassword;
+  }
+
+  /**
+   * @param authenticationPassword the authenticationPassword to set
+   */
+  public void setAuthenticationPassword( String authenticationPassword ) {
+    this.authenticationPassword = authenticationPassword;
+  }
+
+  /**
+   * @return the field holding the JSON document to write
+   */
+  public String getJsonField() {
+    return jsonField;
+  }
+
+  /**
+   * @param jsonField the field holding the JSON document to write
+   */
+  public void setJsonField( String jsonField ) {
+    this.jsonField = jsonField;
+  }
+
+  /**
+   * @return the field holding the document id, empty to use the _id of the document itself
+   */
+  public String getIdField() {
+    return idField;
+  }
+
+  /**
+   * @param idField the field holding the document id, empty to use the _id of the document itself
+   */
+  public void setIdField( String idField ) {
+    this.idField = idField;
+  }
+
+  /**
+   * @return true to replace stored documents by looking up their current revision
+   */
+  public boolean getUpsert() {
+    return upsert;
+  }
+
+  /**
+   * @param upsert true to replace stored documents by looking up their current revision
+   */
+  public void setUpsert( boolean upsert ) {
+    this.upsert = upsert;
+  }
+
+  /**
+   * @return the number of documents to write per request
+   */
+  public String getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * @param batchSize the number of documents to write per request
+   */
+  public void setBatchSize( String batchSize ) {
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * @return the number of batch requests to keep in flight at once
+   */
+  public String getConcurrentBatches() {
+    return concurrentBatches;
+  }
+
+  /**
+   * @param concurrentBatches the number of batch requests to keep in flight at once
+   */
+  public void setConcurrentBatches( String concurrentBatches ) {
+    this.concurrentBatches = concurrentBatches;
+  }
+
+  /**
+   * @return the output field for the id of the document written, empty for none
+   */
+  public String getIdOutputField() {
+    return idOutputField;
+  }
+
+  /**
+   * @param idOutputField the output field for the id of the document written, empty for none
+   */
+  public void setIdOutputField( String idOutputField ) {
+    this.idOutputField = idOutputField;
+  }
+
+  /**
+   * @return the output field for the revision of the document written, empty for none
+   */
+  public String getRevOutputField() {
+    return revOutputField;
+  }
+
+  /**
+   * @param revOutputField the output field for the revision of the document written, empty for none
+   */
+  public void setRevOutputField( String revOutputField ) {
+    this.revOutputField = revOutputField;
+  }
+
+}
@@ -58,6 +58,14 @@ public class CouchDbInputDialog extends BaseStepDialog implements StepDialogInte
   private TextVar wAuthUser;
   private TextVar wAuthPass;
 
+  private TextVar wPageSize;
+  private TextVar wRetries;
+
+  private Button wChangesFeed;
+  private TextVar wSince;
+  private TextVar wCheckpointFile;
+  private TextVar wCheckpointVariable;
+
   private CouchDbInputMeta input;
 
   public CouchDbInputDialog( Shell parent, Object in, TransMeta tr, String sname ) {
@@ -255,6 +263,132 @@ public class CouchDbInputDialog extends BaseStepDialog implements StepDialogInte
     wAuthPass.setLayoutData( fdAuthPass );
     lastControl = wAuthPass;
 
+    // Page size line
+    Label wlPageSize = new Label( shell, SWT.RIGHT );
+    wlPageSize.setText( BaseMessages.getString( PKG, "CouchDbInputDialog.PageSize.Label" ) );
+    props.setLook( wlPageSize );
+    FormData fdlPageSize = new FormData();
+    fdlPageSize.left = new FormAttachment( 0, 0 );
+    fdlPageSize.right = new FormAttachment( middle, -margin );
+    fdlPageSize.top = new FormAttachment( lastControl, margin );
+    wlPageSize.setLayoutData( fdlPageSize );
+    wPageSize = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wPageSize.setToolTipText( BaseMessages.getString( PKG, "CouchDbInputDialog.PageSize.TipText" ) );
+    props.setLook( wPageSize );
+    wPageSize.addModifyListener( lsMod );
+    FormData fdPageSize = new FormData();
+    fdPageSize.left = new FormAttachment( middle, 0 );
+    fdPageSize.top = new FormAttachment( lastControl, margin );
+    fdPageSize.right = new FormAttachment( 100, 0 );
+    wPageSize.setLayoutData( fdPageSize );
+    lastControl = wPageSize;
+
+    // Retries line
+    Label wlRetries = new Label( shell, SWT.RIGHT );
+    wlRetries.setText( BaseMessages.getString( PKG, "CouchDbInputDialog.Retries.Label" ) );
+    props.setLook( wlRetries );
+    FormData fdlRetries = new FormData();
+    fdlRetries.left = new FormAttachment( 0, 0 );
+    fdlRetries.right = new FormAttachment( middle, -margin );
+    fdlRetries.top = new FormAttachment( lastControl, margin );
+    wlRetries.setLayoutData( fdlRetries );
+    wRetries = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wRetries.setToolTipText( BaseMessages.getString( PKG, "CouchDbInputDialog.Retries.TipText" ) );
+    props.setLook( wRetries );
+    wRetries.addModifyListener( lsMod );
+    FormData fdRetries = new FormData();
+    fdRetries.left = new FormAttachment( middle, 0 );
+    fdRetries.top = new FormAttachment( lastControl, margin );
+    fdRetries.right = new FormAttachment( 100, 0 );
+    wRetries.setLayoutData( fdRetries );
+    lastControl = wRetries;
+
+    // Changes feed line
+    Label wlChangesFeed = new Label( shell, SWT.RIGHT );
+    wlChangesFeed.setText( BaseMessages.getString( PKG, "CouchDbInputDialog.ChangesFeed.Label" ) );
+    props.setLook( wlChangesFeed );
+    FormData fdlChangesFeed = new FormData();
+    fdlChangesFeed.left = new FormAttachment( 0, 0 );
+    fdlChangesFeed.right = new FormAttachment( middle, -margin );
+    fdlChangesFeed.top = new FormAttachment( lastControl, margin );
+    wlChangesFeed.setLayoutData( fdlChangesFeed );
+    wChangesFeed = new Button( shell, SWT.CHECK );
+    wChangesFeed.setToolTipText( BaseMessages.getString( PKG, "CouchDbInputDialog.ChangesFeed.TipText" ) );
+    props.setLook( wChangesFeed );
+    FormData fdChangesFeed = new FormData();
+    fdChangesFeed.left = new FormAttachment( middle, 0 );
+    fdChangesFeed.top = new FormAttachment( lastControl, margin );
+    fdChangesFeed.right = new FormAttachment( 100, 0 );
+    wChangesFeed.setLayoutData( fdChangesFeed );
+    wChangesFeed.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+        setChangesFeedEnabled();
+      }
+    } );
+    lastControl = wChangesFeed;
+
+    // Since line
+    Label wlSince = new Label( shell, SWT.RIGHT );
+    wlSince.setText( BaseMessages.getString( PKG, "CouchDbInputDialog.Since.Label" ) );
+    props.setLook( wlSince );
+    FormData fdlSince = new FormData();
+    fdlSince.left = new FormAttachment( 0, 0 );
+    fdlSince.right = new FormAttachment( middle, -margin );
+    fdlSince.top = new FormAttachment( lastControl, margin );
+    wlSince.setLayoutData( fdlSince );
+    wSince = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wSince.setToolTipText( BaseMessages.getString( PKG, "CouchDbInputDialog.Since.TipText" ) );
+    props.setLook( wSince );
+    wSince.addModifyListener( lsMod );
+    FormData fdSince = new FormData();
+    fdSince.left = new FormAttachment( middle, 0 );
+    fdSince.top = new FormAttachment( lastControl, margin );
+    fdSince.right = new FormAttachment( 100, 0 );
+    wSince.setLayoutData( fdSince );
+    lastControl = wSince;
+
+    // Checkpoint file line
+    Label wlCheckpointFile = new Label( shell, SWT.RIGHT );
+    wlCheckpointFile.setText( BaseMessages.getString( PKG, "CouchDbInputDialog.CheckpointFile.Label" ) );
+    props.setLook( wlCheckpointFile );
+    FormData fdlCheckpointFile = new FormData();
+    fdlCheckpointFile.left = new FormAttachment( 0, 0 );
+    fdlCheckpointFile.right = new FormAttachment( middle, -margin );
+    fdlCheckpointFile.top = new FormAttachment( lastControl, margin );
+    wlCheckpointFile.setLayoutData( fdlCheckpointFile );
+    wCheckpointFile = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wCheckpointFile.setToolTipText( BaseMessages.getString( PKG, "CouchDbInputDialog.CheckpointFile.TipText" ) );
+    props.setLook( wCheckpointFile );
+    wCheckpointFile.addModifyListener( lsMod );
+    FormData fdCheckpointFile = new FormData();
+    fdCheckpointFile.left = new FormAttachment( middle, 0 );
+    fdCheckpointFile.top = new FormAttachment( lastControl, margin );
+    fdCheckpointFile.right = new FormAttachment( 100, 0 );
+    wCheckpointFile.setLayoutData( fdCheckpointFile );
+    lastControl = wCheckpointFile;
+
+    // Checkpoint variable line
+    Label wlCheckpointVariable = new Label( shell, SWT.RIGHT );
+    wlCheckpointVariable.setText( BaseMessages.getString( PKG, "CouchDbInputDialog.CheckpointVariable.Label" ) );
+    props.setLook( wlCheckpointVariable );
+    FormData fdlCheckpointVariable = new FormData();
+    fdlCheckpointVariable.left = new FormAttachment( 0, 0 );
+    fdlCheckpointVariable.right = new FormAttachment( middle, -margin );
+    fdlCheckpointVariable.top = new FormAttachment( lastControl, margin );
+    wlCheckpointVariable.setLayoutData( fdlCheckpointVariable );
+    wCheckpointVariable = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wCheckpointVariable.setToolTipText(
+      BaseMessages.getString( PKG, "CouchDbInputDialog.CheckpointVariable.TipText" ) );
+    props.setLook( wCheckpointVariable );
+    wCheckpointVariable.addModifyListener( lsMod );
+    FormData fdCheckpointVariable = new FormData();
+    fdCheckpointVariable.left = new FormAttachment( middle, 0 );
+    fdCheckpointVariable.top = new FormAttachment( lastControl, margin );
+    fdCheckpointVariable.right = new FormAttachment( 100, 0 );
+    wCheckpointVariable.setLayoutData( fdCheckpointVariable );
+    lastControl = wCheckpointVariable;
+
     // Some buttons
     wOK = new Button( shell, SWT.PUSH );
     wOK.setText( BaseMessages.getString( PKG, "System.Button.OK" ) ); //$NON-NLS-1$
@@ -334,9 +468,30 @@ public class CouchDbInputDialog extends BaseStepDialog implements StepDialogInte
     wAuthUser.setText( Const.NVL( input.getAuthenticationUser(), "" ) ); // $NON-NLS-1$
     wAuthPass.setText( Const.NVL( input.getAuthenticationPassword(), "" ) ); // $NON-NLS-1$
 
+    wPageSize.setText( Const.NVL( input.getPageSize(), "" ) );
+    wRetries.setText( Const.NVL( input.getRetries(), "" ) );
+
+    wChangesFeed.setSelection( input.getChangesFeed() );
+    wSince.setText( Const.NVL( input.getSince(), "" ) );
+    wCheckpointFile.setText( Const.NVL( input.getCheckpointFile(), "" ) );
+    wCheckpointVariable.setText( Const.NVL( input.getCheckpointVariable(), "" ) );
+    setChangesFeedEnabled();
+
     wStepname.selectAll();
   }
 
+  /**
+   * The view is only used when not reading the changes feed, the start sequence and checkpoint only when reading it.
+   */
+  private void setChangesFeedEnabled() {
+    boolean changesFeed = wChangesFeed.getSelection();
+    wDesignDocument.setEnabled( !changesFeed );
+    wViewName.setEnabled( !changesFeed );
+    wSince.setEnabled( changesFeed );
+    wCheckpointFile.setEnabled( changesFeed );
+    wCheckpointVariable.setEnabled( changesFeed );
+  }
+
   private void cancel() {
     stepname = null;
     input.setChanged( changed );
@@ -353,6 +508,14 @@ public class CouchDbInputDialog extends BaseStepDialog implements StepDialogInte
 
     meta.setAuthenticationUser( wAuthUser.getText() );
     meta.setAuthenticationPassword( wAuthPass.getText() );
+
+    meta.setPageSize( wPageSize.getText() );
+    meta.setRetries( wRetries.getText() );
+
+    meta.setChangesFeed( wChangesFeed.getSelection() );
+    meta.setSince( wSince.getText() );
+    meta.setCheckpointFile( wCheckpointFile.getText() );
+    meta.setCheckpointVariable( wCheckpointVariable.getText() );
   }
 
   private void ok() {
@@ -0,0 +1,297 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.ui.trans.steps.couchdboutput;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.ModifyEvent;
+import org.eclipse.swt.events.ModifyListener;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.events.ShellAdapter;
+import org.eclipse.swt.events.ShellEvent;
+import org.eclipse.swt.layout.FormAttachment;
+import org.eclipse.swt.layout.FormData;
+import org.eclipse.swt.layout.FormLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.StepDialogInterface;
+import org.pentaho.di.trans.steps.couchdboutput.CouchDbOutputMeta;
+import org.pentaho.di.ui.core.widget.TextVar;
+import org.pentaho.di.ui.trans.step.BaseStepDialog;
+
+public class CouchDbOutputDialog extends BaseStepDialog implements StepDialogInterface {
+  private static Class<?> PKG = CouchDbOutputMeta.class; // for Translator.sh
+
+  private TextVar wHostname;
+  private TextVar wPort;
+  private TextVar wDbName;
+
+  private TextVar wAuthUser;
+  private TextVar wAuthPass;
+
+  private TextVar wJsonField;
+  private TextVar wIdField;
+  private Button wUpsert;
+  private TextVar wBatchSize;
+  private TextVar wConcurrentBatches;
+  private TextVar wIdOutputField;
+  private TextVar wRevOutputField;
+
+  private CouchDbOutputMeta input;
+
+  private ModifyListener lsMod;
+  private int middle;
+  private int margin;
+
+  public CouchDbOutputDialog( Shell parent, Object in, TransMeta tr, String sname ) {
+    super( parent, (BaseStepMeta) in, tr, sname );
+    input = (CouchDbOutputMeta) in;
+  }
+
+  public String open() {
+    Shell parent = getParent();
+    Display display = parent.getDisplay();
+
+    shell = new Shell( parent, SWT.DIALOG_TRIM | SWT.RESIZE | SWT.MAX | SWT.MIN );
+    props.setLook( shell );
+    setShellImage( shell, input );
+
+    lsMod = new ModifyListener() {
+      public void modifyText( ModifyEvent e ) {
+        input.setChanged();
+      }
+    };
+    changed = input.hasChanged();
+
+    FormLayout formLayout = new FormLayout();
+    formLayout.marginWidth = Const.FORM_MARGIN;
+    formLayout.marginHeight = Const.FORM_MARGIN;
+
+    shell.setLayout( formLayout );
+    shell.setText( BaseMessages.getString( PKG, "CouchDbOutputDialog.Shell.Title" ) );
+
+    middle = props.getMiddlePct();
+    margin = Const.MARGIN;
+
+    // Stepname line
+    wlStepname = new Label( shell, SWT.RIGHT );
+    wlStepname.setText( BaseMessages.getString( PKG, "CouchDbOutputDialog.Stepname.Label" ) );
+    props.setLook( wlStepname );
+    fdlStepname = new FormData();
+    fdlStepname.left = new FormAttachment( 0, 0 );
+    fdlStepname.right = new FormAttachment( middle, -margin );
+    fdlStepname.top = new FormAttachment( 0, margin );
+    wlStepname.setLayoutData( fdlStepname );
+    wStepname = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wStepname.setText( stepname );
+    props.setLook( wStepname );
+    wStepname.addModifyListener( lsMod );
+    fdStepname = new FormData();
+    fdStepname.left = new FormAttachment( middle, 0 );
+    fdStepname.top = new FormAttachment( 0, margin );
+    fdStepname.right = new FormAttachment( 100, 0 );
+    wStepname.setLayoutData( fdStepname );
+    Control lastControl = wStepname;
+
+    wHostname = addTextVar( "Hostname", false, lastControl );
+    wPort = addTextVar( "Port", false, wHostname );
+    wDbName = addTextVar( "DbName", false, wPort );
+    wAuthUser = addTextVar( "AuthenticationUser", false, wDbName );
+    wAuthPass = addTextVar( "AuthenticationPassword", false, wAuthUser );
+    wAuthPass.setEchoChar( '*' );
+    wJsonField = addTextVar( "JsonField", true, wAuthPass );
+    wIdField = addTextVar( "IdField", true, wJsonField );
+
+    // Upsert line
+    Label wlUpsert = new Label( shell, SWT.RIGHT );
+    wlUpsert.setText( BaseMessages.getString( PKG, "CouchDbOutputDialog.Upsert.Label" ) );
+    props.setLook( wlUpsert );
+    FormData fdlUpsert = new FormData();
+    fdlUpsert.left = new FormAttachment( 0, 0 );
+    fdlUpsert.right = new FormAttachment( middle, -margin );
+    fdlUpsert.top = new FormAttachment( wIdField, margin );
+    wlUpsert.setLayoutData( fdlUpsert );
+    wUpsert = new Button( shell, SWT.CHECK );
+    wUpsert.setToolTipText( BaseMessages.getString( PKG, "CouchDbOutputDialog.Upsert.TipText" ) );
+    props.setLook( wUpsert );
+    FormData fdUpsert = new FormData();
+    fdUpsert.left = new FormAttachment( middle, 0 );
+    fdUpsert.top = new FormAttachment( wIdField, margin );
+    fdUpsert.right = new FormAttachment( 100, 0 );
+    wUpsert.setLayoutData( fdUpsert );
+    wUpsert.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+      }
+    } );
+
+    wBatchSize = addTextVar( "BatchSize", true, wUpsert );
+    wConcurrentBatches = addTextVar( "ConcurrentBatches", true, wBatchSize );
+    wIdOutputField = addTextVar( "IdOutputField", true, wConcurrentBatches );
+    wRevOutputField = addTextVar( "RevOutputField", true, wIdOutputField );
+    lastControl = wRevOutputField;
+
+    // Some buttons
+    wOK = new Button( shell, SWT.PUSH );
+    wOK.setText( BaseMessages.getString( PKG, "System.Button.OK" ) );
+    wCancel = new Button( shell, SWT.PUSH );
+    wCancel.setText( BaseMessages.getString( PKG, "System.Button.Cancel" ) );
+
+    setButtonPositions( new Button[] { wOK, wCancel }, margin, lastControl );
+
+    // Add listeners
+    lsCancel = new Listener() {
+      public void handleEvent( Event e ) {
+        cancel();
+      }
+    };
+    lsOK = new Listener() {
+      public void handleEvent( Event e ) {
+        ok();
+      }
+    };
+
+    wCancel.addListener( SWT.Selection, lsCancel );
+    wOK.addListener( SWT.Selection, lsOK );
+
+    lsDef = new SelectionAdapter() {
+      public void widgetDefaultSelected( SelectionEvent e ) {
+        ok();
+      }
+    };
+
+    wStepname.addSelectionListener( lsDef );
+    wHostname.addSelectionListener( lsDef );
+    wDbName.addSelectionListener( lsDef );
+    wJsonField.addSelectionListener( lsDef );
+
+    // Detect X or ALT-F4 or something that kills this window...
+    shell.addShellListener( new ShellAdapter() {
+      public void shellClosed( ShellEvent e ) {
+        cancel();
+      }
+    } );
+
+    getData();
+    input.setChanged( changed );
+
+    // Set the shell size, based upon previous time...
+    setSize();
+
+    shell.open();
+    while ( !shell.isDisposed() ) {
+      if ( !display.readAndDispatch() ) {
+        display.sleep();
+      }
+    }
+    return stepname;
+  }
+
+  /**
+   * Add a labelled text field below the given control.
+   *
+   * @param key the message key of the field, e.g. "BatchSize" for "CouchDbOutputDialog.BatchSize.Label"
+   * @param tip true if there is a "TipText" message for the field
+   * @param lastControl the control to add the field below
+   * @return the text field
+   */
+  private TextVar addTextVar( String key, boolean tip, Control lastControl ) {
+    Label wlText = new Label( shell, SWT.RIGHT );
+    wlText.setText( BaseMessages.getString( PKG, "CouchDbOutputDialog." + key + ".Label" ) );
+    props.setLook( wlText );
+    FormData fdlText = new FormData();
+    fdlText.left = new FormAttachment( 0, 0 );
+    fdlText.right = new FormAttachment( middle, -margin );
+    fdlText.top = new FormAttachment( lastControl, margin );
+    wlText.setLayoutData( fdlText );
+    TextVar wText = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    if ( tip ) {
+      wText.setToolTipText( BaseMessages.getString( PKG, "CouchDbOutputDialog." + key + ".TipText" ) );
+    }
+    props.setLook( wText );
+    wText.addModifyListener( lsMod );
+    FormData fdText = new FormData();
+    fdText.left = new FormAttachment( middle, 0 );
+    fdText.top = new FormAttachment( lastControl, margin );
+    fdText.right = new FormAttachment( 100, 0 );
+    wText.setLayoutData( fdText );
+    return wText;
+  }
+
+  /**
+   * Copy information from the meta-data input to the dialog fields.
+   */
+  public void getData() {
+    wHostname.setText( Const.NVL( input.getHostname(), "" ) );
+    wPort.setText( Const.NVL( input.getPort(), "" ) );
+    wDbName.setText( Const.NVL( input.getDbName(), "" ) );
+
+    wAuthUser.setText( Const.NVL( input.getAuthenticationUser(), "" ) );
+    wAuthPass.setText( Const.NVL( input.getAuthenticationPassword(), "" ) );
+
+    wJsonField.setText( Const.NVL( input.getJsonField(), "" ) );
+    wIdField.setText( Const.NVL( input.getIdField(), "" ) );
+    wUpsert.setSelection( input.getUpsert() );
+    wBatchSize.setText( Const.NVL( input.getBatchSize(), "" ) );
+    wConcurrentBatches.setText( Const.NVL( input.getConcurrentBatches(), "" ) );
+    wIdOutputField.setText( Const.NVL( input.getIdOutputField(), "" ) );
+    wRevOutputField.setText( Const.NVL( input.getRevOutputField(), "" ) );
+
+    wStepname.selectAll();
+  }
+
+  private void cancel() {
+    stepname = null;
+    input.setChanged( changed );
+    dispose();
+  }
+
+  private void getInfo( CouchDbOutputMeta meta ) {
+    meta.setHostname( wHostname.getText() );
+    meta.setPort( wPort.getText() );
+    meta.setDbName( wDbName.getText() );
+
+    meta.setAuthenticationUser( wAuthUser.getText() );
+    meta.setAuthenticationPassword( wAuthPass.getText() );
+
+    meta.setJsonField( wJsonField.getText() );
+    meta.setIdField( wIdField.getText() );
+    meta.setUpsert( wUpsert.getSelection() );
+    meta.setBatchSize( wBatchSize.getText() );
+    meta.setConcurrentBatches( wConcurrentBatches.getText() );
+    meta.setIdOutputField( wIdOutputField.getText() );
+    meta.setRevOutputField( wRevOutputField.getText() );
+  }
+
+  private void ok() {
+    if ( Const.isEmpty( wStepname.getText() ) ) {
+      return;
+    }
+    stepname = wStepname.getText(); // return value
+
+    getInfo( input );
+
+    dispose();
+  }
+}
@@ -0,0 +1,144 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avroinput;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.util.Utf8;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettlePluginException;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.row.value.ValueMetaPluginType;
+import org.pentaho.di.core.variables.Variables;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class AvroFieldAccessorTest {
+  private static final String SCHEMA = "{\"type\":\"record\",\"name\":\"Click\",\"fields\":["
+    + "{\"name\":\"id\",\"type\":\"long\"},"
+    + "{\"name\":\"page\",\"type\":[\"null\",\"string\"]},"
+    + "{\"name\":\"user\",\"type\":{\"type\":\"record\",\"name\":\"User\",\"fields\":["
+    + "{\"name\":\"name\",\"type\":\"string\"}]}},"
+    + "{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+    + "{\"name\":\"attrs\",\"type\":{\"type\":\"map\",\"values\":\"int\"}},"
+    + "{\"name\":\"score\",\"type\":\"double\",\"default\":1.5}]}";
+
+  private Schema schema;
+  private GenericData.Record record;
+  private Variables space;
+
+  @BeforeClass
+  public static void before() throws KettlePluginException {
+    PluginRegistry.addPluginType( ValueMetaPluginType.getInstance() );
+    PluginRegistry.init( false );
+  }
+
+  @Before
+  public void setUp() {
+    schema = new Schema.Parser().parse( SCHEMA );
+    GenericData.Record user = new GenericData.Record( schema.getField( "user" ).schema() );
+    user.put( "name", "alice" );
+    Map<Utf8, Object> attrs = new HashMap<Utf8, Object>();
+    attrs.put( new Utf8( "clicks" ), 7 );
+    record = new GenericData.Record( schema );
+    record.put( "id", 42L );
+    record.put( "page", "/home" );
+    record.put( "user", user );
+    record.put( "tags", new GenericData.Array<Object>( schema.getField( "tags" ).schema(),
+      Arrays.<Object>asList( "a", "b" ) ) );
+    record.put( "attrs", attrs );
+    space = new Variables();
+  }
+
+  @Test
+  public void testExtractsNestedValues() throws KettleException {
+    assertEquals( 42L, extract( "$.id", "Integer" ) );
+    assertEquals( "/home", extract( "$.page", "String" ) );
+    assertEquals( "alice", extract( "$.user.name", "String" ) );
+    assertEquals( "b", extract( "$.tags[1]", "String" ) );
+    assertEquals( 7L, extract( "$.attrs[clicks]", "Integer" ) );
+  }
+
+  @Test
+  public void testMissingValuesAreNull() throws KettleException {
+    assertNull( extract( "$.tags[5]", "String" ) );
+    assertNull( extract( "$.attrs[nope]", "Integer" ) );
+    assertNull( extract( "$.nope", "String" ) );
+  }
+
+  @Test
+  public void testDefaultValueFromDefaultSchema() throws KettleException {
+    record.put( "score", null );
+    AvroInputMeta.AvroField field = field( "$.score", "Number" );
+    assertEquals( 1.5, field.extractKettleValue( record, schema, schema, space, true ) );
+  }
+
+  @Test( expected = KettleException.class )
+  public void testNonExistentFieldFails() throws KettleException {
+    field( "$.nope", "String" ).extractKettleValue( record, schema, schema, space, false );
+  }
+
+  @Test( expected = KettleException.class )
+  public void testUnparsableArrayIndexFails() throws KettleException {
+    extract( "$.tags[x]", "String" );
+  }
+
+  @Test
+  public void testRecompiledWhenVariableChanges() throws KettleException {
+    AvroInputMeta.AvroField field = field( "$.${field}", "String" );
+    space.setVariable( "field", "page" );
+    assertEquals( "/home", field.extractKettleValue( record, schema, schema, space, true ) );
+    space.setVariable( "field", "user" );
+    assertNull( field.extractKettleValue( record, schema, schema, space, true ) );
+  }
+
+  @Test
+  public void testFollowsSchemaChanges() throws KettleException {
+    AvroInputMeta.AvroField field = field( "$.user.name", "String" );
+    assertEquals( "alice", field.extractKettleValue( record, schema, schema, space, true ) );
+
+    Schema other = new Schema.Parser().parse( "{\"type\":\"record\",\"name\":\"Click\",\"fields\":["
+      + "{\"name\":\"extra\",\"type\":\"int\"},"
+      + "{\"name\":\"user\",\"type\":{\"type\":\"record\",\"name\":\"User\",\"fields\":["
+      + "{\"name\":\"age\",\"type\":\"int\"},{\"name\":\"name\",\"type\":\"string\"}]}}]}" );
+    GenericData.Record user = new GenericData.Record( other.getField( "user" ).schema() );
+    user.put( "age", 30 );
+    user.put( "name", "bob" );
+    GenericData.Record otherRecord = new GenericData.Record( other );
+    otherRecord.put( "extra", 1 );
+    otherRecord.put( "user", user );
+    assertEquals( "bob", field.extractKettleValue( otherRecord, other, other, space, true ) );
+  }
+
+  private Object extract( String path, String kettleType ) throws KettleException {
+    return field( path, kettleType ).extractKettleValue( record, schema, schema, space, true );
+  }
+
+  private static AvroInputMeta.AvroField field( String path, String kettleType ) throws KettleException {
+    AvroInputMeta.AvroField field = new AvroInputMeta.AvroField();
+    field.m_fieldName = path;
+    field.m_fieldPath = path;
+    field.m_kettleType = kettleType;
+    field.init( 0 );
+    return field;
+  }
+}
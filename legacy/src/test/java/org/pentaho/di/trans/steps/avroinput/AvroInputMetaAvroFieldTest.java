@@ -49,6 +49,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
@@ -92,6 +93,25 @@ public class AvroInputMetaAvroFieldTest {
     avroField.init( 0 );
   }
 
+  @Test
+  public void testCopyIsIndependentOfTheOriginal() throws KettleException {
+    avroField.m_fieldName = "name";
+    avroField.m_kettleType = "String";
+    avroField.m_indexedVals = new ArrayList<String>( Arrays.asList( "a", "b" ) );
+    avroField.init( 3 );
+
+    AvroInputMeta.AvroField copy = avroField.copy();
+    assertEquals( "name", copy.m_fieldName );
+    assertEquals( "testFieldPath", copy.m_fieldPath );
+    assertEquals( "String", copy.m_kettleType );
+    assertEquals( avroField.m_indexedVals, copy.m_indexedVals );
+    assertNotSame( avroField.m_indexedVals, copy.m_indexedVals );
+
+    copy.init( 1 );
+    assertEquals( 3, avroField.m_outputIndex );
+    assertEquals( 1, copy.m_outputIndex );
+  }
+
   @Test
   public void testGetKettleValueBigNumber() throws KettleException {
     avroField.m_kettleType = "BigNumber";
@@ -78,6 +78,7 @@ public class AvroInputMetaTest {
     commonAttributes.add( "filename" );
     commonAttributes.add( "schemaFilename" );
     commonAttributes.add( "avroIsJsonEncoded" );
+    commonAttributes.add( "splitAcrossCopies" );
     commonAttributes.add( "avroFields" );
     commonAttributes.add( "lookupFields" );
     commonAttributes.add( "dontComplainAboutMissingFields" );
@@ -14,24 +14,38 @@
 package org.pentaho.di.trans.steps.avroinput;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.pentaho.di.trans.steps.avroinput.AvroInputData.checkFieldPaths;
 import static org.pentaho.di.trans.steps.avroinput.AvroInputData.getLeafFields;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileWriter;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.util.Utf8;
 import org.junit.Test;
 import org.pentaho.di.core.bowl.DefaultBowl;
@@ -45,6 +59,7 @@ import org.pentaho.di.core.row.value.ValueMetaPluginType;
 import org.pentaho.di.core.exception.KettlePluginException;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.trans.steps.avroinput.AvroInputData.AvroArrayExpansion;
 
 /**
@@ -290,6 +305,181 @@ public class AvroInputTest {
     }
   }
 
+  @Test
+  public void testSplitContainerFileAcrossCopies() throws Exception {
+    Schema schema = new Schema.Parser().parse( "{\"type\":\"record\",\"name\":\"Row\",\"fields\":["
+        + "{\"name\":\"id\",\"type\":\"int\"},{\"name\":\"text\",\"type\":\"string\"}]}" );
+    File file = File.createTempFile( "AvroInputTest", ".avro" );
+    file.deleteOnExit();
+    int rows = 2000;
+    DataFileWriter<GenericData.Record> writer =
+        new DataFileWriter<GenericData.Record>( new GenericDatumWriter<GenericData.Record>( schema ) );
+    writer.setSyncInterval( 256 );
+    writer.create( schema, file );
+    for ( int i = 0; i < rows; i++ ) {
+      GenericData.Record record = new GenericData.Record( schema );
+      record.put( "id", i );
+      record.put( "text", "row number " + i );
+      writer.append( record );
+    }
+    writer.close();
+
+    // the copies share the field definitions of the step meta
+    AvroInputMeta.AvroField field = new AvroInputMeta.AvroField();
+    field.m_fieldName = "id";
+    field.m_fieldPath = "$.id";
+    field.m_kettleType = ValueMeta.getTypeDesc( ValueMetaInterface.TYPE_INTEGER );
+    List<AvroInputMeta.AvroField> fields = new ArrayList<AvroInputMeta.AvroField>();
+    fields.add( field );
+
+    Set<Long> seen = new HashSet<Long>();
+    int splits = 3;
+    for ( int split = 0; split < splits; split++ ) {
+      RowMetaInterface outputMeta = new RowMeta();
+      ValueMetaInterface vm = new ValueMeta();
+      vm.setName( field.m_fieldName );
+      vm.setType( ValueMetaInterface.TYPE_INTEGER );
+      outputMeta.addValueMeta( vm );
+
+      AvroInputData data = new AvroInputData();
+      data.setOutputRowMeta( outputMeta );
+      data.setSplit( split, splits );
+      data.establishFileType( DefaultBowl.getInstance(),
+          KettleVFS.getInstance( DefaultBowl.getInstance() ).getFileObject( file.getAbsolutePath() ), null, fields,
+          false, 0, false, new LogChannel( this ) );
+
+      int read = 0;
+      Object[][] result;
+      while ( ( result = data.avroObjectToKettle( DefaultBowl.getInstance(), null, new Variables() ) ) != null ) {
+        assertTrue( seen.add( (Long) result[0][0] ) );
+        read++;
+      }
+      data.close();
+      assertFalse( read == 0 );
+    }
+    assertEquals( rows, seen.size() );
+  }
+
+  @Test
+  public void testDecodeBinaryFromFieldReusesDecoder() throws Exception {
+    Schema schema = new Schema.Parser().parse( s_schemaTopLevelRecord );
+
+    List<AvroInputMeta.AvroField> paths = new ArrayList<AvroInputMeta.AvroField>();
+    AvroInputMeta.AvroField field = new AvroInputMeta.AvroField();
+    field.m_fieldName = "test";
+    field.m_fieldPath = "$.name";
+    field.m_kettleType = ValueMeta.getTypeDesc( ValueMetaInterface.TYPE_STRING );
+    paths.add( field );
+
+    RowMetaInterface outputMeta = new RowMeta();
+    ValueMetaInterface vm = new ValueMeta();
+    vm.setName( "IncomingAvro" );
+    vm.setType( ValueMetaInterface.TYPE_BINARY );
+    outputMeta.addValueMeta( vm );
+    vm = new ValueMeta();
+    vm.setName( field.m_fieldName );
+    vm.setType( ValueMetaInterface.TYPE_STRING );
+    outputMeta.addValueMeta( vm );
+
+    AvroInputData data = new AvroInputData();
+    data.m_normalFields = paths;
+    data.m_decodingFromField = true;
+    data.m_jsonEncoded = false;
+    data.m_newFieldOffset = 1;
+    data.m_fieldToDecodeIndex = 0;
+    data.m_schemaToUse = schema;
+    data.m_defaultSchema = schema;
+    data.m_topLevelRecord = new GenericData.Record( schema );
+    data.m_factory = new DecoderFactory();
+    data.m_datumReader = new GenericDatumReader( schema );
+    data.m_outputRowMeta = outputMeta;
+    data.m_log = new LogChannel( this );
+    data.init();
+
+    String[] names = { "bob", "fred" };
+    BinaryDecoder decoder = null;
+    for ( String name : names ) {
+      GenericData.Record record = new GenericData.Record( schema );
+      record.put( "name", name );
+      record.put( "age", 20 );
+      record.put( "emails", new GenericData.Array<Object>( 0, schema.getField( "emails" ).schema() ) );
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      BinaryEncoder encoder = EncoderFactory.get().binaryEncoder( out, null );
+      new GenericDatumWriter<Object>( schema ).write( record, encoder );
+      encoder.flush();
+
+      Object[][] result =
+          data.avroObjectToKettle( DefaultBowl.getInstance(), new Object[] { out.toByteArray() }, new Variables() );
+      assertEquals( name, result[0][1].toString() );
+      if ( decoder != null ) {
+        assertSame( decoder, data.m_binaryDecoder );
+      }
+      decoder = data.m_binaryDecoder;
+    }
+  }
+
+  @Test
+  public void testDecodeSchemaRegistryWireFormat() throws Exception {
+    Schema schema = new Schema.Parser().parse( s_schemaTopLevelRecord );
+    File registry = Files.createTempDirectory( "AvroInputTest" ).toFile();
+    File schemaFile = new File( registry, "258.avsc" );
+    Files.write( schemaFile.toPath(), s_schemaTopLevelRecord.getBytes( StandardCharsets.UTF_8 ) );
+
+    List<AvroInputMeta.AvroField> paths = new ArrayList<AvroInputMeta.AvroField>();
+    AvroInputMeta.AvroField field = new AvroInputMeta.AvroField();
+    field.m_fieldName = "test";
+    field.m_fieldPath = "$.name";
+    field.m_kettleType = ValueMeta.getTypeDesc( ValueMetaInterface.TYPE_STRING );
+    paths.add( field );
+
+    RowMetaInterface outputMeta = new RowMeta();
+    ValueMetaInterface vm = new ValueMeta();
+    vm.setName( "IncomingAvro" );
+    vm.setType( ValueMetaInterface.TYPE_BINARY );
+    outputMeta.addValueMeta( vm );
+    vm = new ValueMeta();
+    vm.setName( field.m_fieldName );
+    vm.setType( ValueMetaInterface.TYPE_STRING );
+    outputMeta.addValueMeta( vm );
+
+    AvroInputData data = new AvroInputData();
+    data.setOutputRowMeta( outputMeta );
+    data.setSchemaRegistry( new FileAvroSchemaRegistry( DefaultBowl.getInstance(), registry.getAbsolutePath() ) );
+    data.initializeFromFieldDecoding( DefaultBowl.getInstance(), "IncomingAvro", null, paths, false, 1, false, null,
+        false, false, false, new LogChannel( this ) );
+    assertNotSame( field, data.m_normalFields.get( 0 ) );
+
+    try {
+      for ( String name : new String[] { "bob", "fred" } ) {
+        GenericData.Record record = new GenericData.Record( schema );
+        record.put( "name", name );
+        record.put( "age", 20 );
+        record.put( "emails", new GenericData.Array<Object>( 0, schema.getField( "emails" ).schema() ) );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write( new byte[] { 0, 0, 0, 1, 2 } );
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder( out, null );
+        new GenericDatumWriter<Object>( schema ).write( record, encoder );
+        encoder.flush();
+
+        Object[][] result =
+            data.avroObjectToKettle( DefaultBowl.getInstance(), new Object[] { out.toByteArray() }, new Variables() );
+        assertEquals( name, result[0][1].toString() );
+      }
+      assertEquals( 1, data.m_registryEntries.size() );
+
+      try {
+        data.avroObjectToKettle( DefaultBowl.getInstance(), new Object[] { new byte[] { 1, 0, 0, 1, 2, 0 } },
+            new Variables() );
+        fail( "Expected a KettleException for a value without the magic byte" );
+      } catch ( KettleException e ) {
+        // expected
+      }
+    } finally {
+      schemaFile.delete();
+      registry.delete();
+    }
+  }
+
   @Test
   public void testDecodeUsingSchemaInIncomingField() throws KettleException {
     Schema.Parser parser = new Schema.Parser();
@@ -1146,6 +1336,61 @@ public class AvroInputTest {
     }
   }
 
+  @Test
+  public void testArrayExpansionHandsOverRowsAsTheyAreProduced() throws KettleException {
+    Schema schema = new Schema.Parser().parse( s_schemaTopLevelRecord );
+
+    List<AvroInputMeta.AvroField> paths = new ArrayList<AvroInputMeta.AvroField>();
+    AvroInputMeta.AvroField field = new AvroInputMeta.AvroField();
+    field.m_fieldName = "name";
+    field.m_fieldPath = "$.name";
+    field.m_kettleType = ValueMeta.getTypeDesc( ValueMetaInterface.TYPE_STRING );
+    paths.add( field );
+    field = new AvroInputMeta.AvroField();
+    field.m_fieldName = "email";
+    field.m_fieldPath = "$.emails[*]";
+    field.m_kettleType = ValueMeta.getTypeDesc( ValueMetaInterface.TYPE_STRING );
+    paths.add( field );
+
+    RowMetaInterface outputMeta = new RowMeta();
+    outputMeta.addValueMeta( new ValueMeta( "IncomingAvro", ValueMetaInterface.TYPE_STRING ) );
+    outputMeta.addValueMeta( new ValueMeta( "name", ValueMetaInterface.TYPE_STRING ) );
+    outputMeta.addValueMeta( new ValueMeta( "email", ValueMetaInterface.TYPE_STRING ) );
+
+    AvroInputData data = new AvroInputData();
+    data.m_normalFields = paths;
+    data.m_decodingFromField = true;
+    data.m_jsonEncoded = true;
+    data.m_newFieldOffset = 1;
+    data.m_fieldToDecodeIndex = 0;
+    data.m_schemaToUse = schema;
+    data.m_defaultSchema = schema;
+    data.m_factory = new DecoderFactory();
+    data.m_datumReader = new GenericDatumReader( schema );
+    data.m_outputRowMeta = outputMeta;
+    data.m_log = new LogChannel( this );
+    data.init();
+
+    final List<Object[]> rows = new ArrayList<Object[]>();
+    String incoming = s_jsonDataTopLevelRecord[1];
+    boolean more = data.avroObjectToKettle( DefaultBowl.getInstance(), new Object[] { incoming }, new Variables(),
+        new AvroInputData.RowHandler() {
+          @Override
+          public void handleRow( Object[] row ) {
+            rows.add( row );
+          }
+        } );
+
+    assertTrue( more );
+    String[] emails = { "hi there bob", "good to see you!", "Yarghhh!" };
+    assertEquals( emails.length, rows.size() );
+    for ( int i = 0; i < emails.length; i++ ) {
+      assertEquals( incoming, rows.get( i )[0] );
+      assertEquals( "fred", rows.get( i )[1].toString() );
+      assertEquals( emails[i], rows.get( i )[2].toString() );
+    }
+  }
+
   @Test
   public void testLookupFieldInitializationNoRowMetaAvailable() {
     AvroInputMeta.LookupField lf = new AvroInputMeta.LookupField();
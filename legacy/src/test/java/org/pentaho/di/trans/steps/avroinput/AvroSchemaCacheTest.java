@@ -0,0 +1,99 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avroinput;
+
+import org.apache.avro.Schema;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class AvroSchemaCacheTest {
+
+  private static AvroSchemaCache.Entry entry( String schemaText ) {
+    return new AvroSchemaCache.Entry( new Schema.Parser().parse( schemaText ), null, null, null );
+  }
+
+  @Test
+  public void testHitsAndMisses() {
+    AvroSchemaCache cache = new AvroSchemaCache();
+    String key = "{\"type\":\"record\",\"name\":\"A\",\"fields\":[{\"name\":\"a\",\"type\":\"int\"}]}";
+
+    assertNull( cache.get( key ) );
+    AvroSchemaCache.Entry entry = entry( key );
+    cache.put( key, entry );
+    assertSame( entry, cache.get( new String( key ) ) );
+
+    assertEquals( 1, cache.getHits() );
+    assertEquals( 1, cache.getMisses() );
+    assertEquals( 1, cache.size() );
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    AvroSchemaCache cache = new AvroSchemaCache( 2 );
+    cache.put( "\"int\"", entry( "\"int\"" ) );
+    cache.put( "\"long\"", entry( "\"long\"" ) );
+    assertNotNull( cache.get( "\"int\"" ) );
+
+    cache.put( "\"string\"", entry( "\"string\"" ) );
+
+    assertEquals( 2, cache.size() );
+    assertEquals( 1, cache.getEvictions() );
+    assertNotNull( cache.get( "\"int\"" ) );
+    assertNull( cache.get( "\"long\"" ) );
+    assertNotNull( cache.get( "\"string\"" ) );
+  }
+
+  @Test
+  public void testFingerprintCollisionIsAMiss() {
+    AvroSchemaCache cache = new AvroSchemaCache();
+    AvroSchemaCache.Entry entry = entry( "\"int\"" );
+    cache.put( "\"int\"", 42L, entry );
+
+    assertNull( cache.get( "\"long\"", 42L ) );
+    assertSame( entry, cache.get( "\"int\"", 42L ) );
+
+    AvroSchemaCache.Entry other = entry( "\"long\"" );
+    cache.put( "\"long\"", 42L, other );
+    assertNull( cache.get( "\"int\"", 42L ) );
+    assertSame( other, cache.get( "\"long\"", 42L ) );
+  }
+
+  @Test
+  public void testLastEntryIsReturnedForTheSameKey() {
+    AvroSchemaCache cache = new AvroSchemaCache();
+    AvroSchemaCache.Entry first = entry( "\"int\"" );
+    AvroSchemaCache.Entry second = entry( "\"long\"" );
+    cache.put( "\"int\"", first );
+    cache.put( "\"long\"", second );
+
+    assertSame( second, cache.get( "\"long\"" ) );
+    assertSame( first, cache.get( "\"int\"" ) );
+    assertSame( first, cache.get( new String( "\"int\"" ) ) );
+    assertEquals( 3, cache.getHits() );
+    assertEquals( 0, cache.getMisses() );
+  }
+
+  @Test
+  public void testFingerprint() {
+    assertEquals( AvroSchemaCache.fingerprint( "\"int\"" ), AvroSchemaCache.fingerprint( "\"int\"" ) );
+    assertNotEquals( AvroSchemaCache.fingerprint( "\"int\"" ), AvroSchemaCache.fingerprint( "\"long\"" ) );
+    assertNotEquals( AvroSchemaCache.fingerprint( "ab" ), AvroSchemaCache.fingerprint( "ba" ) );
+    assertNotEquals( AvroSchemaCache.fingerprint( "\u0100" ), AvroSchemaCache.fingerprint( "\u0001" ) );
+  }
+}
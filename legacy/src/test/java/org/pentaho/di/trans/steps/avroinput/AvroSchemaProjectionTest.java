@@ -0,0 +1,131 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avroinput;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettlePluginException;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.row.value.ValueMetaPluginType;
+import org.pentaho.di.core.variables.Variables;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class AvroSchemaProjectionTest {
+  private static final String SCHEMA = "{\"type\":\"record\",\"name\":\"Click\",\"namespace\":\"test\",\"fields\":["
+    + "{\"name\":\"id\",\"type\":\"long\"},"
+    + "{\"name\":\"page\",\"type\":\"string\"},"
+    + "{\"name\":\"referrer\",\"type\":\"string\"},"
+    + "{\"name\":\"user\",\"type\":[\"null\",{\"type\":\"record\",\"name\":\"User\",\"fields\":["
+    + "{\"name\":\"name\",\"type\":\"string\"},{\"name\":\"email\",\"type\":\"string\"}]}]},"
+    + "{\"name\":\"items\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"record\",\"name\":\"Item\",\"fields\":["
+    + "{\"name\":\"sku\",\"type\":\"string\"},{\"name\":\"qty\",\"type\":\"int\"}]}}}]}";
+
+  private final Schema schema = new Schema.Parser().parse( SCHEMA );
+
+  @BeforeClass
+  public static void before() throws KettlePluginException {
+    PluginRegistry.addPluginType( ValueMetaPluginType.getInstance() );
+    PluginRegistry.init( false );
+  }
+
+  @Test
+  public void testProjectsToReferencedFields() throws KettleException {
+    Schema projected = AvroSchemaProjection.project( schema, fields( "$.page", "$.user.name", "$.items[*].qty" ) );
+
+    assertNotNull( projected );
+    assertEquals( Arrays.asList( "page", "user", "items" ), names( projected ) );
+    Schema user = projected.getField( "user" ).schema().getTypes().get( 1 );
+    assertEquals( "test.User", user.getFullName() );
+    assertEquals( Arrays.asList( "name" ), names( user ) );
+    assertEquals( Arrays.asList( "qty" ), names( projected.getField( "items" ).schema().getElementType() ) );
+  }
+
+  @Test
+  public void testNoProjectionWhenEverythingIsUsedOrPathsAreDynamic() throws KettleException {
+    assertNull( AvroSchemaProjection.project( schema, new ArrayList<AvroInputMeta.AvroField>() ) );
+    assertNull( AvroSchemaProjection.project( schema, fields( "$.${field}" ) ) );
+    assertNull( AvroSchemaProjection.project( schema, fields( "$.id", "$.page", "$.referrer", "$.user.name",
+      "$.user.email", "$.items[0].sku", "$.items[0].qty" ) ) );
+  }
+
+  @Test
+  public void testReadsProjectedValues() throws Exception {
+    GenericData.Record user = new GenericData.Record( schema.getField( "user" ).schema().getTypes().get( 1 ) );
+    user.put( "name", "alice" );
+    user.put( "email", "alice@example.com" );
+    Schema itemSchema = schema.getField( "items" ).schema().getElementType();
+    GenericData.Record item = new GenericData.Record( itemSchema );
+    item.put( "sku", "x-1" );
+    item.put( "qty", 3 );
+    GenericData.Record record = new GenericData.Record( schema );
+    record.put( "id", 1L );
+    record.put( "page", "/home" );
+    record.put( "referrer", "/search" );
+    record.put( "user", user );
+    record.put( "items", new GenericData.Array<Object>( schema.getField( "items" ).schema(),
+      Arrays.<Object>asList( item ) ) );
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder( out, null );
+    new GenericDatumWriter<Object>( schema ).write( record, encoder );
+    encoder.flush();
+
+    List<AvroInputMeta.AvroField> fields = fields( "$.user.name", "$.items[0].qty" );
+    Schema projected = AvroSchemaProjection.project( schema, fields );
+    GenericData.Record read = (GenericData.Record) new GenericDatumReader<Object>( schema, projected )
+      .read( null, DecoderFactory.get().binaryDecoder( out.toByteArray(), null ) );
+
+    assertEquals( projected, read.getSchema() );
+    Variables space = new Variables();
+    assertEquals( "alice", ( (GenericData.Record) read.get( "user" ) ).get( "name" ).toString() );
+    assertEquals( 3L, fields.get( 1 ).extractKettleValue( read, read.getSchema(), schema, space, false ) );
+  }
+
+  private static List<AvroInputMeta.AvroField> fields( String... paths ) throws KettleException {
+    List<AvroInputMeta.AvroField> fields = new ArrayList<AvroInputMeta.AvroField>();
+    for ( String path : paths ) {
+      AvroInputMeta.AvroField field = new AvroInputMeta.AvroField();
+      field.m_fieldName = path;
+      field.m_fieldPath = path;
+      field.m_kettleType = path.endsWith( "qty" ) ? "Integer" : "String";
+      field.init( 0 );
+      fields.add( field );
+    }
+    return fields;
+  }
+
+  private static List<String> names( Schema record ) {
+    List<String> names = new ArrayList<String>();
+    for ( Schema.Field field : record.getFields() ) {
+      names.add( field.name() );
+    }
+    return names;
+  }
+}
@@ -0,0 +1,122 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avrooutput;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMeta;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AvroOutputDataTest {
+
+  @Test
+  public void testCreateSchema() throws KettleException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMeta( "name", ValueMetaInterface.TYPE_STRING ) );
+    rowMeta.addValueMeta( new ValueMeta( "order id", ValueMetaInterface.TYPE_INTEGER ) );
+    rowMeta.addValueMeta( new ValueMeta( "1st", ValueMetaInterface.TYPE_DATE ) );
+
+    Schema schema = AvroOutputData.createSchema( rowMeta, "Order", "org.example" );
+
+    assertEquals( "org.example.Order", schema.getFullName() );
+    assertEquals( 3, schema.getFields().size() );
+    assertEquals( "order_id", schema.getFields().get( 1 ).name() );
+    assertEquals( "_1st", schema.getFields().get( 2 ).name() );
+    Schema type = schema.getFields().get( 1 ).schema();
+    assertEquals( Schema.Type.UNION, type.getType() );
+    assertEquals( Schema.Type.LONG, type.getTypes().get( 1 ).getType() );
+    assertEquals( "timestamp-millis",
+        schema.getFields().get( 2 ).schema().getTypes().get( 1 ).getLogicalType().getName() );
+  }
+
+  @Test( expected = KettleException.class )
+  public void testCreateSchemaDuplicateAvroNames() throws KettleException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMeta( "a b", ValueMetaInterface.TYPE_STRING ) );
+    rowMeta.addValueMeta( new ValueMeta( "a_b", ValueMetaInterface.TYPE_STRING ) );
+
+    AvroOutputData.createSchema( rowMeta, "Row", "" );
+  }
+
+  @Test
+  public void testBuildFilename() {
+    assertEquals( "/tmp/out.avro", AvroOutputData.buildFilename( "/tmp/out", "avro", 0, 1, 0, false ) );
+    assertEquals( "/tmp/out_2.avro", AvroOutputData.buildFilename( "/tmp/out", "avro", 2, 4, 0, false ) );
+    assertEquals( "/tmp/out_2_3.avro", AvroOutputData.buildFilename( "/tmp/out", "avro", 2, 4, 3, true ) );
+    assertEquals( "/tmp/out_0", AvroOutputData.buildFilename( "/tmp/out", "", 0, 1, 0, true ) );
+  }
+
+  @Test
+  public void testWriteRowsRollingOverFiles() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMeta( "name", ValueMetaInterface.TYPE_STRING ) );
+    rowMeta.addValueMeta( new ValueMeta( "amount", ValueMetaInterface.TYPE_NUMBER ) );
+    rowMeta.addValueMeta( new ValueMeta( "when", ValueMetaInterface.TYPE_DATE ) );
+
+    AvroOutputData data = new AvroOutputData();
+    data.init( rowMeta, AvroOutputData.createSchema( rowMeta, "Row", null ), CodecFactory.deflateCodec( 6 ), 1024, 0,
+        2, 3 );
+
+    ByteArrayOutputStream[] files = new ByteArrayOutputStream[] { new ByteArrayOutputStream(),
+      new ByteArrayOutputStream() };
+    Date when = new Date( 1234567890L );
+    try {
+      for ( int i = 0; i < 5; i++ ) {
+        if ( data.needsNewFile() ) {
+          data.openFile( files[data.getFileCount()] );
+        }
+        data.writeRow( new Object[] { "row " + i, i == 1 ? null : i * 1.5, when } );
+      }
+    } finally {
+      data.close();
+    }
+
+    assertEquals( 2, data.getFileCount() );
+
+    DataFileStream<GenericRecord> reader =
+        new DataFileStream<GenericRecord>( new ByteArrayInputStream( files[0].toByteArray() ),
+            new GenericDatumReader<GenericRecord>() );
+    GenericRecord record = reader.next();
+    assertEquals( "row 0", record.get( "name" ).toString() );
+    assertEquals( 0.0, record.get( "amount" ) );
+    assertEquals( when.getTime(), record.get( "when" ) );
+    assertNull( reader.next().get( "amount" ) );
+    reader.next();
+    assertTrue( !reader.hasNext() );
+    reader.close();
+
+    reader =
+        new DataFileStream<GenericRecord>( new ByteArrayInputStream( files[1].toByteArray() ),
+            new GenericDatumReader<GenericRecord>() );
+    assertEquals( "row 3", reader.next().get( "name" ).toString() );
+    assertEquals( "row 4", reader.next().get( "name" ).toString() );
+    assertTrue( !reader.hasNext() );
+    reader.close();
+  }
+}
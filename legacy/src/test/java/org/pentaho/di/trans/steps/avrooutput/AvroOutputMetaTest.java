@@ -0,0 +1,57 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avrooutput;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettlePluginException;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.row.value.ValueMetaPluginType;
+import org.pentaho.di.trans.steps.loadsave.LoadSaveTester;
+import org.pentaho.di.trans.steps.loadsave.validator.FieldLoadSaveValidator;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+public class AvroOutputMetaTest {
+
+  @BeforeClass
+  public static void before() throws KettlePluginException {
+    PluginRegistry.addPluginType( ValueMetaPluginType.getInstance() );
+    PluginRegistry.init( false );
+  }
+
+  @Test
+  public void testLoadSave() throws KettleException {
+    List<String> commonAttributes =
+        Arrays.asList( "filename", "extension", "codec", "syncInterval", "blockSize", "compressionThreads",
+            "splitEvery", "recordName", "namespace" );
+
+    LoadSaveTester<AvroOutputMeta> loadSaveTester =
+      new LoadSaveTester<AvroOutputMeta>( AvroOutputMeta.class, commonAttributes, new HashMap<String, String>(),
+        new HashMap<String, String>(), new HashMap<String, FieldLoadSaveValidator<?>>(),
+        new HashMap<String, FieldLoadSaveValidator<?>>() );
+
+    loadSaveTester.testSerialization();
+  }
+
+  @Test
+  public void testGetStepData() {
+    assertTrue( new AvroOutputMeta().getStepData() instanceof AvroOutputData );
+  }
+}
@@ -0,0 +1,169 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.avrooutput;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.SeekableByteArrayInput;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelDataFileWriterTest {
+
+  protected static final String SCHEMA = "{\"type\":\"record\",\"name\":\"Row\",\"fields\":["
+      + "{\"name\":\"id\",\"type\":\"long\"},{\"name\":\"name\",\"type\":[\"null\",\"string\"]}]}";
+
+  protected Schema m_schema;
+  protected ExecutorService m_pool;
+
+  @Before
+  public void setUp() {
+    m_schema = new Schema.Parser().parse( SCHEMA );
+    m_pool = Executors.newFixedThreadPool( 3 );
+  }
+
+  @After
+  public void tearDown() {
+    m_pool.shutdownNow();
+  }
+
+  @Test
+  public void testBlocksCompressedInPoolAreWrittenInOrder() throws Exception {
+    byte[] file = write( CodecFactory.deflateCodec( 6 ), 1024, 0, m_pool, 3, 5000 );
+
+    assertRecords( file, 5000 );
+    assertTrue( countBlocks( file ) > 10 );
+  }
+
+  @Test
+  public void testCompressOnCallingThread() throws Exception {
+    byte[] file = write( CodecFactory.deflateCodec( 6 ), 1024, 0, null, 0, 1000 );
+
+    assertRecords( file, 1000 );
+  }
+
+  @Test
+  public void testBlockSizeLimitsRecordsPerBlock() throws Exception {
+    byte[] file = write( CodecFactory.nullCodec(), ParallelDataFileWriter.DEFAULT_SYNC_INTERVAL, 100, m_pool, 3, 1050 );
+
+    assertRecords( file, 1050 );
+    assertEquals( 11, countBlocks( file ) );
+  }
+
+  @Test
+  public void testLargeSyncIntervalWithOtherCodec() throws Exception {
+    byte[] file = write( CodecFactory.bzip2Codec(), 1 << 30, 200, m_pool, 3, 1000 );
+
+    assertRecords( file, 1000 );
+    assertEquals( 5, countBlocks( file ) );
+  }
+
+  @Test
+  public void testEmptyFileHasHeaderOnly() throws Exception {
+    byte[] file = write( CodecFactory.deflateCodec( 6 ), 1024, 0, m_pool, 3, 0 );
+
+    assertRecords( file, 0 );
+  }
+
+  @Test
+  public void testAbortWritesNoBlocks() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ParallelDataFileWriter writer = new ParallelDataFileWriter( m_schema, CodecFactory.deflateCodec( 6 ), 1 << 30,
+        100, m_pool, 3 );
+    writer.create( out );
+    int header = out.size();
+
+    GenericData.Record record = new GenericData.Record( m_schema );
+    for ( int i = 0; i < 150; i++ ) {
+      record.put( 0, (long) i );
+      record.put( 1, "name " + i );
+      writer.append( record );
+    }
+    writer.abort();
+    writer.close();
+
+    assertEquals( header, out.size() );
+  }
+
+  protected byte[] write( CodecFactory codec, int syncInterval, int blockSize, ExecutorService pool, int poolSize,
+      int records ) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ParallelDataFileWriter writer = new ParallelDataFileWriter( m_schema, codec, syncInterval, blockSize, pool,
+        poolSize );
+    writer.create( out );
+
+    GenericData.Record record = new GenericData.Record( m_schema );
+    for ( int i = 0; i < records; i++ ) {
+      record.put( 0, (long) i );
+      record.put( 1, i % 7 == 0 ? null : "name " + i );
+      writer.append( record );
+    }
+    assertEquals( records, writer.getRecordCount() );
+    writer.close();
+
+    return out.toByteArray();
+  }
+
+  protected void assertRecords( byte[] file, int records ) throws Exception {
+    DataFileStream<GenericRecord> reader =
+        new DataFileStream<GenericRecord>( new ByteArrayInputStream( file ),
+            new GenericDatumReader<GenericRecord>( m_schema ) );
+    int i = 0;
+    while ( reader.hasNext() ) {
+      GenericRecord record = reader.next();
+      assertEquals( (long) i, record.get( "id" ) );
+      if ( i % 7 == 0 ) {
+        assertEquals( null, record.get( "name" ) );
+      } else {
+        assertEquals( "name " + i, record.get( "name" ).toString() );
+      }
+      i++;
+    }
+    reader.close();
+    assertEquals( records, i );
+  }
+
+  protected int countBlocks( byte[] file ) throws Exception {
+    DataFileReader<GenericRecord> reader =
+        new DataFileReader<GenericRecord>( new SeekableByteArrayInput( file ),
+            new GenericDatumReader<GenericRecord>( m_schema ) );
+    int blocks = 0;
+    long lastSync = -1;
+    while ( reader.hasNext() ) {
+      reader.next();
+      long sync = reader.previousSync();
+      if ( sync != lastSync ) {
+        blocks++;
+        lastSync = sync;
+      }
+    }
+    reader.close();
+
+    return blocks;
+  }
+}
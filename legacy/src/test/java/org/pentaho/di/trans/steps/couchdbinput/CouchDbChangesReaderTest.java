@@ -0,0 +1,89 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.couchdbinput;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CouchDbChangesReaderTest {
+
+  private static CouchDbChangesReader reader( String response ) {
+    try {
+      return new CouchDbChangesReader( new ByteArrayInputStream( response.getBytes( StandardCharsets.UTF_8 ) ) );
+    } catch ( IOException e ) {
+      throw new IllegalStateException( e );
+    }
+  }
+
+  @Test
+  public void testReadChanges() throws IOException {
+    CouchDbChangesReader reader = reader( "{\"results\":[\n"
+      + "{\"seq\":\"3-g1AA\",\"id\":\"a\",\"changes\":[{\"rev\":\"2-7\"}],"
+      + "\"doc\":{\"_id\":\"a\",\"v\":[1.10,1e2,{\"w\":\"caf\u00e9\"}]}},\n"
+      + "{\"seq\":4,\"id\":\"b\",\"changes\":[{\"rev\":\"3-8\"}],\"deleted\":true,"
+      + "\"doc\":{\"_id\":\"b\",\"_deleted\":true}},\n"
+      + "{\"seq\":5,\"id\":\"c\",\"changes\":[{\"rev\":\"1-9\"}]}\n"
+      + "],\n\"last_seq\":\"5-g1AB\",\"pending\":7}\n" );
+
+    assertTrue( reader.readHeader() );
+    assertTrue( reader.nextChange() );
+    assertEquals( "3-g1AA", reader.getSeq() );
+    assertEquals( "a", reader.getId() );
+    assertFalse( reader.isDeleted() );
+    assertEquals( "{\"_id\":\"a\",\"v\":[1.10,1e2,{\"w\":\"caf\u00e9\"}]}", reader.getDocument().toString() );
+    assertNull( reader.getLastSeq() );
+
+    assertTrue( reader.nextChange() );
+    assertEquals( "4", reader.getSeq() );
+    assertTrue( reader.isDeleted() );
+    assertEquals( "{\"_id\":\"b\",\"_deleted\":true}", reader.getDocument().toString() );
+
+    assertTrue( reader.nextChange() );
+    assertEquals( "c", reader.getId() );
+    assertFalse( reader.isDeleted() );
+    assertNull( reader.getDocument() );
+
+    assertFalse( reader.nextChange() );
+    assertEquals( "5-g1AB", reader.getLastSeq() );
+    assertEquals( 7, reader.getPending() );
+    assertFalse( reader.nextChange() );
+    reader.close();
+  }
+
+  @Test
+  public void testNoChanges() throws IOException {
+    CouchDbChangesReader reader = reader( "{\"results\":[],\"last_seq\":12,\"pending\":0}" );
+
+    assertTrue( reader.readHeader() );
+    assertFalse( reader.nextChange() );
+    assertEquals( "12", reader.getLastSeq() );
+    assertEquals( 0, reader.getPending() );
+  }
+
+  @Test
+  public void testResponseWithoutResults() throws IOException {
+    CouchDbChangesReader reader = reader( "{\"error\":\"not_found\",\"reason\":\"missing\"}" );
+
+    assertFalse( reader.readHeader() );
+    assertFalse( reader.nextChange() );
+  }
+}
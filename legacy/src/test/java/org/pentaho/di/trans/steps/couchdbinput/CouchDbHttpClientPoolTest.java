@@ -0,0 +1,124 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.couchdbinput;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class CouchDbHttpClientPoolTest {
+  private HttpServer server;
+  private final List<String> acceptEncodings = Collections.synchronizedList( new ArrayList<String>() );
+  private final Set<String> connections = Collections.synchronizedSet( new HashSet<String>() );
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0 ), 0 );
+    server.createContext( "/", new HttpHandler() {
+      @Override
+      public void handle( HttpExchange exchange ) throws IOException {
+        acceptEncodings.add( exchange.getRequestHeaders().getFirst( "Accept-Encoding" ) );
+        connections.add( exchange.getRemoteAddress().toString() );
+        exchange.getResponseHeaders().add( "Content-Encoding", "gzip" );
+        exchange.sendResponseHeaders( 200, 0 );
+        try ( OutputStream out = new GZIPOutputStream( exchange.getResponseBody() ) ) {
+          out.write( "{\"total_rows\":0,\"rows\":[]}".getBytes( StandardCharsets.UTF_8 ) );
+        }
+      }
+    } );
+    server.start();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop( 0 );
+  }
+
+  @Test
+  public void testClientsAreSharedPerCredentials() {
+    CouchDbHttpClientPool pool = new CouchDbHttpClientPool();
+
+    assertSame( pool.getClient( "user", "pass" ), pool.getClient( "user", "pass" ) );
+    assertSame( pool.getClient( null, null ), pool.getClient( "", "ignored" ) );
+    assertNotSame( pool.getClient( "user", "pass" ), pool.getClient( "user", "other" ) );
+    assertNotSame( pool.getClient( "user", "pass" ), pool.getClient( null, null ) );
+  }
+
+  @Test
+  public void testCredentialsAreNotKeptAsKeys() {
+    String key = CouchDbHttpClientPool.key( "user", "secret" );
+
+    assertEquals( 64, key.length() );
+    assertFalse( key.contains( "user" ) );
+    assertFalse( key.contains( "secret" ) );
+    assertEquals( key, CouchDbHttpClientPool.key( "user", "secret" ) );
+    assertNotEquals( key, CouchDbHttpClientPool.key( "use", "rsecret" ) );
+    assertEquals( "", CouchDbHttpClientPool.key( " ", "secret" ) );
+  }
+
+  @Test
+  public void testLeastRecentlyUsedClientIsEvicted() {
+    CouchDbHttpClientPool pool = new CouchDbHttpClientPool( 2 );
+    HttpClient first = pool.getClient( "first", "pass" );
+    HttpClient second = pool.getClient( "second", "pass" );
+    assertSame( first, pool.getClient( "first", "pass" ) );
+
+    pool.getClient( "third", "pass" );
+
+    assertEquals( 2, pool.size() );
+    assertSame( first, pool.getClient( "first", "pass" ) );
+    assertNotSame( second, pool.getClient( "second", "pass" ) );
+  }
+
+  @Test
+  public void testRequestsAreCompressedAndReuseTheConnection() throws IOException {
+    HttpClient client = new CouchDbHttpClientPool().getClient( null, null );
+    String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/db/_design/d/_view/v";
+
+    for ( int i = 0; i < 3; i++ ) {
+      HttpResponse response = client.execute( new HttpGet( url ) );
+      assertEquals( "{\"total_rows\":0,\"rows\":[]}", EntityUtils.toString( response.getEntity() ) );
+    }
+
+    assertEquals( 3, acceptEncodings.size() );
+    for ( String acceptEncoding : acceptEncodings ) {
+      assertEquals( "gzip,deflate", acceptEncoding );
+    }
+    assertEquals( 1, connections.size() );
+  }
+}
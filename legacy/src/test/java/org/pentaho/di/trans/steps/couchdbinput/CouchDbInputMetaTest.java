@@ -26,6 +26,7 @@ import org.pentaho.di.core.exception.KettleXMLException;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
 import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.repository.ObjectId;
@@ -75,6 +76,12 @@ public class CouchDbInputMetaTest {
     commonAttributes.add( "viewName" );
     commonAttributes.add( "authenticationUser" );
     commonAttributes.add( "authenticationPassword" );
+    commonAttributes.add( "pageSize" );
+    commonAttributes.add( "retries" );
+    commonAttributes.add( "changesFeed" );
+    commonAttributes.add( "since" );
+    commonAttributes.add( "checkpointFile" );
+    commonAttributes.add( "checkpointVariable" );
 
     LoadSaveTester<CouchDbInputMeta> couchDbInputLoadSaveTester =
       new LoadSaveTester<CouchDbInputMeta>( CouchDbInputMeta.class, commonAttributes );
@@ -116,6 +123,19 @@ public class CouchDbInputMetaTest {
     assertEquals( testOrigin, valueMetaInterface.getOrigin() );
   }
 
+  @Test
+  public void testGetFieldsChangesFeed() throws KettleStepException {
+    RowMetaInterface rowMeta = new RowMeta();
+    couchDbInputMeta.setChangesFeed( true );
+    couchDbInputMeta.getFields( DefaultBowl.getInstance(), rowMeta, "testOrigin", null, null, null, null, null );
+    assertEquals( 4, rowMeta.size() );
+    assertEquals( CouchDbInputMeta.VALUE_META_NAME, rowMeta.getValueMeta( 0 ).getName() );
+    assertEquals( CouchDbInputMeta.ID_VALUE_META_NAME, rowMeta.getValueMeta( 1 ).getName() );
+    assertEquals( CouchDbInputMeta.SEQ_VALUE_META_NAME, rowMeta.getValueMeta( 2 ).getName() );
+    assertEquals( CouchDbInputMeta.DELETED_VALUE_META_NAME, rowMeta.getValueMeta( 3 ).getName() );
+    assertEquals( ValueMetaInterface.TYPE_BOOLEAN, rowMeta.getValueMeta( 3 ).getType() );
+  }
+
   @Test( expected = KettleXMLException.class )
   public void testLoadXmlException() throws KettleXMLException {
     Node node = mock( Node.class );
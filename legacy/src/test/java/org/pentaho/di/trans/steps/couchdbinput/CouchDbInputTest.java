@@ -22,21 +22,42 @@ import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.protocol.HttpContext;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.bowl.DefaultBowl;
 import org.pentaho.di.core.encryption.Encr;
 import org.pentaho.di.core.encryption.TwoWayPasswordEncoderPluginType;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
 import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.TransListener;
 import org.pentaho.di.trans.steps.mock.StepMockHelper;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
-
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -280,4 +301,199 @@ public class CouchDbInputTest {
 
     assertFalse( couchDbInput.init( couchDbInputMeta, couchDbInputData ) );
   }
+
+  @Test
+  public void testBuildQuery() {
+    assertEquals( "", CouchDbInput.buildQuery( null, null, 0, 0 ) );
+    assertEquals( "?skip=10&limit=5", CouchDbInput.buildQuery( null, null, 10, 5 ) );
+    assertEquals( "?startkey=%5B1%2C%22a+b%22%5D&startkey_docid=doc1&skip=1&limit=5",
+      CouchDbInput.buildQuery( "[1,\"a b\"]", "doc1", 1, 5 ) );
+    assertEquals( "?startkey=%22k%22&startkey_docid=doc1&skip=3",
+      CouchDbInput.buildQuery( "\"k\"", "doc1", 3, 0 ) );
+    assertEquals( "?startkey=%22k%22&skip=1", CouchDbInput.buildQuery( "\"k\"", null, 1, 0 ) );
+  }
+
+  @Test
+  public void testPagedReadResumesAfterFailedRequest() throws Exception {
+    String viewUrl = CouchDbInput.buildUrl( "testHostname", 9999, "testDbName", "testDoc", "testView" );
+    Map<String, InputStream> pages = new HashMap<>();
+    pages.put( viewUrl + "?limit=2", body( "{\"total_rows\":4,\"rows\":[{\"id\":\"a\",\"key\":\"a\"},"
+      + "{\"id\":\"b\",\"key\":\"b\"}]}" ) );
+    // the second page breaks off after its first row
+    pages.put( viewUrl + "?startkey=%22b%22&startkey_docid=b&skip=1&limit=2", new SequenceInputStream(
+      body( "{\"total_rows\":4,\"rows\":[{\"id\":\"c\",\"key\":\"c\"},{\"id\":" ), new InputStream() {
+        @Override
+        public int read() throws IOException {
+          throw new IOException( "Connection reset" );
+        }
+      } ) );
+    pages.put( viewUrl + "?startkey=%22c%22&startkey_docid=c&skip=1&limit=2", body(
+      "{\"total_rows\":4,\"rows\":[{\"id\":\"d\",\"key\":\"d\"}]}" ) );
+
+    List<String> rows = readPages( pages );
+
+    assertEquals( Arrays.asList( "{\"id\":\"a\",\"key\":\"a\"}", "{\"id\":\"b\",\"key\":\"b\"}",
+      "{\"id\":\"c\",\"key\":\"c\"}", "{\"id\":\"d\",\"key\":\"d\"}" ), rows );
+    assertTrue( pages.isEmpty() );
+  }
+
+  @Test
+  public void testPagedReadResumesAfterRowsWithTheSameKeyAndDocument() throws Exception {
+    String viewUrl = CouchDbInput.buildUrl( "testHostname", 9999, "testDbName", "testDoc", "testView" );
+    Map<String, InputStream> pages = new HashMap<>();
+    // document a emits key k three times, the page breaks after the second
+    String a1 = "{\"id\":\"a\",\"key\":\"k\",\"value\":1}";
+    String a2 = "{\"id\":\"a\",\"key\":\"k\",\"value\":2}";
+    String a3 = "{\"id\":\"a\",\"key\":\"k\",\"value\":3}";
+    String b1 = "{\"id\":\"b\",\"key\":\"k\",\"value\":4}";
+    pages.put( viewUrl + "?limit=2", body( "{\"total_rows\":4,\"rows\":[" + a1 + "," + a2 + "]}" ) );
+    pages.put( viewUrl + "?startkey=%22k%22&startkey_docid=a&skip=2&limit=2",
+      body( "{\"total_rows\":4,\"rows\":[" + a3 + "," + b1 + "]}" ) );
+    pages.put( viewUrl + "?startkey=%22k%22&startkey_docid=b&skip=1&limit=2",
+      body( "{\"total_rows\":4,\"rows\":[]}" ) );
+
+    List<String> rows = readPages( pages );
+
+    assertEquals( Arrays.asList( a1, a2, a3, b1 ), rows );
+    assertTrue( pages.isEmpty() );
+  }
+
+  /**
+   * Read all rows of the view in pages of two rows, answering every request with the matching response.
+   */
+  private List<String> readPages( final Map<String, InputStream> pages ) throws Exception {
+    CouchDbInputMeta couchDbInputMeta = (CouchDbInputMeta) stepMockHelper.initStepMetaInterface;
+    CouchDbInputData couchDbInputData = (CouchDbInputData) stepMockHelper.initStepDataInterface;
+
+    when( couchDbInputMeta.getHostname() ).thenReturn( "testHostname" );
+    when( couchDbInputMeta.getPort() ).thenReturn( "9999" );
+    when( couchDbInputMeta.getDbName() ).thenReturn( "testDbName" );
+    when( couchDbInputMeta.getDesignDocument() ).thenReturn( "testDoc" );
+    when( couchDbInputMeta.getViewName() ).thenReturn( "testView" );
+    when( couchDbInputMeta.getPageSize() ).thenReturn( "2" );
+    when( couchDbInputMeta.getRetries() ).thenReturn( "1" );
+
+    HttpClient httpClient = mock( HttpClient.class );
+    doReturn( httpClient ).when( couchDbInput ).createHttpClient( any(), any() );
+    doAnswer( new Answer<HttpResponse>() {
+      @Override
+      public HttpResponse answer( InvocationOnMock invocation ) throws Throwable {
+        String url = ( (HttpUriRequest) invocation.getArguments()[0] ).getURI().toString();
+        assertTrue( url, pages.containsKey( url ) );
+        HttpResponse response = mock( HttpResponse.class );
+        StatusLine statusLine = mock( StatusLine.class );
+        HttpEntity entity = mock( HttpEntity.class );
+        doReturn( 200 ).when( statusLine ).getStatusCode();
+        doReturn( statusLine ).when( response ).getStatusLine();
+        doReturn( entity ).when( response ).getEntity();
+        doReturn( pages.remove( url ) ).when( entity ).getContent();
+        return response;
+      }
+    } ).when( httpClient ).execute( any( HttpUriRequest.class ), any( HttpContext.class ) );
+    doNothing().when( couchDbInput ).waitBeforeRetry( anyInt() );
+    doReturn( 1 ).when( couchDbInput ).getUniqueStepCountAcrossSlaves();
+
+    final List<String> rows = new ArrayList<>();
+    doAnswer( new Answer<Void>() {
+      @Override
+      public Void answer( InvocationOnMock invocation ) {
+        rows.add( (String) ( (Object[]) invocation.getArguments()[1] )[0] );
+        return null;
+      }
+    } ).when( couchDbInput ).putRow( any( RowMetaInterface.class ), any( Object[].class ) );
+
+    assertTrue( couchDbInput.init( couchDbInputMeta, couchDbInputData ) );
+    while ( couchDbInput.processRow( couchDbInputMeta, couchDbInputData ) ) {
+      // read all rows
+    }
+    return rows;
+  }
+
+  @Test
+  public void testBuildChangesQuery() {
+    assertEquals( "?include_docs=true&since=0", CouchDbInput.buildChangesQuery( "0", 0 ) );
+    assertEquals( "?include_docs=true&since=12-g1AA%2Bb&limit=100",
+      CouchDbInput.buildChangesQuery( "12-g1AA+b", 100 ) );
+  }
+
+  @Test
+  public void testChangesFeedReadsFromCheckpointAndSavesItWhenFinished() throws Exception {
+    CouchDbInputMeta couchDbInputMeta = (CouchDbInputMeta) stepMockHelper.initStepMetaInterface;
+    CouchDbInputData couchDbInputData = (CouchDbInputData) stepMockHelper.initStepDataInterface;
+
+    File checkpoint = File.createTempFile( "CouchDbInputTest", ".seq" );
+    checkpoint.deleteOnExit();
+    Files.write( checkpoint.toPath(), "5\n".getBytes( StandardCharsets.UTF_8 ) );
+
+    when( couchDbInputMeta.getHostname() ).thenReturn( "testHostname" );
+    when( couchDbInputMeta.getPort() ).thenReturn( "9999" );
+    when( couchDbInputMeta.getDbName() ).thenReturn( "testDbName" );
+    when( couchDbInputMeta.getChangesFeed() ).thenReturn( true );
+    when( couchDbInputMeta.getSince() ).thenReturn( "0" );
+    when( couchDbInputMeta.getCheckpointFile() ).thenReturn( checkpoint.getAbsolutePath() );
+    when( couchDbInputMeta.getPageSize() ).thenReturn( "2" );
+    when( couchDbInputMeta.getRetries() ).thenReturn( "1" );
+    when( stepMockHelper.transMeta.getBowl() ).thenReturn( DefaultBowl.getInstance() );
+
+    final String changesUrl = CouchDbInput.buildChangesUrl( "testHostname", 9999, "testDbName" );
+    final Map<String, InputStream> pages = new HashMap<>();
+    pages.put( changesUrl + "?include_docs=true&since=5&limit=2", body( "{\"results\":["
+      + "{\"seq\":6,\"id\":\"a\",\"changes\":[{\"rev\":\"2-x\"}],\"doc\":{\"_id\":\"a\",\"v\":1}},"
+      + "{\"seq\":7,\"id\":\"b\",\"changes\":[{\"rev\":\"1-y\"}],\"doc\":{\"_id\":\"b\",\"v\":2}}],"
+      + "\"last_seq\":7,\"pending\":1}" ) );
+    pages.put( changesUrl + "?include_docs=true&since=7&limit=2", body( "{\"results\":["
+      + "{\"seq\":8,\"id\":\"a\",\"changes\":[{\"rev\":\"3-z\"}],\"deleted\":true,"
+      + "\"doc\":{\"_id\":\"a\",\"_deleted\":true}}],\"last_seq\":8,\"pending\":0}" ) );
+
+    HttpClient httpClient = mock( HttpClient.class );
+    doReturn( httpClient ).when( couchDbInput ).createHttpClient( any(), any() );
+    doAnswer( new Answer<HttpResponse>() {
+      @Override
+      public HttpResponse answer( InvocationOnMock invocation ) throws Throwable {
+        String url = ( (HttpUriRequest) invocation.getArguments()[0] ).getURI().toString();
+        assertTrue( url, pages.containsKey( url ) );
+        HttpResponse response = mock( HttpResponse.class );
+        StatusLine statusLine = mock( StatusLine.class );
+        HttpEntity entity = mock( HttpEntity.class );
+        doReturn( 200 ).when( statusLine ).getStatusCode();
+        doReturn( statusLine ).when( response ).getStatusLine();
+        doReturn( entity ).when( response ).getEntity();
+        doReturn( pages.remove( url ) ).when( entity ).getContent();
+        return response;
+      }
+    } ).when( httpClient ).execute( any( HttpUriRequest.class ), any( HttpContext.class ) );
+    doReturn( 0 ).when( couchDbInput ).getUniqueStepNrAcrossSlaves();
+
+    final List<Object[]> rows = new ArrayList<>();
+    doAnswer( new Answer<Void>() {
+      @Override
+      public Void answer( InvocationOnMock invocation ) {
+        rows.add( Arrays.copyOf( (Object[]) invocation.getArguments()[1], 4 ) );
+        return null;
+      }
+    } ).when( couchDbInput ).putRow( any( RowMetaInterface.class ), any( Object[].class ) );
+
+    assertTrue( couchDbInput.init( couchDbInputMeta, couchDbInputData ) );
+    while ( couchDbInput.processRow( couchDbInputMeta, couchDbInputData ) ) {
+      // read all changes
+    }
+
+    assertTrue( pages.isEmpty() );
+    assertEquals( 3, rows.size() );
+    assertEquals( Arrays.asList( "{\"_id\":\"a\",\"v\":1}", "a", "6", false ), Arrays.asList( rows.get( 0 ) ) );
+    assertEquals( Arrays.asList( "{\"_id\":\"b\",\"v\":2}", "b", "7", false ), Arrays.asList( rows.get( 1 ) ) );
+    assertEquals( Arrays.asList( "{\"_id\":\"a\",\"_deleted\":true}", "a", "8", true ),
+      Arrays.asList( rows.get( 2 ) ) );
+
+    // the checkpoint is only saved once the transformation has finished
+    assertEquals( "5\n", new String( Files.readAllBytes( checkpoint.toPath() ), StandardCharsets.UTF_8 ) );
+    ArgumentCaptor<TransListener> listener = ArgumentCaptor.forClass( TransListener.class );
+    verify( stepMockHelper.trans ).addTransListener( listener.capture() );
+    listener.getValue().transFinished( stepMockHelper.trans );
+    assertEquals( "8", new String( Files.readAllBytes( checkpoint.toPath() ), StandardCharsets.UTF_8 ) );
+  }
+
+  private static InputStream body( String json ) {
+    return new ByteArrayInputStream( json.getBytes( StandardCharsets.UTF_8 ) );
+  }
 }
@@ -0,0 +1,86 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.couchdbinput;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CouchDbViewReaderTest {
+
+  private static CouchDbViewReader reader( String response ) {
+    try {
+      return new CouchDbViewReader( new ByteArrayInputStream( response.getBytes( StandardCharsets.UTF_8 ) ) );
+    } catch ( IOException e ) {
+      throw new IllegalStateException( e );
+    }
+  }
+
+  @Test
+  public void testReadRows() throws IOException {
+    CouchDbViewReader reader = reader( "{\"total_rows\":3,\"offset\":0,\"rows\":[\r\n"
+      + "{\"id\":\"a\",\"key\":\"a\",\"value\":{\"text\":\"curly } and { \\\" quote\"}},\r\n"
+      + "{\"id\":\"b\",\"key\":[1,\"b\"],\"value\":\"back\\\\slash\"},\r\n"
+      + "{\"id\":\"c\",\"key\":null,\"value\":\"caf\u00e9\"}\r\n"
+      + "]}\n" );
+
+    assertTrue( reader.readHeader() );
+    assertEquals( 3, reader.getTotalRows() );
+    assertEquals( "{\"id\":\"a\",\"key\":\"a\",\"value\":{\"text\":\"curly } and { \\\" quote\"}}",
+      reader.nextRow().toString() );
+    assertEquals( "{\"id\":\"b\",\"key\":[1,\"b\"],\"value\":\"back\\\\slash\"}", reader.nextRow().toString() );
+    assertEquals( "{\"id\":\"c\",\"key\":null,\"value\":\"caf\u00e9\"}", reader.nextRow().toString() );
+    assertNull( reader.nextRow() );
+    assertNull( reader.nextRow() );
+    reader.close();
+  }
+
+  @Test
+  public void testNumbersKeepTheirText() throws IOException {
+    String row = "{\"id\":\"a\",\"key\":[1.10,1e2],\"value\":{\"price\":1.10,\"big\":1E+2,"
+      + "\"exact\":0.1000000000000000055511151231257827,\"long\":123456789012345678901234567890,"
+      + "\"list\":[-0.0,2.50e-3]}}";
+    CouchDbViewReader reader = reader( "{\"total_rows\":2,\"offset\":0,\"rows\":[" + row + ",[3.140]]}" );
+
+    assertTrue( reader.readHeader() );
+    assertEquals( row, reader.nextRow().toString() );
+    assertEquals( "[1.10,1e2]", reader.getKey() );
+    assertEquals( "[3.140]", reader.nextRow().toString() );
+    assertNull( reader.nextRow() );
+    reader.close();
+  }
+
+  @Test
+  public void testEmptyView() throws IOException {
+    CouchDbViewReader reader = reader( "{\"total_rows\":0,\"offset\":0,\"rows\":[]}" );
+
+    assertTrue( reader.readHeader() );
+    assertNull( reader.nextRow() );
+  }
+
+  @Test
+  public void testResponseWithoutRows() throws IOException {
+    CouchDbViewReader reader = reader( "{\"error\":\"not_found\",\"reason\":\"missing\"}" );
+
+    assertFalse( reader.readHeader() );
+    assertNull( reader.nextRow() );
+  }
+}
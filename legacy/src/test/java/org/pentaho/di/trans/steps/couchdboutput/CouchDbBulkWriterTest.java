@@ -0,0 +1,115 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.couchdboutput;
+
+import org.apache.http.client.HttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.trans.steps.couchdbinput.CouchDbHttpClientPool;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class CouchDbBulkWriterTest {
+  private CouchDbStandIn couchDb;
+  private HttpClient client;
+  private String url;
+
+  @Before
+  public void setUp() throws IOException {
+    couchDb = new CouchDbStandIn( "db" );
+    client = CouchDbHttpClientPool.getInstance().getClient( null, null );
+    url = CouchDbOutput.buildUrl( "127.0.0.1", couchDb.getPort(), "db" );
+  }
+
+  @After
+  public void tearDown() {
+    couchDb.close();
+  }
+
+  @Test
+  public void testParseDocument() throws IOException {
+    CouchDbBulkWriter.Document document =
+      CouchDbBulkWriter.parseDocument( "{\"a\":{\"_id\":\"nested\"},\"_rev\":\"1-x\",\"_id\":\"doc\"}", null );
+    assertEquals( "doc", document.getId() );
+    assertEquals( "1-x", document.getRev() );
+
+    assertEquals( "other", CouchDbBulkWriter.parseDocument( "{\"_id\":\"doc\"}", "other" ).getId() );
+    assertNull( CouchDbBulkWriter.parseDocument( "{}", null ).getId() );
+  }
+
+  @Test( expected = IOException.class )
+  public void testParseDocumentNotAnObject() throws IOException {
+    CouchDbBulkWriter.parseDocument( "[1,2]", null );
+  }
+
+  @Test
+  public void testWriteReportsConflictsPerDocument() throws Exception {
+    CouchDbBulkWriter writer = new CouchDbBulkWriter( client, null, url, false );
+    writer.write( Arrays.asList( CouchDbBulkWriter.parseDocument( "{\"_id\":\"a\",\"v\":1}", null ) ) );
+    String revA = couchDb.getRev( "a" );
+
+    List<CouchDbBulkWriter.Document> documents = Arrays.asList(
+      CouchDbBulkWriter.parseDocument( "{\"_id\":\"a\",\"v\":2}", null ),
+      CouchDbBulkWriter.parseDocument( "{\"v\":3}", "b" ),
+      CouchDbBulkWriter.parseDocument( "{\"v\":4}", null ) );
+    writer.write( documents );
+
+    assertEquals( "conflict", documents.get( 0 ).getError() );
+    assertEquals( revA, couchDb.getRev( "a" ) );
+    assertNull( documents.get( 1 ).getError() );
+    assertEquals( "b", documents.get( 1 ).getId() );
+    assertEquals( couchDb.getRev( "b" ), documents.get( 1 ).getRev() );
+    assertEquals( "{\"v\":3}", couchDb.getDocument( "b" ) );
+    assertNull( documents.get( 2 ).getError() );
+    assertNotNull( couchDb.getDocument( documents.get( 2 ).getId() ) );
+    assertEquals( 0, couchDb.getLookupRequests() );
+  }
+
+  @Test
+  public void testUpsertLooksUpRevisionsOncePerBatch() throws Exception {
+    new CouchDbBulkWriter( client, null, url, false ).write( Arrays.asList(
+      CouchDbBulkWriter.parseDocument( "{\"_id\":\"a\",\"v\":1}", null ),
+      CouchDbBulkWriter.parseDocument( "{\"_id\":\"b\",\"v\":1}", null ) ) );
+
+    List<CouchDbBulkWriter.Document> documents = Arrays.asList(
+      CouchDbBulkWriter.parseDocument( "{\"_id\":\"a\",\"v\":2}", null ),
+      CouchDbBulkWriter.parseDocument( "{\"v\":2}", "b" ),
+      CouchDbBulkWriter.parseDocument( "{\"_id\":\"c\",\"v\":2}", null ) );
+    new CouchDbBulkWriter( client, null, url, true ).write( documents );
+
+    for ( CouchDbBulkWriter.Document document : documents ) {
+      assertNull( document.getError() );
+      assertEquals( couchDb.getRev( document.getId() ), document.getRev() );
+      assertEquals( "{\"v\":2}", couchDb.getDocument( document.getId() ) );
+    }
+    assertEquals( "2", couchDb.getRev( "a" ).substring( 0, 1 ) );
+    assertEquals( "1", couchDb.getRev( "c" ).substring( 0, 1 ) );
+    assertEquals( 1, couchDb.getLookupRequests() );
+    assertEquals( 2, couchDb.getBulkRequests() );
+  }
+
+  @Test( expected = KettleException.class )
+  public void testUnknownDatabase() throws Exception {
+    new CouchDbBulkWriter( client, null, CouchDbOutput.buildUrl( "127.0.0.1", couchDb.getPort(), "other" ), false )
+      .write( Arrays.asList( CouchDbBulkWriter.parseDocument( "{}", null ) ) );
+  }
+}
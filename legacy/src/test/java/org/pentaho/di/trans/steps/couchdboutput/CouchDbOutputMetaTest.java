@@ -0,0 +1,77 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.couchdboutput;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.encryption.Encr;
+import org.pentaho.di.core.encryption.TwoWayPasswordEncoderPluginType;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.steps.loadsave.LoadSaveTester;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CouchDbOutputMetaTest {
+
+  @BeforeClass
+  public static void beforeClass() throws KettleException {
+    PluginRegistry.addPluginType( TwoWayPasswordEncoderPluginType.getInstance() );
+    PluginRegistry.init( false );
+    Encr.init( "Kettle" );
+  }
+
+  @Test
+  public void testLoadSave() throws KettleException {
+    List<String> attributes =
+      Arrays.asList( "hostname", "port", "dbName", "authenticationUser", "authenticationPassword", "jsonField",
+        "idField", "upsert", "batchSize", "concurrentBatches", "idOutputField", "revOutputField" );
+
+    LoadSaveTester<CouchDbOutputMeta> loadSaveTester =
+      new LoadSaveTester<CouchDbOutputMeta>( CouchDbOutputMeta.class, attributes );
+
+    loadSaveTester.testSerialization();
+  }
+
+  @Test
+  public void testGetFields() throws KettleException {
+    CouchDbOutputMeta meta = new CouchDbOutputMeta();
+    meta.setDefault();
+    RowMetaInterface rowMeta = new RowMeta();
+    meta.getFields( DefaultBowl.getInstance(), rowMeta, "origin", null, null, null, null, null );
+
+    assertEquals( 2, rowMeta.size() );
+    assertEquals( CouchDbOutputMeta.DEFAULT_ID_OUTPUT_FIELD, rowMeta.getValueMeta( 0 ).getName() );
+    assertEquals( CouchDbOutputMeta.DEFAULT_REV_OUTPUT_FIELD, rowMeta.getValueMeta( 1 ).getName() );
+    assertEquals( ValueMetaInterface.TYPE_STRING, rowMeta.getValueMeta( 1 ).getType() );
+
+    meta.setIdOutputField( "" );
+    rowMeta = new RowMeta();
+    meta.getFields( DefaultBowl.getInstance(), rowMeta, "origin", null, null, null, null, null );
+    assertEquals( 1, rowMeta.size() );
+  }
+
+  @Test
+  public void testSupportsErrorHandling() {
+    assertTrue( new CouchDbOutputMeta().supportsErrorHandling() );
+  }
+}
@@ -0,0 +1,177 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.couchdboutput;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.pentaho.di.core.encryption.Encr;
+import org.pentaho.di.core.encryption.TwoWayPasswordEncoderPluginType;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+public class CouchDbOutputTest {
+  private StepMockHelper<CouchDbOutputMeta, CouchDbOutputData> stepMockHelper;
+  private CouchDbStandIn couchDb;
+  private CouchDbOutputMeta meta;
+  private CouchDbOutputData data;
+  private CouchDbOutput couchDbOutput;
+  private RowMetaInterface inputRowMeta;
+
+  private final List<Object[]> rows = new ArrayList<>();
+  private final List<String> errors = new ArrayList<>();
+
+  @Before
+  public void setUp() throws KettleException, IOException {
+    PluginRegistry.addPluginType( TwoWayPasswordEncoderPluginType.getInstance() );
+    PluginRegistry.init( false );
+    Encr.init( "Kettle" );
+    stepMockHelper = new StepMockHelper<>( "testName", CouchDbOutputMeta.class, CouchDbOutputData.class );
+    when( stepMockHelper.logChannelInterfaceFactory.create( any(), any( LoggingObjectInterface.class ) ) )
+      .thenReturn( mock( LogChannelInterface.class ) );
+    when( stepMockHelper.stepMeta.isDoingErrorHandling() ).thenReturn( true );
+
+    couchDb = new CouchDbStandIn( "db" );
+
+    meta = new CouchDbOutputMeta();
+    meta.setDefault();
+    meta.setHostname( "127.0.0.1" );
+    meta.setPort( "" + couchDb.getPort() );
+    meta.setDbName( "db" );
+    meta.setIdField( "name" );
+    meta.setBatchSize( "2" );
+    meta.setConcurrentBatches( "2" );
+    data = new CouchDbOutputData();
+
+    inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "json" ) );
+    inputRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+
+    couchDbOutput =
+      spy( new CouchDbOutput( stepMockHelper.stepMeta, data, 0, stepMockHelper.transMeta, stepMockHelper.trans ) );
+    doReturn( inputRowMeta ).when( couchDbOutput ).getInputRowMeta();
+    doReturn( new Object[] { "{\"v\":1}", "a" }, new Object[] { "{\"v\":2}", "b" }, new Object[] { "{\"v\":3}", "c" },
+      new Object[] { "{\"v\":4}", "d" }, new Object[] { "{\"v\":5}", "e" }, null ).when( couchDbOutput ).getRow();
+    doAnswer( new Answer<Void>() {
+      @Override
+      public Void answer( InvocationOnMock invocation ) {
+        rows.add( (Object[]) invocation.getArguments()[1] );
+        return null;
+      }
+    } ).when( couchDbOutput ).putRow( any( RowMetaInterface.class ), any( Object[].class ) );
+    doAnswer( new Answer<Void>() {
+      @Override
+      public Void answer( InvocationOnMock invocation ) {
+        errors.add( ( (Object[]) invocation.getArguments()[1] )[1] + ":" + invocation.getArguments()[5] );
+        return null;
+      }
+    } ).when( couchDbOutput ).putError( any( RowMetaInterface.class ), any( Object[].class ), anyLong(), anyString(),
+      anyString(), anyString() );
+  }
+
+  @After
+  public void tearDown() {
+    couchDbOutput.dispose( meta, data );
+    couchDb.close();
+  }
+
+  private void run() throws KettleException {
+    assertTrue( couchDbOutput.init( meta, data ) );
+    while ( couchDbOutput.processRow( meta, data ) ) {
+      // write all rows
+    }
+  }
+
+  @Test
+  public void testWritesBatchesAndSendsConflictsToTheErrorHop() throws Exception {
+    // c is stored already, without upsert writing it again conflicts
+    new CouchDbBulkWriter( couchDbOutput.createHttpClient( null, null ), null,
+      CouchDbOutput.buildUrl( "127.0.0.1", couchDb.getPort(), "db" ), false )
+      .write( Collections.singletonList( CouchDbBulkWriter.parseDocument( "{\"v\":0}", "c" ) ) );
+
+    run();
+
+    assertEquals( 4, rows.size() );
+    String[] names = { "a", "b", "d", "e" };
+    for ( int i = 0; i < names.length; i++ ) {
+      Object[] row = rows.get( i );
+      assertEquals( names[ i ], row[ 1 ] );
+      assertEquals( names[ i ], row[ 2 ] );
+      assertEquals( couchDb.getRev( names[ i ] ), row[ 3 ] );
+    }
+    assertEquals( 1, errors.size() );
+    assertEquals( "c:conflict", errors.get( 0 ) );
+    assertEquals( "{\"v\":0}", couchDb.getDocument( "c" ) );
+    assertEquals( 4, couchDb.getBulkRequests() );
+  }
+
+  @Test
+  public void testUpsertReplacesStoredDocuments() throws Exception {
+    new CouchDbBulkWriter( couchDbOutput.createHttpClient( null, null ), null,
+      CouchDbOutput.buildUrl( "127.0.0.1", couchDb.getPort(), "db" ), false )
+      .write( Collections.singletonList( CouchDbBulkWriter.parseDocument( "{\"v\":0}", "c" ) ) );
+    meta.setUpsert( true );
+
+    run();
+
+    assertEquals( 5, rows.size() );
+    assertTrue( errors.isEmpty() );
+    assertEquals( "{\"v\":3}", couchDb.getDocument( "c" ) );
+    assertEquals( "2", couchDb.getRev( "c" ).substring( 0, 1 ) );
+    assertEquals( 5, couchDb.size() );
+    assertEquals( 3, couchDb.getLookupRequests() );
+  }
+
+  @Test
+  public void testConcurrentBatchesEachAuthenticate() throws Exception {
+    couchDb.requireAuthentication( "admin", "secret" );
+    couchDb.setDelay( 200 );
+    meta.setAuthenticationUser( "admin" );
+    meta.setAuthenticationPassword( "secret" );
+    meta.setUpsert( true );
+
+    run();
+
+    assertEquals( 5, rows.size() );
+    assertTrue( errors.isEmpty() );
+    assertEquals( 5, couchDb.size() );
+    assertEquals( 2, couchDb.getMaxActiveRequests() );
+    // every request of every batch sent the credentials up front
+    assertEquals( 0, couchDb.getUnauthorizedRequests() );
+  }
+}
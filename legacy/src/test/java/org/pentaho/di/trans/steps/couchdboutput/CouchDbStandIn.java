@@ -0,0 +1,274 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.couchdboutput;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local HTTP server speaking just enough of the CouchDB protocol for writing documents: POST /db/_bulk_docs and
+ * POST /db/_all_docs with keys. Revisions are checked the way CouchDB does, so stale or missing revisions of stored
+ * documents are reported as conflicts. Requests can be required to carry basic authentication and be held for a while,
+ * to check what several concurrent writers send.
+ */
+public class CouchDbStandIn implements Closeable {
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final Map<String, String> revisions = new HashMap<>();
+  private final Map<String, String> documents = new HashMap<>();
+  private final AtomicInteger bulkRequests = new AtomicInteger();
+  private final AtomicInteger lookupRequests = new AtomicInteger();
+  private final AtomicInteger unauthorizedRequests = new AtomicInteger();
+  private final AtomicInteger activeRequests = new AtomicInteger();
+  private final AtomicInteger maxActiveRequests = new AtomicInteger();
+
+  private volatile String authorization;
+  private volatile long delayMs;
+
+  public CouchDbStandIn( String db ) throws IOException {
+    server = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0 ), 0 );
+    server.createContext( "/" + db + "/_bulk_docs", new HttpHandler() {
+      @Override
+      public void handle( HttpExchange exchange ) throws IOException {
+        if ( !authorized( exchange ) ) {
+          return;
+        }
+        bulkRequests.incrementAndGet();
+        hold();
+        respond( exchange, 201, bulkDocs( exchange.getRequestBody() ) );
+      }
+    } );
+    server.createContext( "/" + db + "/_all_docs", new HttpHandler() {
+      @Override
+      public void handle( HttpExchange exchange ) throws IOException {
+        if ( !authorized( exchange ) ) {
+          return;
+        }
+        lookupRequests.incrementAndGet();
+        hold();
+        respond( exchange, 200, allDocs( exchange.getRequestBody() ) );
+      }
+    } );
+    server.setExecutor( executor );
+    server.start();
+  }
+
+  /**
+   * Answer requests without the basic authentication of the user with 401.
+   */
+  public void requireAuthentication( String user, String password ) {
+    authorization = "Basic "
+      + Base64.getEncoder().encodeToString( ( user + ":" + password ).getBytes( StandardCharsets.UTF_8 ) );
+  }
+
+  /**
+   * Hold each request for a while before answering it.
+   */
+  public void setDelay( long delayMs ) {
+    this.delayMs = delayMs;
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  public synchronized String getRev( String id ) {
+    return revisions.get( id );
+  }
+
+  public synchronized String getDocument( String id ) {
+    return documents.get( id );
+  }
+
+  public synchronized int size() {
+    return documents.size();
+  }
+
+  public int getBulkRequests() {
+    return bulkRequests.get();
+  }
+
+  public int getLookupRequests() {
+    return lookupRequests.get();
+  }
+
+  public int getUnauthorizedRequests() {
+    return unauthorizedRequests.get();
+  }
+
+  /**
+   * @return the most requests that were being answered at the same time
+   */
+  public int getMaxActiveRequests() {
+    return maxActiveRequests.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop( 0 );
+    executor.shutdownNow();
+  }
+
+  private boolean authorized( HttpExchange exchange ) throws IOException {
+    String expected = authorization;
+    if ( expected == null || expected.equals( exchange.getRequestHeaders().getFirst( "Authorization" ) ) ) {
+      return true;
+    }
+    unauthorizedRequests.incrementAndGet();
+    exchange.getResponseHeaders().add( "WWW-Authenticate", "Basic realm=\"couchdb\"" );
+    respond( exchange, 401, "{\"error\":\"unauthorized\",\"reason\":\"Name or password is incorrect.\"}" );
+    return false;
+  }
+
+  private void hold() {
+    int active = activeRequests.incrementAndGet();
+    maxActiveRequests.accumulateAndGet( active, Math::max );
+    try {
+      if ( delayMs > 0 ) {
+        Thread.sleep( delayMs );
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    } finally {
+      activeRequests.decrementAndGet();
+    }
+  }
+
+  private synchronized String bulkDocs( InputStream body ) throws IOException {
+    StringWriter response = new StringWriter();
+    try ( JsonParser parser = JSON_FACTORY.createParser( body );
+          JsonGenerator generator = JSON_FACTORY.createGenerator( response ) ) {
+      generator.writeStartArray();
+      parser.nextToken();
+      while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+        String name = parser.getCurrentName();
+        if ( parser.nextToken() != JsonToken.START_ARRAY || !"docs".equals( name ) ) {
+          parser.skipChildren();
+          continue;
+        }
+        while ( parser.nextToken() == JsonToken.START_OBJECT ) {
+          String id = null;
+          String rev = null;
+          StringWriter document = new StringWriter();
+          try ( JsonGenerator copy = JSON_FACTORY.createGenerator( document ) ) {
+            copy.writeStartObject();
+            while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+              String field = parser.getCurrentName();
+              parser.nextToken();
+              if ( "_id".equals( field ) ) {
+                id = parser.getText();
+              } else if ( "_rev".equals( field ) ) {
+                rev = parser.getText();
+              } else {
+                copy.writeFieldName( field );
+                copy.copyCurrentStructure( parser );
+              }
+            }
+            copy.writeEndObject();
+          }
+          writeResult( generator, id, rev, document.toString() );
+        }
+      }
+      generator.writeEndArray();
+    }
+    return response.toString();
+  }
+
+  private void writeResult( JsonGenerator generator, String id, String rev, String document ) throws IOException {
+    if ( id == null ) {
+      id = UUID.randomUUID().toString();
+    }
+    String current = revisions.get( id );
+    generator.writeStartObject();
+    generator.writeStringField( "id", id );
+    if ( current == null ? rev != null : !current.equals( rev ) ) {
+      generator.writeStringField( "error", "conflict" );
+      generator.writeStringField( "reason", "Document update conflict." );
+    } else {
+      int generation = current == null ? 1 : Integer.parseInt( current.substring( 0, current.indexOf( '-' ) ) ) + 1;
+      String newRev = generation + "-" + Integer.toHexString( document.hashCode() );
+      revisions.put( id, newRev );
+      documents.put( id, document );
+      generator.writeBooleanField( "ok", true );
+      generator.writeStringField( "rev", newRev );
+    }
+    generator.writeEndObject();
+  }
+
+  private synchronized String allDocs( InputStream body ) throws IOException {
+    StringWriter response = new StringWriter();
+    try ( JsonParser parser = JSON_FACTORY.createParser( body );
+          JsonGenerator generator = JSON_FACTORY.createGenerator( response ) ) {
+      generator.writeStartObject();
+      generator.writeNumberField( "total_rows", documents.size() );
+      generator.writeArrayFieldStart( "rows" );
+      parser.nextToken();
+      while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+        String name = parser.getCurrentName();
+        if ( parser.nextToken() != JsonToken.START_ARRAY || !"keys".equals( name ) ) {
+          parser.skipChildren();
+          continue;
+        }
+        while ( parser.nextToken() == JsonToken.VALUE_STRING ) {
+          String key = parser.getText();
+          generator.writeStartObject();
+          generator.writeStringField( "key", key );
+          if ( revisions.containsKey( key ) ) {
+            generator.writeStringField( "id", key );
+            generator.writeObjectFieldStart( "value" );
+            generator.writeStringField( "rev", revisions.get( key ) );
+            generator.writeEndObject();
+          } else {
+            generator.writeStringField( "error", "not_found" );
+          }
+          generator.writeEndObject();
+        }
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+    return response.toString();
+  }
+
+  private static void respond( HttpExchange exchange, int status, String json ) throws IOException {
+    byte[] bytes = json.getBytes( StandardCharsets.UTF_8 );
+    exchange.getResponseHeaders().add( "Content-Type", "application/json" );
+    exchange.sendResponseHeaders( status, bytes.length );
+    try ( OutputStream out = exchange.getResponseBody() ) {
+      out.write( bytes );
+    }
+  }
+}